@@ -23,6 +23,7 @@ import com.google.api.gax.core.CredentialsProvider;
 import com.google.api.gax.core.ExecutorProvider;
 import com.google.api.gax.core.FixedExecutorProvider;
 import com.google.api.gax.core.NoCredentialsProvider;
+import com.google.api.gax.grpc.InstantiatingGrpcChannelProvider;
 import com.google.api.gax.retrying.RetrySettings;
 import com.google.api.gax.retrying.RetrySettings.Builder;
 import com.google.api.gax.rpc.HeaderProvider;
@@ -49,10 +50,13 @@ import com.google.cloud.spring.pubsub.support.CachingPublisherFactory;
 import com.google.cloud.spring.pubsub.support.DefaultPublisherFactory;
 import com.google.cloud.spring.pubsub.support.DefaultSubscriberFactory;
 import com.google.cloud.spring.pubsub.support.PubSubSubscriptionUtils;
+import com.google.cloud.spring.pubsub.support.PubSubTopicUtils;
 import com.google.cloud.spring.pubsub.support.PublisherFactory;
 import com.google.cloud.spring.pubsub.support.SubscriberFactory;
 import com.google.cloud.spring.pubsub.support.converter.PubSubMessageConverter;
 import com.google.pubsub.v1.ProjectSubscriptionName;
+import com.google.pubsub.v1.TopicName;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
@@ -110,6 +114,15 @@ public class GcpPubSubAutoConfiguration {
   private final ConcurrentHashMap<String, ExecutorProvider> executorProviderMap =
       new ConcurrentHashMap<>();
 
+  private final ConcurrentHashMap<String, BatchingSettings> publisherBatchingSettingsMap =
+      new ConcurrentHashMap<>();
+
+  private final ConcurrentHashMap<String, RetrySettings> publisherRetrySettingsMap =
+      new ConcurrentHashMap<>();
+
+  private final ConcurrentHashMap<String, ExecutorProvider> publisherExecutorProviderMap =
+      new ConcurrentHashMap<>();
+
   private final ApplicationContext applicationContext;
 
   private ThreadPoolTaskScheduler globalScheduler;
@@ -197,9 +210,33 @@ public class GcpPubSubAutoConfiguration {
     pubSubMessageConverter.ifUnique(pubSubSubscriberTemplate::setMessageConverter);
     pubSubSubscriberTemplate.setAckExecutor(ackExecutor);
     asyncPullExecutor.ifAvailable(pubSubSubscriberTemplate::setAsyncPullExecutor);
+    BatchingSettings ackBatchingSettings = buildAckBatchingSettings();
+    if (ackBatchingSettings != null) {
+      pubSubSubscriberTemplate.setAckBatchingSettings(ackBatchingSettings);
+    }
+    Long pullMaxAckExtensionPeriod =
+        this.gcpPubSubProperties.getSubscriber().getPullMaxAckExtensionPeriod();
+    if (pullMaxAckExtensionPeriod != null && pullMaxAckExtensionPeriod > 0) {
+      pubSubSubscriberTemplate.setMaxAckExtensionPeriod(
+          Duration.ofSeconds(pullMaxAckExtensionPeriod));
+    }
     return pubSubSubscriberTemplate;
   }
 
+  private BatchingSettings buildAckBatchingSettings() {
+    PubSubConfiguration.AckBatching ackBatching =
+        this.gcpPubSubProperties.getSubscriber().getAckBatching();
+    if (!ackBatching.isEnabled()) {
+      return null;
+    }
+
+    return BatchingSettings.newBuilder()
+        .setDelayThreshold(Duration.ofMillis(ackBatching.getDelayThresholdMillis()))
+        .setElementCountThreshold(ackBatching.getElementCountThreshold())
+        .setRequestByteThreshold(ackBatching.getRequestByteThreshold())
+        .build();
+  }
+
   @Bean
   @ConditionalOnMissingBean
   public PubSubTemplate pubSubTemplate(
@@ -277,9 +314,11 @@ public class GcpPubSubAutoConfiguration {
   @Bean
   @ConditionalOnMissingBean(name = "publisherBatchSettings")
   public BatchingSettings publisherBatchSettings() {
-    BatchingSettings.Builder builder = BatchingSettings.newBuilder();
+    return buildBatchingSettings(this.gcpPubSubProperties.getPublisher().getBatching());
+  }
 
-    PubSubConfiguration.Batching batching = this.gcpPubSubProperties.getPublisher().getBatching();
+  private BatchingSettings buildBatchingSettings(PubSubConfiguration.Batching batching) {
+    BatchingSettings.Builder builder = BatchingSettings.newBuilder();
 
     FlowControlSettings flowControlSettings = buildFlowControlSettings(batching.getFlowControl());
     if (flowControlSettings != null) {
@@ -362,13 +401,29 @@ public class GcpPubSubAutoConfiguration {
     batchingSettings.ifAvailable(factory::setBatchingSettings);
     factory.setEnableMessageOrdering(gcpPubSubProperties.getPublisher().getEnableMessageOrdering());
     factory.setEndpoint(gcpPubSubProperties.getPublisher().getEndpoint());
+    factory.setExecutorProviderMap(this.publisherExecutorProviderMap);
+    factory.setRetrySettingsMap(this.publisherRetrySettingsMap);
+    factory.setBatchingSettingsMap(this.publisherBatchingSettingsMap);
 
     List<PublisherCustomizer> customizers = customizersProvider.orderedStream()
         .collect(Collectors.toList());
     Collections.reverse(customizers); // highest priority customizer needs to be last
     factory.setCustomizers(customizers);
 
-    return new CachingPublisherFactory(factory);
+    PubSubConfiguration.PublisherCache cache = this.gcpPubSubProperties.getPublisher().getCache();
+    Long idleTimeoutSeconds = cache.getIdleTimeoutSeconds();
+    CachingPublisherFactory cachingFactory =
+        new CachingPublisherFactory(
+            factory,
+            cache.getMaximumSize(),
+            idleTimeoutSeconds != null ? Duration.ofSeconds(idleTimeoutSeconds) : null);
+    ifSet(
+        cache.getShutdownTimeoutSeconds(),
+        x -> cachingFactory.setShutdownTimeout(Duration.ofSeconds(x)));
+    ifSet(
+        cache.getEvictionGracePeriodSeconds(),
+        x -> cachingFactory.setEvictionGracePeriod(Duration.ofSeconds(x)));
+    return cachingFactory;
   }
 
   @Bean
@@ -424,19 +479,44 @@ public class GcpPubSubAutoConfiguration {
   @Bean
   @ConditionalOnMissingBean(name = "subscriberTransportChannelProvider")
   public TransportChannelProvider subscriberTransportChannelProvider() {
-    return SubscriberStubSettings.defaultGrpcTransportProviderBuilder()
-        .setKeepAliveTime(
-            Duration.ofMinutes(this.gcpPubSubProperties.getKeepAliveIntervalMinutes()))
-        .build();
+    return buildTransportChannelProvider(
+        SubscriberStubSettings.defaultGrpcTransportProviderBuilder(),
+        this.gcpPubSubProperties.getSubscriber().getGrpc());
   }
 
   @Bean
   @ConditionalOnMissingBean(name = "publisherTransportChannelProvider")
   public TransportChannelProvider publisherTransportChannelProvider() {
-    return PublisherStubSettings.defaultGrpcTransportProviderBuilder()
-        .setKeepAliveTime(
-            Duration.ofMinutes(this.gcpPubSubProperties.getKeepAliveIntervalMinutes()))
-        .build();
+    return buildTransportChannelProvider(
+        PublisherStubSettings.defaultGrpcTransportProviderBuilder(),
+        this.gcpPubSubProperties.getPublisher().getGrpc());
+  }
+
+  private TransportChannelProvider buildTransportChannelProvider(
+      InstantiatingGrpcChannelProvider.Builder builder, PubSubConfiguration.Grpc grpc) {
+    Long keepAliveTimeSeconds = grpc.getKeepAliveTimeSeconds();
+    builder.setKeepAliveTime(
+        keepAliveTimeSeconds != null
+            ? Duration.ofSeconds(keepAliveTimeSeconds)
+            : Duration.ofMinutes(this.gcpPubSubProperties.getKeepAliveIntervalMinutes()));
+    ifSet(grpc.getChannelPoolSize(), builder::setPoolSize);
+    ifSet(
+        grpc.getKeepAliveTimeoutSeconds(),
+        x -> builder.setKeepAliveTimeout(Duration.ofSeconds(x)));
+    ifSet(grpc.getKeepAliveWithoutCalls(), builder::setKeepAliveWithoutCalls);
+    ifSet(grpc.getMaxInboundMessageSize(), builder::setMaxInboundMessageSize);
+    ifSet(
+        grpc.getFlowControlWindow(),
+        x ->
+            builder.setChannelConfigurator(
+                channelBuilder -> {
+                  // The window is a Netty setting; other transports keep their default.
+                  if (channelBuilder instanceof NettyChannelBuilder) {
+                    ((NettyChannelBuilder) channelBuilder).flowControlWindow(x);
+                  }
+                  return channelBuilder;
+                }));
+    return builder.build();
   }
 
   @PostConstruct
@@ -448,6 +528,65 @@ public class GcpPubSubAutoConfiguration {
     registerSubscriberRetrySettingsBeans(context);
   }
 
+  /**
+   * Creates and registers the topic-specific publisher executor providers, batching settings and
+   * retry settings configured under {@code spring.cloud.gcp.pubsub.publisher.topic}.
+   */
+  @PostConstruct
+  public void registerPublisherSettings() {
+    GenericApplicationContext context = (GenericApplicationContext) this.applicationContext;
+    String projectId = this.finalProjectIdProvider.getProjectId();
+    BatchingSettings globalBatchingSettings =
+        buildBatchingSettings(this.gcpPubSubProperties.getPublisher().getBatching());
+    RetrySettings globalPublisherRetrySettings =
+        buildRetrySettings(this.gcpPubSubProperties.getPublisher().getRetry());
+
+    for (String topic : this.gcpPubSubProperties.getPublisher().getTopic().keySet()) {
+      TopicName fullTopicName = PubSubTopicUtils.toTopicName(topic, projectId);
+      String fullyQualifiedName = fullTopicName.toString();
+      String topicName = fullTopicName.getTopic();
+
+      Integer executorThreads =
+          this.gcpPubSubProperties.getPublisher().getTopic().get(topic).getExecutorThreads();
+      if (executorThreads != null
+          && !this.publisherExecutorProviderMap.containsKey(fullyQualifiedName)) {
+        ThreadPoolTaskScheduler scheduler =
+            createAndRegisterSchedulerBean(
+                executorThreads,
+                "gcp-pubsub-publisher-" + topicName,
+                "publisherThreadPoolScheduler_" + topicName,
+                context);
+        this.publisherExecutorProviderMap.put(
+            fullyQualifiedName,
+            createAndRegisterExecutorProvider(
+                "publisherExecutorProvider-" + topicName, scheduler, context));
+      }
+
+      BatchingSettings batchingSettings =
+          buildBatchingSettings(
+              this.gcpPubSubProperties.computePublisherBatchingSettings(topic, projectId));
+      if (batchingSettings != null && !batchingSettings.equals(globalBatchingSettings)) {
+        this.publisherBatchingSettingsMap.putIfAbsent(fullyQualifiedName, batchingSettings);
+        context.registerBeanDefinition(
+            "publisherBatchSettings-" + topicName,
+            BeanDefinitionBuilder.genericBeanDefinition(
+                    BatchingSettings.class, () -> batchingSettings)
+                .getBeanDefinition());
+      }
+
+      RetrySettings retrySettings =
+          buildRetrySettings(
+              this.gcpPubSubProperties.computePublisherRetrySettings(topic, projectId));
+      if (retrySettings != null && !retrySettings.equals(globalPublisherRetrySettings)) {
+        this.publisherRetrySettingsMap.putIfAbsent(fullyQualifiedName, retrySettings);
+        context.registerBeanDefinition(
+            "publisherRetrySettings-" + topicName,
+            BeanDefinitionBuilder.genericBeanDefinition(RetrySettings.class, () -> retrySettings)
+                .getBeanDefinition());
+      }
+    }
+  }
+
   private void registerSubscriberThreadPoolSchedulerBeans(GenericApplicationContext context) {
     Integer numThreads = getGlobalExecutorThreads();
     this.globalScheduler =
@@ -16,9 +16,11 @@
 
 package com.google.cloud.spring.autoconfigure.pubsub;
 
+import com.google.cloud.spring.pubsub.core.publisher.PubSubPublisherTemplate;
 import com.google.cloud.spring.pubsub.core.subscriber.PubSubSubscriberTemplate;
 import com.google.cloud.spring.pubsub.reactive.PubSubReactiveFactory;
 import java.util.Optional;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
@@ -47,9 +49,12 @@ public class GcpPubSubReactiveAutoConfiguration {
   @ConditionalOnMissingBean
   public PubSubReactiveFactory pubSubReactiveFactory(
       PubSubSubscriberTemplate subscriberTemplate,
+      ObjectProvider<PubSubPublisherTemplate> publisherTemplate,
       @Qualifier("pubSubReactiveScheduler") Optional<Scheduler> userProvidedScheduler) {
 
     Scheduler scheduler = userProvidedScheduler.orElseGet(Schedulers::parallel);
-    return new PubSubReactiveFactory(subscriberTemplate, scheduler);
+    PubSubReactiveFactory factory = new PubSubReactiveFactory(subscriberTemplate, scheduler);
+    publisherTemplate.ifAvailable(factory::setPublisherTemplate);
+    return factory;
   }
 }
@@ -95,13 +95,17 @@ public class PubSubSubscriptionHealthIndicatorAutoConfiguration
   public HealthTrackerRegistry healthTrackerRegistry(
       MetricServiceClient metricServiceClient,
       @Qualifier("healthCheckExecutorProvider") ExecutorProvider executorProvider) {
-    return new HealthTrackerRegistryImpl(
-        projectId,
-        metricServiceClient,
-        gcpPubSubProperties.getHealth().getLagThreshold(),
-        gcpPubSubProperties.getHealth().getBacklogThreshold(),
-        gcpPubSubProperties.getHealth().getLookUpInterval(),
-        executorProvider);
+    HealthTrackerRegistryImpl healthTrackerRegistry =
+        new HealthTrackerRegistryImpl(
+            projectId,
+            metricServiceClient,
+            gcpPubSubProperties.getHealth().getLagThreshold(),
+            gcpPubSubProperties.getHealth().getBacklogThreshold(),
+            gcpPubSubProperties.getHealth().getLookUpInterval(),
+            executorProvider);
+    healthTrackerRegistry.setBacklogSamplingInterval(
+        gcpPubSubProperties.getHealth().getBacklogSamplingInterval());
+    return healthTrackerRegistry;
   }
 
   @Bean
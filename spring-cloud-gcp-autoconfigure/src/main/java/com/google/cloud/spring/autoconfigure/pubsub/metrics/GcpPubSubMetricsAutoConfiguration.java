@@ -0,0 +1,62 @@
+/*
+ * Copyright 2022-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.autoconfigure.pubsub.metrics;
+
+import com.google.cloud.spring.autoconfigure.pubsub.GcpPubSubAutoConfiguration;
+import com.google.cloud.spring.pubsub.core.PubSubTemplate;
+import com.google.cloud.spring.pubsub.support.PubSubMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration;
+import org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Records the Micrometer meters of the Pub/Sub publisher and subscriber templates to the
+ * application {@link MeterRegistry}.
+ *
+ * @since 3.2
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnClass({MeterRegistry.class, PubSubTemplate.class})
+@ConditionalOnBean(MeterRegistry.class)
+@ConditionalOnProperty(value = "spring.cloud.gcp.pubsub.metrics.enabled", matchIfMissing = true)
+@AutoConfigureAfter({
+  MetricsAutoConfiguration.class,
+  CompositeMeterRegistryAutoConfiguration.class,
+  GcpPubSubAutoConfiguration.class
+})
+public class GcpPubSubMetricsAutoConfiguration {
+
+  @Bean
+  @ConditionalOnMissingBean
+  public PubSubMetrics pubSubMetrics(MeterRegistry meterRegistry) {
+    return new PubSubMetrics(meterRegistry);
+  }
+
+  @Bean
+  @ConditionalOnMissingBean
+  static PubSubMetricsBeanPostProcessor pubSubMetricsBeanPostProcessor(BeanFactory beanFactory) {
+    return new PubSubMetricsBeanPostProcessor(beanFactory);
+  }
+}
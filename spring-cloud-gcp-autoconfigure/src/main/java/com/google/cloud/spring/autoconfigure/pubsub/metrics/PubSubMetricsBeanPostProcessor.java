@@ -0,0 +1,60 @@
+/*
+ * Copyright 2022-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.autoconfigure.pubsub.metrics;
+
+import com.google.cloud.spring.pubsub.core.publisher.PubSubPublisherTemplate;
+import com.google.cloud.spring.pubsub.core.subscriber.PubSubSubscriberTemplate;
+import com.google.cloud.spring.pubsub.integration.PubSubMessageDeduplicator;
+import com.google.cloud.spring.pubsub.support.PubSubMetrics;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+/**
+ * Sets the {@link PubSubMetrics} of the publisher and subscriber template beans, and of the
+ * message deduplicator beans.
+ */
+class PubSubMetricsBeanPostProcessor implements BeanPostProcessor {
+
+  private final BeanFactory beanFactory;
+
+  private PubSubMetrics metrics;
+
+  PubSubMetricsBeanPostProcessor(BeanFactory beanFactory) {
+    this.beanFactory = beanFactory;
+  }
+
+  @Override
+  public Object postProcessBeforeInitialization(Object bean, String beanName)
+      throws BeansException {
+    if (bean instanceof PubSubPublisherTemplate) {
+      ((PubSubPublisherTemplate) bean).setMetrics(pubSubMetrics());
+    } else if (bean instanceof PubSubSubscriberTemplate) {
+      ((PubSubSubscriberTemplate) bean).setMetrics(pubSubMetrics());
+    } else if (bean instanceof PubSubMessageDeduplicator) {
+      ((PubSubMessageDeduplicator) bean).setMetrics(pubSubMetrics());
+    }
+    return bean;
+  }
+
+  PubSubMetrics pubSubMetrics() {
+    if (this.metrics == null) {
+      this.metrics = this.beanFactory.getBean(PubSubMetrics.class);
+    }
+    return this.metrics;
+  }
+}
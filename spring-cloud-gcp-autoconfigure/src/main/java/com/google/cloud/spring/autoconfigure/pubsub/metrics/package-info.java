@@ -0,0 +1,2 @@
+/** Auto-configuration for the Micrometer metrics of the Cloud Pub/Sub module. */
+package com.google.cloud.spring.autoconfigure.pubsub.metrics;
@@ -19,6 +19,7 @@ package com.google.cloud.spring.autoconfigure.trace.pubsub;
 import com.google.cloud.pubsub.v1.MessageReceiver;
 import com.google.cloud.pubsub.v1.Subscriber;
 import com.google.cloud.pubsub.v1.stub.SubscriberStub;
+import com.google.cloud.spring.pubsub.core.subscriber.SubscriberCustomizer;
 import com.google.cloud.spring.pubsub.support.SubscriberFactory;
 import com.google.pubsub.v1.PullRequest;
 
@@ -43,6 +44,13 @@ final class TracingSubscriberFactory implements SubscriberFactory {
         subscriptionName, pubSubTracing.messageReceiver(receiver, subscriptionName));
   }
 
+  @Override
+  public Subscriber createSubscriber(
+      String subscriptionName, MessageReceiver receiver, SubscriberCustomizer customizer) {
+    return delegate.createSubscriber(
+        subscriptionName, pubSubTracing.messageReceiver(receiver, subscriptionName), customizer);
+  }
+
   @Override
   public PullRequest createPullRequest(
       String subscriptionName, Integer maxMessages, Boolean returnImmediately) {
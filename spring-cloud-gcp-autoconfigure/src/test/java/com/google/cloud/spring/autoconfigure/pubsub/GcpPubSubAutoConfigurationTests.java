@@ -34,6 +34,7 @@ import com.google.cloud.pubsub.v1.Subscriber;
 import com.google.cloud.spring.core.GcpProjectIdProvider;
 import com.google.cloud.spring.pubsub.core.PubSubConfiguration;
 import com.google.cloud.spring.pubsub.core.publisher.PublisherCustomizer;
+import com.google.cloud.spring.pubsub.core.subscriber.PubSubSubscriberTemplate;
 import com.google.cloud.spring.pubsub.support.CachingPublisherFactory;
 import com.google.cloud.spring.pubsub.support.DefaultPublisherFactory;
 import com.google.cloud.spring.pubsub.support.DefaultSubscriberFactory;
@@ -133,6 +134,43 @@ class GcpPubSubAutoConfigurationTests {
         });
   }
 
+  @Test
+  void grpcChannelSettings_custom() {
+    ApplicationContextRunner contextRunner =
+        new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(GcpPubSubAutoConfiguration.class))
+            .withUserConfiguration(TestConfig.class)
+            .withPropertyValues(
+                "spring.cloud.gcp.pubsub.subscriber.grpc.channel-pool-size=4",
+                "spring.cloud.gcp.pubsub.subscriber.grpc.keep-alive-time-seconds=30",
+                "spring.cloud.gcp.pubsub.subscriber.grpc.keep-alive-timeout-seconds=10",
+                "spring.cloud.gcp.pubsub.subscriber.grpc.keep-alive-without-calls=true",
+                "spring.cloud.gcp.pubsub.subscriber.grpc.max-inbound-message-size=1048576",
+                "spring.cloud.gcp.pubsub.subscriber.grpc.flow-control-window=4194304",
+                "spring.cloud.gcp.pubsub.publisher.grpc.channel-pool-size=2");
+
+    contextRunner.run(
+        ctx -> {
+          InstantiatingGrpcChannelProvider subscriberTcp =
+              (InstantiatingGrpcChannelProvider)
+                  ctx.getBean("subscriberTransportChannelProvider", TransportChannelProvider.class);
+          InstantiatingGrpcChannelProvider.Builder subscriberBuilder = subscriberTcp.toBuilder();
+          assertThat(subscriberBuilder.getPoolSize()).isEqualTo(4);
+          assertThat(subscriberTcp.getKeepAliveTime()).isEqualTo(Duration.ofSeconds(30));
+          assertThat(subscriberTcp.getKeepAliveTimeout()).isEqualTo(Duration.ofSeconds(10));
+          assertThat(subscriberTcp.getKeepAliveWithoutCalls()).isTrue();
+          assertThat(subscriberBuilder.getMaxInboundMessageSize()).isEqualTo(1048576);
+          assertThat(subscriberBuilder.getChannelConfigurator()).isNotNull();
+
+          InstantiatingGrpcChannelProvider publisherTcp =
+              (InstantiatingGrpcChannelProvider)
+                  ctx.getBean("publisherTransportChannelProvider", TransportChannelProvider.class);
+          assertThat(publisherTcp.toBuilder().getPoolSize()).isEqualTo(2);
+          assertThat(publisherTcp.getKeepAliveTime().toMinutes()).isEqualTo(5);
+          assertThat(publisherTcp.toBuilder().getChannelConfigurator()).isNull();
+        });
+  }
+
   @Test
   void retryableCodes_default() {
     ApplicationContextRunner contextRunner =
@@ -1328,6 +1366,139 @@ class GcpPubSubAutoConfigurationTests {
         });
   }
 
+  @Test
+  void ackBatching_default_notEnabled() {
+    baseContextRunner.run(
+        ctx -> {
+          PubSubSubscriberTemplate template = ctx.getBean(PubSubSubscriberTemplate.class);
+          assertThat(FieldUtils.readField(template, "ackBatcher", true)).isNull();
+        });
+  }
+
+  @Test
+  void ackBatching_enabled() {
+    baseContextRunner
+        .withPropertyValues(
+            "spring.cloud.gcp.pubsub.subscriber.ack-batching.enabled=true",
+            "spring.cloud.gcp.pubsub.subscriber.ack-batching.element-count-threshold=500",
+            "spring.cloud.gcp.pubsub.subscriber.ack-batching.delay-threshold-millis=250")
+        .run(
+            ctx -> {
+              GcpPubSubProperties props = ctx.getBean(GcpPubSubProperties.class);
+              PubSubConfiguration.AckBatching ackBatching =
+                  props.getSubscriber().getAckBatching();
+              assertThat(ackBatching.isEnabled()).isTrue();
+              assertThat(ackBatching.getElementCountThreshold()).isEqualTo(500L);
+              assertThat(ackBatching.getRequestByteThreshold()).isNull();
+              assertThat(ackBatching.getDelayThresholdMillis()).isEqualTo(250L);
+
+              PubSubSubscriberTemplate template = ctx.getBean(PubSubSubscriberTemplate.class);
+              Object ackBatcher = FieldUtils.readField(template, "ackBatcher", true);
+              assertThat(ackBatcher).isNotNull();
+              assertThat(FieldUtils.readField(ackBatcher, "elementCountThreshold", true))
+                  .isEqualTo(500L);
+              assertThat(FieldUtils.readField(ackBatcher, "delayThresholdMillis", true))
+                  .isEqualTo(250L);
+            });
+  }
+
+  @Test
+  void pullMaxAckExtensionPeriod_default_notEnabled() {
+    baseContextRunner.run(
+        ctx -> {
+          PubSubSubscriberTemplate template = ctx.getBean(PubSubSubscriberTemplate.class);
+          assertThat(FieldUtils.readField(template, "leaseManager", true)).isNull();
+        });
+  }
+
+  @Test
+  void pullMaxAckExtensionPeriod_enabled() {
+    baseContextRunner
+        .withPropertyValues("spring.cloud.gcp.pubsub.subscriber.pull-max-ack-extension-period=300")
+        .run(
+            ctx -> {
+              GcpPubSubProperties props = ctx.getBean(GcpPubSubProperties.class);
+              assertThat(props.getSubscriber().getPullMaxAckExtensionPeriod()).isEqualTo(300L);
+
+              PubSubSubscriberTemplate template = ctx.getBean(PubSubSubscriberTemplate.class);
+              Object leaseManager = FieldUtils.readField(template, "leaseManager", true);
+              assertThat(leaseManager).isNotNull();
+              assertThat(FieldUtils.readField(leaseManager, "maxAckExtensionPeriodMillis", true))
+                  .isEqualTo(300_000L);
+            });
+  }
+
+  @Test
+  void publisherSettings_topicSpecificConfigurationSet() {
+    baseContextRunner
+        .withPropertyValues(
+            "spring.cloud.gcp.pubsub.publisher.batching.element-count-threshold=100",
+            "spring.cloud.gcp.pubsub.publisher.batching.delay-threshold-seconds=1",
+            "spring.cloud.gcp.pubsub.publisher.topic.control.batching.element-count-threshold=1",
+            "spring.cloud.gcp.pubsub.publisher.topic.control.retry.max-attempts=2",
+            "spring.cloud.gcp.pubsub.publisher.topic.control.executor-threads=2")
+        .run(
+            ctx -> {
+              DefaultPublisherFactory factory =
+                  (DefaultPublisherFactory)
+                      ((CachingPublisherFactory) ctx.getBean(PublisherFactory.class))
+                          .getDelegate();
+
+              BatchingSettings controlBatching =
+                  (BatchingSettings) ctx.getBean("publisherBatchSettings-control");
+              assertThat(controlBatching.getElementCountThreshold()).isEqualTo(1L);
+              assertThat(controlBatching.getDelayThreshold()).isEqualTo(Duration.ofSeconds(1));
+              assertThat(factory.getBatchingSettings("control")).isSameAs(controlBatching);
+              assertThat(factory.getBatchingSettings("telemetry"))
+                  .isSameAs(ctx.getBean("publisherBatchSettings"));
+
+              RetrySettings controlRetry =
+                  (RetrySettings) ctx.getBean("publisherRetrySettings-control");
+              assertThat(controlRetry.getMaxAttempts()).isEqualTo(2);
+              assertThat(factory.getRetrySettings("projects/fake project/topics/control"))
+                  .isSameAs(controlRetry);
+              assertThat(factory.getRetrySettings("telemetry")).isNull();
+
+              ExecutorProvider controlExecutorProvider =
+                  (ExecutorProvider) ctx.getBean("publisherExecutorProvider-control");
+              assertThat(factory.getExecutorProvider("control")).isSameAs(controlExecutorProvider);
+              assertThat(factory.getExecutorProvider("telemetry"))
+                  .isSameAs(ctx.getBean("publisherExecutorProvider"));
+              ThreadPoolTaskScheduler scheduler =
+                  (ThreadPoolTaskScheduler) ctx.getBean("publisherThreadPoolScheduler_control");
+              assertThat(scheduler.getScheduledThreadPoolExecutor().getCorePoolSize()).isEqualTo(2);
+              assertThat(scheduler.getThreadNamePrefix()).isEqualTo("gcp-pubsub-publisher-control");
+            });
+  }
+
+  @Test
+  void publisherCache_boundsConfigured() {
+    baseContextRunner
+        .withPropertyValues(
+            "spring.cloud.gcp.pubsub.publisher.cache.maximum-size=10",
+            "spring.cloud.gcp.pubsub.publisher.cache.idle-timeout-seconds=300",
+            "spring.cloud.gcp.pubsub.publisher.cache.shutdown-timeout-seconds=5",
+            "spring.cloud.gcp.pubsub.publisher.cache.eviction-grace-period-seconds=2")
+        .run(
+            ctx -> {
+              GcpPubSubProperties props = ctx.getBean(GcpPubSubProperties.class);
+              assertThat(props.getPublisher().getCache().getMaximumSize()).isEqualTo(10L);
+              assertThat(props.getPublisher().getCache().getIdleTimeoutSeconds()).isEqualTo(300L);
+
+              CachingPublisherFactory factory =
+                  (CachingPublisherFactory) ctx.getBean(PublisherFactory.class);
+              assertThat(FieldUtils.readField(factory, "shutdownTimeout", true))
+                  .isEqualTo(Duration.ofSeconds(5));
+              assertThat(FieldUtils.readField(factory, "evictionGracePeriod", true))
+                  .isEqualTo(Duration.ofSeconds(2));
+              for (int i = 0; i <= 10; i++) {
+                factory.createPublisher("topic" + i);
+              }
+              assertThat(factory.getEvictionCount()).isEqualTo(1);
+              assertThat(factory.getCachedPublisherCount()).isEqualTo(10);
+            });
+  }
+
   @Configuration
   static class CustomizerConfig {
     @Bean
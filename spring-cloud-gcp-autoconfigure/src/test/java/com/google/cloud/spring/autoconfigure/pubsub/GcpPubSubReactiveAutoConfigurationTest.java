@@ -23,11 +23,13 @@ import static org.mockito.Mockito.when;
 import com.google.api.gax.core.CredentialsProvider;
 import com.google.auth.Credentials;
 import com.google.cloud.spring.core.GcpProjectIdProvider;
+import com.google.cloud.spring.pubsub.core.publisher.PubSubPublisherTemplate;
 import com.google.cloud.spring.pubsub.core.subscriber.PubSubSubscriberOperations;
 import com.google.cloud.spring.pubsub.core.subscriber.PubSubSubscriberTemplate;
 import com.google.cloud.spring.pubsub.reactive.PubSubReactiveFactory;
 import com.google.cloud.spring.pubsub.support.AcknowledgeablePubsubMessage;
 import java.util.Arrays;
+import org.apache.commons.lang3.reflect.FieldUtils;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -70,6 +72,19 @@ public class GcpPubSubReactiveAutoConfigurationTest {
         });
   }
 
+  @Test
+  public void reactiveFactoryUsesPublisherTemplate() {
+
+    ApplicationContextRunner contextRunner =
+        new ApplicationContextRunner().withConfiguration(AutoConfigurations.of(TestConfig.class));
+    contextRunner.run(
+        ctx -> {
+          PubSubReactiveFactory factory = ctx.getBean(PubSubReactiveFactory.class);
+          assertThat(FieldUtils.readField(factory, "publisherTemplate", true))
+              .isSameAs(ctx.getBean(PubSubPublisherTemplate.class));
+        });
+  }
+
   @Test
   public void reactiveConfigDisabledWhenPubSubDisabled() {
 
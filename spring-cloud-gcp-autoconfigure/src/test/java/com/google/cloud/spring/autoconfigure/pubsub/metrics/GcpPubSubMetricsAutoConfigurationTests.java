@@ -0,0 +1,149 @@
+/*
+ * Copyright 2022-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.autoconfigure.pubsub.metrics;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.core.CredentialsProvider;
+import com.google.auth.Credentials;
+import com.google.cloud.pubsub.v1.AckReplyConsumer;
+import com.google.cloud.pubsub.v1.MessageReceiver;
+import com.google.cloud.pubsub.v1.Publisher;
+import com.google.cloud.pubsub.v1.Subscriber;
+import com.google.cloud.spring.autoconfigure.pubsub.GcpPubSubAutoConfiguration;
+import com.google.cloud.spring.core.GcpProjectIdProvider;
+import com.google.cloud.spring.pubsub.core.publisher.PubSubPublisherTemplate;
+import com.google.cloud.spring.pubsub.core.subscriber.PubSubSubscriberTemplate;
+import com.google.cloud.spring.pubsub.integration.PubSubMessageDeduplicator;
+import com.google.cloud.spring.pubsub.support.BasicAcknowledgeablePubsubMessage;
+import com.google.cloud.spring.pubsub.support.PubSubMetrics;
+import com.google.cloud.spring.pubsub.support.PublisherFactory;
+import com.google.cloud.spring.pubsub.support.SubscriberFactory;
+import com.google.pubsub.v1.ProjectSubscriptionName;
+import com.google.pubsub.v1.PubsubMessage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+/** Tests for the Pub/Sub metrics autoconfiguration. */
+class GcpPubSubMetricsAutoConfigurationTests {
+
+  private ApplicationContextRunner contextRunner =
+      new ApplicationContextRunner()
+          .withConfiguration(
+              AutoConfigurations.of(
+                  GcpPubSubAutoConfiguration.class, GcpPubSubMetricsAutoConfiguration.class))
+          .withBean(GcpProjectIdProvider.class, () -> () -> "fake project")
+          .withBean(CredentialsProvider.class, () -> () -> mock(Credentials.class));
+
+  @Test
+  void templatesRecordToMeterRegistry() {
+    Publisher publisher = mock(Publisher.class);
+    when(publisher.publish(any())).thenReturn(ApiFutures.immediateFuture("message-id"));
+    PublisherFactory publisherFactory = mock(PublisherFactory.class);
+    when(publisherFactory.createPublisher("topic")).thenReturn(publisher);
+    SubscriberFactory subscriberFactory = mock(SubscriberFactory.class);
+    when(subscriberFactory.getProjectId()).thenReturn("fake-project");
+    when(subscriberFactory.createSubscriber(eq("sub"), any(MessageReceiver.class)))
+        .then(
+            invocation -> {
+              MessageReceiver receiver = invocation.getArgument(1);
+              receiver.receiveMessage(
+                  PubsubMessage.getDefaultInstance(), mock(AckReplyConsumer.class));
+              return mock(Subscriber.class);
+            });
+
+    this.contextRunner
+        .withBean(MeterRegistry.class, SimpleMeterRegistry::new)
+        .withBean(PublisherFactory.class, () -> publisherFactory)
+        .withBean(SubscriberFactory.class, () -> subscriberFactory)
+        .run(
+            ctx -> {
+              ctx.getBean(PubSubPublisherTemplate.class)
+                  .publish("topic", PubsubMessage.getDefaultInstance())
+                  .get();
+              ctx.getBean(PubSubSubscriberTemplate.class).subscribe("sub", message -> {});
+
+              MeterRegistry meterRegistry = ctx.getBean(MeterRegistry.class);
+              assertThat(
+                      meterRegistry
+                          .get("spring.cloud.gcp.pubsub.publish")
+                          .tags("topic", "topic", "result", "success")
+                          .timer()
+                          .count())
+                  .isEqualTo(1);
+              assertThat(
+                      meterRegistry
+                          .get("spring.cloud.gcp.pubsub.receive")
+                          .tag("subscription", "sub")
+                          .counter()
+                          .count())
+                  .isEqualTo(1);
+              assertThat(meterRegistry.find("spring.cloud.gcp.pubsub.pull.leases").gauge())
+                  .isNotNull();
+            });
+  }
+
+  @Test
+  void deduplicatorsRecordToMeterRegistry() {
+    this.contextRunner
+        .withBean(MeterRegistry.class, SimpleMeterRegistry::new)
+        .withBean(
+            PubSubMessageDeduplicator.class,
+            () -> new PubSubMessageDeduplicator(10, Duration.ofMinutes(1)))
+        .run(
+            ctx -> {
+              BasicAcknowledgeablePubsubMessage message =
+                  mock(BasicAcknowledgeablePubsubMessage.class);
+              when(message.getProjectSubscriptionName())
+                  .thenReturn(ProjectSubscriptionName.of("fake-project", "sub"));
+              when(message.getPubsubMessage())
+                  .thenReturn(PubsubMessage.newBuilder().setMessageId("message-id").build());
+
+              ctx.getBean(PubSubMessageDeduplicator.class).isDuplicate(message);
+
+              assertThat(
+                      ctx.getBean(MeterRegistry.class)
+                          .get("spring.cloud.gcp.pubsub.dedupe")
+                          .tags("subscription", "sub", "result", "miss")
+                          .counter()
+                          .count())
+                  .isEqualTo(1);
+            });
+  }
+
+  @Test
+  void noMetricsWithoutMeterRegistry() {
+    this.contextRunner.run(ctx -> assertThat(ctx).doesNotHaveBean(PubSubMetrics.class));
+  }
+
+  @Test
+  void noMetricsWhenDisabled() {
+    this.contextRunner
+        .withBean(MeterRegistry.class, SimpleMeterRegistry::new)
+        .withPropertyValues("spring.cloud.gcp.pubsub.metrics.enabled=false")
+        .run(ctx -> assertThat(ctx).doesNotHaveBean(PubSubMetrics.class));
+  }
+}
@@ -26,6 +26,7 @@ import static org.mockito.Mockito.when;
 import com.google.cloud.pubsub.v1.MessageReceiver;
 import com.google.cloud.pubsub.v1.Subscriber;
 import com.google.cloud.pubsub.v1.stub.SubscriberStub;
+import com.google.cloud.spring.pubsub.core.subscriber.SubscriberCustomizer;
 import com.google.cloud.spring.pubsub.support.SubscriberFactory;
 import com.google.pubsub.v1.PullRequest;
 import org.junit.jupiter.api.Test;
@@ -65,6 +66,25 @@ class TracingSubscriberFactoryTest {
     verify(mockPubSubTracing, times(1)).messageReceiver(mockMessageReceiver, TEST_SUBSCRIPTION);
   }
 
+  @Test
+  void test_createSubscriberWithCustomizer() {
+    Subscriber mockSubscriber = mock(Subscriber.class);
+    MessageReceiver mockMessageReceiver = mock(MessageReceiver.class);
+    TracingMessageReceiver mockWrappedMessageReceiver = mock(TracingMessageReceiver.class);
+    SubscriberCustomizer customizer = (builder, subscription) -> builder.setParallelPullCount(2);
+    when(mockPubSubTracing.messageReceiver(mockMessageReceiver, TEST_SUBSCRIPTION))
+        .thenReturn(mockWrappedMessageReceiver);
+    when(mockDelegate.createSubscriber(TEST_SUBSCRIPTION, mockWrappedMessageReceiver, customizer))
+        .thenReturn(mockSubscriber);
+
+    assertThat(
+            tracingSubscriberFactory.createSubscriber(
+                TEST_SUBSCRIPTION, mockMessageReceiver, customizer))
+        .isEqualTo(mockSubscriber);
+    verify(mockDelegate, times(1))
+        .createSubscriber(TEST_SUBSCRIPTION, mockWrappedMessageReceiver, customizer);
+  }
+
   @Test
   void test_createPullRequest() {
     PullRequest mockPullRequest = mock(PullRequest.class);
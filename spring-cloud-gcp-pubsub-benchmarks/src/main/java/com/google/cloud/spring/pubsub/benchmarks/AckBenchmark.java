@@ -0,0 +1,101 @@
+/*
+ * Copyright 2022-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.benchmarks;
+
+import com.google.cloud.spring.pubsub.core.subscriber.PubSubSubscriberTemplate;
+import com.google.cloud.spring.pubsub.support.AcknowledgeablePubsubMessage;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures acking and nacking collections of pulled messages through {@link
+ * PubSubSubscriberTemplate}, which groups the messages per subscription and sends one request per
+ * subscription to the {@link BenchmarkPubSub} server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AckBenchmark {
+
+  @Param({"1", "100", "1000"})
+  private int messageCount;
+
+  @Param({"1", "4"})
+  private int subscriptionCount;
+
+  private BenchmarkPubSub pubSub;
+
+  private PubSubSubscriberTemplate subscriberTemplate;
+
+  private List<AcknowledgeablePubsubMessage> messages;
+
+  @Setup
+  public void setUp() throws IOException {
+    this.pubSub = new BenchmarkPubSub();
+    int messagesPerSubscription = Math.max(this.messageCount / this.subscriptionCount, 1);
+    PubsubMessage message =
+        PubsubMessage.newBuilder().setData(ByteString.copyFromUtf8("payload")).build();
+    this.subscriberTemplate = new PubSubSubscriberTemplate(this.pubSub.createSubscriberFactory());
+
+    // The server ignores the ack IDs that are no longer leased, so the same messages can be acked
+    // repeatedly.
+    this.messages = new ArrayList<>();
+    for (int i = 0; i < this.subscriptionCount; i++) {
+      String subscription = "benchmark-subscription-" + i;
+      this.pubSub.createSubscription(subscription);
+      this.pubSub.publish(subscription, messagesPerSubscription, message);
+      this.messages.addAll(
+          this.subscriberTemplate.pull(subscription, messagesPerSubscription, true));
+    }
+  }
+
+  @TearDown
+  public void tearDown() {
+    this.subscriberTemplate.destroy();
+    this.pubSub.close();
+  }
+
+  @Benchmark
+  public void ack() throws ExecutionException, InterruptedException {
+    this.subscriberTemplate.ack(this.messages).get();
+  }
+
+  @Benchmark
+  public void nack() throws ExecutionException, InterruptedException {
+    this.subscriberTemplate.nack(this.messages).get();
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2022-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.benchmarks;
+
+import com.google.api.gax.core.NoCredentialsProvider;
+import com.google.api.gax.grpc.GrpcTransportChannel;
+import com.google.api.gax.rpc.FixedTransportChannelProvider;
+import com.google.api.gax.rpc.TransportChannelProvider;
+import com.google.cloud.pubsub.v1.SubscriptionAdminClient;
+import com.google.cloud.pubsub.v1.SubscriptionAdminSettings;
+import com.google.cloud.pubsub.v1.TopicAdminClient;
+import com.google.cloud.pubsub.v1.TopicAdminSettings;
+import com.google.cloud.pubsub.v1.stub.PublisherStub;
+import com.google.cloud.pubsub.v1.stub.PublisherStubSettings;
+import com.google.cloud.spring.pubsub.core.PubSubConfiguration;
+import com.google.cloud.spring.pubsub.emulator.EmbeddedPubSubServer;
+import com.google.cloud.spring.pubsub.support.DefaultSubscriberFactory;
+import com.google.pubsub.v1.ProjectSubscriptionName;
+import com.google.pubsub.v1.PublishRequest;
+import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.Subscription;
+import com.google.pubsub.v1.TopicName;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import java.io.IOException;
+import java.util.Collections;
+
+/**
+ * The Pub/Sub backend of the benchmarks: an {@link EmbeddedPubSubServer} and the clients to set
+ * up its topics and subscriptions, so that the benchmarks measure the client-side per-message
+ * paths through the real gRPC stubs over a loopback connection.
+ *
+ * <p>Each subscription gets its own topic of the same name. The ack deadline of the subscriptions
+ * is long enough for the pulled messages not to be redelivered while a benchmark runs.
+ */
+final class BenchmarkPubSub {
+
+  static final String PROJECT_ID = "benchmark-project";
+
+  private static final int ACK_DEADLINE_SECONDS = 600;
+
+  private final EmbeddedPubSubServer server;
+
+  private final ManagedChannel channel;
+
+  private final TransportChannelProvider channelProvider;
+
+  private final TopicAdminClient topicAdminClient;
+
+  private final SubscriptionAdminClient subscriptionAdminClient;
+
+  private final PublisherStub publisherStub;
+
+  BenchmarkPubSub() throws IOException {
+    this.server = new EmbeddedPubSubServer().start();
+    this.channel =
+        ManagedChannelBuilder.forTarget(this.server.getEmulatorHost()).usePlaintext().build();
+    this.channelProvider =
+        FixedTransportChannelProvider.create(GrpcTransportChannel.create(this.channel));
+    this.topicAdminClient =
+        TopicAdminClient.create(
+            TopicAdminSettings.newBuilder()
+                .setTransportChannelProvider(this.channelProvider)
+                .setCredentialsProvider(NoCredentialsProvider.create())
+                .build());
+    this.subscriptionAdminClient =
+        SubscriptionAdminClient.create(
+            SubscriptionAdminSettings.newBuilder()
+                .setTransportChannelProvider(this.channelProvider)
+                .setCredentialsProvider(NoCredentialsProvider.create())
+                .build());
+    this.publisherStub =
+        PublisherStubSettings.newBuilder()
+            .setTransportChannelProvider(this.channelProvider)
+            .setCredentialsProvider(NoCredentialsProvider.create())
+            .build()
+            .createStub();
+  }
+
+  /**
+   * Create a subscription and its topic.
+   *
+   * @param subscription the short subscription name
+   */
+  void createSubscription(String subscription) {
+    TopicName topicName = TopicName.of(PROJECT_ID, subscription);
+    this.topicAdminClient.createTopic(topicName);
+    this.subscriptionAdminClient.createSubscription(
+        Subscription.newBuilder()
+            .setName(ProjectSubscriptionName.of(PROJECT_ID, subscription).toString())
+            .setTopic(topicName.toString())
+            .setAckDeadlineSeconds(ACK_DEADLINE_SECONDS)
+            .build());
+  }
+
+  /**
+   * Publish copies of the same message to the topic of a subscription.
+   *
+   * @param subscription the short subscription name
+   * @param messageCount the number of messages to publish
+   * @param message the message to publish
+   */
+  void publish(String subscription, int messageCount, PubsubMessage message) {
+    this.publisherStub
+        .publishCallable()
+        .call(
+            PublishRequest.newBuilder()
+                .setTopic(TopicName.of(PROJECT_ID, subscription).toString())
+                .addAllMessages(Collections.nCopies(messageCount, message))
+                .build());
+  }
+
+  /**
+   * Create a subscriber factory whose subscribers and subscriber stubs talk to the server.
+   *
+   * @return the subscriber factory
+   */
+  DefaultSubscriberFactory createSubscriberFactory() {
+    return configure(new DefaultSubscriberFactory(() -> PROJECT_ID, new PubSubConfiguration()));
+  }
+
+  /**
+   * Point the given subscriber factory to the server.
+   *
+   * @param subscriberFactory the subscriber factory to configure
+   * @return the configured subscriber factory
+   */
+  DefaultSubscriberFactory configure(DefaultSubscriberFactory subscriberFactory) {
+    subscriberFactory.setChannelProvider(this.channelProvider);
+    subscriberFactory.setCredentialsProvider(NoCredentialsProvider.create());
+    return subscriberFactory;
+  }
+
+  void close() {
+    this.publisherStub.close();
+    this.subscriptionAdminClient.close();
+    this.topicAdminClient.close();
+    this.channel.shutdownNow();
+    this.server.close();
+  }
+}
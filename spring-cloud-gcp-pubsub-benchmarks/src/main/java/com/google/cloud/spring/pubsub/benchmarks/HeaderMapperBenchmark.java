@@ -0,0 +1,94 @@
+/*
+ * Copyright 2022-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.benchmarks;
+
+import com.google.cloud.spring.pubsub.integration.PubSubHeaderMapper;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.support.MessageBuilder;
+
+/**
+ * Measures the mapping of Spring message headers to Pub/Sub attributes, as done for every
+ * published message, and of Pub/Sub attributes to the headers of a Spring message, as done for
+ * every received message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class HeaderMapperBenchmark {
+
+  @Param({"2", "20"})
+  private int headerCount;
+
+  /** Whether the mapper uses the default patterns or wildcard patterns matched per header. */
+  @Param({"false", "true"})
+  private boolean wildcardPatterns;
+
+  private final PubSubHeaderMapper headerMapper = new PubSubHeaderMapper();
+
+  private MessageHeaders messageHeaders;
+
+  private Map<String, String> attributes;
+
+  @Setup
+  public void setUp() {
+    if (this.wildcardPatterns) {
+      this.headerMapper.setInboundHeaderPatterns("!internal-*", "header-*", "*");
+      this.headerMapper.setOutboundHeaderPatterns(
+          "!" + MessageHeaders.ID, "!" + MessageHeaders.TIMESTAMP, "!internal-*", "header-*", "*");
+    }
+
+    Map<String, Object> headers = new HashMap<>();
+    this.attributes = new HashMap<>();
+    for (int i = 0; i < this.headerCount; i++) {
+      headers.put("header-" + i, "value-" + i);
+      this.attributes.put("header-" + i, "value-" + i);
+    }
+    this.messageHeaders = new MessageHeaders(headers);
+  }
+
+  @Benchmark
+  public Map<String, String> fromHeaders() {
+    Map<String, String> pubsubAttributes = new HashMap<>();
+    this.headerMapper.fromHeaders(this.messageHeaders, pubsubAttributes);
+    return pubsubAttributes;
+  }
+
+  @Benchmark
+  public Message<String> toHeaders() {
+    return MessageBuilder.withPayload("payload")
+        .copyHeaders(this.headerMapper.toHeaders(this.attributes))
+        .build();
+  }
+}
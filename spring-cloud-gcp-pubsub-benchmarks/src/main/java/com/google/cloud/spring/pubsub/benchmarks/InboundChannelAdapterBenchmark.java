@@ -0,0 +1,134 @@
+/*
+ * Copyright 2022-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.benchmarks;
+
+import com.google.cloud.pubsub.v1.AckReplyConsumer;
+import com.google.cloud.pubsub.v1.MessageReceiver;
+import com.google.cloud.pubsub.v1.Subscriber;
+import com.google.cloud.spring.pubsub.core.PubSubConfiguration;
+import com.google.cloud.spring.pubsub.core.subscriber.PubSubSubscriberTemplate;
+import com.google.cloud.spring.pubsub.core.subscriber.SubscriberCustomizer;
+import com.google.cloud.spring.pubsub.integration.inbound.PubSubInboundChannelAdapter;
+import com.google.cloud.spring.pubsub.support.DefaultSubscriberFactory;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.integration.channel.NullChannel;
+
+/**
+ * Measures the delivery of a streamed Pub/Sub message through {@link PubSubInboundChannelAdapter}:
+ * the payload conversion, the header mapping, the sending of the Spring message and the automatic
+ * ack.
+ *
+ * <p>The adapter subscribes to the {@link BenchmarkPubSub} server, and each benchmark invocation
+ * hands a message directly to the receiver of the subscriber, so that the measurement is not
+ * dominated by the streaming pull machinery.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class InboundChannelAdapterBenchmark {
+
+  private static final String SUBSCRIPTION = "benchmark-subscription";
+
+  private static final AckReplyConsumer NO_OP_ACK_REPLY_CONSUMER =
+      new AckReplyConsumer() {
+        @Override
+        public void ack() {
+          // The benchmark only measures the client side.
+        }
+
+        @Override
+        public void nack() {
+          // The benchmark only measures the client side.
+        }
+      };
+
+  @Param({"0", "10"})
+  private int attributeCount;
+
+  private BenchmarkPubSub pubSub;
+
+  private PubSubSubscriberTemplate subscriberTemplate;
+
+  private PubSubInboundChannelAdapter adapter;
+
+  private volatile MessageReceiver receiver;
+
+  private PubsubMessage message;
+
+  @Setup
+  public void setUp() throws IOException {
+    this.pubSub = new BenchmarkPubSub();
+    this.pubSub.createSubscription(SUBSCRIPTION);
+    DefaultSubscriberFactory subscriberFactory =
+        this.pubSub.configure(
+            new DefaultSubscriberFactory(
+                () -> BenchmarkPubSub.PROJECT_ID, new PubSubConfiguration()) {
+              @Override
+              public Subscriber createSubscriber(
+                  String subscriptionName,
+                  MessageReceiver receiver,
+                  SubscriberCustomizer customizer) {
+                InboundChannelAdapterBenchmark.this.receiver = receiver;
+                return super.createSubscriber(subscriptionName, receiver, customizer);
+              }
+            });
+    this.subscriberTemplate = new PubSubSubscriberTemplate(subscriberFactory);
+
+    this.adapter = new PubSubInboundChannelAdapter(this.subscriberTemplate, SUBSCRIPTION);
+    this.adapter.setOutputChannel(new NullChannel());
+    this.adapter.setPayloadType(String.class);
+    this.adapter.afterPropertiesSet();
+    this.adapter.start();
+
+    PubsubMessage.Builder messageBuilder =
+        PubsubMessage.newBuilder().setData(ByteString.copyFromUtf8("payload"));
+    for (int i = 0; i < this.attributeCount; i++) {
+      messageBuilder.putAttributes("attribute-" + i, "value-" + i);
+    }
+    this.message = messageBuilder.build();
+  }
+
+  @TearDown
+  public void tearDown() {
+    this.adapter.stop();
+    this.subscriberTemplate.destroy();
+    this.pubSub.close();
+  }
+
+  @Benchmark
+  public void consumeMessage() {
+    this.receiver.receiveMessage(this.message, NO_OP_ACK_REPLY_CONSUMER);
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2022-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.cloud.spring.pubsub.support.converter.JacksonPubSubMessageConverter;
+import com.google.cloud.spring.pubsub.support.converter.SimplePubSubMessageConverter;
+import com.google.pubsub.v1.PubsubMessage;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the conversion of payloads to and from Pub/Sub messages by {@link
+ * SimplePubSubMessageConverter} and {@link JacksonPubSubMessageConverter}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MessageConverterBenchmark {
+
+  private static final Map<String, String> HEADERS =
+      Collections.singletonMap("content-type", "application/json");
+
+  private final SimplePubSubMessageConverter simpleConverter = new SimplePubSubMessageConverter();
+
+  private final JacksonPubSubMessageConverter jacksonConverter =
+      new JacksonPubSubMessageConverter(new ObjectMapper());
+
+  private final String stringPayload = "{\"orderId\":\"order-42\",\"quantity\":3,\"price\":9.99}";
+
+  private final Order orderPayload = new Order("order-42", 3, 9.99, Arrays.asList("a", "b"));
+
+  private PubsubMessage stringMessage;
+
+  private PubsubMessage jsonMessage;
+
+  @Setup
+  public void setUp() {
+    this.stringMessage = this.simpleConverter.toPubSubMessage(this.stringPayload, HEADERS);
+    this.jsonMessage = this.jacksonConverter.toPubSubMessage(this.orderPayload, HEADERS);
+  }
+
+  @Benchmark
+  public PubsubMessage simpleToPubSubMessage() {
+    return this.simpleConverter.toPubSubMessage(this.stringPayload, HEADERS);
+  }
+
+  @Benchmark
+  public String simpleFromPubSubMessage() {
+    return this.simpleConverter.fromPubSubMessage(this.stringMessage, String.class);
+  }
+
+  @Benchmark
+  public PubsubMessage jacksonToPubSubMessage() {
+    return this.jacksonConverter.toPubSubMessage(this.orderPayload, HEADERS);
+  }
+
+  @Benchmark
+  public Order jacksonFromPubSubMessage() {
+    return this.jacksonConverter.fromPubSubMessage(this.jsonMessage, Order.class);
+  }
+
+  /** A typical small JSON payload. */
+  public static class Order {
+
+    public String orderId;
+
+    public int quantity;
+
+    public double price;
+
+    public List<String> tags;
+
+    public Order() {
+      // For Jackson.
+    }
+
+    Order(String orderId, int quantity, double price, List<String> tags) {
+      this.orderId = orderId;
+      this.quantity = quantity;
+      this.price = price;
+      this.tags = tags;
+    }
+  }
+}
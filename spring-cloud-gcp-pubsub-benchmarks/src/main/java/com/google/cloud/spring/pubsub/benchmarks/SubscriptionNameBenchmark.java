@@ -0,0 +1,102 @@
+/*
+ * Copyright 2022-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.benchmarks;
+
+import com.google.cloud.spring.pubsub.core.subscriber.PubSubSubscriberTemplate;
+import com.google.cloud.spring.pubsub.support.AcknowledgeablePubsubMessage;
+import com.google.cloud.spring.pubsub.support.PubSubSubscriptionUtils;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the conversion of a pull response into acknowledgeable messages, which resolves the
+ * subscription name once per response, against resolving it once per message. The messages are
+ * pulled from the {@link BenchmarkPubSub} server, and nacked after each pull so that the next pull
+ * gets them again; the measured time includes the nack.
+ *
+ * <p>Run with {@code -prof gc} to compare the allocation rate per message.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class SubscriptionNameBenchmark {
+
+  private static final String SUBSCRIPTION = "benchmark-subscription";
+
+  @Param({"1", "100", "1000"})
+  private int messagesPerPull;
+
+  private BenchmarkPubSub pubSub;
+
+  private PubSubSubscriberTemplate subscriberTemplate;
+
+  @Setup
+  public void setUp() throws IOException {
+    this.pubSub = new BenchmarkPubSub();
+    this.pubSub.createSubscription(SUBSCRIPTION);
+    this.pubSub.publish(
+        SUBSCRIPTION,
+        this.messagesPerPull,
+        PubsubMessage.newBuilder().setData(ByteString.copyFromUtf8("payload")).build());
+    this.subscriberTemplate = new PubSubSubscriberTemplate(this.pubSub.createSubscriberFactory());
+  }
+
+  @TearDown
+  public void tearDown() {
+    this.subscriberTemplate.destroy();
+    this.pubSub.close();
+  }
+
+  @Benchmark
+  public List<AcknowledgeablePubsubMessage> pull()
+      throws ExecutionException, InterruptedException {
+    List<AcknowledgeablePubsubMessage> messages =
+        this.subscriberTemplate.pull(SUBSCRIPTION, this.messagesPerPull, true);
+    this.subscriberTemplate.nack(messages).get();
+    return messages;
+  }
+
+  /** The cost that used to be paid for every pulled message, for comparison. */
+  @Benchmark
+  public void resolveSubscriptionNamePerMessage(Blackhole blackhole) {
+    for (int i = 0; i < this.messagesPerPull; i++) {
+      blackhole.consume(
+          PubSubSubscriptionUtils.toProjectSubscriptionName(
+              SUBSCRIPTION, BenchmarkPubSub.PROJECT_ID));
+    }
+  }
+}
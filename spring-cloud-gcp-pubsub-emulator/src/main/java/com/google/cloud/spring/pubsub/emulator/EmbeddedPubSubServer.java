@@ -0,0 +1,233 @@
+/*
+ * Copyright 2022-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.emulator;
+
+import com.google.cloud.spring.pubsub.core.PubSubException;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.springframework.util.Assert;
+
+/**
+ * An in-JVM stand-in for the Pub/Sub emulator, serving the Pub/Sub gRPC API on a loopback port so
+ * that applications can be load and latency tested by pointing {@code
+ * spring.cloud.gcp.pubsub.emulator-host} to {@link #getEmulatorHost()}.
+ *
+ * <p>The server keeps topics and subscriptions in memory and supports publishing, synchronous and
+ * streaming pulls, acknowledgements, ack deadlines and ordering keys. Latency and errors can be
+ * injected into all the gRPC methods or into a single one, such as {@code "Publish"} or {@code
+ * "StreamingPull"}. Push subscriptions, dead lettering, filters and exactly-once delivery are not
+ * supported.
+ *
+ * @since 3.2
+ */
+public final class EmbeddedPubSubServer implements AutoCloseable {
+
+  private static final long TICK_MILLIS = 100;
+
+  private static final long PULL_WAIT_MILLIS = 1000;
+
+  private final int port;
+
+  private final ScheduledExecutorService scheduler;
+
+  private final FaultInjector faults;
+
+  private final PubSubBackend backend;
+
+  private Server server;
+
+  /** Create a server listening on a free port. */
+  public EmbeddedPubSubServer() {
+    this(0);
+  }
+
+  /**
+   * Create a server listening on the given port.
+   *
+   * @param port the loopback port to listen on, or 0 for a free port
+   */
+  public EmbeddedPubSubServer(int port) {
+    Assert.isTrue(port >= 0, "The port can't be negative.");
+    this.port = port;
+    this.scheduler =
+        Executors.newSingleThreadScheduledExecutor(
+            runnable -> {
+              Thread thread = new Thread(runnable, "embedded-pubsub-timer");
+              thread.setDaemon(true);
+              return thread;
+            });
+    this.faults = new FaultInjector(this.scheduler);
+    this.backend = new PubSubBackend(this.faults, PULL_WAIT_MILLIS);
+  }
+
+  /**
+   * Start the server.
+   *
+   * @return this server
+   */
+  public synchronized EmbeddedPubSubServer start() {
+    Assert.state(this.server == null, "The server was already started.");
+    PubSubServices services = new PubSubServices(this.backend, this.faults);
+    try {
+      this.server =
+          NettyServerBuilder.forAddress(
+                  new InetSocketAddress(InetAddress.getLoopbackAddress(), this.port))
+              .addService(services.publisherService())
+              .addService(services.subscriberService())
+              .build()
+              .start();
+    } catch (IOException ex) {
+      throw new PubSubException("The embedded Pub/Sub server failed to start.", ex);
+    }
+    this.scheduler.scheduleWithFixedDelay(
+        this.backend::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    return this;
+  }
+
+  /**
+   * Get the port the server listens on.
+   *
+   * @return the port
+   */
+  public synchronized int getPort() {
+    Assert.state(this.server != null, "The server isn't started.");
+    return this.server.getPort();
+  }
+
+  /**
+   * Get the host and port to set as {@code spring.cloud.gcp.pubsub.emulator-host}.
+   *
+   * @return the emulator host
+   */
+  public String getEmulatorHost() {
+    return InetAddress.getLoopbackAddress().getHostAddress() + ":" + getPort();
+  }
+
+  /**
+   * Delay the responses of all the gRPC methods without their own latency.
+   *
+   * @param latency the latency
+   */
+  public void setLatency(Duration latency) {
+    Assert.isTrue(latency != null && !latency.isNegative(), "The latency can't be negative.");
+    this.faults.setLatency(latency);
+  }
+
+  /**
+   * Delay the responses of a gRPC method, such as {@code "Publish"} or {@code "Pull"}.
+   *
+   * @param methodName the name of the method
+   * @param latency the latency
+   */
+  public void setLatency(String methodName, Duration latency) {
+    Assert.hasText(methodName, "The method name can't be null or empty.");
+    Assert.isTrue(latency != null && !latency.isNegative(), "The latency can't be negative.");
+    this.faults.setLatency(methodName, latency);
+  }
+
+  /**
+   * Fail the given share of the calls of all the gRPC methods without their own error rate.
+   *
+   * @param errorRate the error rate, between 0 and 1
+   */
+  public void setErrorRate(double errorRate) {
+    Assert.isTrue(errorRate >= 0 && errorRate <= 1, "The error rate must be between 0 and 1.");
+    this.faults.setErrorRate(errorRate);
+  }
+
+  /**
+   * Fail the given share of the calls of a gRPC method.
+   *
+   * @param methodName the name of the method
+   * @param errorRate the error rate, between 0 and 1
+   */
+  public void setErrorRate(String methodName, double errorRate) {
+    Assert.hasText(methodName, "The method name can't be null or empty.");
+    Assert.isTrue(errorRate >= 0 && errorRate <= 1, "The error rate must be between 0 and 1.");
+    this.faults.setErrorRate(methodName, errorRate);
+  }
+
+  /**
+   * Set the status code of the injected errors, {@link Status.Code#UNAVAILABLE} by default.
+   *
+   * @param errorCode the status code
+   */
+  public void setErrorCode(Status.Code errorCode) {
+    Assert.isTrue(errorCode != null && errorCode != Status.Code.OK, "The error code can't be OK.");
+    this.faults.setErrorCode(errorCode);
+  }
+
+  /**
+   * Get the number of messages published to the server.
+   *
+   * @return the number of published messages
+   */
+  public long getPublishedCount() {
+    return this.backend.getPublishedCount();
+  }
+
+  /**
+   * Get the number of messages acknowledged on all the subscriptions.
+   *
+   * @return the number of acknowledged messages
+   */
+  public long getAcknowledgedCount() {
+    return this.backend.getAcknowledgedCount();
+  }
+
+  /**
+   * Get the number of messages of a subscription waiting to be delivered.
+   *
+   * @param subscriptionName the fully-qualified subscription name
+   * @return the number of undelivered messages
+   */
+  public int getUndeliveredCount(String subscriptionName) {
+    return this.backend.getUndeliveredCount(subscriptionName);
+  }
+
+  /**
+   * Get the number of messages of a subscription delivered but not yet acknowledged.
+   *
+   * @param subscriptionName the fully-qualified subscription name
+   * @return the number of outstanding messages
+   */
+  public int getOutstandingCount(String subscriptionName) {
+    return this.backend.getOutstandingCount(subscriptionName);
+  }
+
+  /** Stop the server, failing the calls in progress. */
+  @Override
+  public synchronized void close() {
+    this.scheduler.shutdownNow();
+    if (this.server != null) {
+      this.server.shutdownNow();
+      try {
+        this.server.awaitTermination(10, TimeUnit.SECONDS);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
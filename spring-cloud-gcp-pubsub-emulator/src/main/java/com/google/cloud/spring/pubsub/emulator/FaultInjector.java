@@ -0,0 +1,107 @@
+/*
+ * Copyright 2022-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.emulator;
+
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delays and fails the calls of the embedded server, with settings that apply to all the gRPC
+ * methods unless they are overridden for a method.
+ *
+ * @since 3.2
+ */
+final class FaultInjector {
+
+  private final ScheduledExecutorService scheduler;
+
+  private final Map<String, Duration> methodLatencies = new ConcurrentHashMap<>();
+
+  private final Map<String, Double> methodErrorRates = new ConcurrentHashMap<>();
+
+  private volatile Duration latency = Duration.ZERO;
+
+  private volatile double errorRate;
+
+  private volatile Status.Code errorCode = Status.Code.UNAVAILABLE;
+
+  FaultInjector(ScheduledExecutorService scheduler) {
+    this.scheduler = scheduler;
+  }
+
+  void setLatency(Duration latency) {
+    this.latency = latency;
+  }
+
+  void setLatency(String methodName, Duration latency) {
+    this.methodLatencies.put(methodName, latency);
+  }
+
+  void setErrorRate(double errorRate) {
+    this.errorRate = errorRate;
+  }
+
+  void setErrorRate(String methodName, double errorRate) {
+    this.methodErrorRates.put(methodName, errorRate);
+  }
+
+  void setErrorCode(Status.Code errorCode) {
+    this.errorCode = errorCode;
+  }
+
+  /**
+   * Runs a call after the latency of its method, or fails it instead at the error rate of its
+   * method.
+   */
+  void call(String methodName, StreamObserver<?> responseObserver, Runnable call) {
+    if (!fail(methodName, responseObserver)) {
+      delay(methodName, call);
+    }
+  }
+
+  /**
+   * Fails a call at the error rate of its method, after the latency of the method.
+   *
+   * @return whether the call was failed
+   */
+  boolean fail(String methodName, StreamObserver<?> responseObserver) {
+    double rate = this.methodErrorRates.getOrDefault(methodName, this.errorRate);
+    if (rate <= 0 || ThreadLocalRandom.current().nextDouble() >= rate) {
+      return false;
+    }
+    Status status =
+        Status.fromCode(this.errorCode).withDescription("Injected " + methodName + " failure");
+    delay(methodName, () -> responseObserver.onError(status.asRuntimeException()));
+    return true;
+  }
+
+  /** Runs a task after the latency of a method. */
+  void delay(String methodName, Runnable task) {
+    Duration delay = this.methodLatencies.getOrDefault(methodName, this.latency);
+    if (delay.isZero()) {
+      task.run();
+    } else {
+      this.scheduler.schedule(task, delay.toNanos(), TimeUnit.NANOSECONDS);
+    }
+  }
+}
@@ -0,0 +1,615 @@
+/*
+ * Copyright 2022-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.emulator;
+
+import com.google.protobuf.Timestamp;
+import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.PullRequest;
+import com.google.pubsub.v1.PullResponse;
+import com.google.pubsub.v1.ReceivedMessage;
+import com.google.pubsub.v1.StreamingPullRequest;
+import com.google.pubsub.v1.StreamingPullResponse;
+import com.google.pubsub.v1.Subscription;
+import com.google.pubsub.v1.Topic;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * The topics, subscriptions and messages of the embedded server.
+ *
+ * <p>All the state is guarded by the backend's monitor. Responses are sent after the monitor is
+ * released, and the responses of a streaming pull one at a time.
+ *
+ * @since 3.2
+ */
+final class PubSubBackend {
+
+  static final int DEFAULT_ACK_DEADLINE_SECONDS = 10;
+
+  /** The maximum number of messages in a streaming pull response. */
+  private static final int MAX_STREAMING_BATCH = 1000;
+
+  private final FaultInjector faults;
+
+  private final long pullWaitNanos;
+
+  private final Map<String, Topic> topics = new LinkedHashMap<>();
+
+  private final Map<String, SubscriptionState> subscriptions = new LinkedHashMap<>();
+
+  private long nextMessageId = 1;
+
+  private long nextAckId = 1;
+
+  private long publishedCount;
+
+  private long acknowledgedCount;
+
+  PubSubBackend(FaultInjector faults, long pullWaitMillis) {
+    this.faults = faults;
+    this.pullWaitNanos = TimeUnit.MILLISECONDS.toNanos(pullWaitMillis);
+  }
+
+  synchronized Topic createTopic(Topic topic) {
+    if (this.topics.containsKey(topic.getName())) {
+      throw Status.ALREADY_EXISTS
+          .withDescription("Topic already exists: " + topic.getName())
+          .asRuntimeException();
+    }
+    this.topics.put(topic.getName(), topic);
+    return topic;
+  }
+
+  synchronized Topic getTopic(String name) {
+    Topic topic = this.topics.get(name);
+    if (topic == null) {
+      throw notFound("Topic", name);
+    }
+    return topic;
+  }
+
+  synchronized void deleteTopic(String name) {
+    if (this.topics.remove(name) == null) {
+      throw notFound("Topic", name);
+    }
+  }
+
+  synchronized List<Topic> listTopics(String project) {
+    return this.topics.values().stream()
+        .filter(topic -> topic.getName().startsWith(project + "/"))
+        .collect(Collectors.toList());
+  }
+
+  synchronized List<String> listTopicSubscriptions(String topic) {
+    getTopic(topic);
+    return this.subscriptions.values().stream()
+        .filter(subscription -> subscription.topic.equals(topic))
+        .map(subscription -> subscription.name)
+        .collect(Collectors.toList());
+  }
+
+  synchronized Subscription createSubscription(Subscription subscription) {
+    if (this.subscriptions.containsKey(subscription.getName())) {
+      throw Status.ALREADY_EXISTS
+          .withDescription("Subscription already exists: " + subscription.getName())
+          .asRuntimeException();
+    }
+    getTopic(subscription.getTopic());
+    Subscription created =
+        subscription.getAckDeadlineSeconds() > 0
+            ? subscription
+            : subscription.toBuilder().setAckDeadlineSeconds(DEFAULT_ACK_DEADLINE_SECONDS).build();
+    this.subscriptions.put(created.getName(), new SubscriptionState(created));
+    return created;
+  }
+
+  synchronized Subscription getSubscription(String name) {
+    return subscription(name).subscription;
+  }
+
+  void deleteSubscription(String name) {
+    List<PendingPull> pulls;
+    List<Stream> streams;
+    synchronized (this) {
+      SubscriptionState subscription = subscription(name);
+      this.subscriptions.remove(name);
+      pulls = new ArrayList<>(subscription.pendingPulls);
+      streams = new ArrayList<>(subscription.streams);
+    }
+    // Open pulls and streams end the way they do when the subscription is deleted remotely.
+    for (PendingPull pull : pulls) {
+      pull.responseObserver.onError(notFound("Subscription", name));
+    }
+    for (Stream stream : streams) {
+      stream.fail(notFound("Subscription", name));
+    }
+  }
+
+  synchronized List<Subscription> listSubscriptions(String project) {
+    return this.subscriptions.values().stream()
+        .map(subscription -> subscription.subscription)
+        .filter(subscription -> subscription.getName().startsWith(project + "/"))
+        .collect(Collectors.toList());
+  }
+
+  List<String> publish(String topic, List<PubsubMessage> messages) {
+    List<String> messageIds = new ArrayList<>(messages.size());
+    List<Runnable> deliveries = new ArrayList<>();
+    synchronized (this) {
+      getTopic(topic);
+      long now = System.currentTimeMillis();
+      Timestamp publishTime =
+          Timestamp.newBuilder()
+              .setSeconds(now / 1000)
+              .setNanos((int) TimeUnit.MILLISECONDS.toNanos(now % 1000))
+              .build();
+      List<SubscriptionState> attached =
+          this.subscriptions.values().stream()
+              .filter(subscription -> subscription.topic.equals(topic))
+              .collect(Collectors.toList());
+      for (PubsubMessage message : messages) {
+        String messageId = Long.toString(this.nextMessageId++);
+        PubsubMessage published =
+            message.toBuilder().setMessageId(messageId).setPublishTime(publishTime).build();
+        for (SubscriptionState subscription : attached) {
+          subscription.enqueue(published);
+        }
+        messageIds.add(messageId);
+      }
+      this.publishedCount += messages.size();
+      for (SubscriptionState subscription : attached) {
+        deliveries.addAll(dispatch(subscription));
+      }
+    }
+    deliveries.forEach(Runnable::run);
+    return messageIds;
+  }
+
+  void pull(PullRequest request, StreamObserver<PullResponse> responseObserver) {
+    List<ReceivedMessage> messages;
+    synchronized (this) {
+      SubscriptionState subscription = subscription(request.getSubscription());
+      int maxMessages = request.getMaxMessages() > 0 ? request.getMaxMessages() : 1000;
+      messages =
+          subscription.take(maxMessages, subscription.subscription.getAckDeadlineSeconds(), null);
+      if (messages.isEmpty() && !request.getReturnImmediately()) {
+        // Like the service, hold the pull open for a while in case messages arrive.
+        subscription.pendingPulls.add(
+            new PendingPull(responseObserver, maxMessages, System.nanoTime() + this.pullWaitNanos));
+        return;
+      }
+    }
+    responseObserver.onNext(PullResponse.newBuilder().addAllReceivedMessages(messages).build());
+    responseObserver.onCompleted();
+  }
+
+  void acknowledge(String subscriptionName, List<String> ackIds) {
+    List<Runnable> deliveries;
+    synchronized (this) {
+      SubscriptionState subscription = subscription(subscriptionName);
+      for (String ackId : ackIds) {
+        if (subscription.release(ackId, false)) {
+          this.acknowledgedCount++;
+        }
+      }
+      deliveries = dispatch(subscription);
+    }
+    deliveries.forEach(Runnable::run);
+  }
+
+  void modifyAckDeadline(String subscriptionName, List<String> ackIds, int ackDeadlineSeconds) {
+    List<Runnable> deliveries;
+    synchronized (this) {
+      SubscriptionState subscription = subscription(subscriptionName);
+      for (String ackId : ackIds) {
+        subscription.modifyAckDeadline(ackId, ackDeadlineSeconds);
+      }
+      deliveries = dispatch(subscription);
+    }
+    deliveries.forEach(Runnable::run);
+  }
+
+  StreamObserver<StreamingPullRequest> streamingPull(
+      StreamObserver<StreamingPullResponse> responseObserver) {
+    return new Stream(responseObserver);
+  }
+
+  /** Redelivers the messages whose ack deadline expired and ends the pulls held open too long. */
+  void tick() {
+    List<Runnable> deliveries = new ArrayList<>();
+    synchronized (this) {
+      long now = System.nanoTime();
+      for (SubscriptionState subscription : this.subscriptions.values()) {
+        subscription.expireLeases(now);
+        deliveries.addAll(dispatch(subscription));
+        Iterator<PendingPull> pulls = subscription.pendingPulls.iterator();
+        while (pulls.hasNext()) {
+          PendingPull pull = pulls.next();
+          if (now - pull.deadlineNanos >= 0) {
+            pulls.remove();
+            deliveries.add(() -> pull.complete(Collections.emptyList()));
+          }
+        }
+      }
+    }
+    deliveries.forEach(Runnable::run);
+  }
+
+  synchronized long getPublishedCount() {
+    return this.publishedCount;
+  }
+
+  synchronized long getAcknowledgedCount() {
+    return this.acknowledgedCount;
+  }
+
+  synchronized int getUndeliveredCount(String subscriptionName) {
+    return subscription(subscriptionName).pending.size();
+  }
+
+  synchronized int getOutstandingCount(String subscriptionName) {
+    return subscription(subscriptionName).leases.size();
+  }
+
+  /**
+   * Hands the available messages of a subscription to its open pulls first, then to its streams
+   * in turn, and returns the responses to send once the monitor is released.
+   */
+  private List<Runnable> dispatch(SubscriptionState subscription) {
+    List<Runnable> deliveries = new ArrayList<>();
+    int ackDeadlineSeconds = subscription.subscription.getAckDeadlineSeconds();
+    while (!subscription.pendingPulls.isEmpty() && !subscription.pending.isEmpty()) {
+      PendingPull pull = subscription.pendingPulls.peek();
+      List<ReceivedMessage> messages = subscription.take(pull.maxMessages, ackDeadlineSeconds, null);
+      if (messages.isEmpty()) {
+        // The remaining messages wait for earlier messages with the same ordering key.
+        break;
+      }
+      subscription.pendingPulls.poll();
+      deliveries.add(() -> pull.complete(messages));
+    }
+
+    int streamCount = subscription.streams.size();
+    for (int i = 0; i < streamCount && !subscription.pending.isEmpty(); i++) {
+      Stream stream = subscription.streams.get((subscription.nextStream + i) % streamCount);
+      int capacity = stream.capacity();
+      if (capacity > 0) {
+        List<ReceivedMessage> messages =
+            subscription.take(capacity, stream.ackDeadlineSeconds, stream);
+        if (!messages.isEmpty()) {
+          deliveries.add(() -> stream.send(messages));
+        }
+      }
+    }
+    subscription.nextStream++;
+    return deliveries;
+  }
+
+  private SubscriptionState subscription(String name) {
+    SubscriptionState subscription = this.subscriptions.get(name);
+    if (subscription == null) {
+      throw notFound("Subscription", name);
+    }
+    return subscription;
+  }
+
+  private static RuntimeException notFound(String resource, String name) {
+    return Status.NOT_FOUND.withDescription(resource + " not found: " + name).asRuntimeException();
+  }
+
+  /** A subscription with its undelivered and outstanding messages. */
+  private final class SubscriptionState {
+
+    private final Subscription subscription;
+
+    private final String name;
+
+    private final String topic;
+
+    /** Undelivered messages in publish order, including the ones to redeliver. */
+    private final TreeMap<Long, StoredMessage> pending = new TreeMap<>();
+
+    /** Delivered messages that were not acked yet, by ack ID. */
+    private final Map<String, Lease> leases = new HashMap<>();
+
+    /** Number of outstanding messages per ordering key, if message ordering is enabled. */
+    private final Map<String, Integer> outstandingOrderingKeys = new HashMap<>();
+
+    private final Deque<PendingPull> pendingPulls = new ArrayDeque<>();
+
+    private final List<Stream> streams = new ArrayList<>();
+
+    private long nextSequence;
+
+    private int nextStream;
+
+    SubscriptionState(Subscription subscription) {
+      this.subscription = subscription;
+      this.name = subscription.getName();
+      this.topic = subscription.getTopic();
+    }
+
+    void enqueue(PubsubMessage message) {
+      long sequence = this.nextSequence++;
+      this.pending.put(sequence, new StoredMessage(sequence, message));
+    }
+
+    /**
+     * Leases up to a number of messages in publish order. With message ordering enabled, the
+     * messages of an ordering key are only delivered once the earlier ones were acked, except
+     * that a single batch can hold several messages with the same key.
+     */
+    List<ReceivedMessage> take(int maxMessages, int ackDeadlineSeconds, Stream stream) {
+      List<ReceivedMessage> messages = new ArrayList<>();
+      Set<String> batchOrderingKeys = new HashSet<>();
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(ackDeadlineSeconds);
+      Iterator<StoredMessage> iterator = this.pending.values().iterator();
+      while (iterator.hasNext() && messages.size() < maxMessages) {
+        StoredMessage message = iterator.next();
+        String orderingKey = orderingKey(message);
+        if (orderingKey != null) {
+          if (this.outstandingOrderingKeys.containsKey(orderingKey)
+              && !batchOrderingKeys.contains(orderingKey)) {
+            continue;
+          }
+          batchOrderingKeys.add(orderingKey);
+          this.outstandingOrderingKeys.merge(orderingKey, 1, Integer::sum);
+        }
+        iterator.remove();
+        String ackId = Long.toString(PubSubBackend.this.nextAckId++);
+        this.leases.put(ackId, new Lease(message, deadline, stream));
+        if (stream != null) {
+          stream.outstanding++;
+        }
+        messages.add(
+            ReceivedMessage.newBuilder().setAckId(ackId).setMessage(message.message).build());
+      }
+      return messages;
+    }
+
+    /** Ends the lease of a message, returning whether the ack ID was leased. */
+    boolean release(String ackId, boolean redeliver) {
+      Lease lease = this.leases.remove(ackId);
+      if (lease == null) {
+        return false;
+      }
+      String orderingKey = orderingKey(lease.message);
+      if (orderingKey != null) {
+        this.outstandingOrderingKeys.computeIfPresent(
+            orderingKey, (key, count) -> count > 1 ? count - 1 : null);
+      }
+      if (lease.stream != null) {
+        lease.stream.outstanding--;
+      }
+      if (redeliver) {
+        this.pending.put(lease.message.sequence, lease.message);
+      }
+      return true;
+    }
+
+    void modifyAckDeadline(String ackId, int ackDeadlineSeconds) {
+      if (ackDeadlineSeconds == 0) {
+        release(ackId, true);
+        return;
+      }
+      Lease lease = this.leases.get(ackId);
+      if (lease != null) {
+        lease.deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(ackDeadlineSeconds);
+      }
+    }
+
+    void expireLeases(long now) {
+      List<String> expired =
+          this.leases.entrySet().stream()
+              .filter(entry -> now - entry.getValue().deadlineNanos >= 0)
+              .map(Map.Entry::getKey)
+              .collect(Collectors.toList());
+      expired.forEach(ackId -> release(ackId, true));
+    }
+
+    private String orderingKey(StoredMessage message) {
+      String orderingKey = message.message.getOrderingKey();
+      return this.subscription.getEnableMessageOrdering() && !orderingKey.isEmpty()
+          ? orderingKey
+          : null;
+    }
+  }
+
+  private static final class StoredMessage {
+
+    private final long sequence;
+
+    private final PubsubMessage message;
+
+    StoredMessage(long sequence, PubsubMessage message) {
+      this.sequence = sequence;
+      this.message = message;
+    }
+  }
+
+  private static final class Lease {
+
+    private final StoredMessage message;
+
+    private final Stream stream;
+
+    private long deadlineNanos;
+
+    Lease(StoredMessage message, long deadlineNanos, Stream stream) {
+      this.message = message;
+      this.deadlineNanos = deadlineNanos;
+      this.stream = stream;
+    }
+  }
+
+  /** A pull held open until messages arrive or its wait time has passed. */
+  private static final class PendingPull {
+
+    private final StreamObserver<PullResponse> responseObserver;
+
+    private final int maxMessages;
+
+    private final long deadlineNanos;
+
+    PendingPull(
+        StreamObserver<PullResponse> responseObserver, int maxMessages, long deadlineNanos) {
+      this.responseObserver = responseObserver;
+      this.maxMessages = maxMessages;
+      this.deadlineNanos = deadlineNanos;
+    }
+
+    void complete(List<ReceivedMessage> messages) {
+      this.responseObserver.onNext(
+          PullResponse.newBuilder().addAllReceivedMessages(messages).build());
+      this.responseObserver.onCompleted();
+    }
+  }
+
+  /**
+   * A streaming pull. The first request opens the stream on a subscription; later requests ack
+   * messages and modify their ack deadlines.
+   */
+  private final class Stream implements StreamObserver<StreamingPullRequest> {
+
+    private final StreamObserver<StreamingPullResponse> responseObserver;
+
+    private SubscriptionState subscription;
+
+    private int ackDeadlineSeconds;
+
+    private long maxOutstandingMessages;
+
+    /** Number of leased messages delivered on this stream, guarded by the backend's monitor. */
+    private int outstanding;
+
+    private boolean closed;
+
+    Stream(StreamObserver<StreamingPullResponse> responseObserver) {
+      this.responseObserver = responseObserver;
+    }
+
+    @Override
+    public void onNext(StreamingPullRequest request) {
+      String subscriptionName;
+      List<Runnable> deliveries = null;
+      synchronized (PubSubBackend.this) {
+        if (this.subscription == null) {
+          SubscriptionState opened =
+              PubSubBackend.this.subscriptions.get(request.getSubscription());
+          if (opened != null) {
+            open(opened, request);
+            deliveries = dispatch(opened);
+          }
+        }
+        subscriptionName = this.subscription != null ? this.subscription.name : null;
+      }
+      if (subscriptionName == null) {
+        fail(notFound("Subscription", request.getSubscription()));
+        return;
+      }
+      if (deliveries != null) {
+        deliveries.forEach(Runnable::run);
+        return;
+      }
+      if (request.getAckIdsCount() > 0) {
+        acknowledge(subscriptionName, request.getAckIdsList());
+      }
+      for (int i = 0; i < request.getModifyDeadlineAckIdsCount(); i++) {
+        modifyAckDeadline(
+            subscriptionName,
+            Collections.singletonList(request.getModifyDeadlineAckIds(i)),
+            request.getModifyDeadlineSeconds(i));
+      }
+    }
+
+    private void open(SubscriptionState opened, StreamingPullRequest request) {
+      this.subscription = opened;
+      this.ackDeadlineSeconds =
+          request.getStreamAckDeadlineSeconds() > 0
+              ? request.getStreamAckDeadlineSeconds()
+              : opened.subscription.getAckDeadlineSeconds();
+      this.maxOutstandingMessages = request.getMaxOutstandingMessages();
+      opened.streams.add(this);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      close();
+    }
+
+    @Override
+    public void onCompleted() {
+      if (close()) {
+        this.responseObserver.onCompleted();
+      }
+    }
+
+    int capacity() {
+      return this.maxOutstandingMessages > 0
+          ? (int) Math.min(MAX_STREAMING_BATCH, this.maxOutstandingMessages - this.outstanding)
+          : MAX_STREAMING_BATCH;
+    }
+
+    void send(List<ReceivedMessage> messages) {
+      StreamingPullResponse response =
+          StreamingPullResponse.newBuilder().addAllReceivedMessages(messages).build();
+      PubSubBackend.this.faults.delay(
+          "StreamingPull",
+          () -> {
+            synchronized (this) {
+              if (!this.closed) {
+                this.responseObserver.onNext(response);
+              }
+            }
+          });
+    }
+
+    void fail(RuntimeException exception) {
+      if (close()) {
+        this.responseObserver.onError(exception);
+      }
+    }
+
+    /** Closes the stream, returning whether it was open. */
+    private boolean close() {
+      synchronized (PubSubBackend.this) {
+        if (this.subscription != null) {
+          this.subscription.streams.remove(this);
+        }
+      }
+      synchronized (this) {
+        boolean wasOpen = !this.closed;
+        this.closed = true;
+        return wasOpen;
+      }
+    }
+  }
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright 2022-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.emulator;
+
+import com.google.protobuf.Empty;
+import com.google.protobuf.Message;
+import com.google.pubsub.v1.AcknowledgeRequest;
+import com.google.pubsub.v1.DeleteSubscriptionRequest;
+import com.google.pubsub.v1.DeleteTopicRequest;
+import com.google.pubsub.v1.GetSubscriptionRequest;
+import com.google.pubsub.v1.GetTopicRequest;
+import com.google.pubsub.v1.ListSubscriptionsRequest;
+import com.google.pubsub.v1.ListSubscriptionsResponse;
+import com.google.pubsub.v1.ListTopicSubscriptionsRequest;
+import com.google.pubsub.v1.ListTopicSubscriptionsResponse;
+import com.google.pubsub.v1.ListTopicsRequest;
+import com.google.pubsub.v1.ListTopicsResponse;
+import com.google.pubsub.v1.ModifyAckDeadlineRequest;
+import com.google.pubsub.v1.PublishRequest;
+import com.google.pubsub.v1.PublishResponse;
+import com.google.pubsub.v1.PullRequest;
+import com.google.pubsub.v1.PullResponse;
+import com.google.pubsub.v1.StreamingPullRequest;
+import com.google.pubsub.v1.StreamingPullResponse;
+import com.google.pubsub.v1.Subscription;
+import com.google.pubsub.v1.Topic;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.protobuf.ProtoUtils;
+import io.grpc.stub.ServerCalls;
+import io.grpc.stub.StreamObserver;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * The gRPC service definitions of the Pub/Sub publisher and subscriber services served by the
+ * embedded server. The methods not defined here are answered with an {@code UNIMPLEMENTED}
+ * status.
+ *
+ * @since 3.2
+ */
+final class PubSubServices {
+
+  private static final String PUBLISHER_SERVICE = "google.pubsub.v1.Publisher";
+
+  private static final String SUBSCRIBER_SERVICE = "google.pubsub.v1.Subscriber";
+
+  private final PubSubBackend backend;
+
+  private final FaultInjector faults;
+
+  PubSubServices(PubSubBackend backend, FaultInjector faults) {
+    this.backend = backend;
+    this.faults = faults;
+  }
+
+  ServerServiceDefinition publisherService() {
+    return ServerServiceDefinition.builder(PUBLISHER_SERVICE)
+        .addMethod(
+            unaryMethod(
+                PUBLISHER_SERVICE,
+                "CreateTopic",
+                Topic.getDefaultInstance(),
+                Topic.getDefaultInstance()),
+            unaryCall("CreateTopic", this.backend::createTopic))
+        .addMethod(
+            unaryMethod(
+                PUBLISHER_SERVICE,
+                "GetTopic",
+                GetTopicRequest.getDefaultInstance(),
+                Topic.getDefaultInstance()),
+            unaryCall("GetTopic", request -> this.backend.getTopic(request.getTopic())))
+        .addMethod(
+            unaryMethod(
+                PUBLISHER_SERVICE,
+                "DeleteTopic",
+                DeleteTopicRequest.getDefaultInstance(),
+                Empty.getDefaultInstance()),
+            unaryCall(
+                "DeleteTopic",
+                request -> {
+                  this.backend.deleteTopic(request.getTopic());
+                  return Empty.getDefaultInstance();
+                }))
+        .addMethod(
+            unaryMethod(
+                PUBLISHER_SERVICE,
+                "ListTopics",
+                ListTopicsRequest.getDefaultInstance(),
+                ListTopicsResponse.getDefaultInstance()),
+            unaryCall(
+                "ListTopics",
+                request ->
+                    ListTopicsResponse.newBuilder()
+                        .addAllTopics(this.backend.listTopics(request.getProject()))
+                        .build()))
+        .addMethod(
+            unaryMethod(
+                PUBLISHER_SERVICE,
+                "ListTopicSubscriptions",
+                ListTopicSubscriptionsRequest.getDefaultInstance(),
+                ListTopicSubscriptionsResponse.getDefaultInstance()),
+            unaryCall(
+                "ListTopicSubscriptions",
+                request ->
+                    ListTopicSubscriptionsResponse.newBuilder()
+                        .addAllSubscriptions(
+                            this.backend.listTopicSubscriptions(request.getTopic()))
+                        .build()))
+        .addMethod(
+            unaryMethod(
+                PUBLISHER_SERVICE,
+                "Publish",
+                PublishRequest.getDefaultInstance(),
+                PublishResponse.getDefaultInstance()),
+            unaryCall(
+                "Publish",
+                request ->
+                    PublishResponse.newBuilder()
+                        .addAllMessageIds(
+                            this.backend.publish(request.getTopic(), request.getMessagesList()))
+                        .build()))
+        .build();
+  }
+
+  ServerServiceDefinition subscriberService() {
+    return ServerServiceDefinition.builder(SUBSCRIBER_SERVICE)
+        .addMethod(
+            unaryMethod(
+                SUBSCRIBER_SERVICE,
+                "CreateSubscription",
+                Subscription.getDefaultInstance(),
+                Subscription.getDefaultInstance()),
+            unaryCall("CreateSubscription", this.backend::createSubscription))
+        .addMethod(
+            unaryMethod(
+                SUBSCRIBER_SERVICE,
+                "GetSubscription",
+                GetSubscriptionRequest.getDefaultInstance(),
+                Subscription.getDefaultInstance()),
+            unaryCall(
+                "GetSubscription",
+                request -> this.backend.getSubscription(request.getSubscription())))
+        .addMethod(
+            unaryMethod(
+                SUBSCRIBER_SERVICE,
+                "DeleteSubscription",
+                DeleteSubscriptionRequest.getDefaultInstance(),
+                Empty.getDefaultInstance()),
+            unaryCall(
+                "DeleteSubscription",
+                request -> {
+                  this.backend.deleteSubscription(request.getSubscription());
+                  return Empty.getDefaultInstance();
+                }))
+        .addMethod(
+            unaryMethod(
+                SUBSCRIBER_SERVICE,
+                "ListSubscriptions",
+                ListSubscriptionsRequest.getDefaultInstance(),
+                ListSubscriptionsResponse.getDefaultInstance()),
+            unaryCall(
+                "ListSubscriptions",
+                request ->
+                    ListSubscriptionsResponse.newBuilder()
+                        .addAllSubscriptions(this.backend.listSubscriptions(request.getProject()))
+                        .build()))
+        .addMethod(
+            unaryMethod(
+                SUBSCRIBER_SERVICE,
+                "Pull",
+                PullRequest.getDefaultInstance(),
+                PullResponse.getDefaultInstance()),
+            asyncUnaryCall("Pull", this.backend::pull))
+        .addMethod(
+            unaryMethod(
+                SUBSCRIBER_SERVICE,
+                "Acknowledge",
+                AcknowledgeRequest.getDefaultInstance(),
+                Empty.getDefaultInstance()),
+            unaryCall(
+                "Acknowledge",
+                request -> {
+                  this.backend.acknowledge(request.getSubscription(), request.getAckIdsList());
+                  return Empty.getDefaultInstance();
+                }))
+        .addMethod(
+            unaryMethod(
+                SUBSCRIBER_SERVICE,
+                "ModifyAckDeadline",
+                ModifyAckDeadlineRequest.getDefaultInstance(),
+                Empty.getDefaultInstance()),
+            unaryCall(
+                "ModifyAckDeadline",
+                request -> {
+                  this.backend.modifyAckDeadline(
+                      request.getSubscription(),
+                      request.getAckIdsList(),
+                      request.getAckDeadlineSeconds());
+                  return Empty.getDefaultInstance();
+                }))
+        .addMethod(
+            MethodDescriptor.<StreamingPullRequest, StreamingPullResponse>newBuilder()
+                .setType(MethodDescriptor.MethodType.BIDI_STREAMING)
+                .setFullMethodName(
+                    MethodDescriptor.generateFullMethodName(SUBSCRIBER_SERVICE, "StreamingPull"))
+                .setRequestMarshaller(
+                    ProtoUtils.marshaller(StreamingPullRequest.getDefaultInstance()))
+                .setResponseMarshaller(
+                    ProtoUtils.marshaller(StreamingPullResponse.getDefaultInstance()))
+                .build(),
+            ServerCalls.asyncBidiStreamingCall(this::streamingPull))
+        .build();
+  }
+
+  private StreamObserver<StreamingPullRequest> streamingPull(
+      StreamObserver<StreamingPullResponse> responseObserver) {
+    if (this.faults.fail("StreamingPull", responseObserver)) {
+      // The failed stream ignores its requests, and the client reopens it.
+      return new StreamObserver<StreamingPullRequest>() {
+        @Override
+        public void onNext(StreamingPullRequest request) {
+          // Ignored.
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+          // Ignored.
+        }
+
+        @Override
+        public void onCompleted() {
+          // Ignored.
+        }
+      };
+    }
+    return this.backend.streamingPull(responseObserver);
+  }
+
+  private <Q, R> ServerCallHandler<Q, R> unaryCall(String methodName, Function<Q, R> handler) {
+    return asyncUnaryCall(
+        methodName,
+        (request, responseObserver) -> {
+          responseObserver.onNext(handler.apply(request));
+          responseObserver.onCompleted();
+        });
+  }
+
+  private <Q, R> ServerCallHandler<Q, R> asyncUnaryCall(
+      String methodName, BiConsumer<Q, StreamObserver<R>> handler) {
+    return ServerCalls.asyncUnaryCall(
+        (request, responseObserver) ->
+            this.faults.call(
+                methodName,
+                responseObserver,
+                () -> {
+                  try {
+                    handler.accept(request, responseObserver);
+                  } catch (StatusRuntimeException ex) {
+                    responseObserver.onError(ex);
+                  } catch (RuntimeException ex) {
+                    responseObserver.onError(
+                        Status.INTERNAL
+                            .withDescription(ex.getMessage())
+                            .withCause(ex)
+                            .asRuntimeException());
+                  }
+                }));
+  }
+
+  private static <Q extends Message, R extends Message> MethodDescriptor<Q, R> unaryMethod(
+      String serviceName, String methodName, Q requestPrototype, R responsePrototype) {
+    return MethodDescriptor.<Q, R>newBuilder()
+        .setType(MethodDescriptor.MethodType.UNARY)
+        .setFullMethodName(MethodDescriptor.generateFullMethodName(serviceName, methodName))
+        .setRequestMarshaller(ProtoUtils.marshaller(requestPrototype))
+        .setResponseMarshaller(ProtoUtils.marshaller(responsePrototype))
+        .build();
+  }
+}
@@ -0,0 +1,2 @@
+/** An embedded Pub/Sub emulator for load and latency testing. */
+package com.google.cloud.spring.pubsub.emulator;
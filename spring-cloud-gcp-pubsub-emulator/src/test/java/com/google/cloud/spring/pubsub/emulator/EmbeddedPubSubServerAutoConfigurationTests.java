@@ -0,0 +1,89 @@
+/*
+ * Copyright 2022-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.emulator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import com.google.api.gax.core.CredentialsProvider;
+import com.google.auth.Credentials;
+import com.google.cloud.spring.autoconfigure.core.GcpContextAutoConfiguration;
+import com.google.cloud.spring.autoconfigure.pubsub.GcpPubSubAutoConfiguration;
+import com.google.cloud.spring.autoconfigure.pubsub.GcpPubSubEmulatorAutoConfiguration;
+import com.google.cloud.spring.pubsub.PubSubAdmin;
+import com.google.cloud.spring.pubsub.core.PubSubTemplate;
+import com.google.cloud.spring.pubsub.support.AcknowledgeablePubsubMessage;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Bean;
+
+/** Tests for the {@link EmbeddedPubSubServer} as the emulator host of the autoconfiguration. */
+class EmbeddedPubSubServerAutoConfigurationTests {
+
+  private EmbeddedPubSubServer server;
+
+  @BeforeEach
+  void setUp() {
+    this.server = new EmbeddedPubSubServer().start();
+  }
+
+  @AfterEach
+  void tearDown() {
+    this.server.close();
+  }
+
+  @Test
+  void testPublishAndPullThroughAutoConfiguredBeans() {
+    new ApplicationContextRunner()
+        .withPropertyValues(
+            "spring.cloud.gcp.pubsub.emulator-host=" + this.server.getEmulatorHost(),
+            "spring.cloud.gcp.project-id=test-project")
+        .withConfiguration(
+            AutoConfigurations.of(
+                GcpPubSubEmulatorAutoConfiguration.class,
+                GcpContextAutoConfiguration.class,
+                GcpPubSubAutoConfiguration.class))
+        .withUserConfiguration(TestConfiguration.class)
+        .run(
+            context -> {
+              PubSubAdmin admin = context.getBean(PubSubAdmin.class);
+              admin.createTopic("topic");
+              admin.createSubscription("sub", "topic");
+              PubSubTemplate template = context.getBean(PubSubTemplate.class);
+
+              template.publish("topic", "hello").get();
+              List<AcknowledgeablePubsubMessage> messages = template.pull("sub", 10, true);
+
+              assertThat(messages).hasSize(1);
+              assertThat(messages.get(0).getPubsubMessage().getData().toStringUtf8())
+                  .isEqualTo("hello");
+              messages.get(0).ack().get();
+              assertThat(this.server.getAcknowledgedCount()).isEqualTo(1);
+            });
+  }
+
+  private static class TestConfiguration {
+    @Bean
+    public CredentialsProvider googleCredentials() {
+      return () -> mock(Credentials.class);
+    }
+  }
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2022-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.emulator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+import com.google.api.gax.core.NoCredentialsProvider;
+import com.google.api.gax.grpc.GrpcTransportChannel;
+import com.google.api.gax.rpc.FixedTransportChannelProvider;
+import com.google.api.gax.rpc.TransportChannelProvider;
+import com.google.cloud.pubsub.v1.Subscriber;
+import com.google.cloud.pubsub.v1.SubscriptionAdminClient;
+import com.google.cloud.pubsub.v1.SubscriptionAdminSettings;
+import com.google.cloud.pubsub.v1.TopicAdminClient;
+import com.google.cloud.pubsub.v1.TopicAdminSettings;
+import com.google.cloud.spring.pubsub.PubSubAdmin;
+import com.google.cloud.spring.pubsub.core.PubSubConfiguration;
+import com.google.cloud.spring.pubsub.core.PubSubTemplate;
+import com.google.cloud.spring.pubsub.support.AcknowledgeablePubsubMessage;
+import com.google.cloud.spring.pubsub.support.CachingPublisherFactory;
+import com.google.cloud.spring.pubsub.support.DefaultPublisherFactory;
+import com.google.cloud.spring.pubsub.support.DefaultSubscriberFactory;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import com.google.pubsub.v1.Subscription;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Status;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Tests for the {@link EmbeddedPubSubServer} through the Spring Cloud GCP Pub/Sub clients. */
+class EmbeddedPubSubServerTests {
+
+  private static final String PROJECT_ID = "test-project";
+
+  private static final String SUBSCRIPTION = "projects/test-project/subscriptions/sub";
+
+  private EmbeddedPubSubServer server;
+
+  private ManagedChannel channel;
+
+  private CachingPublisherFactory publisherFactory;
+
+  private DefaultSubscriberFactory subscriberFactory;
+
+  private PubSubAdmin admin;
+
+  private PubSubTemplate template;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    this.server = new EmbeddedPubSubServer().start();
+    this.channel =
+        ManagedChannelBuilder.forTarget(this.server.getEmulatorHost()).usePlaintext().build();
+    TransportChannelProvider channelProvider =
+        FixedTransportChannelProvider.create(GrpcTransportChannel.create(this.channel));
+
+    DefaultPublisherFactory defaultPublisherFactory = new DefaultPublisherFactory(() -> PROJECT_ID);
+    defaultPublisherFactory.setChannelProvider(channelProvider);
+    defaultPublisherFactory.setCredentialsProvider(NoCredentialsProvider.create());
+    defaultPublisherFactory.setEnableMessageOrdering(true);
+    this.publisherFactory = new CachingPublisherFactory(defaultPublisherFactory);
+    this.subscriberFactory =
+        new DefaultSubscriberFactory(() -> PROJECT_ID, new PubSubConfiguration());
+    this.subscriberFactory.setChannelProvider(channelProvider);
+    this.subscriberFactory.setCredentialsProvider(NoCredentialsProvider.create());
+
+    this.admin =
+        new PubSubAdmin(
+            () -> PROJECT_ID,
+            TopicAdminClient.create(
+                TopicAdminSettings.newBuilder()
+                    .setTransportChannelProvider(channelProvider)
+                    .setCredentialsProvider(NoCredentialsProvider.create())
+                    .build()),
+            SubscriptionAdminClient.create(
+                SubscriptionAdminSettings.newBuilder()
+                    .setTransportChannelProvider(channelProvider)
+                    .setCredentialsProvider(NoCredentialsProvider.create())
+                    .build()));
+    this.admin.createTopic("topic");
+    this.admin.createSubscription("sub", "topic");
+
+    this.template = new PubSubTemplate(this.publisherFactory, this.subscriberFactory);
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    this.admin.close();
+    this.publisherFactory.destroy();
+    this.template.getPubSubSubscriberTemplate().destroy();
+    this.channel.shutdownNow();
+    this.channel.awaitTermination(10, TimeUnit.SECONDS);
+    this.server.close();
+  }
+
+  @Test
+  void testPublishPullAndAck() throws Exception {
+    this.template.publish("topic", "hello").get();
+
+    List<AcknowledgeablePubsubMessage> messages = this.template.pull("sub", 10, true);
+
+    assertThat(messages).hasSize(1);
+    assertThat(messages.get(0).getPubsubMessage().getData().toStringUtf8()).isEqualTo("hello");
+    assertThat(messages.get(0).getPubsubMessage().getMessageId()).isNotEmpty();
+    assertThat(this.server.getOutstandingCount(SUBSCRIPTION)).isEqualTo(1);
+
+    messages.get(0).ack().get();
+
+    assertThat(this.server.getAcknowledgedCount()).isEqualTo(1);
+    assertThat(this.server.getOutstandingCount(SUBSCRIPTION)).isZero();
+    assertThat(this.template.pull("sub", 10, true)).isEmpty();
+  }
+
+  @Test
+  void testNackRedelivers() throws Exception {
+    this.template.publish("topic", "hello").get();
+
+    this.template.pull("sub", 10, true).get(0).nack().get();
+
+    List<AcknowledgeablePubsubMessage> redelivered = this.template.pull("sub", 10, true);
+    assertThat(redelivered).hasSize(1);
+    assertThat(redelivered.get(0).getPubsubMessage().getData().toStringUtf8())
+        .isEqualTo("hello");
+  }
+
+  @Test
+  void testStreamingSubscribe() throws Exception {
+    List<String> received = new CopyOnWriteArrayList<>();
+    Subscriber subscriber =
+        this.template.subscribe(
+            "sub",
+            message -> {
+              received.add(message.getPubsubMessage().getData().toStringUtf8());
+              message.ack();
+            });
+    try {
+      for (int i = 0; i < 20; i++) {
+        this.template.publish("topic", "message-" + i).get();
+      }
+
+      await().atMost(10, TimeUnit.SECONDS).until(() -> this.server.getAcknowledgedCount() == 20);
+      assertThat(received).hasSize(20);
+      assertThat(this.server.getUndeliveredCount(SUBSCRIPTION)).isZero();
+    } finally {
+      subscriber.stopAsync().awaitTerminated();
+    }
+  }
+
+  @Test
+  void testOrderingKeyHeldUntilAck() throws Exception {
+    this.admin.createSubscription(
+        Subscription.newBuilder()
+            .setName("ordered")
+            .setTopic("topic")
+            .setEnableMessageOrdering(true));
+    this.template.publish("topic", message("first", "key")).get();
+    this.template.publish("topic", message("second", "key")).get();
+    this.template.publish("topic", message("other", "")).get();
+
+    List<AcknowledgeablePubsubMessage> messages = this.template.pull("ordered", 10, true);
+    assertThat(data(messages)).containsExactly("first", "second", "other");
+
+    for (AcknowledgeablePubsubMessage message : messages) {
+      message.ack().get();
+    }
+    this.template.publish("topic", message("third", "key")).get();
+    this.template.publish("topic", message("fourth", "key")).get();
+    List<AcknowledgeablePubsubMessage> first = this.template.pull("ordered", 1, true);
+    assertThat(data(first)).containsExactly("third");
+    assertThat(this.template.pull("ordered", 10, true)).isEmpty();
+
+    first.get(0).ack().get();
+
+    assertThat(data(this.template.pull("ordered", 10, true))).containsExactly("fourth");
+  }
+
+  @Test
+  void testInjectedPublishError() {
+    this.server.setErrorCode(Status.Code.INVALID_ARGUMENT);
+    this.server.setErrorRate("Publish", 1.0);
+
+    assertThatThrownBy(() -> this.template.publish("topic", "hello").get())
+        .isInstanceOf(ExecutionException.class)
+        .hasMessageContaining("INVALID_ARGUMENT");
+    assertThat(this.server.getPublishedCount()).isZero();
+  }
+
+  @Test
+  void testInjectedPullLatency() {
+    this.server.setLatency("Pull", Duration.ofMillis(300));
+
+    long start = System.nanoTime();
+    this.template.pull("sub", 10, true);
+
+    assertThat(System.nanoTime() - start)
+        .isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(300));
+  }
+
+  private static PubsubMessage message(String data, String orderingKey) {
+    return PubsubMessage.newBuilder()
+        .setData(ByteString.copyFromUtf8(data))
+        .setOrderingKey(orderingKey)
+        .build();
+  }
+
+  private static List<String> data(List<AcknowledgeablePubsubMessage> messages) {
+    return messages.stream()
+        .map(message -> message.getPubsubMessage().getData().toStringUtf8())
+        .collect(Collectors.toList());
+  }
+}
@@ -16,15 +16,34 @@
 
 package com.google.cloud.spring.stream.binder.pubsub;
 
+import com.google.api.gax.batching.BatchingSettings;
+import com.google.api.gax.batching.FlowControlSettings;
+import com.google.api.gax.core.InstantiatingExecutorProvider;
+import com.google.cloud.pubsub.v1.Publisher;
+import com.google.cloud.pubsub.v1.Subscriber;
 import com.google.cloud.spring.pubsub.core.PubSubTemplate;
 import com.google.cloud.spring.pubsub.core.health.HealthTrackerRegistry;
+import com.google.cloud.spring.pubsub.core.publisher.PubSubPublisherOperations;
+import com.google.cloud.spring.pubsub.core.publisher.PubSubPublisherTemplate;
+import com.google.cloud.spring.pubsub.core.subscriber.SubscriberCustomizer;
 import com.google.cloud.spring.pubsub.integration.inbound.PubSubInboundChannelAdapter;
 import com.google.cloud.spring.pubsub.integration.inbound.PubSubMessageSource;
 import com.google.cloud.spring.pubsub.integration.outbound.PubSubMessageHandler;
+import com.google.cloud.spring.pubsub.support.CachingPublisherFactory;
+import com.google.cloud.spring.pubsub.support.DefaultPublisherFactory;
+import com.google.cloud.spring.pubsub.support.DefaultSubscriberFactory;
+import com.google.cloud.spring.pubsub.support.PublisherFactory;
+import com.google.cloud.spring.pubsub.support.SubscriberFactory;
 import com.google.cloud.spring.stream.binder.pubsub.properties.PubSubConsumerProperties;
 import com.google.cloud.spring.stream.binder.pubsub.properties.PubSubExtendedBindingProperties;
+import com.google.cloud.spring.stream.binder.pubsub.properties.PubSubFlowControlProperties;
 import com.google.cloud.spring.stream.binder.pubsub.properties.PubSubProducerProperties;
 import com.google.cloud.spring.stream.binder.pubsub.provisioning.PubSubChannelProvisioner;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.cloud.stream.binder.AbstractMessageChannelBinder;
 import org.springframework.cloud.stream.binder.BinderSpecificPropertiesProvider;
 import org.springframework.cloud.stream.binder.ExtendedConsumerProperties;
@@ -35,6 +54,7 @@ import org.springframework.cloud.stream.provisioning.ProducerDestination;
 import org.springframework.integration.core.MessageProducer;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.MessageHandler;
+import org.threeten.bp.Duration;
 
 /** Message channel binder for Pub/Sub. */
 public class PubSubMessageChannelBinder
@@ -43,7 +63,10 @@ public class PubSubMessageChannelBinder
         ExtendedProducerProperties<PubSubProducerProperties>,
         PubSubChannelProvisioner>
     implements ExtendedPropertiesBinder<
-        MessageChannel, PubSubConsumerProperties, PubSubProducerProperties> {
+            MessageChannel, PubSubConsumerProperties, PubSubProducerProperties>,
+        DisposableBean {
+
+  private static final Log LOGGER = LogFactory.getLog(PubSubMessageChannelBinder.class);
 
   private final PubSubTemplate pubSubTemplate;
 
@@ -53,6 +76,10 @@ public class PubSubMessageChannelBinder
 
   private HealthTrackerRegistry healthTrackerRegistry;
 
+  /** Publisher factories of the producer bindings that override publisher settings. */
+  private final Map<ProducerDestination, CachingPublisherFactory> bindingPublisherFactories =
+      new ConcurrentHashMap<>();
+
   public PubSubMessageChannelBinder(
       String[] headersToEmbed,
       PubSubChannelProvisioner provisioningProvider,
@@ -75,13 +102,127 @@ public class PubSubMessageChannelBinder
       ExtendedProducerProperties<PubSubProducerProperties> producerProperties,
       MessageChannel errorChannel) {
 
+    PubSubProducerProperties pubSubProducerProperties = producerProperties.getExtension();
+    PubSubPublisherOperations publisherOperations = this.pubSubTemplate;
+    if (pubSubProducerProperties.hasPublisherOverrides()) {
+      publisherOperations = createBindingPublisherTemplate(destination, pubSubProducerProperties);
+    }
+
     PubSubMessageHandler messageHandler =
-        new PubSubMessageHandler(this.pubSubTemplate, destination.getName());
+        new PubSubMessageHandler(publisherOperations, destination.getName());
     messageHandler.setBeanFactory(getBeanFactory());
-    messageHandler.setSync(producerProperties.getExtension().isSync());
+    messageHandler.setSync(pubSubProducerProperties.isSync());
+    messageHandler.setMaxInFlight(pubSubProducerProperties.getMaxInFlight());
+    if (pubSubProducerProperties.getOrderingKeyExpression() != null) {
+      messageHandler.setOrderingKeyExpressionString(
+          pubSubProducerProperties.getOrderingKeyExpression());
+    }
     return messageHandler;
   }
 
+  /**
+   * Creates a publisher template for a binding with its own publisher, configured like the
+   * shared publisher except for the settings the binding overrides.
+   */
+  private PubSubPublisherOperations createBindingPublisherTemplate(
+      ProducerDestination destination, PubSubProducerProperties producerProperties) {
+    PublisherFactory sharedPublisherFactory = this.pubSubTemplate.getPublisherFactory();
+    if (sharedPublisherFactory instanceof CachingPublisherFactory) {
+      sharedPublisherFactory = ((CachingPublisherFactory) sharedPublisherFactory).getDelegate();
+    }
+    if (!(sharedPublisherFactory instanceof DefaultPublisherFactory)) {
+      LOGGER.warn(
+          "The publisher settings of the binding to "
+              + destination.getName()
+              + " are ignored, because the shared publisher factory is not a "
+              + "DefaultPublisherFactory.");
+      return this.pubSubTemplate;
+    }
+
+    DefaultPublisherFactory defaultPublisherFactory =
+        (DefaultPublisherFactory) sharedPublisherFactory;
+    CachingPublisherFactory bindingPublisherFactory =
+        new CachingPublisherFactory(
+            topic ->
+                defaultPublisherFactory.createPublisher(
+                    topic,
+                    (publisherBuilder, customizedTopic) ->
+                        applyProducerProperties(
+                            publisherBuilder,
+                            defaultPublisherFactory.getBatchingSettings(customizedTopic),
+                            producerProperties)));
+    CachingPublisherFactory previous =
+        this.bindingPublisherFactories.put(destination, bindingPublisherFactory);
+    if (previous != null) {
+      destroyPublisherFactory(previous);
+    }
+
+    PubSubPublisherTemplate publisherTemplate =
+        new PubSubPublisherTemplate(bindingPublisherFactory);
+    publisherTemplate.setMessageConverter(this.pubSubTemplate.getMessageConverter());
+    // The binding template is not a bean, so it records to the metrics of the shared template.
+    publisherTemplate.setMetrics(this.pubSubTemplate.getPubSubPublisherTemplate().getMetrics());
+    return publisherTemplate;
+  }
+
+  static void applyProducerProperties(
+      Publisher.Builder publisherBuilder,
+      BatchingSettings sharedBatchingSettings,
+      PubSubProducerProperties producerProperties) {
+    if (producerProperties.getEnableMessageOrdering() != null) {
+      publisherBuilder.setEnableMessageOrdering(producerProperties.getEnableMessageOrdering());
+    }
+
+    if (producerProperties.getExecutorThreads() != null) {
+      // The publish callbacks run on the publisher executor threads.
+      publisherBuilder.setExecutorProvider(
+          InstantiatingExecutorProvider.newBuilder()
+              .setExecutorThreadCount(producerProperties.getExecutorThreads())
+              .build());
+    }
+
+    PubSubProducerProperties.Batching batching = producerProperties.getBatching();
+    BatchingSettings baseSettings =
+        sharedBatchingSettings != null
+            ? sharedBatchingSettings
+            : Publisher.Builder.getDefaultBatchingSettings();
+    BatchingSettings.Builder batchingBuilder = baseSettings.toBuilder();
+    if (batching.getElementCountThreshold() != null) {
+      batchingBuilder.setElementCountThreshold(batching.getElementCountThreshold());
+    }
+    if (batching.getRequestByteThreshold() != null) {
+      batchingBuilder.setRequestByteThreshold(batching.getRequestByteThreshold());
+    }
+    if (batching.getDelayThreshold() != null) {
+      batchingBuilder.setDelayThreshold(
+          Duration.ofMillis(batching.getDelayThreshold().toMillis()));
+    }
+    if (batching.getEnabled() != null) {
+      batchingBuilder.setIsEnabled(batching.getEnabled());
+    }
+
+    batchingBuilder.setFlowControlSettings(
+        applyFlowControlProperties(
+            baseSettings.getFlowControlSettings(), batching.getFlowControl()));
+
+    publisherBuilder.setBatchingSettings(batchingBuilder.build());
+  }
+
+  private static FlowControlSettings applyFlowControlProperties(
+      FlowControlSettings baseSettings, PubSubFlowControlProperties flowControl) {
+    FlowControlSettings.Builder flowControlBuilder = baseSettings.toBuilder();
+    if (flowControl.getMaxOutstandingElementCount() != null) {
+      flowControlBuilder.setMaxOutstandingElementCount(flowControl.getMaxOutstandingElementCount());
+    }
+    if (flowControl.getMaxOutstandingRequestBytes() != null) {
+      flowControlBuilder.setMaxOutstandingRequestBytes(flowControl.getMaxOutstandingRequestBytes());
+    }
+    if (flowControl.getLimitExceededBehavior() != null) {
+      flowControlBuilder.setLimitExceededBehavior(flowControl.getLimitExceededBehavior());
+    }
+    return flowControlBuilder.build();
+  }
+
   @Override
   protected MessageProducer createConsumerEndpoint(
       ConsumerDestination destination,
@@ -99,11 +240,69 @@ public class PubSubMessageChannelBinder
         registerErrorInfrastructure(destination, group, properties);
     adapter.setErrorChannel(errorInfrastructure.getErrorChannel());
     adapter.setAckMode(properties.getExtension().getAckMode());
+    SubscriberCustomizer subscriberCustomizer = createSubscriberCustomizer(properties);
+    if (subscriberCustomizer != null) {
+      adapter.setSubscriberCustomizer(subscriberCustomizer);
+    }
+    if (properties.isBatchMode()) {
+      adapter.setBatchMode(true);
+      adapter.setMaxBatchSize(properties.getExtension().getMaxBatchSize());
+      adapter.setMaxBatchDelay(properties.getExtension().getMaxBatchDelay());
+    }
+    adapter.setOrderingKeyLanes(properties.getExtension().getOrderingKeyLanes());
     adapter.setBeanFactory(getBeanFactory());
 
     return adapter;
   }
 
+  /**
+   * Creates a customizer for the subscriber of a consumer binding that overrides the subscriber
+   * factory settings. The {@code concurrency} consumer property sets the number of executor
+   * threads, which process the received messages, unless {@code executorThreads} is set.
+   *
+   * @return the subscriber customizer, or {@code null} if the binding overrides no setting
+   */
+  SubscriberCustomizer createSubscriberCustomizer(
+      ExtendedConsumerProperties<PubSubConsumerProperties> properties) {
+    PubSubConsumerProperties pubSubConsumerProperties = properties.getExtension();
+    Integer parallelPullCount = pubSubConsumerProperties.getParallelPullCount();
+    PubSubFlowControlProperties flowControl = pubSubConsumerProperties.getFlowControl();
+    Integer configuredExecutorThreads = pubSubConsumerProperties.getExecutorThreads();
+    if (configuredExecutorThreads == null && properties.getConcurrency() > 1) {
+      configuredExecutorThreads = properties.getConcurrency();
+    }
+    Integer executorThreads = configuredExecutorThreads;
+    if (parallelPullCount == null && executorThreads == null && !flowControl.hasOverrides()) {
+      return null;
+    }
+
+    SubscriberFactory subscriberFactory = this.pubSubTemplate.getSubscriberFactory();
+    return (subscriberBuilder, subscriptionName) -> {
+      if (parallelPullCount != null) {
+        subscriberBuilder.setParallelPullCount(parallelPullCount);
+      }
+      if (executorThreads != null) {
+        subscriberBuilder.setExecutorProvider(
+            InstantiatingExecutorProvider.newBuilder()
+                .setExecutorThreadCount(executorThreads)
+                .build());
+      }
+      if (flowControl.hasOverrides()) {
+        FlowControlSettings baseSettings = null;
+        if (subscriberFactory instanceof DefaultSubscriberFactory) {
+          baseSettings =
+              ((DefaultSubscriberFactory) subscriberFactory)
+                  .getFlowControlSettings(subscriptionName);
+        }
+        if (baseSettings == null) {
+          baseSettings = Subscriber.Builder.getDefaultFlowControlSettings();
+        }
+        subscriberBuilder.setFlowControlSettings(
+            applyFlowControlProperties(baseSettings, flowControl));
+      }
+    };
+  }
+
   @Override
   protected String errorsBaseName(
       ConsumerDestination destination,
@@ -132,6 +331,33 @@ public class PubSubMessageChannelBinder
     return this.pubSubExtendedBindingProperties.getExtendedPropertiesEntryClass();
   }
 
+  @Override
+  protected void afterUnbindProducer(
+      ProducerDestination destination,
+      ExtendedProducerProperties<PubSubProducerProperties> producerProperties) {
+    super.afterUnbindProducer(destination, producerProperties);
+    CachingPublisherFactory bindingPublisherFactory =
+        this.bindingPublisherFactories.remove(destination);
+    if (bindingPublisherFactory != null) {
+      destroyPublisherFactory(bindingPublisherFactory);
+    }
+  }
+
+  /** Shut down the publishers of the producer bindings that are still bound. */
+  @Override
+  public void destroy() {
+    this.bindingPublisherFactories.values().forEach(this::destroyPublisherFactory);
+    this.bindingPublisherFactories.clear();
+  }
+
+  private void destroyPublisherFactory(CachingPublisherFactory publisherFactory) {
+    try {
+      publisherFactory.destroy();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
   @Override
   protected void afterUnbindConsumer(
       ConsumerDestination destination,
@@ -157,7 +383,17 @@ public class PubSubMessageChannelBinder
       ExtendedConsumerProperties<PubSubConsumerProperties> consumerProperties) {
     PubSubMessageSource source =
         new PubSubMessageSource(this.pubSubTemplate, destination.getName());
-    source.setMaxFetchSize(consumerProperties.getExtension().getMaxFetchSize());
+    PubSubConsumerProperties pubSubConsumerProperties = consumerProperties.getExtension();
+    source.setMaxFetchSize(pubSubConsumerProperties.getMaxFetchSize());
+    source.setPrefetchConcurrentPulls(pubSubConsumerProperties.getPrefetchConcurrentPulls());
+    Integer lowWatermark = pubSubConsumerProperties.getPrefetchLowWatermark();
+    Integer highWatermark = pubSubConsumerProperties.getPrefetchHighWatermark();
+    if (lowWatermark != null || highWatermark != null) {
+      // A single watermark keeps the default ratio of the high watermark to the low one.
+      source.setPrefetchWatermarks(
+          (lowWatermark != null) ? lowWatermark : highWatermark / 2,
+          (highWatermark != null) ? highWatermark : Math.max(2 * lowWatermark, 1));
+    }
     return source;
   }
 }
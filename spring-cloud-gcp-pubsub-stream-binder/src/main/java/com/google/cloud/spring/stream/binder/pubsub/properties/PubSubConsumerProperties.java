@@ -17,6 +17,7 @@
 package com.google.cloud.spring.stream.binder.pubsub.properties;
 
 import com.google.cloud.spring.pubsub.integration.AckMode;
+import java.time.Duration;
 
 /** Consumer properties for Pub/Sub. */
 public class PubSubConsumerProperties extends PubSubCommonProperties {
@@ -25,10 +26,28 @@ public class PubSubConsumerProperties extends PubSubCommonProperties {
 
   private Integer maxFetchSize = 1;
 
+  private int prefetchConcurrentPulls = 0;
+
+  private Integer prefetchLowWatermark = null;
+
+  private Integer prefetchHighWatermark = null;
+
   private String subscriptionName = null;
 
   private DeadLetterPolicy deadLetterPolicy = null;
 
+  private Integer parallelPullCount = null;
+
+  private Integer executorThreads = null;
+
+  private final PubSubFlowControlProperties flowControl = new PubSubFlowControlProperties();
+
+  private int maxBatchSize = 100;
+
+  private Duration maxBatchDelay = Duration.ofSeconds(1);
+
+  private int orderingKeyLanes = 0;
+
   public AckMode getAckMode() {
     return ackMode;
   }
@@ -45,6 +64,30 @@ public class PubSubConsumerProperties extends PubSubCommonProperties {
     this.maxFetchSize = maxFetchSize;
   }
 
+  public int getPrefetchConcurrentPulls() {
+    return prefetchConcurrentPulls;
+  }
+
+  public void setPrefetchConcurrentPulls(int prefetchConcurrentPulls) {
+    this.prefetchConcurrentPulls = prefetchConcurrentPulls;
+  }
+
+  public Integer getPrefetchLowWatermark() {
+    return prefetchLowWatermark;
+  }
+
+  public void setPrefetchLowWatermark(Integer prefetchLowWatermark) {
+    this.prefetchLowWatermark = prefetchLowWatermark;
+  }
+
+  public Integer getPrefetchHighWatermark() {
+    return prefetchHighWatermark;
+  }
+
+  public void setPrefetchHighWatermark(Integer prefetchHighWatermark) {
+    this.prefetchHighWatermark = prefetchHighWatermark;
+  }
+
   public String getSubscriptionName() {
     return subscriptionName;
   }
@@ -61,6 +104,50 @@ public class PubSubConsumerProperties extends PubSubCommonProperties {
     this.deadLetterPolicy = deadLetterPolicy;
   }
 
+  public Integer getParallelPullCount() {
+    return parallelPullCount;
+  }
+
+  public void setParallelPullCount(Integer parallelPullCount) {
+    this.parallelPullCount = parallelPullCount;
+  }
+
+  public Integer getExecutorThreads() {
+    return executorThreads;
+  }
+
+  public void setExecutorThreads(Integer executorThreads) {
+    this.executorThreads = executorThreads;
+  }
+
+  public PubSubFlowControlProperties getFlowControl() {
+    return flowControl;
+  }
+
+  public int getMaxBatchSize() {
+    return maxBatchSize;
+  }
+
+  public void setMaxBatchSize(int maxBatchSize) {
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  public Duration getMaxBatchDelay() {
+    return maxBatchDelay;
+  }
+
+  public void setMaxBatchDelay(Duration maxBatchDelay) {
+    this.maxBatchDelay = maxBatchDelay;
+  }
+
+  public int getOrderingKeyLanes() {
+    return orderingKeyLanes;
+  }
+
+  public void setOrderingKeyLanes(int orderingKeyLanes) {
+    this.orderingKeyLanes = orderingKeyLanes;
+  }
+
   public static class DeadLetterPolicy {
     private String deadLetterTopic;
 
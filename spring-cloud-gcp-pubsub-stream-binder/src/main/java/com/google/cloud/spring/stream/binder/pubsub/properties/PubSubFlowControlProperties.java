@@ -0,0 +1,68 @@
+/*
+ * Copyright 2022-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.stream.binder.pubsub.properties;
+
+import com.google.api.gax.batching.FlowController.LimitExceededBehavior;
+
+/**
+ * Flow control properties of the publisher or subscriber of a binding.
+ *
+ * @since 3.2
+ */
+public class PubSubFlowControlProperties {
+
+  private Long maxOutstandingElementCount;
+
+  private Long maxOutstandingRequestBytes;
+
+  private LimitExceededBehavior limitExceededBehavior;
+
+  public Long getMaxOutstandingElementCount() {
+    return maxOutstandingElementCount;
+  }
+
+  public void setMaxOutstandingElementCount(Long maxOutstandingElementCount) {
+    this.maxOutstandingElementCount = maxOutstandingElementCount;
+  }
+
+  public Long getMaxOutstandingRequestBytes() {
+    return maxOutstandingRequestBytes;
+  }
+
+  public void setMaxOutstandingRequestBytes(Long maxOutstandingRequestBytes) {
+    this.maxOutstandingRequestBytes = maxOutstandingRequestBytes;
+  }
+
+  public LimitExceededBehavior getLimitExceededBehavior() {
+    return limitExceededBehavior;
+  }
+
+  public void setLimitExceededBehavior(LimitExceededBehavior limitExceededBehavior) {
+    this.limitExceededBehavior = limitExceededBehavior;
+  }
+
+  /**
+   * Returns whether any of the flow control settings is set.
+   *
+   * @return true if a flow control setting is set
+   */
+  public boolean hasOverrides() {
+    return this.maxOutstandingElementCount != null
+        || this.maxOutstandingRequestBytes != null
+        || this.limitExceededBehavior != null;
+  }
+}
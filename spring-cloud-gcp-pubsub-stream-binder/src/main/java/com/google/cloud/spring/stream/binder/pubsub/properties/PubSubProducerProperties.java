@@ -16,10 +16,22 @@
 
 package com.google.cloud.spring.stream.binder.pubsub.properties;
 
+import java.time.Duration;
+
 /** Producer properties for Pub/Sub. */
 public class PubSubProducerProperties extends PubSubCommonProperties {
   private boolean sync = false;
 
+  private int maxInFlight = 0;
+
+  private Boolean enableMessageOrdering = null;
+
+  private String orderingKeyExpression = null;
+
+  private Integer executorThreads = null;
+
+  private final Batching batching = new Batching();
+
   public boolean isSync() {
     return sync;
   }
@@ -27,4 +39,111 @@ public class PubSubProducerProperties extends PubSubCommonProperties {
   public void setSync(boolean sync) {
     this.sync = sync;
   }
+
+  public int getMaxInFlight() {
+    return maxInFlight;
+  }
+
+  public void setMaxInFlight(int maxInFlight) {
+    this.maxInFlight = maxInFlight;
+  }
+
+  public Boolean getEnableMessageOrdering() {
+    return enableMessageOrdering;
+  }
+
+  public void setEnableMessageOrdering(Boolean enableMessageOrdering) {
+    this.enableMessageOrdering = enableMessageOrdering;
+  }
+
+  public String getOrderingKeyExpression() {
+    return orderingKeyExpression;
+  }
+
+  public void setOrderingKeyExpression(String orderingKeyExpression) {
+    this.orderingKeyExpression = orderingKeyExpression;
+  }
+
+  public Integer getExecutorThreads() {
+    return executorThreads;
+  }
+
+  public void setExecutorThreads(Integer executorThreads) {
+    this.executorThreads = executorThreads;
+  }
+
+  public Batching getBatching() {
+    return batching;
+  }
+
+  /**
+   * Returns whether any of the publisher settings is set for the binding, in which case the
+   * binding gets its own publisher instead of the shared one.
+   *
+   * @return true if the binding overrides a publisher setting
+   * @since 3.2
+   */
+  public boolean hasPublisherOverrides() {
+    return this.enableMessageOrdering != null
+        || this.executorThreads != null
+        || this.batching.hasOverrides();
+  }
+
+  /** Publisher batching properties of a binding. */
+  public static class Batching {
+
+    private Long elementCountThreshold;
+
+    private Long requestByteThreshold;
+
+    private Duration delayThreshold;
+
+    private Boolean enabled;
+
+    private final PubSubFlowControlProperties flowControl = new PubSubFlowControlProperties();
+
+    public Long getElementCountThreshold() {
+      return elementCountThreshold;
+    }
+
+    public void setElementCountThreshold(Long elementCountThreshold) {
+      this.elementCountThreshold = elementCountThreshold;
+    }
+
+    public Long getRequestByteThreshold() {
+      return requestByteThreshold;
+    }
+
+    public void setRequestByteThreshold(Long requestByteThreshold) {
+      this.requestByteThreshold = requestByteThreshold;
+    }
+
+    public Duration getDelayThreshold() {
+      return delayThreshold;
+    }
+
+    public void setDelayThreshold(Duration delayThreshold) {
+      this.delayThreshold = delayThreshold;
+    }
+
+    public Boolean getEnabled() {
+      return enabled;
+    }
+
+    public void setEnabled(Boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public PubSubFlowControlProperties getFlowControl() {
+      return flowControl;
+    }
+
+    boolean hasOverrides() {
+      return this.elementCountThreshold != null
+          || this.requestByteThreshold != null
+          || this.delayThreshold != null
+          || this.enabled != null
+          || this.flowControl.hasOverrides();
+    }
+  }
 }
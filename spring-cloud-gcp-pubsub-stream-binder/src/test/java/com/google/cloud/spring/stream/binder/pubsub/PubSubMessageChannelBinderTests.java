@@ -17,26 +17,44 @@
 package com.google.cloud.spring.stream.binder.pubsub;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.google.api.gax.batching.BatchingSettings;
+import com.google.api.gax.batching.FlowControlSettings;
 import com.google.api.gax.core.CredentialsProvider;
+import com.google.api.gax.core.InstantiatingExecutorProvider;
+import com.google.api.gax.core.NoCredentialsProvider;
 import com.google.auth.Credentials;
+import com.google.cloud.pubsub.v1.Publisher;
+import com.google.cloud.pubsub.v1.Subscriber;
 import com.google.cloud.spring.core.GcpProjectIdProvider;
 import com.google.cloud.spring.pubsub.PubSubAdmin;
 import com.google.cloud.spring.pubsub.core.PubSubTemplate;
 import com.google.cloud.spring.pubsub.core.health.HealthTrackerRegistry;
+import com.google.cloud.spring.pubsub.core.publisher.PubSubPublisherTemplate;
 import com.google.cloud.spring.pubsub.integration.AckMode;
 import com.google.cloud.spring.pubsub.integration.inbound.PubSubInboundChannelAdapter;
 import com.google.cloud.spring.pubsub.integration.inbound.PubSubMessageSource;
 import com.google.cloud.spring.pubsub.integration.outbound.PubSubMessageHandler;
+import com.google.cloud.spring.pubsub.support.CachingPublisherFactory;
+import com.google.cloud.spring.pubsub.support.DefaultPublisherFactory;
+import com.google.cloud.spring.pubsub.support.DefaultSubscriberFactory;
+import com.google.cloud.spring.pubsub.support.PubSubMetrics;
+import com.google.cloud.spring.pubsub.support.converter.SimplePubSubMessageConverter;
 import com.google.cloud.spring.stream.binder.pubsub.config.PubSubBinderConfiguration;
 import com.google.cloud.spring.stream.binder.pubsub.properties.PubSubConsumerProperties;
 import com.google.cloud.spring.stream.binder.pubsub.properties.PubSubExtendedBindingProperties;
+import com.google.cloud.spring.stream.binder.pubsub.properties.PubSubProducerProperties;
 import com.google.cloud.spring.stream.binder.pubsub.provisioning.PubSubChannelProvisioner;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang3.reflect.FieldUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.junit.Before;
@@ -65,6 +83,7 @@ import org.springframework.cloud.stream.provisioning.ProducerDestination;
 import org.springframework.context.annotation.Bean;
 import org.springframework.integration.core.MessageProducer;
 import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
 
 /**
  * Tests for channel binder.
@@ -160,6 +179,113 @@ public class PubSubMessageChannelBinderTests {
             });
   }
 
+  @Test
+  public void producerWithoutPublisherOverridesUsesSharedTemplate() {
+    baseContext.run(
+        ctx -> {
+          PubSubMessageChannelBinder binder = ctx.getBean(PubSubMessageChannelBinder.class);
+          PubSubExtendedBindingProperties props =
+              ctx.getBean("pubSubExtendedBindingProperties", PubSubExtendedBindingProperties.class);
+
+          MessageHandler messageHandler =
+              binder.createProducerMessageHandler(
+                  producerDestination,
+                  new ExtendedProducerProperties<>(props.getExtendedProducerProperties("test")),
+                  errorChannel);
+
+          assertThat(FieldUtils.readField(messageHandler, "pubSubPublisherOperations", true))
+              .isSameAs(pubSubTemplate);
+        });
+  }
+
+  @Test
+  public void producerMaxInFlightPropagatesToMessageHandler() {
+    baseContext
+        .withPropertyValues("spring.cloud.stream.gcp.pubsub.bindings.test.producer.maxInFlight=50")
+        .run(
+            ctx -> {
+              PubSubMessageChannelBinder binder = ctx.getBean(PubSubMessageChannelBinder.class);
+              PubSubExtendedBindingProperties props =
+                  ctx.getBean(
+                      "pubSubExtendedBindingProperties", PubSubExtendedBindingProperties.class);
+
+              PubSubMessageHandler messageHandler =
+                  (PubSubMessageHandler)
+                      binder.createProducerMessageHandler(
+                          producerDestination,
+                          new ExtendedProducerProperties<>(
+                              props.getExtendedProducerProperties("test")),
+                          errorChannel);
+
+              assertThat(messageHandler.getMaxInFlight()).isEqualTo(50);
+            });
+  }
+
+  @Test
+  public void producerPublisherOverridesCreateBindingPublisher() {
+    DefaultPublisherFactory sharedPublisherFactory =
+        new DefaultPublisherFactory(() -> "fake project");
+    sharedPublisherFactory.setCredentialsProvider(NoCredentialsProvider.create());
+    sharedPublisherFactory.setBatchingSettings(
+        BatchingSettings.newBuilder()
+            .setElementCountThreshold(10L)
+            .setRequestByteThreshold(1000L)
+            .build());
+    when(pubSubTemplate.getPublisherFactory())
+        .thenReturn(new CachingPublisherFactory(sharedPublisherFactory));
+    when(pubSubTemplate.getMessageConverter()).thenReturn(new SimplePubSubMessageConverter());
+    PubSubMetrics metrics = new PubSubMetrics(new SimpleMeterRegistry());
+    PubSubPublisherTemplate sharedPublisherTemplate =
+        new PubSubPublisherTemplate(new CachingPublisherFactory(sharedPublisherFactory));
+    sharedPublisherTemplate.setMetrics(metrics);
+    when(pubSubTemplate.getPubSubPublisherTemplate()).thenReturn(sharedPublisherTemplate);
+
+    baseContext
+        .withPropertyValues(
+            "spring.cloud.stream.gcp.pubsub.bindings.test.producer.enableMessageOrdering=true",
+            "spring.cloud.stream.gcp.pubsub.bindings.test.producer.orderingKeyExpression="
+                + "headers['customerId']",
+            "spring.cloud.stream.gcp.pubsub.bindings.test.producer.executorThreads=2",
+            "spring.cloud.stream.gcp.pubsub.bindings.test.producer.batching.elementCountThreshold=500",
+            "spring.cloud.stream.gcp.pubsub.bindings.test.producer.batching.delayThreshold=50ms",
+            "spring.cloud.stream.gcp.pubsub.bindings.test.producer.batching.flowControl"
+                + ".maxOutstandingElementCount=2000")
+        .run(
+            ctx -> {
+              PubSubMessageChannelBinder binder = ctx.getBean(PubSubMessageChannelBinder.class);
+              PubSubExtendedBindingProperties props =
+                  ctx.getBean(
+                      "pubSubExtendedBindingProperties", PubSubExtendedBindingProperties.class);
+              ExtendedProducerProperties<PubSubProducerProperties> producerProperties =
+                  new ExtendedProducerProperties<>(props.getExtendedProducerProperties("test"));
+
+              PubSubMessageHandler messageHandler =
+                  (PubSubMessageHandler)
+                      binder.createProducerMessageHandler(
+                          producerDestination, producerProperties, errorChannel);
+
+              assertThat(messageHandler.getOrderingKeyExpression().getExpressionString())
+                  .isEqualTo("headers['customerId']");
+              PubSubPublisherTemplate publisherTemplate =
+                  (PubSubPublisherTemplate)
+                      FieldUtils.readField(messageHandler, "pubSubPublisherOperations", true);
+              assertThat(publisherTemplate.getMetrics()).isSameAs(metrics);
+              Publisher publisher =
+                  publisherTemplate.getPublisherFactory().createPublisher("test-topic");
+              BatchingSettings batchingSettings = publisher.getBatchingSettings();
+              assertThat(batchingSettings.getElementCountThreshold()).isEqualTo(500L);
+              assertThat(batchingSettings.getRequestByteThreshold()).isEqualTo(1000L);
+              assertThat(batchingSettings.getDelayThreshold())
+                  .isEqualTo(org.threeten.bp.Duration.ofMillis(50));
+              assertThat(
+                      batchingSettings.getFlowControlSettings().getMaxOutstandingElementCount())
+                  .isEqualTo(2000L);
+
+              binder.afterUnbindProducer(producerDestination, producerProperties);
+              assertThat(publisher.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+            });
+  }
+
   @Test
   public void consumerMaxFetchPropertyPropagatesToMessageSource() {
     baseContext
@@ -180,6 +306,121 @@ public class PubSubMessageChannelBinderTests {
             });
   }
 
+  @Test
+  public void consumerPrefetchPropertiesPropagateToMessageSource() {
+    baseContext
+        .withPropertyValues(
+            "spring.cloud.stream.gcp.pubsub.default.consumer.maxFetchSize=20",
+            "spring.cloud.stream.gcp.pubsub.default.consumer.prefetchConcurrentPulls=3")
+        .run(
+            ctx -> {
+              PubSubMessageChannelBinder binder = ctx.getBean(PubSubMessageChannelBinder.class);
+              PubSubExtendedBindingProperties props =
+                  ctx.getBean(
+                      "pubSubExtendedBindingProperties", PubSubExtendedBindingProperties.class);
+
+              PubSubMessageSource source =
+                  binder.createPubSubMessageSource(
+                      consumerDestination,
+                      new ExtendedConsumerProperties<>(
+                          props.getExtendedConsumerProperties("test")));
+              assertThat(source.getPrefetchConcurrentPulls()).isEqualTo(3);
+            });
+  }
+
+  @Test
+  public void consumerPrefetchWatermarkDefaultsFromTheOtherOne() {
+    baseContext
+        .withPropertyValues(
+            "spring.cloud.stream.gcp.pubsub.default.consumer.prefetchConcurrentPulls=3",
+            "spring.cloud.stream.gcp.pubsub.default.consumer.prefetchHighWatermark=50")
+        .run(
+            ctx -> {
+              PubSubMessageChannelBinder binder = ctx.getBean(PubSubMessageChannelBinder.class);
+              PubSubExtendedBindingProperties props =
+                  ctx.getBean(
+                      "pubSubExtendedBindingProperties", PubSubExtendedBindingProperties.class);
+
+              PubSubMessageSource source =
+                  binder.createPubSubMessageSource(
+                      consumerDestination,
+                      new ExtendedConsumerProperties<>(
+                          props.getExtendedConsumerProperties("test")));
+              assertThat(source.getPrefetchLowWatermark()).isEqualTo(25);
+              assertThat(source.getPrefetchHighWatermark()).isEqualTo(50);
+            });
+  }
+
+  @Test
+  public void consumerWithoutSubscriberOverridesHasNoSubscriberCustomizer() {
+    baseContext.run(
+        ctx -> {
+          PubSubMessageChannelBinder binder = ctx.getBean(PubSubMessageChannelBinder.class);
+          PubSubExtendedBindingProperties props =
+              ctx.getBean("pubSubExtendedBindingProperties", PubSubExtendedBindingProperties.class);
+
+          PubSubInboundChannelAdapter adapter =
+              (PubSubInboundChannelAdapter)
+                  binder.createConsumerEndpoint(
+                      consumerDestination,
+                      "testGroup",
+                      new ExtendedConsumerProperties<>(
+                          props.getExtendedConsumerProperties("test")));
+
+          assertThat(adapter.getSubscriberCustomizer()).isNull();
+        });
+  }
+
+  @Test
+  public void consumerSubscriberPropertiesPropagateToSubscriber() {
+    DefaultSubscriberFactory subscriberFactory = new DefaultSubscriberFactory(() -> "fake project");
+    subscriberFactory.setFlowControlSettings(
+        FlowControlSettings.newBuilder()
+            .setMaxOutstandingElementCount(100L)
+            .setMaxOutstandingRequestBytes(1000L)
+            .build());
+    when(pubSubTemplate.getSubscriberFactory()).thenReturn(subscriberFactory);
+
+    baseContext
+        .withPropertyValues(
+            "spring.cloud.stream.gcp.pubsub.bindings.test.consumer.parallelPullCount=3",
+            "spring.cloud.stream.gcp.pubsub.bindings.test.consumer.flowControl"
+                + ".maxOutstandingElementCount=5000")
+        .run(
+            ctx -> {
+              PubSubMessageChannelBinder binder = ctx.getBean(PubSubMessageChannelBinder.class);
+              PubSubExtendedBindingProperties props =
+                  ctx.getBean(
+                      "pubSubExtendedBindingProperties", PubSubExtendedBindingProperties.class);
+              ExtendedConsumerProperties<PubSubConsumerProperties> consumerProperties =
+                  new ExtendedConsumerProperties<>(props.getExtendedConsumerProperties("test"));
+              consumerProperties.setConcurrency(4);
+
+              PubSubInboundChannelAdapter adapter =
+                  (PubSubInboundChannelAdapter)
+                      binder.createConsumerEndpoint(
+                          consumerDestination, "testGroup", consumerProperties);
+
+              Subscriber.Builder subscriberBuilder =
+                  Subscriber.newBuilder(
+                          "projects/fake project/subscriptions/test-subscription",
+                          (message, consumer) -> { })
+                      .setCredentialsProvider(NoCredentialsProvider.create());
+              adapter.getSubscriberCustomizer().apply(subscriberBuilder, "test-subscription");
+              Subscriber subscriber = subscriberBuilder.build();
+
+              assertThat(subscriber.getFlowControlSettings().getMaxOutstandingElementCount())
+                  .isEqualTo(5000L);
+              assertThat(subscriber.getFlowControlSettings().getMaxOutstandingRequestBytes())
+                  .isEqualTo(1000L);
+              assertThat(subscriber).hasFieldOrPropertyWithValue("numPullers", 3);
+              InstantiatingExecutorProvider executorProvider =
+                  (InstantiatingExecutorProvider)
+                      FieldUtils.readField(subscriber, "executorProvider", true);
+              assertThat(executorProvider.getExecutorThreadCount()).isEqualTo(4);
+            });
+  }
+
   @Test
   public void testCreateConsumerWithRegistry() {
     baseContext.run(
@@ -203,6 +444,60 @@ public class PubSubMessageChannelBinderTests {
         });
   }
 
+  @Test
+  public void consumerBatchModePropagatesToInboundChannelAdapter() {
+    baseContext
+        .withPropertyValues(
+            "spring.cloud.stream.gcp.pubsub.default.consumer.maxBatchSize=500",
+            "spring.cloud.stream.gcp.pubsub.default.consumer.maxBatchDelay=250ms")
+        .run(
+            ctx -> {
+              PubSubMessageChannelBinder binder = ctx.getBean(PubSubMessageChannelBinder.class);
+              PubSubExtendedBindingProperties props =
+                  ctx.getBean(
+                      "pubSubExtendedBindingProperties", PubSubExtendedBindingProperties.class);
+
+              ExtendedConsumerProperties<PubSubConsumerProperties> extendedProperties =
+                  new ExtendedConsumerProperties<>(props.getExtendedConsumerProperties("test"));
+              PubSubInboundChannelAdapter adapter =
+                  (PubSubInboundChannelAdapter)
+                      binder.createConsumerEndpoint(
+                          consumerDestination, "testGroup", extendedProperties);
+              assertThat(adapter.isBatchMode()).isFalse();
+
+              extendedProperties.setBatchMode(true);
+              adapter =
+                  (PubSubInboundChannelAdapter)
+                      binder.createConsumerEndpoint(
+                          consumerDestination, "testGroup", extendedProperties);
+              assertThat(adapter.isBatchMode()).isTrue();
+              assertThat(adapter.getMaxBatchSize()).isEqualTo(500);
+              assertThat(adapter.getMaxBatchDelay()).isEqualTo(Duration.ofMillis(250));
+            });
+  }
+
+  @Test
+  public void consumerOrderingKeyLanesPropagateToInboundChannelAdapter() {
+    baseContext
+        .withPropertyValues("spring.cloud.stream.gcp.pubsub.default.consumer.orderingKeyLanes=8")
+        .run(
+            ctx -> {
+              PubSubMessageChannelBinder binder = ctx.getBean(PubSubMessageChannelBinder.class);
+              PubSubExtendedBindingProperties props =
+                  ctx.getBean(
+                      "pubSubExtendedBindingProperties", PubSubExtendedBindingProperties.class);
+
+              PubSubInboundChannelAdapter adapter =
+                  (PubSubInboundChannelAdapter)
+                      binder.createConsumerEndpoint(
+                          consumerDestination,
+                          "testGroup",
+                          new ExtendedConsumerProperties<>(
+                              props.getExtendedConsumerProperties("test")));
+              assertThat(adapter.getOrderingKeyLanes()).isEqualTo(8);
+            });
+  }
+
   @Test
   public void testProducerAndConsumerCustomizers() {
     baseContext
@@ -19,7 +19,9 @@ package com.google.cloud.spring.pubsub.core;
 import com.google.api.gax.batching.FlowController.LimitExceededBehavior;
 import com.google.api.gax.rpc.StatusCode.Code;
 import com.google.cloud.spring.pubsub.support.PubSubSubscriptionUtils;
+import com.google.cloud.spring.pubsub.support.PubSubTopicUtils;
 import com.google.pubsub.v1.ProjectSubscriptionName;
+import com.google.pubsub.v1.ProjectTopicName;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -96,7 +98,12 @@ public class PubSubConfiguration {
   public FlowControl computeSubscriberFlowControlSettings(
       String subscriptionName, String projectId) {
     FlowControl flowControl = getSubscriber(subscriptionName, projectId).getFlowControl();
-    FlowControl globalFlowControl = this.globalSubscriber.getFlowControl();
+    applyGlobalFlowControlSettings(flowControl, this.globalSubscriber.getFlowControl());
+    return flowControl;
+  }
+
+  private static void applyGlobalFlowControlSettings(
+      FlowControl flowControl, FlowControl globalFlowControl) {
     if (flowControl.getMaxOutstandingRequestBytes() == null) {
       flowControl.setMaxOutstandingRequestBytes(globalFlowControl.getMaxOutstandingRequestBytes());
     }
@@ -106,7 +113,6 @@ public class PubSubConfiguration {
     if (flowControl.getLimitExceededBehavior() == null) {
       flowControl.setLimitExceededBehavior(globalFlowControl.getLimitExceededBehavior());
     }
-    return flowControl;
   }
 
   /**
@@ -185,7 +191,11 @@ public class PubSubConfiguration {
    */
   public Retry computeSubscriberRetrySettings(String subscriptionName, String projectId) {
     Retry retry = getSubscriber(subscriptionName, projectId).getRetry();
-    Retry globalRetry = this.globalSubscriber.getRetry();
+    applyGlobalRetrySettings(retry, this.globalSubscriber.getRetry());
+    return retry;
+  }
+
+  private static void applyGlobalRetrySettings(Retry retry, Retry globalRetry) {
     if (retry.getTotalTimeoutSeconds() == null) {
       retry.setTotalTimeoutSeconds(globalRetry.getTotalTimeoutSeconds());
     }
@@ -213,6 +223,78 @@ public class PubSubConfiguration {
     if (retry.getMaxRpcTimeoutSeconds() == null) {
       retry.setMaxRpcTimeoutSeconds(globalRetry.getMaxRpcTimeoutSeconds());
     }
+  }
+
+  /**
+   * Returns the topic-specific publisher settings, if any. Topic-specific settings may be keyed by
+   * the topic name within the given project or by the fully-qualified topic name.
+   *
+   * @param topicName short or fully-qualified topic name
+   * @param projectId project id
+   * @return the topic-specific publisher settings, or {@code null} if there are none
+   */
+  public TopicPublisher getTopicPublisher(String topicName, String projectId) {
+    ConcurrentMap<String, TopicPublisher> topicPublishers = this.publisher.getTopic();
+    if (topicPublishers.isEmpty()) {
+      return null;
+    }
+
+    ProjectTopicName fullyQualifiedName = PubSubTopicUtils.toProjectTopicName(topicName, projectId);
+    TopicPublisher topicPublisher = topicPublishers.get(fullyQualifiedName.toString());
+    if (topicPublisher == null && fullyQualifiedName.getProject().equals(projectId)) {
+      topicPublisher = topicPublishers.get(fullyQualifiedName.getTopic());
+    }
+    return topicPublisher;
+  }
+
+  /**
+   * Computes the publisher batching settings to use for a topic. The topic-specific properties take
+   * precedence over the global publisher properties, which are used for the ones that are not set.
+   *
+   * @param topicName short or fully-qualified topic name
+   * @param projectId project id
+   * @return batching settings
+   */
+  public Batching computePublisherBatchingSettings(String topicName, String projectId) {
+    Batching globalBatching = this.publisher.getBatching();
+    TopicPublisher topicPublisher = getTopicPublisher(topicName, projectId);
+    if (topicPublisher == null) {
+      return globalBatching;
+    }
+
+    Batching batching = topicPublisher.getBatching();
+    if (batching.getElementCountThreshold() == null) {
+      batching.setElementCountThreshold(globalBatching.getElementCountThreshold());
+    }
+    if (batching.getRequestByteThreshold() == null) {
+      batching.setRequestByteThreshold(globalBatching.getRequestByteThreshold());
+    }
+    if (batching.getDelayThresholdSeconds() == null) {
+      batching.setDelayThresholdSeconds(globalBatching.getDelayThresholdSeconds());
+    }
+    if (batching.getEnabled() == null) {
+      batching.setEnabled(globalBatching.getEnabled());
+    }
+    applyGlobalFlowControlSettings(batching.getFlowControl(), globalBatching.getFlowControl());
+    return batching;
+  }
+
+  /**
+   * Computes the publisher retry settings to use for a topic. The topic-specific properties take
+   * precedence over the global publisher properties, which are used for the ones that are not set.
+   *
+   * @param topicName short or fully-qualified topic name
+   * @param projectId project id
+   * @return retry settings
+   */
+  public Retry computePublisherRetrySettings(String topicName, String projectId) {
+    TopicPublisher topicPublisher = getTopicPublisher(topicName, projectId);
+    if (topicPublisher == null) {
+      return this.publisher.getRetry();
+    }
+
+    Retry retry = topicPublisher.getRetry();
+    applyGlobalRetrySettings(retry, this.publisher.getRetry());
     return retry;
   }
 
@@ -234,6 +316,27 @@ public class PubSubConfiguration {
     /** Set publisher endpoint. Example: "us-east1-pubsub.googleapis.com:443". */
     private String endpoint;
 
+    /** Topic-specific publisher settings, keyed by short or fully-qualified topic name. */
+    private final ConcurrentHashMap<String, TopicPublisher> topic = new ConcurrentHashMap<>();
+
+    /** Publisher cache properties. */
+    private final PublisherCache cache = new PublisherCache();
+
+    /** gRPC channel properties of the publishers. */
+    private final Grpc grpc = new Grpc();
+
+    public ConcurrentMap<String, TopicPublisher> getTopic() {
+      return this.topic;
+    }
+
+    public Grpc getGrpc() {
+      return this.grpc;
+    }
+
+    public PublisherCache getCache() {
+      return this.cache;
+    }
+
     public Batching getBatching() {
       return this.batching;
     }
@@ -267,6 +370,89 @@ public class PubSubConfiguration {
     }
   }
 
+  /** Settings of the cache of publishers, which keeps one publisher per topic. */
+  public static class PublisherCache {
+
+    /** Maximum number of cached publishers. Unlimited when unset. */
+    private Long maximumSize;
+
+    /**
+     * Time in seconds after its last use a cached publisher is shut down. Idle publishers are
+     * kept when unset.
+     */
+    private Long idleTimeoutSeconds;
+
+    /** Time in seconds to wait for evicted publishers to publish outstanding messages. */
+    private Long shutdownTimeoutSeconds;
+
+    /**
+     * Time in seconds an evicted publisher stays usable by the callers that obtained it before its
+     * eviction, after which it is shut down.
+     */
+    private Long evictionGracePeriodSeconds;
+
+    public Long getMaximumSize() {
+      return this.maximumSize;
+    }
+
+    public void setMaximumSize(Long maximumSize) {
+      this.maximumSize = maximumSize;
+    }
+
+    public Long getIdleTimeoutSeconds() {
+      return this.idleTimeoutSeconds;
+    }
+
+    public void setIdleTimeoutSeconds(Long idleTimeoutSeconds) {
+      this.idleTimeoutSeconds = idleTimeoutSeconds;
+    }
+
+    public Long getShutdownTimeoutSeconds() {
+      return this.shutdownTimeoutSeconds;
+    }
+
+    public void setShutdownTimeoutSeconds(Long shutdownTimeoutSeconds) {
+      this.shutdownTimeoutSeconds = shutdownTimeoutSeconds;
+    }
+
+    public Long getEvictionGracePeriodSeconds() {
+      return this.evictionGracePeriodSeconds;
+    }
+
+    public void setEvictionGracePeriodSeconds(Long evictionGracePeriodSeconds) {
+      this.evictionGracePeriodSeconds = evictionGracePeriodSeconds;
+    }
+  }
+
+  /** Topic-specific publisher settings. Unset properties fall back to the global ones. */
+  public static class TopicPublisher {
+
+    /** Number of threads used by the publisher of the topic. */
+    private Integer executorThreads;
+
+    /** Retry properties. */
+    private final Retry retry = new Retry();
+
+    /** Batching properties. */
+    private final Batching batching = new Batching();
+
+    public Integer getExecutorThreads() {
+      return this.executorThreads;
+    }
+
+    public void setExecutorThreads(Integer executorThreads) {
+      this.executorThreads = executorThreads;
+    }
+
+    public Retry getRetry() {
+      return this.retry;
+    }
+
+    public Batching getBatching() {
+      return this.batching;
+    }
+  }
+
   /** Subscriber settings. */
   public static class Subscriber {
 
@@ -282,6 +468,12 @@ public class PubSubConfiguration {
     /** The optional max ack extension period in seconds for the subscriber factory. */
     private Long maxAckExtensionPeriod;
 
+    /**
+     * The optional max ack extension period in seconds for messages pulled synchronously through
+     * the subscriber template. Deadline extension of pulled messages is disabled when unset or 0.
+     */
+    private Long pullMaxAckExtensionPeriod;
+
     /** The optional parallel pull count setting for the subscriber factory. */
     private Integer parallelPullCount;
 
@@ -294,10 +486,24 @@ public class PubSubConfiguration {
     /** RPC status codes that should be retried when pulling messages. */
     private Code[] retryableCodes = null;
 
+    /** Batching settings for acknowledgements of individual pulled messages. */
+    private final AckBatching ackBatching = new AckBatching();
+
+    /** gRPC channel properties of the subscribers, pull stubs and subscription admin client. */
+    private final Grpc grpc = new Grpc();
+
     public Retry getRetry() {
       return this.retry;
     }
 
+    public Grpc getGrpc() {
+      return this.grpc;
+    }
+
+    public AckBatching getAckBatching() {
+      return this.ackBatching;
+    }
+
     public Code[] getRetryableCodes() {
       return retryableCodes;
     }
@@ -326,6 +532,14 @@ public class PubSubConfiguration {
       this.maxAckExtensionPeriod = maxAckExtensionPeriod;
     }
 
+    public Long getPullMaxAckExtensionPeriod() {
+      return this.pullMaxAckExtensionPeriod;
+    }
+
+    public void setPullMaxAckExtensionPeriod(Long pullMaxAckExtensionPeriod) {
+      this.pullMaxAckExtensionPeriod = pullMaxAckExtensionPeriod;
+    }
+
     public Integer getParallelPullCount() {
       return this.parallelPullCount;
     }
@@ -356,6 +570,57 @@ public class PubSubConfiguration {
     }
   }
 
+  /** Acknowledgement batching settings for synchronously pulled messages. */
+  public static class AckBatching {
+
+    /** Enables coalescing of individual ack, nack and ack deadline modification calls. */
+    private boolean enabled;
+
+    /** The maximum number of ack IDs sent in a single request. */
+    private Long elementCountThreshold;
+
+    /** The maximum size in bytes of the ack IDs sent in a single request. */
+    private Long requestByteThreshold;
+
+    /**
+     * The delay threshold in milliseconds. After this amount of time has elapsed (counting from
+     * the first ack ID added), the buffered ack IDs are sent.
+     */
+    private long delayThresholdMillis = 100;
+
+    public boolean isEnabled() {
+      return this.enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+      this.enabled = enabled;
+    }
+
+    public Long getElementCountThreshold() {
+      return this.elementCountThreshold;
+    }
+
+    public void setElementCountThreshold(Long elementCountThreshold) {
+      this.elementCountThreshold = elementCountThreshold;
+    }
+
+    public Long getRequestByteThreshold() {
+      return this.requestByteThreshold;
+    }
+
+    public void setRequestByteThreshold(Long requestByteThreshold) {
+      this.requestByteThreshold = requestByteThreshold;
+    }
+
+    public long getDelayThresholdMillis() {
+      return this.delayThresholdMillis;
+    }
+
+    public void setDelayThresholdMillis(long delayThresholdMillis) {
+      this.delayThresholdMillis = delayThresholdMillis;
+    }
+  }
+
   /** Health Check settings. */
   public static class Health {
 
@@ -379,6 +644,12 @@ public class PubSubConfiguration {
     /** Number of threads used for Health Check Executors. */
     private int executorThreads = 4;
 
+    /**
+     * Interval in seconds between background samples of the backlog of all tracked subscriptions,
+     * which health checks are served from. Zero or less queries the backlog on every health check.
+     */
+    private Integer backlogSamplingInterval = 60;
+
     public Integer getLagThreshold() {
       return lagThreshold;
     }
@@ -410,6 +681,14 @@ public class PubSubConfiguration {
     public void setExecutorThreads(int executorThreads) {
       this.executorThreads = executorThreads;
     }
+
+    public Integer getBacklogSamplingInterval() {
+      return backlogSamplingInterval;
+    }
+
+    public void setBacklogSamplingInterval(Integer backlogSamplingInterval) {
+      this.backlogSamplingInterval = backlogSamplingInterval;
+    }
   }
 
   /** Retry settings. */
@@ -546,6 +825,86 @@ public class PubSubConfiguration {
     }
   }
 
+  /**
+   * gRPC channel settings. Unset properties keep the defaults of the Pub/Sub client library.
+   *
+   * @since 3.2
+   */
+  public static class Grpc {
+
+    /**
+     * Number of gRPC channels, and therefore HTTP/2 connections, to spread the calls over. More
+     * channels avoid the concurrent stream limit of a single connection at high message rates.
+     */
+    private Integer channelPoolSize;
+
+    /**
+     * How often to ping the server to keep the channel alive, in seconds. Overrides the {@code
+     * keep-alive-interval-minutes} property.
+     */
+    private Long keepAliveTimeSeconds;
+
+    /** How long to wait for a keepalive ping to be acknowledged, in seconds. */
+    private Long keepAliveTimeoutSeconds;
+
+    /** Whether to send keepalive pings when there are no outstanding calls. */
+    private Boolean keepAliveWithoutCalls;
+
+    /** Maximum size of a message the channel can receive, in bytes. */
+    private Integer maxInboundMessageSize;
+
+    /** Initial HTTP/2 flow control window of the channel, in bytes. */
+    private Integer flowControlWindow;
+
+    public Integer getChannelPoolSize() {
+      return this.channelPoolSize;
+    }
+
+    public void setChannelPoolSize(Integer channelPoolSize) {
+      this.channelPoolSize = channelPoolSize;
+    }
+
+    public Long getKeepAliveTimeSeconds() {
+      return this.keepAliveTimeSeconds;
+    }
+
+    public void setKeepAliveTimeSeconds(Long keepAliveTimeSeconds) {
+      this.keepAliveTimeSeconds = keepAliveTimeSeconds;
+    }
+
+    public Long getKeepAliveTimeoutSeconds() {
+      return this.keepAliveTimeoutSeconds;
+    }
+
+    public void setKeepAliveTimeoutSeconds(Long keepAliveTimeoutSeconds) {
+      this.keepAliveTimeoutSeconds = keepAliveTimeoutSeconds;
+    }
+
+    public Boolean getKeepAliveWithoutCalls() {
+      return this.keepAliveWithoutCalls;
+    }
+
+    public void setKeepAliveWithoutCalls(Boolean keepAliveWithoutCalls) {
+      this.keepAliveWithoutCalls = keepAliveWithoutCalls;
+    }
+
+    public Integer getMaxInboundMessageSize() {
+      return this.maxInboundMessageSize;
+    }
+
+    public void setMaxInboundMessageSize(Integer maxInboundMessageSize) {
+      this.maxInboundMessageSize = maxInboundMessageSize;
+    }
+
+    public Integer getFlowControlWindow() {
+      return this.flowControlWindow;
+    }
+
+    public void setFlowControlWindow(Integer flowControlWindow) {
+      this.flowControlWindow = flowControlWindow;
+    }
+  }
+
   /** flow control settings. */
   public static class FlowControl {
 
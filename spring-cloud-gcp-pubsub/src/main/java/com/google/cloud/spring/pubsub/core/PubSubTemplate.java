@@ -18,7 +18,9 @@ package com.google.cloud.spring.pubsub.core;
 
 import com.google.cloud.pubsub.v1.Subscriber;
 import com.google.cloud.spring.pubsub.core.publisher.PubSubPublisherTemplate;
+import com.google.cloud.spring.pubsub.core.publisher.PublishAllResult;
 import com.google.cloud.spring.pubsub.core.subscriber.PubSubSubscriberTemplate;
+import com.google.cloud.spring.pubsub.core.subscriber.SubscriberCustomizer;
 import com.google.cloud.spring.pubsub.support.AcknowledgeablePubsubMessage;
 import com.google.cloud.spring.pubsub.support.BasicAcknowledgeablePubsubMessage;
 import com.google.cloud.spring.pubsub.support.PublisherFactory;
@@ -120,6 +122,11 @@ public class PubSubTemplate implements PubSubOperations {
     return this.pubSubPublisherTemplate.publish(topic, pubsubMessage);
   }
 
+  @Override
+  public <T> ListenableFuture<PublishAllResult> publishAll(String topic, Collection<T> payloads) {
+    return this.pubSubPublisherTemplate.publishAll(topic, payloads);
+  }
+
   @Override
   public Subscriber subscribe(
       String subscription, Consumer<BasicAcknowledgeablePubsubMessage> messageConsumer) {
@@ -135,6 +142,16 @@ public class PubSubTemplate implements PubSubOperations {
         subscription, messageConsumer, payloadType);
   }
 
+  @Override
+  public <T> Subscriber subscribeAndConvert(
+      String subscription,
+      Consumer<ConvertedBasicAcknowledgeablePubsubMessage<T>> messageConsumer,
+      Class<T> payloadType,
+      SubscriberCustomizer subscriberCustomizer) {
+    return this.pubSubSubscriberTemplate.subscribeAndConvert(
+        subscription, messageConsumer, payloadType, subscriberCustomizer);
+  }
+
   @Override
   public List<AcknowledgeablePubsubMessage> pull(
       String subscription, Integer maxMessages, Boolean returnImmediately) {
@@ -147,6 +164,20 @@ public class PubSubTemplate implements PubSubOperations {
     return this.pubSubSubscriberTemplate.pullAsync(subscription, maxMessages, returnImmediately);
   }
 
+  @Override
+  public List<AcknowledgeablePubsubMessage> pullFromSubscriptions(
+      Collection<String> subscriptions, Integer maxMessages, Boolean returnImmediately) {
+    return this.pubSubSubscriberTemplate.pullFromSubscriptions(
+        subscriptions, maxMessages, returnImmediately);
+  }
+
+  @Override
+  public ListenableFuture<List<AcknowledgeablePubsubMessage>> pullFromSubscriptionsAsync(
+      Collection<String> subscriptions, Integer maxMessages, Boolean returnImmediately) {
+    return this.pubSubSubscriberTemplate.pullFromSubscriptionsAsync(
+        subscriptions, maxMessages, returnImmediately);
+  }
+
   @Override
   public <T> List<ConvertedAcknowledgeablePubsubMessage<T>> pullAndConvert(
       String subscription, Integer maxMessages, Boolean returnImmediately, Class<T> payloadType) {
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2022-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.core.health;
+
+import static com.google.monitoring.v3.ListTimeSeriesRequest.TimeSeriesView.FULL;
+
+import com.google.cloud.monitoring.v3.MetricServiceClient;
+import com.google.monitoring.v3.ProjectName;
+import com.google.monitoring.v3.TimeInterval;
+import com.google.monitoring.v3.TimeSeries;
+import com.google.protobuf.util.Timestamps;
+import com.google.pubsub.v1.ProjectSubscriptionName;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Samples the message backlog of several subscriptions with one Cloud Monitoring query per
+ * project, and keeps the last known backlog of each subscription for the health trackers to read.
+ * The health trackers never query Cloud Monitoring themselves: the backlog of a subscription that
+ * wasn't sampled yet, or whose last successful sample is older than the staleness bound, is
+ * unknown.
+ *
+ * @since 3.2
+ */
+class BacklogSampler {
+
+  private static final Log LOGGER = LogFactory.getLog(BacklogSampler.class);
+
+  /** Template for the undelivered messages filter of several subscriptions. */
+  static final String UNDELIVERED_FILTER_TEMPLATE =
+      "metric.type=\"pubsub.googleapis.com/subscription/num_undelivered_messages\""
+          + " resource.type=\"pubsub_subscription\" resource.label.subscription_id=one_of(%s)";
+
+  private static final String SUBSCRIPTION_ID_LABEL = "subscription_id";
+
+  private final MetricServiceClient metricServiceClient;
+
+  private final Integer lookUpInterval;
+
+  private final long maxStalenessMillis;
+
+  private volatile Map<ProjectSubscriptionName, Backlog> backlogs = Collections.emptyMap();
+
+  BacklogSampler(
+      MetricServiceClient metricServiceClient, Integer lookUpInterval, long maxStalenessMillis) {
+    this.metricServiceClient = metricServiceClient;
+    this.lookUpInterval = lookUpInterval;
+    this.maxStalenessMillis = maxStalenessMillis;
+  }
+
+  /**
+   * Query the backlog of the subscriptions and update their last known backlog. The subscriptions
+   * of a project whose query failed keep their previous backlog, until it gets stale and is
+   * dropped with a warning.
+   *
+   * @param subscriptions the subscriptions to sample
+   */
+  synchronized void sample(Collection<ProjectSubscriptionName> subscriptions) {
+    long currentMillis = System.currentTimeMillis();
+    TimeInterval timeInterval =
+        TimeInterval.newBuilder()
+            .setStartTime(Timestamps.fromMillis(currentMillis - lookUpInterval * 60 * 1000))
+            .setEndTime(Timestamps.fromMillis(currentMillis))
+            .build();
+
+    Map<String, List<ProjectSubscriptionName>> subscriptionsByProject =
+        subscriptions.stream()
+            .distinct()
+            .collect(
+                Collectors.groupingBy(
+                    ProjectSubscriptionName::getProject, LinkedHashMap::new, Collectors.toList()));
+
+    Map<ProjectSubscriptionName, Backlog> previousBacklogs = this.backlogs;
+    Map<ProjectSubscriptionName, Backlog> newBacklogs = new HashMap<>();
+    subscriptionsByProject.forEach(
+        (project, projectSubscriptions) -> {
+          try {
+            Map<ProjectSubscriptionName, Long> queried =
+                queryBacklogs(project, projectSubscriptions, timeInterval);
+            for (ProjectSubscriptionName subscription : projectSubscriptions) {
+              newBacklogs.put(subscription, new Backlog(queried.get(subscription), currentMillis));
+            }
+          } catch (RuntimeException ex) {
+            LOGGER.warn("Failed to sample the subscription backlogs of project " + project, ex);
+            for (ProjectSubscriptionName subscription : projectSubscriptions) {
+              Backlog previous = previousBacklogs.get(subscription);
+              if (previous == null) {
+                continue;
+              }
+              if (currentMillis - previous.sampledAt > this.maxStalenessMillis) {
+                LOGGER.warn(
+                    "The backlog of subscription "
+                        + subscription
+                        + " couldn't be sampled for "
+                        + (currentMillis - previous.sampledAt) / 1000
+                        + " seconds and is now unknown, which its health check reports as no"
+                        + " messages over the threshold.");
+              } else {
+                newBacklogs.put(subscription, previous);
+              }
+            }
+          }
+        });
+
+    this.backlogs = newBacklogs;
+  }
+
+  private Map<ProjectSubscriptionName, Long> queryBacklogs(
+      String project, List<ProjectSubscriptionName> subscriptions, TimeInterval timeInterval) {
+    String subscriptionIds =
+        subscriptions.stream()
+            .map(subscription -> "\"" + subscription.getSubscription() + "\"")
+            .sorted()
+            .collect(Collectors.joining(","));
+
+    Map<ProjectSubscriptionName, Long> backlogs = new HashMap<>();
+    for (TimeSeries timeSeries :
+        this.metricServiceClient
+            .listTimeSeries(
+                ProjectName.of(project),
+                String.format(UNDELIVERED_FILTER_TEMPLATE, subscriptionIds),
+                timeInterval,
+                FULL)
+            .iterateAll()) {
+      String subscriptionId =
+          timeSeries.getResource().getLabelsOrDefault(SUBSCRIPTION_ID_LABEL, "");
+      if (timeSeries.getPointsCount() > 0) {
+        // Points are returned newest first.
+        backlogs.putIfAbsent(
+            ProjectSubscriptionName.of(project, subscriptionId),
+            timeSeries.getPoints(0).getValue().getInt64Value());
+      }
+    }
+    return backlogs;
+  }
+
+  /**
+   * Return the last known backlog of a subscription.
+   *
+   * @param subscription the subscription
+   * @return the number of undelivered messages, or empty if the subscription wasn't sampled yet,
+   *     its last sample is stale, or Cloud Monitoring had no data points
+   */
+  Optional<Long> getBacklog(ProjectSubscriptionName subscription) {
+    Backlog backlog = this.backlogs.get(subscription);
+    if (backlog == null
+        || System.currentTimeMillis() - backlog.sampledAt > this.maxStalenessMillis) {
+      return Optional.empty();
+    }
+    return Optional.ofNullable(backlog.messages);
+  }
+
+  private static final class Backlog {
+
+    private final Long messages;
+
+    private final long sampledAt;
+
+    Backlog(Long messages, long sampledAt) {
+      this.messages = messages;
+      this.sampledAt = sampledAt;
+    }
+  }
+}
@@ -33,6 +33,10 @@ import java.util.concurrent.atomic.AtomicLong;
  * the subscription's message backlog. If backlog message size exceeds the message backlog
  * threshold, the tracker will return the number of messages over the threshold.
  *
+ * <p>Trackers created by a {@link HealthTrackerRegistryImpl} that samples backlogs read the last
+ * known backlog from the samples, and never query Cloud Monitoring themselves. While that backlog
+ * is unknown, the tracker reports no messages over the threshold.
+ *
  * @since 2.0.6
  */
 public class HealthTrackerImpl implements HealthTracker {
@@ -45,6 +49,7 @@ public class HealthTrackerImpl implements HealthTracker {
   private final Integer lagThreshold;
   private final Integer backlogThreshold;
   private final Integer lookUpInternal;
+  private final BacklogSampler backlogSampler;
 
   private final AtomicLong processedAt = new AtomicLong(System.currentTimeMillis());
 
@@ -54,12 +59,29 @@ public class HealthTrackerImpl implements HealthTracker {
       Integer lagThreshold,
       Integer backlogThreshold,
       Integer lookUpInterval) {
+    this(
+        projectSubscriptionName,
+        metricServiceClient,
+        lagThreshold,
+        backlogThreshold,
+        lookUpInterval,
+        null);
+  }
+
+  HealthTrackerImpl(
+      ProjectSubscriptionName projectSubscriptionName,
+      MetricServiceClient metricServiceClient,
+      Integer lagThreshold,
+      Integer backlogThreshold,
+      Integer lookUpInterval,
+      BacklogSampler backlogSampler) {
     this.projectSubscriptionName = projectSubscriptionName;
     this.metricServiceClient = metricServiceClient;
     this.undeliveredFilter = undeliveredFilter(projectSubscriptionName.getSubscription());
     this.lagThreshold = lagThreshold;
     this.backlogThreshold = backlogThreshold;
     this.lookUpInternal = lookUpInterval;
+    this.backlogSampler = backlogSampler;
   }
 
   @Override
@@ -107,6 +129,10 @@ public class HealthTrackerImpl implements HealthTracker {
   }
 
   private Optional<Long> getBackLogMessages(long currentMillis) {
+    if (backlogSampler != null) {
+      return backlogSampler.getBacklog(projectSubscriptionName);
+    }
+
     TimeInterval timeInterval = timeInterval(currentMillis);
 
     ListTimeSeriesResponse timeSeriesResponse =
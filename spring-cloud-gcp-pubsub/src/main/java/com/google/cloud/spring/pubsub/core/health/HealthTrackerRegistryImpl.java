@@ -26,20 +26,32 @@ import com.google.pubsub.v1.ProjectSubscriptionName;
 import java.util.Collection;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.util.Assert;
 
 /**
  * A registry for the {@link HealthTracker} health trackers created per {@link
  * ProjectSubscriptionName}.
  *
+ * <p>With {@link #setBacklogSamplingInterval(Integer)}, the backlog of all tracked subscriptions
+ * is sampled in the background with one Cloud Monitoring query per project, and health checks are
+ * served from the last known backlog instead of querying Cloud Monitoring per subscription.
+ *
  * @since 2.0.6
  */
-public class HealthTrackerRegistryImpl implements HealthTrackerRegistry {
+public class HealthTrackerRegistryImpl implements HealthTrackerRegistry, DisposableBean {
 
   private static final Log LOGGER = LogFactory.getLog(HealthTrackerRegistryImpl.class);
 
+  /** The number of sampling intervals after which the last known backlog is stale. */
+  private static final int STALE_SAMPLE_INTERVALS = 5;
+
   private final String projectId;
   private final MetricServiceClient metricServiceClient;
   private final Integer lagThreshold;
@@ -49,6 +61,16 @@ public class HealthTrackerRegistryImpl implements HealthTrackerRegistry {
 
   private final ConcurrentMap<ProjectSubscriptionName, HealthTracker> healthTrackers;
 
+  private Integer backlogSamplingInterval;
+
+  private BacklogSampler backlogSampler;
+
+  private boolean backlogSamplingStarted;
+
+  private ScheduledFuture<?> backlogSampling;
+
+  private final AtomicBoolean backlogSamplePending = new AtomicBoolean();
+
   public HealthTrackerRegistryImpl(
       String projectId,
       MetricServiceClient metricServiceClient,
@@ -91,19 +113,71 @@ public class HealthTrackerRegistryImpl implements HealthTrackerRegistry {
     return registerTracker(projectSubscriptionName);
   }
 
+  /**
+   * Sample the backlog of the tracked subscriptions in the background. The trackers never query
+   * Cloud Monitoring themselves: they serve the last known backlog of their subscription, and
+   * report it as unknown until the subscription is first sampled, or once its last successful
+   * sample is older than five intervals, which is logged. Only applies to the trackers registered
+   * afterwards.
+   *
+   * @param backlogSamplingInterval the interval between samples in seconds, or {@code null} or a
+   *     value that isn't positive to query Cloud Monitoring on every health check
+   * @since 3.2
+   */
+  public synchronized void setBacklogSamplingInterval(Integer backlogSamplingInterval) {
+    Assert.state(!this.backlogSamplingStarted, "Backlog sampling has already started");
+    this.backlogSamplingInterval = backlogSamplingInterval;
+    this.backlogSampler =
+        (backlogSamplingInterval != null && backlogSamplingInterval > 0)
+            ? new BacklogSampler(
+                metricServiceClient,
+                lookUpInterval,
+                STALE_SAMPLE_INTERVALS * backlogSamplingInterval * 1000L)
+            : null;
+  }
+
   @Override
-  public HealthTracker registerTracker(ProjectSubscriptionName projectSubscriptionName) {
+  public synchronized HealthTracker registerTracker(
+      ProjectSubscriptionName projectSubscriptionName) {
     HealthTracker healthTracker =
         new HealthTrackerImpl(
             projectSubscriptionName,
             metricServiceClient,
             lagThreshold,
             backlogThreshold,
-            lookUpInterval);
+            lookUpInterval,
+            this.backlogSampler);
     healthTrackers.put(projectSubscriptionName, healthTracker);
+    if (this.backlogSampler != null) {
+      sampleBacklogs(this.backlogSampler);
+    }
     return healthTracker;
   }
 
+  /**
+   * Starts sampling the backlogs once the first subscription is tracked, and samples them right
+   * away when another subscription is tracked, so that its backlog isn't unknown for a whole
+   * interval. The samples requested by subscriptions tracked together are coalesced.
+   */
+  private void sampleBacklogs(BacklogSampler sampler) {
+    ScheduledExecutorService executor = executorProvider.getExecutor();
+    if (!this.backlogSamplingStarted) {
+      this.backlogSamplingStarted = true;
+      this.backlogSampling =
+          executor.scheduleWithFixedDelay(
+              () -> sampler.sample(healthTrackers.keySet()),
+              0,
+              this.backlogSamplingInterval,
+              TimeUnit.SECONDS);
+    } else if (this.backlogSamplePending.compareAndSet(false, true)) {
+      executor.execute(
+          () -> {
+            this.backlogSamplePending.set(false);
+            sampler.sample(healthTrackers.keySet());
+          });
+    }
+  }
+
   @Override
   public boolean isTracked(ProjectSubscriptionName projectSubscriptionName) {
     return healthTrackers.containsKey(projectSubscriptionName);
@@ -146,4 +220,11 @@ public class HealthTrackerRegistryImpl implements HealthTrackerRegistry {
   public Collection<HealthTracker> healthTrackers() {
     return healthTrackers.values();
   }
+
+  @Override
+  public synchronized void destroy() {
+    if (this.backlogSampling != null) {
+      this.backlogSampling.cancel(false);
+    }
+  }
 }
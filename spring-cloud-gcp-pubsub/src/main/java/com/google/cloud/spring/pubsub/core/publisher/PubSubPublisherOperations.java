@@ -16,9 +16,17 @@
 
 package com.google.cloud.spring.pubsub.core.publisher;
 
+import com.google.cloud.spring.pubsub.core.PubSubDeliveryException;
 import com.google.pubsub.v1.PubsubMessage;
+import java.util.Collection;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import org.springframework.util.Assert;
 import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
 
 /**
  * An abstraction for Google Cloud Pub/Sub publisher operations.
@@ -59,4 +67,70 @@ public interface PubSubPublisherOperations {
    * @return the listenable future of the call
    */
   ListenableFuture<String> publish(String topic, PubsubMessage pubsubMessage);
+
+  /**
+   * Send a collection of messages to Pub/Sub with a single aggregated result. Each payload is
+   * converted by the message converter, as with {@link #publish(String, Object)}.
+   *
+   * <p>The default implementation publishes each payload with {@link #publish(String, Object)}. A
+   * payload that fails to be converted or published is reported as a failure at its position.
+   *
+   * @param topic canonical topic name, e.g., "topicName", or the fully-qualified topic name in the
+   *     {@code projects/<project_name>/topics/<topic_name>} format
+   * @param payloads the objects that will be serialized and sent
+   * @param <T> the type of the payloads to publish
+   * @return the listenable future that completes once all messages were published or failed
+   * @since 3.2
+   */
+  default <T> ListenableFuture<PublishAllResult> publishAll(String topic, Collection<T> payloads) {
+    Assert.hasText(topic, "The topic can't be null or empty.");
+    Assert.notNull(payloads, "The payloads can't be null.");
+
+    SettableListenableFuture<PublishAllResult> settableFuture = new SettableListenableFuture<>();
+    String[] messageIds = new String[payloads.size()];
+    SortedMap<Integer, PubSubDeliveryException> failures = new TreeMap<>();
+    if (payloads.isEmpty()) {
+      settableFuture.set(new PublishAllResult(messageIds, failures));
+      return settableFuture;
+    }
+
+    AtomicInteger remaining = new AtomicInteger(messageIds.length);
+    BiConsumer<Integer, Throwable> onCompleted =
+        (index, throwable) -> {
+          if (throwable != null) {
+            synchronized (failures) {
+              failures.put(
+                  index,
+                  throwable instanceof PubSubDeliveryException
+                      ? (PubSubDeliveryException) throwable
+                      : new PubSubDeliveryException(
+                          null, "Publishing to " + topic + " topic failed.", throwable));
+            }
+          }
+          if (remaining.decrementAndGet() == 0) {
+            synchronized (failures) {
+              settableFuture.set(new PublishAllResult(messageIds, failures));
+            }
+          }
+        };
+
+    int i = 0;
+    for (T payload : payloads) {
+      int index = i++;
+      ListenableFuture<String> publishFuture;
+      try {
+        publishFuture = publish(topic, payload);
+      } catch (RuntimeException ex) {
+        onCompleted.accept(index, ex);
+        continue;
+      }
+      publishFuture.addCallback(
+          messageId -> {
+            messageIds[index] = messageId;
+            onCompleted.accept(index, null);
+          },
+          throwable -> onCompleted.accept(index, throwable));
+    }
+    return settableFuture;
+  }
 }
@@ -21,12 +21,20 @@ import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import com.google.api.core.ApiFuture;
 import com.google.api.core.ApiFutureCallback;
 import com.google.api.core.ApiFutures;
+import com.google.cloud.pubsub.v1.Publisher;
 import com.google.cloud.spring.pubsub.core.PubSubDeliveryException;
+import com.google.cloud.spring.pubsub.support.PubSubMetrics;
 import com.google.cloud.spring.pubsub.support.PublisherFactory;
 import com.google.cloud.spring.pubsub.support.converter.PubSubMessageConverter;
 import com.google.cloud.spring.pubsub.support.converter.SimplePubSubMessageConverter;
 import com.google.pubsub.v1.PubsubMessage;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.util.Assert;
@@ -48,6 +56,8 @@ public class PubSubPublisherTemplate implements PubSubPublisherOperations {
 
   private final PublisherFactory publisherFactory;
 
+  private PubSubMetrics metrics;
+
   /**
    * Default {@link PubSubPublisherTemplate} constructor that uses {@link
    * SimplePubSubMessageConverter} to serialize and deserialize payloads.
@@ -71,6 +81,20 @@ public class PubSubPublisherTemplate implements PubSubPublisherOperations {
     this.pubSubMessageConverter = pubSubMessageConverter;
   }
 
+  public PubSubMetrics getMetrics() {
+    return this.metrics;
+  }
+
+  /**
+   * Set the metrics to record the published messages to.
+   *
+   * @param metrics the Pub/Sub metrics, or {@code null} to not record any
+   * @since 3.2
+   */
+  public void setMetrics(PubSubMetrics metrics) {
+    this.metrics = metrics;
+  }
+
   /**
    * Uses the configured message converter to first convert the payload and headers to a {@code
    * PubsubMessage} and then publish it.
@@ -91,8 +115,18 @@ public class PubSubPublisherTemplate implements PubSubPublisherOperations {
     Assert.hasText(topic, "The topic can't be null or empty.");
     Assert.notNull(pubsubMessage, "The pubsubMessage can't be null.");
 
-    ApiFuture<String> publishFuture =
-        this.publisherFactory.createPublisher(topic).publish(pubsubMessage);
+    PubSubMetrics publishMetrics = this.metrics;
+    long startTime = publishMetrics != null ? publishMetrics.monotonicTime() : 0;
+    Publisher publisher = this.publisherFactory.createPublisher(topic);
+    ApiFuture<String> publishFuture;
+    try {
+      publishFuture = publisher.publish(pubsubMessage);
+    } catch (IllegalStateException ex) {
+      publishFuture = getReplacementPublisher(topic, publisher, ex).publish(pubsubMessage);
+    }
+    if (publishMetrics != null) {
+      publishMetrics.recordPublishBlocked(topic, startTime);
+    }
 
     final SettableListenableFuture<String> settableFuture = new SettableListenableFuture<>();
     ApiFutures.addCallback(
@@ -101,6 +135,9 @@ public class PubSubPublisherTemplate implements PubSubPublisherOperations {
 
           @Override
           public void onFailure(Throwable throwable) {
+            if (publishMetrics != null) {
+              publishMetrics.recordPublish(topic, startTime, false);
+            }
             String errorMessage = "Publishing to " + topic + " topic failed.";
             LOGGER.warn(errorMessage, throwable);
             PubSubDeliveryException pubSubDeliveryException =
@@ -110,6 +147,9 @@ public class PubSubPublisherTemplate implements PubSubPublisherOperations {
 
           @Override
           public void onSuccess(String result) {
+            if (publishMetrics != null) {
+              publishMetrics.recordPublish(topic, startTime, true);
+            }
             if (LOGGER.isDebugEnabled()) {
               LOGGER.debug("Publishing to " + topic + " was successful. Message ID: " + result);
             }
@@ -121,7 +161,180 @@ public class PubSubPublisherTemplate implements PubSubPublisherOperations {
     return settableFuture;
   }
 
+  /**
+   * Returns the publisher to retry with after the given one rejected a message. A caching factory
+   * shuts down evicted publishers, which a concurrent eviction can do to the returned one.
+   * Publishing is retried once if the factory now returns another publisher.
+   */
+  private Publisher getReplacementPublisher(
+      String topic, Publisher publisher, IllegalStateException ex) {
+    Publisher currentPublisher = this.publisherFactory.createPublisher(topic);
+    if (currentPublisher == publisher) {
+      throw ex;
+    }
+    return currentPublisher;
+  }
+
+  /**
+   * Converts all payloads before publishing any of them, so a conversion failure fails the call
+   * without publishing anything. The messages are then handed to the cached {@link Publisher} of
+   * the topic, and a single aggregator collects their results, through a callback per message that
+   * only records its position.
+   */
+  @Override
+  public <T> ListenableFuture<PublishAllResult> publishAll(
+      final String topic, Collection<T> payloads) {
+    Assert.hasText(topic, "The topic can't be null or empty.");
+    Assert.notNull(payloads, "The payloads can't be null.");
+
+    List<PubsubMessage> messages = new ArrayList<>(payloads.size());
+    for (T payload : payloads) {
+      Assert.notNull(payload, "The payloads can't contain null elements.");
+      messages.add(this.pubSubMessageConverter.toPubSubMessage(payload, null));
+    }
+
+    SettableListenableFuture<PublishAllResult> settableFuture = new SettableListenableFuture<>();
+    if (messages.isEmpty()) {
+      settableFuture.set(new PublishAllResult(new String[0], new TreeMap<>()));
+      return settableFuture;
+    }
+
+    new PublishAllCallback(topic, messages, settableFuture, this.metrics)
+        .publish(this.publisherFactory.createPublisher(topic));
+    return settableFuture;
+  }
+
   public PublisherFactory getPublisherFactory() {
     return this.publisherFactory;
   }
+
+  /** Aggregates the results of the messages published by a {@code publishAll} call. */
+  private final class PublishAllCallback {
+
+    private final String topic;
+
+    private final List<PubsubMessage> messages;
+
+    private final SettableListenableFuture<PublishAllResult> resultFuture;
+
+    private final String[] messageIds;
+
+    private final SortedMap<Integer, PubSubDeliveryException> failures = new TreeMap<>();
+
+    private final AtomicInteger remaining;
+
+    private final PubSubMetrics metrics;
+
+    private Publisher publisher;
+
+    PublishAllCallback(
+        String topic,
+        List<PubsubMessage> messages,
+        SettableListenableFuture<PublishAllResult> resultFuture,
+        PubSubMetrics metrics) {
+      this.topic = topic;
+      this.messages = messages;
+      this.resultFuture = resultFuture;
+      this.metrics = metrics;
+      this.messageIds = new String[messages.size()];
+      this.remaining = new AtomicInteger(messages.size());
+    }
+
+    void publish(Publisher publisher) {
+      this.publisher = publisher;
+      if (this.metrics != null) {
+        this.metrics.recordPublishBatch(this.topic, this.messages.size());
+      }
+      for (int i = 0; i < this.messages.size(); i++) {
+        final int index = i;
+        final long startTime = this.metrics != null ? this.metrics.monotonicTime() : 0;
+        ApiFuture<String> publishFuture;
+        try {
+          publishFuture = publish(this.messages.get(index));
+        } catch (RuntimeException ex) {
+          recordPublish(startTime, false);
+          onFailure(index, ex);
+          continue;
+        }
+        if (this.metrics != null) {
+          this.metrics.recordPublishBlocked(this.topic, startTime);
+        }
+        ApiFutures.addCallback(
+            publishFuture,
+            new ApiFutureCallback<String>() {
+              @Override
+              public void onFailure(Throwable throwable) {
+                recordPublish(startTime, false);
+                PublishAllCallback.this.onFailure(index, throwable);
+              }
+
+              @Override
+              public void onSuccess(String messageId) {
+                recordPublish(startTime, true);
+                PublishAllCallback.this.onSuccess(index, messageId);
+              }
+            },
+            directExecutor());
+      }
+    }
+
+    /** Retries with the replacement publisher, which then publishes the remaining messages. */
+    private ApiFuture<String> publish(PubsubMessage message) {
+      try {
+        return this.publisher.publish(message);
+      } catch (IllegalStateException ex) {
+        this.publisher = getReplacementPublisher(this.topic, this.publisher, ex);
+        return this.publisher.publish(message);
+      }
+    }
+
+    private void recordPublish(long startTime, boolean success) {
+      if (this.metrics != null) {
+        this.metrics.recordPublish(this.topic, startTime, success);
+      }
+    }
+
+    private void onSuccess(int index, String messageId) {
+      this.messageIds[index] = messageId;
+      complete();
+    }
+
+    private void onFailure(int index, Throwable throwable) {
+      PubSubDeliveryException exception =
+          new PubSubDeliveryException(
+              this.messages.get(index), "Publishing to " + this.topic + " topic failed.", throwable);
+      synchronized (this.failures) {
+        this.failures.put(index, exception);
+      }
+      complete();
+    }
+
+    /** The decrement orders all writes to the results before the last one reads them. */
+    private void complete() {
+      if (this.remaining.decrementAndGet() > 0) {
+        return;
+      }
+      synchronized (this.failures) {
+        if (!this.failures.isEmpty()) {
+          LOGGER.warn(
+              "Publishing "
+                  + this.failures.size()
+                  + " of "
+                  + this.messageIds.length
+                  + " messages to "
+                  + this.topic
+                  + " topic failed.",
+              this.failures.get(this.failures.firstKey()).getCause());
+        } else if (LOGGER.isDebugEnabled()) {
+          LOGGER.debug(
+              "Publishing "
+                  + this.messageIds.length
+                  + " messages to "
+                  + this.topic
+                  + " was successful.");
+        }
+        this.resultFuture.set(new PublishAllResult(this.messageIds, this.failures));
+      }
+    }
+  }
 }
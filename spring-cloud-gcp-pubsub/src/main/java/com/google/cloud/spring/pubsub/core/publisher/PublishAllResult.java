@@ -0,0 +1,79 @@
+/*
+ * Copyright 2022-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.core.publisher;
+
+import com.google.cloud.spring.pubsub.core.PubSubDeliveryException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedMap;
+
+/**
+ * The aggregated result of publishing a collection of messages with {@link
+ * PubSubPublisherOperations#publishAll}.
+ *
+ * @since 3.2
+ */
+public final class PublishAllResult {
+
+  private final List<String> messageIds;
+
+  private final SortedMap<Integer, PubSubDeliveryException> failures;
+
+  PublishAllResult(String[] messageIds, SortedMap<Integer, PubSubDeliveryException> failures) {
+    this.messageIds = Collections.unmodifiableList(Arrays.asList(messageIds));
+    this.failures = Collections.unmodifiableSortedMap(failures);
+  }
+
+  /**
+   * Returns the IDs of the published messages, in the order of the published collection. The
+   * entries of messages that failed to be published are {@code null}.
+   *
+   * @return the message IDs
+   */
+  public List<String> getMessageIds() {
+    return this.messageIds;
+  }
+
+  /**
+   * Returns the publishing failures, keyed by the position of the failed message in the published
+   * collection. Each exception holds the message that failed to be published.
+   *
+   * @return the failures by message position
+   */
+  public SortedMap<Integer, PubSubDeliveryException> getFailures() {
+    return this.failures;
+  }
+
+  /**
+   * Returns whether any of the messages failed to be published.
+   *
+   * @return true if at least one message failed to be published
+   */
+  public boolean hasFailures() {
+    return !this.failures.isEmpty();
+  }
+
+  @Override
+  public String toString() {
+    return "PublishAllResult{published="
+        + (this.messageIds.size() - this.failures.size())
+        + ", failed="
+        + this.failures.size()
+        + "}";
+  }
+}
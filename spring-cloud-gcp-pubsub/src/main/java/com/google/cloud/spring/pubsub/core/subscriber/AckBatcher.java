@@ -0,0 +1,291 @@
+/*
+ * Copyright 2022-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.core.subscriber;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.batching.BatchingSettings;
+import com.google.protobuf.Empty;
+import com.google.pubsub.v1.ProjectSubscriptionName;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import org.springframework.util.Assert;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+/**
+ * Coalesces individual acknowledgement and ack deadline modification calls into
+ * per-subscription {@code AcknowledgeRequest} and {@code ModifyAckDeadlineRequest} RPCs.
+ *
+ * <p>Ack IDs are buffered per subscription (and per ack deadline, for deadline modifications)
+ * and flushed when the element count threshold, the request byte threshold or the delay
+ * threshold of the configured {@link BatchingSettings} is reached, whichever comes first. The
+ * future returned for each ack ID completes when the request it was flushed with completes.
+ *
+ * @since 3.2
+ */
+class AckBatcher {
+
+  /** The maximum number of ack IDs the Pub/Sub service accepts in a single request. */
+  static final int MAX_ACK_IDS_PER_REQUEST = 2500;
+
+  /** Request size limit, leaving headroom below the 512KB service limit for the envelope. */
+  static final long MAX_REQUEST_BYTES = 500_000L;
+
+  /** Protobuf tag and length prefix overhead for each repeated ack ID field. */
+  private static final int ACK_ID_OVERHEAD_BYTES = 3;
+
+  private final long elementCountThreshold;
+
+  private final long requestByteThreshold;
+
+  private final long delayThresholdMillis;
+
+  private final ScheduledExecutorService scheduler;
+
+  private final Executor callbackExecutor;
+
+  private final BiFunction<String, List<String>, ApiFuture<Empty>> ackOperation;
+
+  private final ModifyAckDeadlineOperation modifyAckDeadlineOperation;
+
+  private final Map<BatchKey, Batch> pendingBatches = new HashMap<>();
+
+  private boolean closed;
+
+  AckBatcher(
+      BatchingSettings batchingSettings,
+      ScheduledExecutorService scheduler,
+      Executor callbackExecutor,
+      BiFunction<String, List<String>, ApiFuture<Empty>> ackOperation,
+      ModifyAckDeadlineOperation modifyAckDeadlineOperation) {
+    Assert.notNull(batchingSettings, "The batchingSettings can't be null.");
+    Assert.notNull(scheduler, "The scheduler can't be null.");
+    Assert.notNull(callbackExecutor, "The callbackExecutor can't be null.");
+
+    this.elementCountThreshold =
+        limit(batchingSettings.getElementCountThreshold(), MAX_ACK_IDS_PER_REQUEST);
+    this.requestByteThreshold =
+        limit(batchingSettings.getRequestByteThreshold(), MAX_REQUEST_BYTES);
+    this.delayThresholdMillis =
+        batchingSettings.getDelayThreshold() != null
+            ? batchingSettings.getDelayThreshold().toMillis()
+            : 0L;
+    this.scheduler = scheduler;
+    this.callbackExecutor = callbackExecutor;
+    this.ackOperation = ackOperation;
+    this.modifyAckDeadlineOperation = modifyAckDeadlineOperation;
+  }
+
+  private static long limit(Long threshold, long max) {
+    return threshold != null && threshold > 0 ? Math.min(threshold, max) : max;
+  }
+
+  /**
+   * Buffer an ack ID to be acknowledged with the next batch of its subscription.
+   *
+   * @param subscription the subscription the message was pulled from
+   * @param ackId the ack ID of the message
+   * @return future that completes when the batch containing the ack ID was acknowledged
+   */
+  ListenableFuture<Void> ack(ProjectSubscriptionName subscription, String ackId) {
+    return add(new BatchKey(subscription.toString(), null), ackId);
+  }
+
+  /**
+   * Buffer an ack ID to have its ack deadline modified with the next batch of its subscription
+   * that has the same deadline.
+   *
+   * @param subscription the subscription the message was pulled from
+   * @param ackId the ack ID of the message
+   * @param ackDeadlineSeconds the new ack deadline in seconds; 0 nacks the message
+   * @return future that completes when the batch containing the ack ID was sent
+   */
+  ListenableFuture<Void> modifyAckDeadline(
+      ProjectSubscriptionName subscription, String ackId, int ackDeadlineSeconds) {
+    Assert.isTrue(ackDeadlineSeconds >= 0, "The ackDeadlineSeconds must not be negative.");
+    return add(new BatchKey(subscription.toString(), ackDeadlineSeconds), ackId);
+  }
+
+  private ListenableFuture<Void> add(BatchKey key, String ackId) {
+    SettableListenableFuture<Void> future = new SettableListenableFuture<>();
+    Batch batchToSend = null;
+
+    synchronized (this.pendingBatches) {
+      if (this.closed) {
+        batchToSend = new Batch(key);
+        batchToSend.add(ackId, future);
+      } else {
+        Batch batch = this.pendingBatches.computeIfAbsent(key, Batch::new);
+        batch.add(ackId, future);
+        if (batch.ackIds.size() >= this.elementCountThreshold
+            || batch.requestBytes >= this.requestByteThreshold
+            || this.delayThresholdMillis <= 0) {
+          this.pendingBatches.remove(key);
+          batch.cancelScheduledFlush();
+          batchToSend = batch;
+        } else if (batch.scheduledFlush == null) {
+          batch.scheduledFlush =
+              this.scheduler.schedule(
+                  () -> flushIfPending(batch), this.delayThresholdMillis, TimeUnit.MILLISECONDS);
+        }
+      }
+    }
+
+    if (batchToSend != null) {
+      send(batchToSend);
+    }
+    return future;
+  }
+
+  private void flushIfPending(Batch batch) {
+    synchronized (this.pendingBatches) {
+      if (!this.pendingBatches.remove(batch.key, batch)) {
+        return;
+      }
+    }
+    send(batch);
+  }
+
+  /** Send all buffered ack IDs immediately, regardless of the batching thresholds. */
+  void flush() {
+    List<Batch> batchesToSend;
+    synchronized (this.pendingBatches) {
+      batchesToSend = new ArrayList<>(this.pendingBatches.values());
+      this.pendingBatches.clear();
+    }
+    for (Batch batch : batchesToSend) {
+      batch.cancelScheduledFlush();
+      send(batch);
+    }
+  }
+
+  /**
+   * Flush all buffered ack IDs. Any ack ID submitted after closing is sent on its own, without
+   * batching.
+   */
+  void close() {
+    synchronized (this.pendingBatches) {
+      this.closed = true;
+    }
+    flush();
+  }
+
+  private void send(Batch batch) {
+    ApiFuture<Empty> apiFuture;
+    try {
+      apiFuture =
+          batch.key.ackDeadlineSeconds == null
+              ? this.ackOperation.apply(batch.key.subscription, batch.ackIds)
+              : this.modifyAckDeadlineOperation.apply(
+                  batch.key.subscription, batch.ackIds, batch.key.ackDeadlineSeconds);
+    } catch (RuntimeException ex) {
+      batch.futures.forEach(future -> future.setException(ex));
+      return;
+    }
+
+    ApiFutures.addCallback(
+        apiFuture,
+        new ApiFutureCallback<Empty>() {
+          @Override
+          public void onFailure(Throwable throwable) {
+            batch.futures.forEach(future -> future.setException(throwable));
+          }
+
+          @Override
+          public void onSuccess(Empty empty) {
+            batch.futures.forEach(future -> future.set(null));
+          }
+        },
+        this.callbackExecutor);
+  }
+
+  /** Performs a {@code ModifyAckDeadlineRequest} for a batch of ack IDs. */
+  @FunctionalInterface
+  interface ModifyAckDeadlineOperation {
+    ApiFuture<Empty> apply(String subscription, List<String> ackIds, int ackDeadlineSeconds);
+  }
+
+  private static final class BatchKey {
+
+    private final String subscription;
+
+    /** The new ack deadline, or {@code null} for acknowledgements. */
+    private final Integer ackDeadlineSeconds;
+
+    BatchKey(String subscription, Integer ackDeadlineSeconds) {
+      this.subscription = subscription;
+      this.ackDeadlineSeconds = ackDeadlineSeconds;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      BatchKey that = (BatchKey) o;
+      return this.subscription.equals(that.subscription)
+          && Objects.equals(this.ackDeadlineSeconds, that.ackDeadlineSeconds);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(this.subscription, this.ackDeadlineSeconds);
+    }
+  }
+
+  private static final class Batch {
+
+    private final BatchKey key;
+
+    private final List<String> ackIds = new ArrayList<>();
+
+    private final List<SettableListenableFuture<Void>> futures = new ArrayList<>();
+
+    private long requestBytes;
+
+    private ScheduledFuture<?> scheduledFlush;
+
+    Batch(BatchKey key) {
+      this.key = key;
+    }
+
+    void add(String ackId, SettableListenableFuture<Void> future) {
+      this.ackIds.add(ackId);
+      this.futures.add(future);
+      this.requestBytes += ackId.length() + ACK_ID_OVERHEAD_BYTES;
+    }
+
+    void cancelScheduledFlush() {
+      if (this.scheduledFlush != null) {
+        this.scheduledFlush.cancel(false);
+      }
+    }
+  }
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright 2022-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.core.subscriber;
+
+import com.google.api.core.ApiClock;
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.NanoClock;
+import com.google.cloud.spring.pubsub.core.subscriber.AckBatcher.ModifyAckDeadlineOperation;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.protobuf.Empty;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.util.Assert;
+import org.threeten.bp.Duration;
+
+/**
+ * Keeps the leases of synchronously pulled messages alive until they are acked, nacked or their
+ * ack deadline is modified by the user, or until the max ack extension period has passed.
+ *
+ * <p>Outstanding leases are checked periodically, and the ones about to expire are extended in
+ * per-subscription {@code ModifyAckDeadlineRequest} batches. Like the streaming {@code
+ * Subscriber}, the deadline used for extensions adapts to the 99.9th percentile of the observed
+ * time between receiving and acking messages, within the 10 to 600 seconds range allowed by the
+ * Pub/Sub service.
+ *
+ * @since 3.2
+ */
+class LeaseManager {
+
+  private static final Log LOGGER = LogFactory.getLog(LeaseManager.class);
+
+  static final int MIN_ACK_DEADLINE_SECONDS = 10;
+
+  static final int MAX_ACK_DEADLINE_SECONDS = 600;
+
+  /** Leases expiring within this period are extended on the next renewal run. */
+  static final long EXPIRATION_PADDING_MILLIS = 5_000L;
+
+  static final long RENEWAL_PERIOD_MILLIS = 1_000L;
+
+  private static final double ACK_LATENCY_PERCENTILE = 99.9;
+
+  private final long maxAckExtensionPeriodMillis;
+
+  private final ModifyAckDeadlineOperation modifyAckDeadlineOperation;
+
+  private final ApiClock clock;
+
+  private final ConcurrentHashMap<String, Lease> leases = new ConcurrentHashMap<>();
+
+  private final AckLatencyDistribution ackLatencyDistribution =
+      new AckLatencyDistribution(MAX_ACK_DEADLINE_SECONDS);
+
+  private final ScheduledFuture<?> renewalTask;
+
+  LeaseManager(
+      Duration maxAckExtensionPeriod,
+      ScheduledExecutorService scheduler,
+      ModifyAckDeadlineOperation modifyAckDeadlineOperation) {
+    this(maxAckExtensionPeriod, scheduler, modifyAckDeadlineOperation, NanoClock.getDefaultClock());
+  }
+
+  LeaseManager(
+      Duration maxAckExtensionPeriod,
+      ScheduledExecutorService scheduler,
+      ModifyAckDeadlineOperation modifyAckDeadlineOperation,
+      ApiClock clock) {
+    Assert.notNull(maxAckExtensionPeriod, "The maxAckExtensionPeriod can't be null.");
+    Assert.isTrue(
+        !maxAckExtensionPeriod.isNegative() && !maxAckExtensionPeriod.isZero(),
+        "The maxAckExtensionPeriod must be positive.");
+    Assert.notNull(scheduler, "The scheduler can't be null.");
+
+    this.maxAckExtensionPeriodMillis = maxAckExtensionPeriod.toMillis();
+    this.modifyAckDeadlineOperation = modifyAckDeadlineOperation;
+    this.clock = clock;
+    this.renewalTask =
+        scheduler.scheduleWithFixedDelay(
+            this::extendExpiringLeases,
+            RENEWAL_PERIOD_MILLIS,
+            RENEWAL_PERIOD_MILLIS,
+            TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Start tracking the lease of a pulled message.
+   *
+   * @param subscription the fully-qualified name of the subscription the message was pulled from
+   * @param ackId the ack ID of the message
+   */
+  void add(String subscription, String ackId) {
+    long now = this.clock.millisTime();
+    this.leases.put(
+        ackId, new Lease(subscription, now, now + MIN_ACK_DEADLINE_SECONDS * 1000L));
+  }
+
+  /**
+   * Stop tracking the lease of a message that was acknowledged, and record its processing time.
+   *
+   * @param ackId the ack ID of the message
+   */
+  void acked(String ackId) {
+    Lease lease = this.leases.remove(ackId);
+    if (lease != null) {
+      long latencySeconds = (this.clock.millisTime() - lease.receivedAtMillis) / 1000L;
+      this.ackLatencyDistribution.record(latencySeconds);
+    }
+  }
+
+  /**
+   * Stop tracking the lease of a message that was nacked or whose ack deadline was modified by
+   * the user.
+   *
+   * @param ackId the ack ID of the message
+   */
+  void release(String ackId) {
+    this.leases.remove(ackId);
+  }
+
+  int getOutstandingLeaseCount() {
+    return this.leases.size();
+  }
+
+  /**
+   * Returns the deadline used for lease extensions, based on the observed ack latency.
+   *
+   * @return the ack deadline in seconds
+   */
+  int getAckDeadlineSeconds() {
+    long percentile = this.ackLatencyDistribution.getPercentile(ACK_LATENCY_PERCENTILE);
+    return (int)
+        Math.max(MIN_ACK_DEADLINE_SECONDS, Math.min(MAX_ACK_DEADLINE_SECONDS, percentile));
+  }
+
+  /** Stop extending leases. Outstanding leases expire according to their current deadline. */
+  void close() {
+    this.renewalTask.cancel(false);
+    this.leases.clear();
+  }
+
+  void extendExpiringLeases() {
+    try {
+      long now = this.clock.millisTime();
+      int ackDeadlineSeconds = getAckDeadlineSeconds();
+      Map<ExtensionKey, List<String>> extensions = new HashMap<>();
+
+      Iterator<Map.Entry<String, Lease>> iterator = this.leases.entrySet().iterator();
+      while (iterator.hasNext()) {
+        Map.Entry<String, Lease> entry = iterator.next();
+        Lease lease = entry.getValue();
+        if (lease.expiresAtMillis - now > EXPIRATION_PADDING_MILLIS) {
+          continue;
+        }
+
+        long remainingExtensionMillis =
+            lease.receivedAtMillis + this.maxAckExtensionPeriodMillis - now;
+        if (remainingExtensionMillis <= 0) {
+          iterator.remove();
+          continue;
+        }
+
+        int deadlineSeconds =
+            (int)
+                Math.max(
+                    1L,
+                    Math.min(ackDeadlineSeconds, (remainingExtensionMillis + 999L) / 1000L));
+        lease.expiresAtMillis = now + deadlineSeconds * 1000L;
+        extensions
+            .computeIfAbsent(
+                new ExtensionKey(lease.subscription, deadlineSeconds), k -> new ArrayList<>())
+            .add(entry.getKey());
+      }
+
+      extensions.forEach(this::sendExtensions);
+    } catch (RuntimeException ex) {
+      LOGGER.warn("Failed to extend the ack deadline of pulled messages.", ex);
+    }
+  }
+
+  private void sendExtensions(ExtensionKey key, List<String> ackIds) {
+    for (int from = 0; from < ackIds.size(); from += AckBatcher.MAX_ACK_IDS_PER_REQUEST) {
+      List<String> chunk =
+          ackIds.subList(from, Math.min(ackIds.size(), from + AckBatcher.MAX_ACK_IDS_PER_REQUEST));
+      ApiFuture<Empty> future =
+          this.modifyAckDeadlineOperation.apply(key.subscription, chunk, key.deadlineSeconds);
+      ApiFutures.addCallback(
+          future,
+          new ApiFutureCallback<Empty>() {
+            @Override
+            public void onFailure(Throwable throwable) {
+              LOGGER.warn(
+                  "Failed to extend the ack deadline of "
+                      + chunk.size()
+                      + " messages from "
+                      + key.subscription,
+                  throwable);
+            }
+
+            @Override
+            public void onSuccess(Empty empty) {
+              // nothing to do
+            }
+          },
+          MoreExecutors.directExecutor());
+    }
+  }
+
+  private static final class Lease {
+
+    private final String subscription;
+
+    private final long receivedAtMillis;
+
+    /** Only updated by the renewal task. */
+    private volatile long expiresAtMillis;
+
+    Lease(String subscription, long receivedAtMillis, long expiresAtMillis) {
+      this.subscription = subscription;
+      this.receivedAtMillis = receivedAtMillis;
+      this.expiresAtMillis = expiresAtMillis;
+    }
+  }
+
+  private static final class ExtensionKey {
+
+    private final String subscription;
+
+    private final int deadlineSeconds;
+
+    ExtensionKey(String subscription, int deadlineSeconds) {
+      this.subscription = subscription;
+      this.deadlineSeconds = deadlineSeconds;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      ExtensionKey that = (ExtensionKey) o;
+      return this.deadlineSeconds == that.deadlineSeconds
+          && this.subscription.equals(that.subscription);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(this.subscription, this.deadlineSeconds);
+    }
+  }
+
+  /** A histogram of ack latencies with one-second buckets. */
+  static final class AckLatencyDistribution {
+
+    private final AtomicLongArray buckets;
+
+    AckLatencyDistribution(int maxSeconds) {
+      this.buckets = new AtomicLongArray(maxSeconds + 1);
+    }
+
+    void record(long seconds) {
+      int bucket = (int) Math.max(0, Math.min(this.buckets.length() - 1, seconds));
+      this.buckets.incrementAndGet(bucket);
+    }
+
+    /**
+     * Returns the smallest bucket value that the given percentage of samples does not exceed, or 0
+     * if there are no samples.
+     */
+    long getPercentile(double percentile) {
+      long total = 0;
+      for (int i = 0; i < this.buckets.length(); i++) {
+        total += this.buckets.get(i);
+      }
+      if (total == 0) {
+        return 0;
+      }
+
+      long rank = (long) Math.ceil(total * percentile / 100.0);
+      long count = 0;
+      for (int i = 0; i < this.buckets.length(); i++) {
+        count += this.buckets.get(i);
+        if (count >= rank) {
+          return i;
+        }
+      }
+      return this.buckets.length() - 1L;
+    }
+  }
+}
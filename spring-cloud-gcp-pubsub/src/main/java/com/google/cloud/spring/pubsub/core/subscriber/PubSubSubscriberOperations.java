@@ -22,10 +22,16 @@ import com.google.cloud.spring.pubsub.support.BasicAcknowledgeablePubsubMessage;
 import com.google.cloud.spring.pubsub.support.converter.ConvertedAcknowledgeablePubsubMessage;
 import com.google.cloud.spring.pubsub.support.converter.ConvertedBasicAcknowledgeablePubsubMessage;
 import com.google.pubsub.v1.PubsubMessage;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
+import org.springframework.util.Assert;
 import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
 
 /**
  * An abstraction for Google Cloud Pub/Sub subscription / pulling operations.
@@ -69,6 +75,30 @@ public interface PubSubSubscriberOperations {
       Consumer<ConvertedBasicAcknowledgeablePubsubMessage<T>> messageConsumer,
       Class<T> payloadType);
 
+  /**
+   * Add a callback method to an existing subscription that receives Pub/Sub messages converted to
+   * the requested payload type, through a {@link Subscriber} that is customized beyond the
+   * configuration of the subscriber factory, such as its flow control or parallel pull count.
+   *
+   * <p>The created {@link Subscriber} is returned so it can be stopped.
+   *
+   * @param subscription canonical subscription name, e.g., "subscriptionName", or the
+   *     fully-qualified subscription name in the {@code
+   *     projects/<project_name>/subscriptions/<subscription_name>} format
+   * @param messageConsumer the callback method triggered when new messages arrive
+   * @param payloadType the type to which the payload of the Pub/Sub message should be converted
+   * @param subscriberCustomizer the customizer applied to the subscriber, or {@code null} for
+   *     none
+   * @param <T> the type of the payload
+   * @return subscriber listening to new messages
+   * @since 3.2
+   */
+  <T> Subscriber subscribeAndConvert(
+      String subscription,
+      Consumer<ConvertedBasicAcknowledgeablePubsubMessage<T>> messageConsumer,
+      Class<T> payloadType,
+      SubscriberCustomizer subscriberCustomizer);
+
   /**
    * Pull and auto-acknowledge a number of messages from a Google Cloud Pub/Sub subscription.
    *
@@ -138,6 +168,126 @@ public interface PubSubSubscriberOperations {
   ListenableFuture<List<AcknowledgeablePubsubMessage>> pullAsync(
       String subscription, Integer maxMessages, Boolean returnImmediately);
 
+  /**
+   * Pull a number of messages from several Google Cloud Pub/Sub subscriptions at once and return
+   * them as one list.
+   *
+   * <p>The {@code maxMessages} are spread evenly over the subscriptions; subscriptions left without
+   * a share are not pulled from. The returned messages can be acked together, which sends one
+   * request per subscription.
+   *
+   * <p>The call completes once every subscription was pulled from. With {@code returnImmediately}
+   * set to {@code false}, the pull of an idle subscription waits for messages until the server
+   * ends it, which delays the messages pulled from the other subscriptions as long. If any of the
+   * pulls fails, the messages pulled from the other subscriptions are nacked and the call fails.
+   *
+   * <p>The default implementation pulls from the subscriptions one after the other with {@link
+   * #pull(String, Integer, Boolean)}.
+   *
+   * @param subscriptions the canonical or fully-qualified names of the subscriptions to pull from
+   * @param maxMessages the maximum number of messages pulled from all the subscriptions. If this
+   *     value is null then up to Integer.MAX_VALUE messages will be requested per subscription.
+   * @param returnImmediately returns immediately even if the subscriptions don't contain enough
+   *     messages to satisfy {@code maxMessages}. Setting this parameter to {@code true} is not
+   *     recommended as it may result in long delays in message delivery.
+   * @return the list of received acknowledgeable messages
+   * @since 3.2
+   */
+  default List<AcknowledgeablePubsubMessage> pullFromSubscriptions(
+      Collection<String> subscriptions, Integer maxMessages, Boolean returnImmediately) {
+    Assert.notEmpty(subscriptions, "The subscriptions can't be empty.");
+    Assert.noNullElements(subscriptions, "The subscriptions can't contain null elements.");
+    Assert.isTrue(maxMessages == null || maxMessages > 0, "The maxMessages must be positive.");
+
+    List<String> subscriptionList = new ArrayList<>(subscriptions);
+    int count = subscriptionList.size();
+    List<AcknowledgeablePubsubMessage> result = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      Integer share = null;
+      if (maxMessages != null) {
+        share = maxMessages / count + (i < maxMessages % count ? 1 : 0);
+        if (share == 0) {
+          break;
+        }
+      }
+      try {
+        result.addAll(pull(subscriptionList.get(i), share, returnImmediately));
+      } catch (RuntimeException ex) {
+        if (!result.isEmpty()) {
+          nack(result);
+        }
+        throw ex;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Asynchronously pull a number of messages from several Google Cloud Pub/Sub subscriptions at
+   * once, as described in {@link #pullFromSubscriptions(Collection, Integer, Boolean)}.
+   *
+   * <p>The default implementation pulls from the subscriptions concurrently with {@link
+   * #pullAsync(String, Integer, Boolean)}.
+   *
+   * @param subscriptions the canonical or fully-qualified names of the subscriptions to pull from
+   * @param maxMessages the maximum number of messages pulled from all the subscriptions. If this
+   *     value is null then up to Integer.MAX_VALUE messages will be requested per subscription.
+   * @param returnImmediately returns immediately even if the subscriptions don't contain enough
+   *     messages to satisfy {@code maxMessages}. Setting this parameter to {@code true} is not
+   *     recommended as it may result in long delays in message delivery.
+   * @return the ListenableFuture for the asynchronous execution, returning the list of received
+   *     acknowledgeable messages, which fails if any of the pulls fails after nacking the messages
+   *     pulled from the other subscriptions
+   * @since 3.2
+   */
+  default ListenableFuture<List<AcknowledgeablePubsubMessage>> pullFromSubscriptionsAsync(
+      Collection<String> subscriptions, Integer maxMessages, Boolean returnImmediately) {
+    Assert.notEmpty(subscriptions, "The subscriptions can't be empty.");
+    Assert.noNullElements(subscriptions, "The subscriptions can't contain null elements.");
+    Assert.isTrue(maxMessages == null || maxMessages > 0, "The maxMessages must be positive.");
+
+    List<String> subscriptionList = new ArrayList<>(subscriptions);
+    int count = subscriptionList.size();
+    int pullCount = maxMessages == null ? count : Math.min(count, maxMessages);
+
+    SettableListenableFuture<List<AcknowledgeablePubsubMessage>> settableFuture =
+        new SettableListenableFuture<>();
+    List<AcknowledgeablePubsubMessage> result = Collections.synchronizedList(new ArrayList<>());
+    AtomicReference<Throwable> failure = new AtomicReference<>();
+    AtomicInteger pendingPulls = new AtomicInteger(pullCount);
+    Runnable onPullCompleted =
+        () -> {
+          if (pendingPulls.decrementAndGet() > 0) {
+            return;
+          }
+          List<AcknowledgeablePubsubMessage> messages = new ArrayList<>(result);
+          if (failure.get() == null) {
+            settableFuture.set(messages);
+            return;
+          }
+          if (!messages.isEmpty()) {
+            nack(messages);
+          }
+          settableFuture.setException(failure.get());
+        };
+
+    for (int i = 0; i < pullCount; i++) {
+      Integer share =
+          maxMessages == null ? null : maxMessages / count + (i < maxMessages % count ? 1 : 0);
+      pullAsync(subscriptionList.get(i), share, returnImmediately)
+          .addCallback(
+              messages -> {
+                result.addAll(messages);
+                onPullCompleted.run();
+              },
+              throwable -> {
+                failure.compareAndSet(null, throwable);
+                onPullCompleted.run();
+              });
+    }
+    return settableFuture;
+  }
+
   /**
    * Pull a number of messages from a Google Cloud Pub/Sub subscription and convert them to Spring
    * messages with the desired payload type.
@@ -19,11 +19,15 @@ package com.google.cloud.spring.pubsub.core.subscriber;
 import com.google.api.core.ApiFuture;
 import com.google.api.core.ApiFutureCallback;
 import com.google.api.core.ApiFutures;
+import com.google.api.gax.batching.BatchingSettings;
+import com.google.api.gax.rpc.ApiExceptions;
 import com.google.cloud.pubsub.v1.AckReplyConsumer;
+import com.google.cloud.pubsub.v1.MessageReceiver;
 import com.google.cloud.pubsub.v1.Subscriber;
 import com.google.cloud.pubsub.v1.stub.SubscriberStub;
 import com.google.cloud.spring.pubsub.support.AcknowledgeablePubsubMessage;
 import com.google.cloud.spring.pubsub.support.BasicAcknowledgeablePubsubMessage;
+import com.google.cloud.spring.pubsub.support.PubSubMetrics;
 import com.google.cloud.spring.pubsub.support.PubSubSubscriptionUtils;
 import com.google.cloud.spring.pubsub.support.SubscriberFactory;
 import com.google.cloud.spring.pubsub.support.converter.ConvertedAcknowledgeablePubsubMessage;
@@ -38,14 +42,19 @@ import com.google.pubsub.v1.PubsubMessage;
 import com.google.pubsub.v1.PullRequest;
 import com.google.pubsub.v1.PullResponse;
 import com.google.pubsub.v1.ReceivedMessage;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
@@ -54,6 +63,7 @@ import org.springframework.beans.factory.DisposableBean;
 import org.springframework.util.Assert;
 import org.springframework.util.concurrent.ListenableFuture;
 import org.springframework.util.concurrent.SettableListenableFuture;
+import org.threeten.bp.Duration;
 
 /**
  * Default implementation of {@link PubSubSubscriberOperations}.
@@ -69,6 +79,24 @@ import org.springframework.util.concurrent.SettableListenableFuture;
  * the asynchronous pull callback operations. By default, this is executed on the same thread that
  * executes the callback.
  *
+ * <p>Acknowledgement batching can be enabled with {@link #setAckBatchingSettings(BatchingSettings)}
+ * to coalesce the {@code ack()}, {@code nack()} and {@code modifyAckDeadline()} calls made on
+ * individual pulled messages into per-subscription requests.
+ *
+ * <p>Automatic ack deadline extension of pulled messages can be enabled with {@link
+ * #setMaxAckExtensionPeriod(Duration)}.
+ *
+ * <p>The received and pulled messages, the subscriber message consumers and the acknowledgements
+ * of pulled messages are recorded to the {@link PubSubMetrics} set with {@link
+ * #setMetrics(PubSubMetrics)}, if any.
+ *
+ * <p>The subscriptions pulled together with {@link #pullFromSubscriptions(Collection, Integer,
+ * Boolean)} are pulled concurrently, and the max messages are spread round-robin over them,
+ * starting from a different subscription on every call. They share a single {@link
+ * SubscriberStub}, created with the global subscriber settings, unless a stub was already created
+ * for one of them. The shared stub is only used for these pulls, so the other calls on the
+ * subscriptions keep their per-subscription settings.
+ *
  * @since 1.1
  */
 public class PubSubSubscriberTemplate implements PubSubSubscriberOperations, DisposableBean {
@@ -83,9 +111,23 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations, Dis
 
   private Executor asyncPullExecutor = Runnable::run;
 
+  private ScheduledExecutorService ackScheduler;
+
+  private volatile AckBatcher ackBatcher;
+
+  private volatile LeaseManager leaseManager;
+
+  private volatile PubSubMetrics metrics;
+
   private ConcurrentHashMap<String, SubscriberStub> subscriptionNameToStubMap =
       new ConcurrentHashMap<>();
 
+  /** The stub shared by the subscriptions pulled together, created on first use. */
+  private SubscriberStub sharedSubscriberStub;
+
+  /** Rotates the subscription that gets the first share of a multi-subscription pull. */
+  private final AtomicInteger fanInPullOffset = new AtomicInteger();
+
   /**
    * Default {@link PubSubSubscriberTemplate} constructor.
    *
@@ -140,21 +182,109 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations, Dis
     this.asyncPullExecutor = asyncPullExecutor;
   }
 
+  /**
+   * Enable batching of the acknowledgement and ack deadline modification calls made on individual
+   * pulled messages. Ack IDs are buffered per subscription and sent in a single request once the
+   * element count, request byte or delay threshold of the settings is reached. Thresholds above
+   * the Pub/Sub request limits are capped to those limits.
+   *
+   * <p>Operations on collections of messages, such as {@link #ack(Collection)}, are not buffered.
+   *
+   * @param ackBatchingSettings the batching settings to use, or settings with batching disabled to
+   *     send a request for every call
+   * @since 3.2
+   */
+  public synchronized void setAckBatchingSettings(BatchingSettings ackBatchingSettings) {
+    Assert.notNull(ackBatchingSettings, "ackBatchingSettings can't be null.");
+
+    if (this.ackBatcher != null) {
+      this.ackBatcher.close();
+      this.ackBatcher = null;
+    }
+
+    if (Boolean.FALSE.equals(ackBatchingSettings.getIsEnabled())) {
+      return;
+    }
+
+    this.ackBatcher =
+        new AckBatcher(
+            ackBatchingSettings,
+            getAckScheduler(),
+            runnable -> this.ackExecutor.execute(runnable),
+            this::ack,
+            this::modifyAckDeadline);
+  }
+
+  /**
+   * Enable automatic ack deadline extension for the messages returned by the {@code pull} and
+   * {@code pullAsync} methods. The deadline of each pulled message is extended in
+   * per-subscription batches until the message is acked, nacked or has its deadline modified, or
+   * until the max ack extension period since it was pulled has passed. The extension deadline
+   * adapts to the observed time between pulling and acking messages, between 10 and 600 seconds.
+   *
+   * @param maxAckExtensionPeriod the maximum period to extend the deadline of a pulled message
+   *     for, or {@link Duration#ZERO} to disable deadline extension
+   * @since 3.2
+   */
+  public synchronized void setMaxAckExtensionPeriod(Duration maxAckExtensionPeriod) {
+    Assert.notNull(maxAckExtensionPeriod, "maxAckExtensionPeriod can't be null.");
+    Assert.isTrue(
+        !maxAckExtensionPeriod.isNegative(), "maxAckExtensionPeriod can't be negative.");
+
+    if (this.leaseManager != null) {
+      this.leaseManager.close();
+      this.leaseManager = null;
+    }
+
+    if (maxAckExtensionPeriod.isZero()) {
+      return;
+    }
+
+    this.leaseManager =
+        new LeaseManager(maxAckExtensionPeriod, getAckScheduler(), this::modifyAckDeadline);
+  }
+
+  /**
+   * Set the metrics to record the received messages and the acknowledgements to.
+   *
+   * @param metrics the Pub/Sub metrics, or {@code null} to not record any
+   * @since 3.2
+   */
+  public void setMetrics(PubSubMetrics metrics) {
+    this.metrics = metrics;
+    if (metrics != null) {
+      metrics.registerPullLeases(
+          this,
+          template -> {
+            LeaseManager leases = template.leaseManager;
+            return leases != null ? leases.getOutstandingLeaseCount() : 0;
+          });
+    }
+  }
+
+  private ScheduledExecutorService getAckScheduler() {
+    if (this.ackScheduler == null) {
+      this.ackScheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+    return this.ackScheduler;
+  }
+
   @Override
   public Subscriber subscribe(
       String subscription, Consumer<BasicAcknowledgeablePubsubMessage> messageConsumer) {
     Assert.notNull(messageConsumer, "The messageConsumer can't be null.");
 
+    // Resolved once and shared by all the messages of the subscriber.
+    ProjectSubscriptionName projectSubscriptionName =
+        PubSubSubscriptionUtils.toProjectSubscriptionName(
+            subscription, this.subscriberFactory.getProjectId());
+    MessageReceiver receiver =
+        (message, ackReplyConsumer) ->
+            messageConsumer.accept(
+                new PushedAcknowledgeablePubsubMessage(
+                    projectSubscriptionName, message, ackReplyConsumer));
     Subscriber subscriber =
-        this.subscriberFactory.createSubscriber(
-            subscription,
-            (message, ackReplyConsumer) ->
-                messageConsumer.accept(
-                    new PushedAcknowledgeablePubsubMessage(
-                        PubSubSubscriptionUtils.toProjectSubscriptionName(
-                            subscription, this.subscriberFactory.getProjectId()),
-                        message,
-                        ackReplyConsumer)));
+        this.subscriberFactory.createSubscriber(subscription, instrument(subscription, receiver));
     subscriber.startAsync();
     return subscriber;
   }
@@ -164,23 +294,68 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations, Dis
       String subscription,
       Consumer<ConvertedBasicAcknowledgeablePubsubMessage<T>> messageConsumer,
       Class<T> payloadType) {
+    return subscribeAndConvert(subscription, messageConsumer, payloadType, null);
+  }
+
+  @Override
+  public <T> Subscriber subscribeAndConvert(
+      String subscription,
+      Consumer<ConvertedBasicAcknowledgeablePubsubMessage<T>> messageConsumer,
+      Class<T> payloadType,
+      SubscriberCustomizer subscriberCustomizer) {
     Assert.notNull(messageConsumer, "The messageConsumer can't be null.");
 
+    // Resolved once and shared by all the messages of the subscriber.
+    ProjectSubscriptionName projectSubscriptionName =
+        PubSubSubscriptionUtils.toProjectSubscriptionName(
+            subscription, this.subscriberFactory.getProjectId());
+    MessageReceiver receiver =
+        (message, ackReplyConsumer) ->
+            messageConsumer.accept(
+                new ConvertedPushedAcknowledgeablePubsubMessage<>(
+                    projectSubscriptionName,
+                    message,
+                    this.getMessageConverter().fromPubSubMessage(message, payloadType),
+                    ackReplyConsumer));
+    receiver = instrument(subscription, receiver);
     Subscriber subscriber =
-        this.subscriberFactory.createSubscriber(
-            subscription,
-            (message, ackReplyConsumer) ->
-                messageConsumer.accept(
-                    new ConvertedPushedAcknowledgeablePubsubMessage<>(
-                        PubSubSubscriptionUtils.toProjectSubscriptionName(
-                            subscription, this.subscriberFactory.getProjectId()),
-                        message,
-                        this.getMessageConverter().fromPubSubMessage(message, payloadType),
-                        ackReplyConsumer)));
+        subscriberCustomizer == null
+            ? this.subscriberFactory.createSubscriber(subscription, receiver)
+            : this.subscriberFactory.createSubscriber(subscription, receiver, subscriberCustomizer);
     subscriber.startAsync();
     return subscriber;
   }
 
+  /**
+   * Records the messages delivered to a receiver, how long the receiver takes, and whether the
+   * messages are still waiting to be acked or nacked.
+   */
+  private MessageReceiver instrument(String subscription, MessageReceiver receiver) {
+    PubSubMetrics receiverMetrics = this.metrics;
+    if (receiverMetrics == null) {
+      return receiver;
+    }
+    AtomicInteger outstanding = receiverMetrics.getOutstanding(subscription);
+    return (message, ackReplyConsumer) -> {
+      receiverMetrics.recordReceived(subscription, 1);
+      outstanding.incrementAndGet();
+      long startTime = receiverMetrics.monotonicTime();
+      boolean success = false;
+      CountingAckReplyConsumer countingAckReplyConsumer =
+          new CountingAckReplyConsumer(ackReplyConsumer, outstanding);
+      try {
+        receiver.receiveMessage(message, countingAckReplyConsumer);
+        success = true;
+      } catch (RuntimeException ex) {
+        // The subscriber nacks the messages whose receiver throws.
+        countingAckReplyConsumer.replied();
+        throw ex;
+      } finally {
+        receiverMetrics.recordProcessing(subscription, startTime, success);
+      }
+    };
+  }
+
   /**
    * Pulls messages synchronously, on demand, using the pull request in argument.
    *
@@ -233,17 +408,133 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations, Dis
     return settableFuture;
   }
 
+  /**
+   * Creates one pull request per subscription, spreading the max messages round-robin over the
+   * subscriptions. Subscriptions left without a share are not pulled from.
+   */
+  private List<PullRequest> createFanInPullRequests(
+      Collection<String> subscriptions, Integer maxMessages, Boolean returnImmediately) {
+    Assert.notEmpty(subscriptions, "The subscriptions can't be empty.");
+    Assert.noNullElements(subscriptions, "The subscriptions can't contain null elements.");
+    Assert.isTrue(maxMessages == null || maxMessages > 0, "The maxMessages must be positive.");
+
+    List<String> subscriptionList = new ArrayList<>(subscriptions);
+    int count = subscriptionList.size();
+    int offset = Math.floorMod(this.fanInPullOffset.getAndIncrement(), count);
+    List<PullRequest> pullRequests = new ArrayList<>(count);
+    for (int i = 0; i < count; i++) {
+      Integer share = null;
+      if (maxMessages != null) {
+        share = maxMessages / count + (i < maxMessages % count ? 1 : 0);
+        if (share == 0) {
+          break;
+        }
+      }
+      pullRequests.add(
+          this.subscriberFactory.createPullRequest(
+              subscriptionList.get((offset + i) % count), share, returnImmediately));
+    }
+    return pullRequests;
+  }
+
+  /**
+   * Pulls from all the subscriptions concurrently. If any of the pulls fails, the messages pulled
+   * by the others are nacked so they are redelivered right away, and the first failure is
+   * returned.
+   */
+  private ApiFuture<List<AcknowledgeablePubsubMessage>> fanInPull(List<PullRequest> pullRequests) {
+    List<ApiFuture<PullResponse>> pullFutures = new ArrayList<>(pullRequests.size());
+    for (PullRequest pullRequest : pullRequests) {
+      pullFutures.add(
+          getFanInSubscriberStub(pullRequest.getSubscription())
+              .pullCallable()
+              .futureCall(pullRequest));
+    }
+    return ApiFutures.transformAsync(
+        ApiFutures.successfulAsList(pullFutures),
+        pullResponses -> {
+          List<AcknowledgeablePubsubMessage> result = new ArrayList<>();
+          Throwable failure = null;
+          for (int i = 0; i < pullRequests.size(); i++) {
+            PullResponse pullResponse = pullResponses.get(i);
+            if (pullResponse == null) {
+              if (failure == null) {
+                failure = getFailure(pullFutures.get(i));
+              }
+            } else {
+              result.addAll(
+                  toAcknowledgeablePubsubMessageList(
+                      pullResponse.getReceivedMessagesList(),
+                      pullRequests.get(i).getSubscription()));
+            }
+          }
+          if (failure == null) {
+            return ApiFutures.immediateFuture(result);
+          }
+          if (!result.isEmpty()) {
+            nack(result);
+          }
+          return ApiFutures.immediateFailedFuture(failure);
+        },
+        Runnable::run);
+  }
+
+  private static Throwable getFailure(ApiFuture<?> completedFuture) {
+    try {
+      completedFuture.get();
+      return new IllegalStateException("The pull request completed without a response.");
+    } catch (ExecutionException ex) {
+      return ex.getCause();
+    } catch (CancellationException ex) {
+      return ex;
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      return ex;
+    }
+  }
+
   private List<AcknowledgeablePubsubMessage> toAcknowledgeablePubsubMessageList(
       List<ReceivedMessage> messages, String subscriptionId) {
-    return messages.stream()
-        .map(
-            message ->
-                new PulledAcknowledgeablePubsubMessage(
-                    PubSubSubscriptionUtils.toProjectSubscriptionName(
-                        subscriptionId, this.subscriberFactory.getProjectId()),
-                    message.getMessage(),
-                    message.getAckId()))
-        .collect(Collectors.toList());
+    if (messages.isEmpty()) {
+      return new ArrayList<>();
+    }
+
+    // Resolved once and shared by all the messages of the pull response.
+    ProjectSubscriptionName projectSubscriptionName =
+        PubSubSubscriptionUtils.toProjectSubscriptionName(
+            subscriptionId, this.subscriberFactory.getProjectId());
+    PubSubMetrics pullMetrics = this.metrics;
+    if (pullMetrics != null) {
+      pullMetrics.recordReceived(projectSubscriptionName.getSubscription(), messages.size());
+    }
+    List<AcknowledgeablePubsubMessage> result = new ArrayList<>(messages.size());
+    for (ReceivedMessage message : messages) {
+      result.add(
+          new PulledAcknowledgeablePubsubMessage(
+              projectSubscriptionName, message.getMessage(), message.getAckId()));
+    }
+
+    LeaseManager leases = this.leaseManager;
+    if (leases != null) {
+      String subscriptionName = projectSubscriptionName.toString();
+      result.forEach(message -> leases.add(subscriptionName, message.getAckId()));
+    }
+    return result;
+  }
+
+  private void releaseLeases(
+      Collection<? extends AcknowledgeablePubsubMessage> acknowledgeablePubsubMessages,
+      boolean acked) {
+    LeaseManager leases = this.leaseManager;
+    if (leases != null) {
+      for (AcknowledgeablePubsubMessage message : acknowledgeablePubsubMessages) {
+        if (acked) {
+          leases.acked(message.getAckId());
+        } else {
+          leases.release(message.getAckId());
+        }
+      }
+    }
   }
 
   @Override
@@ -260,6 +551,41 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations, Dis
         this.subscriberFactory.createPullRequest(subscription, maxMessages, returnImmediately));
   }
 
+  @Override
+  public List<AcknowledgeablePubsubMessage> pullFromSubscriptions(
+      Collection<String> subscriptions, Integer maxMessages, Boolean returnImmediately) {
+    List<PullRequest> pullRequests =
+        createFanInPullRequests(subscriptions, maxMessages, returnImmediately);
+    return ApiExceptions.callAndTranslateApiException(fanInPull(pullRequests));
+  }
+
+  @Override
+  public ListenableFuture<List<AcknowledgeablePubsubMessage>> pullFromSubscriptionsAsync(
+      Collection<String> subscriptions, Integer maxMessages, Boolean returnImmediately) {
+    List<PullRequest> pullRequests =
+        createFanInPullRequests(subscriptions, maxMessages, returnImmediately);
+
+    SettableListenableFuture<List<AcknowledgeablePubsubMessage>> settableFuture =
+        new SettableListenableFuture<>();
+    ApiFutures.addCallback(
+        fanInPull(pullRequests),
+        new ApiFutureCallback<List<AcknowledgeablePubsubMessage>>() {
+
+          @Override
+          public void onFailure(Throwable throwable) {
+            settableFuture.setException(throwable);
+          }
+
+          @Override
+          public void onSuccess(List<AcknowledgeablePubsubMessage> messages) {
+            settableFuture.set(messages);
+          }
+        },
+        this.asyncPullExecutor);
+
+    return settableFuture;
+  }
+
   @Override
   public <T> List<ConvertedAcknowledgeablePubsubMessage<T>> pullAndConvert(
       String subscription, Integer maxMessages, Boolean returnImmediately, Class<T> payloadType) {
@@ -382,6 +708,7 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations, Dis
     Assert.notEmpty(
         acknowledgeablePubsubMessages, "The acknowledgeablePubsubMessages can't be empty.");
 
+    releaseLeases(acknowledgeablePubsubMessages, true);
     return doBatchedAsyncOperation(acknowledgeablePubsubMessages, this::ack);
   }
 
@@ -415,19 +742,33 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations, Dis
         acknowledgeablePubsubMessages, "The acknowledgeablePubsubMessages can't be empty.");
     Assert.isTrue(ackDeadlineSeconds >= 0, "The ackDeadlineSeconds must not be negative.");
 
+    releaseLeases(acknowledgeablePubsubMessages, false);
     return doBatchedAsyncOperation(
         acknowledgeablePubsubMessages,
         (String subscriptionName, List<String> ackIds) ->
             modifyAckDeadline(subscriptionName, ackIds, ackDeadlineSeconds));
   }
 
-  /** Destroys the default executor, regardless of whether it was used. */
+  /**
+   * Stops extending ack deadlines, flushes any batched acknowledgements and destroys the default
+   * executor, regardless of whether it was used.
+   */
   @Override
   public void destroy() {
+    if (this.leaseManager != null) {
+      this.leaseManager.close();
+    }
+    if (this.ackBatcher != null) {
+      this.ackBatcher.close();
+    }
+    if (this.ackScheduler != null) {
+      this.ackScheduler.shutdown();
+    }
     this.defaultAckExecutor.shutdown();
     for (SubscriberStub stub : subscriptionNameToStubMap.values()) {
       stub.close();
     }
+    closeSharedSubscriberStub();
   }
 
   private ApiFuture<Empty> ack(String subscriptionName, Collection<String> ackIds) {
@@ -437,7 +778,27 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations, Dis
             .setSubscription(subscriptionName)
             .build();
     SubscriberStub subscriberStub = getSubscriberStub(subscriptionName);
-    return subscriberStub.acknowledgeCallable().futureCall(acknowledgeRequest);
+    PubSubMetrics ackMetrics = this.metrics;
+    if (ackMetrics == null) {
+      return subscriberStub.acknowledgeCallable().futureCall(acknowledgeRequest);
+    }
+    long startTime = ackMetrics.monotonicTime();
+    ApiFuture<Empty> ackFuture = subscriberStub.acknowledgeCallable().futureCall(acknowledgeRequest);
+    ApiFutures.addCallback(
+        ackFuture,
+        new ApiFutureCallback<Empty>() {
+          @Override
+          public void onFailure(Throwable throwable) {
+            ackMetrics.recordAck(subscriptionName, startTime, false);
+          }
+
+          @Override
+          public void onSuccess(Empty empty) {
+            ackMetrics.recordAck(subscriptionName, startTime, true);
+          }
+        },
+        Runnable::run);
+    return ackFuture;
   }
 
   private ApiFuture<Empty> modifyAckDeadline(
@@ -528,6 +889,29 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations, Dis
         subscription, this.subscriberFactory::createSubscriberStub);
   }
 
+  /**
+   * Returns the stub to pull from a subscription together with other subscriptions: the stub of
+   * the subscription if one was created, and the shared stub otherwise.
+   */
+  private SubscriberStub getFanInSubscriberStub(String subscription) {
+    SubscriberStub stub = subscriptionNameToStubMap.get(subscription);
+    return (stub != null) ? stub : getSharedSubscriberStub();
+  }
+
+  @SuppressWarnings("deprecation")
+  private synchronized SubscriberStub getSharedSubscriberStub() {
+    if (this.sharedSubscriberStub == null) {
+      this.sharedSubscriberStub = this.subscriberFactory.createSubscriberStub();
+    }
+    return this.sharedSubscriberStub;
+  }
+
+  private synchronized void closeSharedSubscriberStub() {
+    if (this.sharedSubscriberStub != null) {
+      this.sharedSubscriberStub.close();
+    }
+  }
+
   private abstract static class AbstractBasicAcknowledgeablePubsubMessage
       implements BasicAcknowledgeablePubsubMessage {
 
@@ -570,6 +954,11 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations, Dis
 
     @Override
     public ListenableFuture<Void> ack() {
+      AckBatcher batcher = PubSubSubscriberTemplate.this.ackBatcher;
+      if (batcher != null) {
+        releaseLeases(Collections.singleton(this), true);
+        return batcher.ack(getProjectSubscriptionName(), this.ackId);
+      }
       return PubSubSubscriberTemplate.this.ack(Collections.singleton(this));
     }
 
@@ -580,6 +969,12 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations, Dis
 
     @Override
     public ListenableFuture<Void> modifyAckDeadline(int ackDeadlineSeconds) {
+      AckBatcher batcher = PubSubSubscriberTemplate.this.ackBatcher;
+      if (batcher != null) {
+        releaseLeases(Collections.singleton(this), false);
+        return batcher.modifyAckDeadline(
+            getProjectSubscriptionName(), this.ackId, ackDeadlineSeconds);
+      }
       return PubSubSubscriberTemplate.this.modifyAckDeadline(
           Collections.singleton(this), ackDeadlineSeconds);
     }
@@ -602,6 +997,39 @@ public class PubSubSubscriberTemplate implements PubSubSubscriberOperations, Dis
     }
   }
 
+  /** Decrements the outstanding message count on the first ack or nack of a message. */
+  private static final class CountingAckReplyConsumer implements AckReplyConsumer {
+
+    private final AckReplyConsumer delegate;
+
+    private final AtomicInteger outstanding;
+
+    private final AtomicBoolean replied = new AtomicBoolean();
+
+    CountingAckReplyConsumer(AckReplyConsumer delegate, AtomicInteger outstanding) {
+      this.delegate = delegate;
+      this.outstanding = outstanding;
+    }
+
+    @Override
+    public void ack() {
+      this.delegate.ack();
+      replied();
+    }
+
+    @Override
+    public void nack() {
+      this.delegate.nack();
+      replied();
+    }
+
+    void replied() {
+      if (this.replied.compareAndSet(false, true)) {
+        this.outstanding.decrementAndGet();
+      }
+    }
+  }
+
   private static class PushedAcknowledgeablePubsubMessage
       extends AbstractBasicAcknowledgeablePubsubMessage {
 
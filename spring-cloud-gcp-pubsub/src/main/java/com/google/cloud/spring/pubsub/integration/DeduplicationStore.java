@@ -0,0 +1,41 @@
+/*
+ * Copyright 2022-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.integration;
+
+/**
+ * Remembers the keys of processed messages for a {@link PubSubMessageDeduplicator}. Implementations
+ * backed by a shared store let several application instances skip each other's redeliveries.
+ *
+ * @since 3.2
+ */
+public interface DeduplicationStore {
+
+  /**
+   * Check whether a message with the given key was processed.
+   *
+   * @param key the message key
+   * @return true if the key was added and hasn't been forgotten since
+   */
+  boolean contains(String key);
+
+  /**
+   * Record that a message with the given key was processed.
+   *
+   * @param key the message key
+   */
+  void add(String key);
+}
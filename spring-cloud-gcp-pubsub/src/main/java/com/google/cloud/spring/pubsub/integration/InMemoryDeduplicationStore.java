@@ -0,0 +1,138 @@
+/*
+ * Copyright 2022-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.integration;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import org.springframework.util.Assert;
+
+/**
+ * A {@link DeduplicationStore} that remembers keys in memory for a time window, up to a maximum
+ * number of keys. Once full, the oldest keys are forgotten first.
+ *
+ * <p>Lookups and additions don't lock the store. Expired keys are ignored by lookups, and swept
+ * periodically by an addition, at most once a second, or as soon as the store is over its maximum
+ * size. Only one thread sweeps at a time, and the others don't wait for it, so the store can
+ * briefly hold more than the maximum number of keys while keys are added concurrently.
+ *
+ * @since 3.2
+ */
+public class InMemoryDeduplicationStore implements DeduplicationStore {
+
+  private static final long MAX_SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private final int maxSize;
+
+  private final long windowNanos;
+
+  private final long sweepIntervalNanos;
+
+  private final LongSupplier nanoClock;
+
+  private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+  /**
+   * The entries in order of addition, which is also the order of expiry. Entries of keys that
+   * were added again since are still queued, and skipped when they are swept.
+   */
+  private final Queue<Entry> additions = new ConcurrentLinkedQueue<>();
+
+  private final ReentrantLock sweepLock = new ReentrantLock();
+
+  private volatile long nextSweepNanos;
+
+  /**
+   * Create the store.
+   *
+   * @param maxSize the maximum number of keys to remember
+   * @param window how long to remember a key for
+   */
+  public InMemoryDeduplicationStore(int maxSize, Duration window) {
+    this(maxSize, window, System::nanoTime);
+  }
+
+  InMemoryDeduplicationStore(int maxSize, Duration window, LongSupplier nanoClock) {
+    Assert.isTrue(maxSize > 0, "The maximum size must be positive.");
+    Assert.notNull(window, "The window can't be null.");
+    Assert.isTrue(!window.isNegative() && !window.isZero(), "The window must be positive.");
+    this.maxSize = maxSize;
+    this.windowNanos = window.toNanos();
+    this.sweepIntervalNanos = Math.min(this.windowNanos, MAX_SWEEP_INTERVAL_NANOS);
+    this.nanoClock = nanoClock;
+    this.nextSweepNanos = nanoClock.getAsLong() + this.sweepIntervalNanos;
+  }
+
+  @Override
+  public boolean contains(String key) {
+    Entry entry = this.entries.get(key);
+    return entry != null && entry.expiryNanos - this.nanoClock.getAsLong() > 0;
+  }
+
+  @Override
+  public void add(String key) {
+    long now = this.nanoClock.getAsLong();
+    // Replacing the entry of a key that was added before refreshes its expiry.
+    Entry entry = new Entry(key, now + this.windowNanos);
+    this.entries.put(key, entry);
+    this.additions.add(entry);
+    if ((this.entries.size() > this.maxSize || now - this.nextSweepNanos >= 0)
+        && this.sweepLock.tryLock()) {
+      try {
+        sweep(now);
+      } finally {
+        this.sweepLock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Return the number of remembered keys, including expired keys that weren't swept yet.
+   *
+   * @return the number of keys
+   */
+  public int size() {
+    return this.entries.size();
+  }
+
+  private void sweep(long now) {
+    Entry oldest;
+    while ((oldest = this.additions.peek()) != null
+        && (oldest.expiryNanos - now <= 0 || this.entries.size() > this.maxSize)) {
+      this.additions.poll();
+      // Only removes the key if it wasn't added again since.
+      this.entries.remove(oldest.key, oldest);
+    }
+    this.nextSweepNanos = now + this.sweepIntervalNanos;
+  }
+
+  private static final class Entry {
+
+    private final String key;
+
+    private final long expiryNanos;
+
+    private Entry(String key, long expiryNanos) {
+      this.key = key;
+      this.expiryNanos = expiryNanos;
+    }
+  }
+}
@@ -17,9 +17,15 @@
 package com.google.cloud.spring.pubsub.integration;
 
 import com.google.cloud.spring.pubsub.support.GcpPubSubHeaders;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import org.springframework.integration.history.MessageHistory;
 import org.springframework.integration.mapping.HeaderMapper;
 import org.springframework.integration.support.utils.PatternMatchUtils;
@@ -34,26 +40,32 @@ import org.springframework.util.Assert;
  * <p>By default, filters out headers called "id", "timestamp", "gcp_pubsub_acknowledgement" or
  * "nativeHeaders" on the {@link org.springframework.messaging.Message} to {@link
  * com.google.pubsub.v1.PubsubMessage} header conversion.
+ *
+ * <p>Whether a header name matches the patterns is computed once per name and remembered, up to
+ * {@value #MAX_CACHED_HEADER_NAMES} names per direction.
  */
 public class PubSubHeaderMapper implements HeaderMapper<Map<String, String>> {
 
+  /** The maximum number of header names whose match decision is remembered per direction. */
+  static final int MAX_CACHED_HEADER_NAMES = 1024;
+
   /**
    * Patterns of headers to map in {@link #fromHeaders(MessageHeaders, Map)}. First patterns take
    * precedence.
    */
   @SuppressWarnings("deprecation")
-  private String[] outboundHeaderPatterns = {
-    "!" + MessageHeaders.ID,
-    "!" + MessageHeaders.TIMESTAMP,
-    "!" + GcpPubSubHeaders.ORIGINAL_MESSAGE,
-    "!" + GcpPubSubHeaders.CLIENT,
-    "!" + NativeMessageHeaderAccessor.NATIVE_HEADERS,
-    "!" + MessageHistory.HEADER_NAME,
-    "*"
-  };
+  private HeaderPatterns outboundHeaderPatterns =
+      new HeaderPatterns(
+          "!" + MessageHeaders.ID,
+          "!" + MessageHeaders.TIMESTAMP,
+          "!" + GcpPubSubHeaders.ORIGINAL_MESSAGE,
+          "!" + GcpPubSubHeaders.CLIENT,
+          "!" + NativeMessageHeaderAccessor.NATIVE_HEADERS,
+          "!" + MessageHistory.HEADER_NAME,
+          "*");
 
   /** Patterns of headers to map in {@link #toHeaders(Map)}. First patterns take precedence. */
-  private String[] inboundHeaderPatterns = {"*"};
+  private HeaderPatterns inboundHeaderPatterns = new HeaderPatterns("*");
 
   /**
    * Set the patterns of the headers to be mapped in {@link #fromHeaders(MessageHeaders, Map)}.
@@ -64,8 +76,7 @@ public class PubSubHeaderMapper implements HeaderMapper<Map<String, String>> {
   public void setOutboundHeaderPatterns(String... outboundHeaderPatterns) {
     Assert.notNull(outboundHeaderPatterns, "Header patterns can't be null.");
     Assert.noNullElements(outboundHeaderPatterns, "No header pattern can be null.");
-    this.outboundHeaderPatterns =
-        Arrays.copyOf(outboundHeaderPatterns, outboundHeaderPatterns.length);
+    this.outboundHeaderPatterns = new HeaderPatterns(outboundHeaderPatterns);
   }
 
   /**
@@ -77,7 +88,7 @@ public class PubSubHeaderMapper implements HeaderMapper<Map<String, String>> {
   public void setInboundHeaderPatterns(String... inboundHeaderPatterns) {
     Assert.notNull(inboundHeaderPatterns, "Header patterns can't be null.");
     Assert.noNullElements(inboundHeaderPatterns, "No header pattern can be null.");
-    this.inboundHeaderPatterns = Arrays.copyOf(inboundHeaderPatterns, inboundHeaderPatterns.length);
+    this.inboundHeaderPatterns = new HeaderPatterns(inboundHeaderPatterns);
   }
 
   /**
@@ -92,12 +103,12 @@ public class PubSubHeaderMapper implements HeaderMapper<Map<String, String>> {
   @Override
   public void fromHeaders(
       MessageHeaders messageHeaders, final Map<String, String> pubsubMessageHeaders) {
-    messageHeaders.entrySet().stream()
-        .filter(
-            entry ->
-                Boolean.TRUE.equals(
-                    PatternMatchUtils.smartMatch(entry.getKey(), this.outboundHeaderPatterns)))
-        .forEach(entry -> pubsubMessageHeaders.put(entry.getKey(), entry.getValue().toString()));
+    HeaderPatterns patterns = this.outboundHeaderPatterns;
+    for (Map.Entry<String, Object> entry : messageHeaders.entrySet()) {
+      if (patterns.matches(entry.getKey())) {
+        pubsubMessageHeaders.put(entry.getKey(), entry.getValue().toString());
+      }
+    }
   }
 
   /**
@@ -106,16 +117,170 @@ public class PubSubHeaderMapper implements HeaderMapper<Map<String, String>> {
    *
    * <p>Will map only the headers that match the patterns in {@code inboundHeaderPatternsMap}.
    *
+   * <p>The returned map is a view over the given headers, which are not copied unless the returned
+   * map is modified. The given headers must therefore not change while the returned map is in use,
+   * which holds for the immutable attributes of a {@link com.google.pubsub.v1.PubsubMessage}.
+   *
    * @param pubsubMessageHeaders headers in {@link com.google.pubsub.v1.PubsubMessage} format
    * @return a map with headers in the {@link org.springframework.messaging.Message} format
    */
   @Override
   public Map<String, Object> toHeaders(Map<String, String> pubsubMessageHeaders) {
-    return pubsubMessageHeaders.entrySet().stream()
-        .filter(
-            entry ->
-                Boolean.TRUE.equals(
-                    PatternMatchUtils.smartMatch(entry.getKey(), this.inboundHeaderPatterns)))
-        .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    return new InboundHeaders(pubsubMessageHeaders, this.inboundHeaderPatterns);
+  }
+
+  /** Header patterns with the remembered match decision of the header names seen so far. */
+  private static final class HeaderPatterns {
+
+    private final String[] patterns;
+
+    private final Map<String, Boolean> matchCache = new ConcurrentHashMap<>();
+
+    HeaderPatterns(String... patterns) {
+      this.patterns = Arrays.copyOf(patterns, patterns.length);
+    }
+
+    boolean matches(String headerName) {
+      Boolean match = this.matchCache.get(headerName);
+      if (match == null) {
+        match = Boolean.TRUE.equals(PatternMatchUtils.smartMatch(headerName, this.patterns));
+        // Header names can be unbounded, for example when they carry IDs, so the cache stops
+        // growing once full instead of evicting.
+        if (this.matchCache.size() < MAX_CACHED_HEADER_NAMES) {
+          this.matchCache.put(headerName, match);
+        }
+      }
+      return match;
+    }
+  }
+
+  /**
+   * The mapped inbound headers, read through from the Pub/Sub message attributes until the map is
+   * modified, at which point the mapped headers are copied.
+   */
+  private static final class InboundHeaders extends AbstractMap<String, Object> {
+
+    private final Map<String, String> attributes;
+
+    private final HeaderPatterns patterns;
+
+    private Map<String, Object> copy;
+
+    private Set<Map.Entry<String, Object>> entrySet;
+
+    InboundHeaders(Map<String, String> attributes, HeaderPatterns patterns) {
+      this.attributes = attributes;
+      this.patterns = patterns;
+    }
+
+    @Override
+    public Object get(Object key) {
+      if (this.copy != null) {
+        return this.copy.get(key);
+      }
+      return isMapped(key) ? this.attributes.get(key) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+      if (this.copy != null) {
+        return this.copy.containsKey(key);
+      }
+      return isMapped(key) && this.attributes.containsKey(key);
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+      return copy().put(key, value);
+    }
+
+    @Override
+    public Object remove(Object key) {
+      return copy().remove(key);
+    }
+
+    @Override
+    public void clear() {
+      copy().clear();
+    }
+
+    @Override
+    public Set<Map.Entry<String, Object>> entrySet() {
+      if (this.copy != null) {
+        return this.copy.entrySet();
+      }
+      if (this.entrySet == null) {
+        this.entrySet = new MappedAttributes();
+      }
+      return this.entrySet;
+    }
+
+    private boolean isMapped(Object key) {
+      return key instanceof String && this.patterns.matches((String) key);
+    }
+
+    private Map<String, Object> copy() {
+      if (this.copy == null) {
+        Map<String, Object> mappedHeaders = new LinkedHashMap<>();
+        for (Map.Entry<String, String> attribute : this.attributes.entrySet()) {
+          if (this.patterns.matches(attribute.getKey())) {
+            mappedHeaders.put(attribute.getKey(), attribute.getValue());
+          }
+        }
+        this.copy = mappedHeaders;
+      }
+      return this.copy;
+    }
+
+    /** Read-only view of the attributes that match the inbound header patterns. */
+    private final class MappedAttributes extends AbstractSet<Map.Entry<String, Object>> {
+
+      @Override
+      public Iterator<Map.Entry<String, Object>> iterator() {
+        Iterator<Map.Entry<String, String>> attributeIterator =
+            InboundHeaders.this.attributes.entrySet().iterator();
+        return new Iterator<Map.Entry<String, Object>>() {
+
+          private Map.Entry<String, Object> next = advance();
+
+          private Map.Entry<String, Object> advance() {
+            while (attributeIterator.hasNext()) {
+              Map.Entry<String, String> attribute = attributeIterator.next();
+              if (InboundHeaders.this.patterns.matches(attribute.getKey())) {
+                return new AbstractMap.SimpleImmutableEntry<>(
+                    attribute.getKey(), attribute.getValue());
+              }
+            }
+            return null;
+          }
+
+          @Override
+          public boolean hasNext() {
+            return this.next != null;
+          }
+
+          @Override
+          public Map.Entry<String, Object> next() {
+            if (this.next == null) {
+              throw new NoSuchElementException();
+            }
+            Map.Entry<String, Object> current = this.next;
+            this.next = advance();
+            return current;
+          }
+        };
+      }
+
+      @Override
+      public int size() {
+        int size = 0;
+        for (String attributeName : InboundHeaders.this.attributes.keySet()) {
+          if (InboundHeaders.this.patterns.matches(attributeName)) {
+            size++;
+          }
+        }
+        return size;
+      }
+    }
   }
 }
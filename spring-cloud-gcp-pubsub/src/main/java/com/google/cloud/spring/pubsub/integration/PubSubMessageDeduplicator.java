@@ -0,0 +1,148 @@
+/*
+ * Copyright 2022-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.integration;
+
+import com.google.cloud.spring.pubsub.support.BasicAcknowledgeablePubsubMessage;
+import com.google.cloud.spring.pubsub.support.PubSubMetrics;
+import com.google.pubsub.v1.PubsubMessage;
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.util.Assert;
+
+/**
+ * Skips the redeliveries of messages that were already processed, for the inbound channel adapter
+ * and the message source. A message is remembered once it was sent downstream successfully, so
+ * the redeliveries of a message that is still being processed, or whose processing failed, are
+ * processed again.
+ *
+ * <p>Messages are identified by their subscription and their message ID, or the value of an
+ * attribute set with {@link #setKeyAttribute(String)}.
+ *
+ * @since 3.2
+ */
+public class PubSubMessageDeduplicator {
+
+  private final DeduplicationStore store;
+
+  private String keyAttribute;
+
+  private PubSubMetrics metrics;
+
+  private final LongAdder hits = new LongAdder();
+
+  private final LongAdder misses = new LongAdder();
+
+  /**
+   * Create a deduplicator that remembers processed messages in memory.
+   *
+   * @param maxSize the maximum number of messages to remember
+   * @param window how long to remember a message for
+   */
+  public PubSubMessageDeduplicator(int maxSize, Duration window) {
+    this(new InMemoryDeduplicationStore(maxSize, window));
+  }
+
+  /**
+   * Create a deduplicator that remembers processed messages in the given store.
+   *
+   * @param store the store of processed messages
+   */
+  public PubSubMessageDeduplicator(DeduplicationStore store) {
+    Assert.notNull(store, "The store can't be null.");
+    this.store = store;
+  }
+
+  public String getKeyAttribute() {
+    return this.keyAttribute;
+  }
+
+  /**
+   * Set the attribute that identifies messages instead of their message ID, for publishers that
+   * may publish the same message more than once. Messages without the attribute are identified by
+   * their message ID.
+   *
+   * @param keyAttribute the attribute name, or {@code null} to use message IDs
+   */
+  public void setKeyAttribute(String keyAttribute) {
+    this.keyAttribute = keyAttribute;
+  }
+
+  /**
+   * Set the metrics to record the duplicate and new messages to. When the Pub/Sub metrics are
+   * auto-configured, they are only set on deduplicators that are beans; a deduplicator created
+   * inline, for example when configuring a channel adapter, records nothing unless its metrics are
+   * set explicitly.
+   *
+   * @param metrics the Pub/Sub metrics, or {@code null} to not record any
+   */
+  public void setMetrics(PubSubMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Check whether a received message was already processed.
+   *
+   * @param message the received message
+   * @return true if the message is a duplicate, which should be acked without processing it
+   */
+  public boolean isDuplicate(BasicAcknowledgeablePubsubMessage message) {
+    boolean duplicate = this.store.contains(key(message));
+    (duplicate ? this.hits : this.misses).increment();
+    PubSubMetrics dedupeMetrics = this.metrics;
+    if (dedupeMetrics != null) {
+      dedupeMetrics.recordDeduplication(
+          message.getProjectSubscriptionName().getSubscription(), duplicate);
+    }
+    return duplicate;
+  }
+
+  /**
+   * Record that a message was processed, which makes its redeliveries duplicates.
+   *
+   * @param message the processed message
+   */
+  public void processed(BasicAcknowledgeablePubsubMessage message) {
+    this.store.add(key(message));
+  }
+
+  /**
+   * Return the number of received messages that were duplicates.
+   *
+   * @return the duplicate count
+   */
+  public long getHitCount() {
+    return this.hits.sum();
+  }
+
+  /**
+   * Return the number of received messages that weren't duplicates.
+   *
+   * @return the new message count
+   */
+  public long getMissCount() {
+    return this.misses.sum();
+  }
+
+  private String key(BasicAcknowledgeablePubsubMessage message) {
+    PubsubMessage pubsubMessage = message.getPubsubMessage();
+    String id =
+        this.keyAttribute != null
+            ? pubsubMessage.getAttributesOrDefault(this.keyAttribute, pubsubMessage.getMessageId())
+            : pubsubMessage.getMessageId();
+    return message.getProjectSubscriptionName() + "/" + id;
+  }
+}
@@ -17,6 +17,7 @@
 package com.google.cloud.spring.pubsub.integration.inbound;
 
 import com.google.cloud.spring.pubsub.integration.AckMode;
+import com.google.cloud.spring.pubsub.integration.PubSubMessageDeduplicator;
 import com.google.cloud.spring.pubsub.support.AcknowledgeablePubsubMessage;
 import org.springframework.integration.acks.AcknowledgmentCallback;
 import org.springframework.util.Assert;
@@ -38,6 +39,8 @@ public class PubSubAcknowledgmentCallback implements AcknowledgmentCallback {
 
   private final AckMode ackMode;
 
+  private final PubSubMessageDeduplicator deduplicator;
+
   private boolean acknowledged;
 
   /**
@@ -47,10 +50,25 @@ public class PubSubAcknowledgmentCallback implements AcknowledgmentCallback {
    * @param ackMode whether to ack and/or nack automatically
    */
   public PubSubAcknowledgmentCallback(AcknowledgeablePubsubMessage message, AckMode ackMode) {
+    this(message, ackMode, null);
+  }
+
+  /**
+   * Instantiates a callback that also records accepted messages as processed in a deduplicator.
+   *
+   * @param message message to acknowledge
+   * @param ackMode whether to ack and/or nack automatically
+   * @param deduplicator the deduplicator to record accepted messages in, or {@code null}
+   */
+  PubSubAcknowledgmentCallback(
+      AcknowledgeablePubsubMessage message,
+      AckMode ackMode,
+      PubSubMessageDeduplicator deduplicator) {
     Assert.notNull(message, "message to be acknowledged cannot be null");
     Assert.notNull(ackMode, "ackMode cannot be null");
     this.message = message;
     this.ackMode = ackMode;
+    this.deduplicator = deduplicator;
   }
 
   /**
@@ -62,6 +80,9 @@ public class PubSubAcknowledgmentCallback implements AcknowledgmentCallback {
   @Override
   public void acknowledge(Status status) {
     if (status == AcknowledgmentCallback.Status.ACCEPT) {
+      if (this.deduplicator != null) {
+        this.deduplicator.processed(this.message);
+      }
       this.message.ack();
     } else if (this.ackMode == AckMode.MANUAL || this.ackMode == AckMode.AUTO) {
       this.message.nack();
@@ -19,21 +19,42 @@ package com.google.cloud.spring.pubsub.integration.inbound;
 import com.google.cloud.pubsub.v1.Subscriber;
 import com.google.cloud.spring.pubsub.core.health.HealthTrackerRegistry;
 import com.google.cloud.spring.pubsub.core.subscriber.PubSubSubscriberOperations;
+import com.google.cloud.spring.pubsub.core.subscriber.SubscriberCustomizer;
 import com.google.cloud.spring.pubsub.integration.AckMode;
 import com.google.cloud.spring.pubsub.integration.PubSubHeaderMapper;
+import com.google.cloud.spring.pubsub.integration.PubSubMessageDeduplicator;
 import com.google.cloud.spring.pubsub.support.GcpPubSubHeaders;
 import com.google.cloud.spring.pubsub.support.converter.ConvertedBasicAcknowledgeablePubsubMessage;
 import com.google.pubsub.v1.ProjectSubscriptionName;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.integration.endpoint.MessageProducerSupport;
 import org.springframework.integration.mapping.HeaderMapper;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.util.Assert;
 
 /**
  * Converts from GCP Pub/Sub message to Spring message and sends the Spring message to the attached
  * channels.
+ *
+ * <p>In batch mode, the converted payloads are accumulated and sent as a single Spring message
+ * with a {@link List} payload once the maximum batch size is reached or the maximum batch delay
+ * has elapsed since the first message of the batch was received, whichever comes first. The
+ * messages of a batch are acknowledged as a unit according to the {@link AckMode}.
+ *
+ * <p>With ordering key lanes, the received messages are processed on single-threaded lanes picked
+ * by their ordering key instead of the subscriber thread that received them. Messages with
+ * different ordering keys are processed in parallel, while the messages of an ordering key are
+ * processed, and acknowledged, in order.
  */
 public class PubSubInboundChannelAdapter extends MessageProducerSupport {
 
@@ -53,6 +74,28 @@ public class PubSubInboundChannelAdapter extends MessageProducerSupport {
 
   private HealthTrackerRegistry healthTrackerRegistry;
 
+  private SubscriberCustomizer subscriberCustomizer;
+
+  private boolean batchMode;
+
+  private int maxBatchSize = 100;
+
+  private Duration maxBatchDelay = Duration.ofSeconds(1);
+
+  private final Object batchMonitor = new Object();
+
+  private List<ConvertedBasicAcknowledgeablePubsubMessage<?>> pendingBatch = new ArrayList<>();
+
+  private ScheduledFuture<?> batchFlushTask;
+
+  private boolean batchingStopped;
+
+  private int orderingKeyLanes;
+
+  private volatile ExecutorService[] laneExecutors;
+
+  private PubSubMessageDeduplicator deduplicator;
+
   /**
    * Instantiates a streaming Pub/Sub subscirtion adapter.
    *
@@ -110,15 +153,133 @@ public class PubSubInboundChannelAdapter extends MessageProducerSupport {
     this.headerMapper = headerMapper;
   }
 
+  public SubscriberCustomizer getSubscriberCustomizer() {
+    return this.subscriberCustomizer;
+  }
+
+  /**
+   * Set a customizer for the {@link Subscriber} created by the adapter, which takes precedence over
+   * the subscriber factory configuration. This allows configuring the flow control, executor or
+   * parallel pull count of a single adapter.
+   *
+   * @param subscriberCustomizer the subscriber customizer, or {@code null} for none
+   * @since 3.2
+   */
+  public void setSubscriberCustomizer(SubscriberCustomizer subscriberCustomizer) {
+    this.subscriberCustomizer = subscriberCustomizer;
+  }
+
+  public boolean isBatchMode() {
+    return this.batchMode;
+  }
+
+  /**
+   * Set whether to send the received messages downstream in batches, as Spring messages with a
+   * {@link List} payload. The {@link GcpPubSubHeaders#ORIGINAL_MESSAGES} header of a batch message
+   * holds the original messages, and its {@link GcpPubSubHeaders#BATCH_CONVERTED_HEADERS} header
+   * holds the mapped headers of each message, both in the order of the payloads. Disabled by
+   * default.
+   *
+   * @param batchMode whether to send messages in batches
+   * @since 3.2
+   */
+  public void setBatchMode(boolean batchMode) {
+    this.batchMode = batchMode;
+  }
+
+  public int getMaxBatchSize() {
+    return this.maxBatchSize;
+  }
+
+  /**
+   * Set the maximum number of messages in a batch. Defaults to 100. The subscriber flow control
+   * should allow at least this many outstanding messages, otherwise batches are only sent once the
+   * maximum batch delay elapsed.
+   *
+   * @param maxBatchSize the maximum batch size
+   * @since 3.2
+   */
+  public void setMaxBatchSize(int maxBatchSize) {
+    Assert.isTrue(maxBatchSize > 0, "The maximum batch size must be positive.");
+    this.maxBatchSize = maxBatchSize;
+  }
+
+  public Duration getMaxBatchDelay() {
+    return this.maxBatchDelay;
+  }
+
+  /**
+   * Set how long to wait for a batch to fill up after its first message was received, before it
+   * is sent anyway. Defaults to one second.
+   *
+   * @param maxBatchDelay the maximum batch delay
+   * @since 3.2
+   */
+  public void setMaxBatchDelay(Duration maxBatchDelay) {
+    Assert.notNull(maxBatchDelay, "The maximum batch delay can't be null.");
+    Assert.isTrue(
+        !maxBatchDelay.isNegative() && !maxBatchDelay.isZero(),
+        "The maximum batch delay must be positive.");
+    this.maxBatchDelay = maxBatchDelay;
+  }
+
+  public int getOrderingKeyLanes() {
+    return this.orderingKeyLanes;
+  }
+
+  /**
+   * Set the number of single-threaded lanes the received messages are processed on, picked by the
+   * hash of their ordering key, or of their message ID if they have none. Zero, the default,
+   * processes messages on the subscriber thread that received them. Ignored in batch mode.
+   *
+   * <p>Messages queued on a lane count towards the subscriber flow control limits until they are
+   * acked or nacked, which bounds the lane queues.
+   *
+   * @param orderingKeyLanes the number of lanes
+   * @since 3.2
+   */
+  public void setOrderingKeyLanes(int orderingKeyLanes) {
+    Assert.isTrue(orderingKeyLanes >= 0, "The number of ordering key lanes can't be negative.");
+    this.orderingKeyLanes = orderingKeyLanes;
+  }
+
+  public PubSubMessageDeduplicator getDeduplicator() {
+    return this.deduplicator;
+  }
+
+  /**
+   * Set the deduplicator that skips the redeliveries of messages that were already sent
+   * downstream. Duplicates are acked without being sent, whatever the acknowledgement mode.
+   *
+   * @param deduplicator the deduplicator, or {@code null} to send all messages
+   * @since 3.2
+   */
+  public void setDeduplicator(PubSubMessageDeduplicator deduplicator) {
+    this.deduplicator = deduplicator;
+  }
+
   @Override
   protected void doStart() {
     super.doStart();
 
     addToHealthRegistry();
+    startLanes();
+    synchronized (this.batchMonitor) {
+      this.batchingStopped = false;
+    }
 
-    this.subscriber =
-        this.pubSubSubscriberOperations.subscribeAndConvert(
-            this.subscriptionName, this::consumeMessage, this.payloadType);
+    if (this.subscriberCustomizer == null) {
+      this.subscriber =
+          this.pubSubSubscriberOperations.subscribeAndConvert(
+              this.subscriptionName, this::consumeMessage, this.payloadType);
+    } else {
+      this.subscriber =
+          this.pubSubSubscriberOperations.subscribeAndConvert(
+              this.subscriptionName,
+              this::consumeMessage,
+              this.payloadType,
+              this.subscriberCustomizer);
+    }
 
     addListeners();
   }
@@ -129,25 +290,91 @@ public class PubSubInboundChannelAdapter extends MessageProducerSupport {
       this.subscriber.stopAsync();
     }
 
+    // Messages of an unfinished batch were never sent downstream, so they are redelivered. Messages
+    // the subscriber delivers while stopping are nacked as well, rather than starting a batch that
+    // would be sent after the adapter stopped.
+    List<ConvertedBasicAcknowledgeablePubsubMessage<?>> unfinishedBatch;
+    synchronized (this.batchMonitor) {
+      this.batchingStopped = true;
+      unfinishedBatch = takeBatch(null);
+    }
+    unfinishedBatch.forEach(ConvertedBasicAcknowledgeablePubsubMessage::nack);
+
+    // Messages already queued on a lane are still processed. The shut down lanes are kept, so
+    // that messages the subscriber delivers while stopping are rejected and nacked, instead of
+    // being processed inline concurrently with the queued messages of their ordering key.
+    ExecutorService[] lanes = this.laneExecutors;
+    if (lanes != null) {
+      for (ExecutorService lane : lanes) {
+        lane.shutdown();
+      }
+    }
+
     super.doStop();
   }
 
+  private void startLanes() {
+    if (this.batchMode || this.orderingKeyLanes == 0) {
+      this.laneExecutors = null;
+      return;
+    }
+    CustomizableThreadFactory threadFactory =
+        new CustomizableThreadFactory("gcp-pubsub-lane-" + this.subscriptionName + "-");
+    threadFactory.setDaemon(true);
+    ExecutorService[] lanes = new ExecutorService[this.orderingKeyLanes];
+    for (int i = 0; i < lanes.length; i++) {
+      lanes[i] = Executors.newSingleThreadExecutor(threadFactory);
+    }
+    this.laneExecutors = lanes;
+  }
+
   private void consumeMessage(ConvertedBasicAcknowledgeablePubsubMessage<?> message) {
+    if (this.deduplicator != null && this.deduplicator.isDuplicate(message)) {
+      message.ack();
+      return;
+    }
+
+    if (this.batchMode) {
+      addToBatch(message);
+      return;
+    }
+
+    ExecutorService[] lanes = this.laneExecutors;
+    if (lanes == null) {
+      // Lanes are disabled, so messages are processed on the subscriber thread.
+      processMessage(message);
+      return;
+    }
+
+    String orderingKey = message.getPubsubMessage().getOrderingKey();
+    String laneKey =
+        orderingKey.isEmpty() ? message.getPubsubMessage().getMessageId() : orderingKey;
+    try {
+      lanes[Math.floorMod(laneKey.hashCode(), lanes.length)].execute(() -> processMessage(message));
+    } catch (RejectedExecutionException ex) {
+      // The adapter is stopping, so let the message be redelivered.
+      message.nack();
+    }
+  }
+
+  private void processMessage(ConvertedBasicAcknowledgeablePubsubMessage<?> message) {
     Map<String, Object> messageHeaders =
         this.headerMapper.toHeaders(message.getPubsubMessage().getAttributesMap());
 
-    // Send the original message downstream so that the user can decide on when to
-    // ack/nack, or just have access to the original message for any other reason.
-    messageHeaders.put(GcpPubSubHeaders.ORIGINAL_MESSAGE, message);
-
     try {
+      // Send the original message downstream so that the user can decide on when to
+      // ack/nack, or just have access to the original message for any other reason.
       sendMessage(
           getMessageBuilderFactory()
               .withPayload(message.getPayload())
               .copyHeaders(messageHeaders)
+              .setHeader(GcpPubSubHeaders.ORIGINAL_MESSAGE, message)
               .build());
 
       processedMessage(message.getProjectSubscriptionName());
+      if (this.deduplicator != null) {
+        this.deduplicator.processed(message);
+      }
 
       if (this.ackMode == AckMode.AUTO_ACK || this.ackMode == AckMode.AUTO) {
         message.ack();
@@ -170,6 +397,97 @@ public class PubSubInboundChannelAdapter extends MessageProducerSupport {
     }
   }
 
+  private void addToBatch(ConvertedBasicAcknowledgeablePubsubMessage<?> message) {
+    List<ConvertedBasicAcknowledgeablePubsubMessage<?>> batch = null;
+    synchronized (this.batchMonitor) {
+      if (this.batchingStopped) {
+        message.nack();
+        return;
+      }
+      this.pendingBatch.add(message);
+      if (this.pendingBatch.size() >= this.maxBatchSize) {
+        batch = takeBatch(null);
+      } else if (this.pendingBatch.size() == 1) {
+        List<ConvertedBasicAcknowledgeablePubsubMessage<?>> scheduledBatch = this.pendingBatch;
+        this.batchFlushTask =
+            getTaskScheduler()
+                .schedule(
+                    () -> sendBatch(takeBatch(scheduledBatch)),
+                    Instant.now().plus(this.maxBatchDelay));
+      }
+    }
+    if (batch != null) {
+      sendBatch(batch);
+    }
+  }
+
+  /**
+   * Takes the pending batch and starts a new one.
+   *
+   * @param expectedBatch the batch to take, or {@code null} to take any pending batch
+   * @return the taken batch, which is empty if the expected batch is no longer pending
+   */
+  private List<ConvertedBasicAcknowledgeablePubsubMessage<?>> takeBatch(
+      List<ConvertedBasicAcknowledgeablePubsubMessage<?>> expectedBatch) {
+    synchronized (this.batchMonitor) {
+      List<ConvertedBasicAcknowledgeablePubsubMessage<?>> batch = this.pendingBatch;
+      if (batch.isEmpty() || (expectedBatch != null && batch != expectedBatch)) {
+        return new ArrayList<>();
+      }
+      if (this.batchFlushTask != null) {
+        this.batchFlushTask.cancel(false);
+        this.batchFlushTask = null;
+      }
+      this.pendingBatch = new ArrayList<>();
+      return batch;
+    }
+  }
+
+  private void sendBatch(List<ConvertedBasicAcknowledgeablePubsubMessage<?>> batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    List<Object> payloads = new ArrayList<>(batch.size());
+    List<Map<String, Object>> batchHeaders = new ArrayList<>(batch.size());
+    for (ConvertedBasicAcknowledgeablePubsubMessage<?> message : batch) {
+      payloads.add(message.getPayload());
+      batchHeaders.add(this.headerMapper.toHeaders(message.getPubsubMessage().getAttributesMap()));
+    }
+
+    try {
+      sendMessage(
+          getMessageBuilderFactory()
+              .withPayload(payloads)
+              .setHeader(GcpPubSubHeaders.ORIGINAL_MESSAGES, batch)
+              .setHeader(GcpPubSubHeaders.BATCH_CONVERTED_HEADERS, batchHeaders)
+              .build());
+
+      processedMessage(batch.get(0).getProjectSubscriptionName());
+      if (this.deduplicator != null) {
+        batch.forEach(this.deduplicator::processed);
+      }
+
+      if (this.ackMode == AckMode.AUTO_ACK || this.ackMode == AckMode.AUTO) {
+        batch.forEach(ConvertedBasicAcknowledgeablePubsubMessage::ack);
+      }
+    } catch (RuntimeException re) {
+      if (this.ackMode == AckMode.AUTO) {
+        batch.forEach(ConvertedBasicAcknowledgeablePubsubMessage::nack);
+        LOGGER.warn(
+            "Sending Spring message with a batch of "
+                + batch.size()
+                + " messages failed; messages nacked automatically.",
+            re);
+      } else {
+        LOGGER.warn(
+            "Sending Spring message with a batch of "
+                + batch.size()
+                + " messages failed; messages neither acked nor nacked.",
+            re);
+      }
+    }
+  }
+
   private void addToHealthRegistry() {
     if (healthCheckEnabled()) {
       healthTrackerRegistry.registerTracker(subscriptionName);
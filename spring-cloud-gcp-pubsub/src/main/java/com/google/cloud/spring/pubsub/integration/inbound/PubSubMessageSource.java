@@ -16,14 +16,20 @@
 
 package com.google.cloud.spring.pubsub.integration.inbound;
 
+import com.google.cloud.spring.pubsub.core.PubSubException;
 import com.google.cloud.spring.pubsub.core.subscriber.PubSubSubscriberOperations;
 import com.google.cloud.spring.pubsub.integration.AckMode;
 import com.google.cloud.spring.pubsub.integration.PubSubHeaderMapper;
+import com.google.cloud.spring.pubsub.integration.PubSubMessageDeduplicator;
 import com.google.cloud.spring.pubsub.support.GcpPubSubHeaders;
 import com.google.cloud.spring.pubsub.support.converter.ConvertedAcknowledgeablePubsubMessage;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.context.Lifecycle;
 import org.springframework.integration.IntegrationMessageHeaderAccessor;
 import org.springframework.integration.endpoint.AbstractFetchLimitingMessageSource;
 import org.springframework.integration.endpoint.AbstractMessageSource;
@@ -36,9 +42,19 @@ import org.springframework.util.Assert;
  * A <a href="https://cloud.google.com/pubsub/docs/pull#pubsub-pull-messages-sync-java">PubSub
  * Synchronous pull</a> implementation of {@link AbstractMessageSource}.
  *
+ * <p>By default, a pull request is only sent once all the messages from the previous one have been
+ * received, so every batch costs the poller a full round trip. Prefetching can be enabled with
+ * {@link #setPrefetchConcurrentPulls(int)} to keep asynchronous pull requests in flight and serve
+ * polled messages from a bounded buffer instead. Stopping the source nacks the buffered messages,
+ * as well as the messages of the pull requests still in flight, so that they are redelivered
+ * right away instead of once their ack deadline expires.
+ *
  * @since 1.2
  */
-public class PubSubMessageSource extends AbstractFetchLimitingMessageSource<Object> {
+public class PubSubMessageSource extends AbstractFetchLimitingMessageSource<Object>
+    implements Lifecycle {
+
+  private static final Log LOGGER = LogFactory.getLog(PubSubMessageSource.class);
 
   private final String subscriptionName;
 
@@ -55,6 +71,25 @@ public class PubSubMessageSource extends AbstractFetchLimitingMessageSource<Obje
   private final ArrayDeque<ConvertedAcknowledgeablePubsubMessage<?>> cachedMessages =
       new ArrayDeque<>();
 
+  private int prefetchConcurrentPulls;
+
+  private int prefetchLowWatermark;
+
+  private int prefetchHighWatermark;
+
+  /** Guards the cached messages and the prefetch state when prefetching is enabled. */
+  private final Object prefetchMonitor = new Object();
+
+  private int pullsInFlight;
+
+  private boolean refilling = true;
+
+  private Throwable prefetchFailure;
+
+  private boolean stopped;
+
+  private PubSubMessageDeduplicator deduplicator;
+
   /**
    * Instantiates a Pub/Sub inbound message adapter to poll a given subscription for messages.
    *
@@ -93,6 +128,68 @@ public class PubSubMessageSource extends AbstractFetchLimitingMessageSource<Obje
     this.blockOnPull = blockOnPull;
   }
 
+  /**
+   * Enables prefetching by keeping up to the given number of asynchronous pull requests in flight,
+   * each for {@code fetchSize} messages. Received messages are buffered and served from memory
+   * while the next batches are being pulled. Buffered messages are not acknowledged until they are
+   * polled and processed, so their ack deadline keeps running while they wait in the buffer.
+   *
+   * @param prefetchConcurrentPulls the maximum number of pull requests in flight, or 0 to disable
+   *     prefetching (the default)
+   * @since 3.2
+   */
+  public void setPrefetchConcurrentPulls(int prefetchConcurrentPulls) {
+    Assert.isTrue(
+        prefetchConcurrentPulls >= 0, "The prefetchConcurrentPulls can't be negative.");
+    this.prefetchConcurrentPulls = prefetchConcurrentPulls;
+  }
+
+  public int getPrefetchConcurrentPulls() {
+    return this.prefetchConcurrentPulls;
+  }
+
+  /**
+   * Sets the bounds of the prefetch buffer. New pull requests are sent once the number of buffered
+   * messages drops to the low watermark, until the buffered and requested messages reach the high
+   * watermark. By default, the low watermark is {@code prefetchConcurrentPulls * fetchSize} and the
+   * high watermark twice that.
+   *
+   * @param lowWatermark the number of buffered messages at or below which prefetching resumes
+   * @param highWatermark the number of buffered and requested messages at which prefetching pauses
+   * @since 3.2
+   */
+  public void setPrefetchWatermarks(int lowWatermark, int highWatermark) {
+    Assert.isTrue(lowWatermark >= 0, "The lowWatermark can't be negative.");
+    Assert.isTrue(
+        highWatermark > lowWatermark, "The highWatermark must be greater than the lowWatermark.");
+    this.prefetchLowWatermark = lowWatermark;
+    this.prefetchHighWatermark = highWatermark;
+  }
+
+  public int getPrefetchLowWatermark() {
+    return this.prefetchLowWatermark;
+  }
+
+  public int getPrefetchHighWatermark() {
+    return this.prefetchHighWatermark;
+  }
+
+  public PubSubMessageDeduplicator getDeduplicator() {
+    return this.deduplicator;
+  }
+
+  /**
+   * Sets the deduplicator that skips the redeliveries of messages that were already processed.
+   * Duplicates are acked without being returned, whatever the acknowledgement mode. Messages are
+   * recorded as processed when they are accepted through their acknowledgment callback.
+   *
+   * @param deduplicator the deduplicator, or {@code null} to return all messages
+   * @since 3.2
+   */
+  public void setDeduplicator(PubSubMessageDeduplicator deduplicator) {
+    this.deduplicator = deduplicator;
+  }
+
   /**
    * Provides a single polled message.
    *
@@ -104,6 +201,19 @@ public class PubSubMessageSource extends AbstractFetchLimitingMessageSource<Obje
    */
   @Override
   protected Object doReceive(int fetchSize) {
+    ConvertedAcknowledgeablePubsubMessage<?> message = receiveMessage(fetchSize);
+    while (message != null && this.deduplicator != null && this.deduplicator.isDuplicate(message)) {
+      message.ack();
+      message = receiveMessage(fetchSize);
+    }
+    return processMessage(message);
+  }
+
+  private ConvertedAcknowledgeablePubsubMessage<?> receiveMessage(int fetchSize) {
+    if (this.prefetchConcurrentPulls > 0) {
+      return receivePrefetched((fetchSize > 0) ? fetchSize : 1);
+    }
+
     if (this.cachedMessages.isEmpty()) {
       Integer maxMessages = (fetchSize > 0) ? fetchSize : 1;
 
@@ -114,13 +224,138 @@ public class PubSubMessageSource extends AbstractFetchLimitingMessageSource<Obje
         return null;
       } else if (messages.size() == 1) {
         // don't bother storing.
-        return processMessage(messages.get(0));
+        return messages.get(0);
       } else {
         this.cachedMessages.addAll(messages);
       }
     }
 
-    return processMessage(this.cachedMessages.pollFirst());
+    return this.cachedMessages.pollFirst();
+  }
+
+  private ConvertedAcknowledgeablePubsubMessage<?> receivePrefetched(int maxMessages) {
+    ConvertedAcknowledgeablePubsubMessage<?> message;
+    synchronized (this.prefetchMonitor) {
+      prefetch(maxMessages);
+
+      if (this.blockOnPull) {
+        while (this.cachedMessages.isEmpty()
+            && this.pullsInFlight > 0
+            && this.prefetchFailure == null
+            && !this.stopped) {
+          try {
+            this.prefetchMonitor.wait();
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return null;
+          }
+        }
+      }
+
+      message = this.cachedMessages.pollFirst();
+      if (message == null && this.prefetchFailure != null) {
+        Throwable failure = this.prefetchFailure;
+        this.prefetchFailure = null;
+        if (failure instanceof RuntimeException) {
+          throw (RuntimeException) failure;
+        }
+        throw new PubSubException(
+            "Failed to pull messages from subscription " + this.subscriptionName, failure);
+      }
+
+      prefetch(maxMessages);
+    }
+
+    return message;
+  }
+
+  /**
+   * Sends asynchronous pull requests while the buffer is being refilled. Must be called while
+   * holding the prefetch monitor.
+   */
+  private void prefetch(int maxMessages) {
+    if (this.stopped) {
+      return;
+    }
+    int lowWatermark =
+        (this.prefetchHighWatermark > 0)
+            ? this.prefetchLowWatermark
+            : this.prefetchConcurrentPulls * maxMessages;
+    int highWatermark =
+        (this.prefetchHighWatermark > 0) ? this.prefetchHighWatermark : 2 * lowWatermark;
+
+    if (this.cachedMessages.size() <= lowWatermark) {
+      this.refilling = true;
+    }
+
+    // Responses may complete synchronously, so the number of new requests is fixed up front.
+    int availableSlots = this.prefetchConcurrentPulls - this.pullsInFlight;
+    for (int i = 0; i < availableSlots && this.refilling && this.prefetchFailure == null; i++) {
+      if (this.cachedMessages.size() + (long) this.pullsInFlight * maxMessages >= highWatermark) {
+        this.refilling = false;
+        break;
+      }
+      this.pullsInFlight++;
+      this.pubSubSubscriberOperations
+          .pullAndConvertAsync(
+              this.subscriptionName, maxMessages, !this.blockOnPull, this.payloadType)
+          .addCallback(
+              messages -> onPrefetched(messages, null, maxMessages),
+              failure -> onPrefetched(null, failure, maxMessages));
+    }
+  }
+
+  private void onPrefetched(
+      List<? extends ConvertedAcknowledgeablePubsubMessage<?>> messages,
+      Throwable failure,
+      int maxMessages) {
+    synchronized (this.prefetchMonitor) {
+      this.pullsInFlight--;
+      if (this.stopped) {
+        if (messages != null && !messages.isEmpty()) {
+          this.pubSubSubscriberOperations.nack(messages);
+        }
+      } else if (failure != null) {
+        LOGGER.warn("Failed to prefetch messages from " + this.subscriptionName, failure);
+        this.prefetchFailure = failure;
+      } else if (messages != null && !messages.isEmpty()) {
+        this.cachedMessages.addAll(messages);
+        // Keep the pipeline full between polls; empty responses wait for the next poll instead.
+        prefetch(maxMessages);
+      }
+      this.prefetchMonitor.notifyAll();
+    }
+  }
+
+  @Override
+  public void start() {
+    synchronized (this.prefetchMonitor) {
+      this.stopped = false;
+      this.refilling = true;
+    }
+  }
+
+  /** Nacks the prefetched messages that weren't polled yet. */
+  @Override
+  public void stop() {
+    List<ConvertedAcknowledgeablePubsubMessage<?>> bufferedMessages;
+    synchronized (this.prefetchMonitor) {
+      this.stopped = true;
+      this.prefetchMonitor.notifyAll();
+      if (this.prefetchConcurrentPulls == 0 || this.cachedMessages.isEmpty()) {
+        return;
+      }
+      bufferedMessages = new ArrayList<>(this.cachedMessages);
+      this.cachedMessages.clear();
+    }
+    this.pubSubSubscriberOperations.nack(bufferedMessages);
+  }
+
+  @Override
+  public boolean isRunning() {
+    synchronized (this.prefetchMonitor) {
+      return !this.stopped;
+    }
   }
 
   @Override
@@ -146,11 +381,12 @@ public class PubSubMessageSource extends AbstractFetchLimitingMessageSource<Obje
     Map<String, Object> messageHeaders =
         this.headerMapper.toHeaders(message.getPubsubMessage().getAttributesMap());
 
-    messageHeaders.put(GcpPubSubHeaders.ORIGINAL_MESSAGE, message);
-    messageHeaders.put(
-        IntegrationMessageHeaderAccessor.ACKNOWLEDGMENT_CALLBACK,
-        new PubSubAcknowledgmentCallback(message, this.ackMode));
-
-    return getMessageBuilderFactory().withPayload(message.getPayload()).copyHeaders(messageHeaders);
+    return getMessageBuilderFactory()
+        .withPayload(message.getPayload())
+        .copyHeaders(messageHeaders)
+        .setHeader(GcpPubSubHeaders.ORIGINAL_MESSAGE, message)
+        .setHeader(
+            IntegrationMessageHeaderAccessor.ACKNOWLEDGMENT_CALLBACK,
+            new PubSubAcknowledgmentCallback(message, this.ackMode, this.deduplicator));
   }
 }
@@ -22,6 +22,7 @@ import com.google.cloud.spring.pubsub.support.GcpPubSubHeaders;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import org.springframework.expression.EvaluationContext;
@@ -35,6 +36,7 @@ import org.springframework.integration.mapping.HeaderMapper;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.MessageHandlingException;
 import org.springframework.util.Assert;
+import org.springframework.util.StringUtils;
 import org.springframework.util.concurrent.ListenableFuture;
 import org.springframework.util.concurrent.ListenableFutureCallback;
 
@@ -52,8 +54,14 @@ public class PubSubMessageHandler extends AbstractMessageHandler {
 
   private Expression topicExpression;
 
+  private Expression orderingKeyExpression;
+
   private boolean sync;
 
+  private int maxInFlight;
+
+  private Semaphore inFlightPermits;
+
   private EvaluationContext evaluationContext;
 
   private Expression publishTimeoutExpression = new ValueExpression<>(DEFAULT_PUBLISH_TIMEOUT);
@@ -94,13 +102,48 @@ public class PubSubMessageHandler extends AbstractMessageHandler {
     this.sync = sync;
   }
 
+  public int getMaxInFlight() {
+    return this.maxInFlight;
+  }
+
+  /**
+   * Set the maximum number of messages published by this handler whose publish future is not
+   * completed yet. Once the window is full, the calling thread blocks until a publish completes,
+   * at most for the publish timeout, after which a {@link MessageTimeoutException} is thrown. The
+   * outcome of each publish is still reported to the success and failure callbacks.
+   *
+   * <p>The number of in-flight messages is unbounded by default. This setting is meant to be
+   * applied before the handler starts handling messages.
+   *
+   * @param maxInFlight the maximum number of in-flight messages, or 0 for no limit
+   * @since 3.2
+   */
+  public void setMaxInFlight(int maxInFlight) {
+    Assert.isTrue(maxInFlight >= 0, "The maximum number of in-flight messages can't be negative.");
+    this.maxInFlight = maxInFlight;
+    this.inFlightPermits = maxInFlight > 0 ? new Semaphore(maxInFlight) : null;
+  }
+
+  /**
+   * Returns the number of messages published by this handler whose publish future is not
+   * completed yet, if the number of in-flight messages is bounded.
+   *
+   * @return the number of in-flight messages, or 0 if the number is unbounded
+   * @since 3.2
+   */
+  public int getInFlightCount() {
+    Semaphore permits = this.inFlightPermits;
+    return permits != null ? this.maxInFlight - permits.availablePermits() : 0;
+  }
+
   public Expression getPublishTimeoutExpression() {
     return this.publishTimeoutExpression;
   }
 
   /**
    * Set the SpEL expression to evaluate a timeout in milliseconds for a synchronous publish call to
-   * Google Cloud Pub/Sub.
+   * Google Cloud Pub/Sub, which also bounds the wait for a free slot when the number of in-flight
+   * messages is bounded.
    *
    * @param publishTimeoutExpression the {@link Expression} for the publish timeout in milliseconds
    */
@@ -198,6 +241,33 @@ public class PubSubMessageHandler extends AbstractMessageHandler {
     this.topicExpression = EXPRESSION_PARSER.parseExpression(topicExpressionString);
   }
 
+  public Expression getOrderingKeyExpression() {
+    return this.orderingKeyExpression;
+  }
+
+  /**
+   * Set the SpEL expression for the ordering key of the published messages. The expression is
+   * only evaluated for messages without a {@link GcpPubSubHeaders#ORDERING_KEY} header, and a
+   * {@code null} or empty result publishes the message without an ordering key. Publishing
+   * messages with an ordering key requires message ordering to be enabled on the publisher.
+   *
+   * @param orderingKeyExpression the SpEL expression representing the ordering key
+   * @since 3.2
+   */
+  public void setOrderingKeyExpression(Expression orderingKeyExpression) {
+    this.orderingKeyExpression = orderingKeyExpression;
+  }
+
+  /**
+   * Set the ordering key expression string that is evaluated into an actual expression.
+   *
+   * @param orderingKeyExpressionString ordering key expression string
+   * @since 3.2
+   */
+  public void setOrderingKeyExpressionString(String orderingKeyExpressionString) {
+    this.orderingKeyExpression = EXPRESSION_PARSER.parseExpression(orderingKeyExpressionString);
+  }
+
   /**
    * Set the header mapper to map headers from {@link Message} into outbound {@link
    * com.google.pubsub.v1.PubsubMessage}.
@@ -216,9 +286,32 @@ public class PubSubMessageHandler extends AbstractMessageHandler {
 
     Map<String, String> headers = new HashMap<>();
     this.headerMapper.fromHeaders(message.getHeaders(), headers);
+    if (this.orderingKeyExpression != null && !headers.containsKey(GcpPubSubHeaders.ORDERING_KEY)) {
+      String orderingKey =
+          this.orderingKeyExpression.getValue(this.evaluationContext, message, String.class);
+      if (StringUtils.hasLength(orderingKey)) {
+        headers.put(GcpPubSubHeaders.ORDERING_KEY, orderingKey);
+      }
+    }
+
+    Semaphore permits = this.inFlightPermits;
+    if (permits != null) {
+      acquireInFlightPermit(permits, message);
+    }
 
-    ListenableFuture<String> pubsubFuture =
-        this.pubSubPublisherOperations.publish(topic, payload, headers);
+    ListenableFuture<String> pubsubFuture;
+    try {
+      pubsubFuture = this.pubSubPublisherOperations.publish(topic, payload, headers);
+    } catch (RuntimeException ex) {
+      if (permits != null) {
+        permits.release();
+      }
+      throw ex;
+    }
+
+    if (permits != null) {
+      pubsubFuture.addCallback(messageId -> permits.release(), throwable -> permits.release());
+    }
 
     if (this.publishCallback != null) {
       pubsubFuture.addCallback(this.publishCallback);
@@ -255,6 +348,22 @@ public class PubSubMessageHandler extends AbstractMessageHandler {
     return this.topicExpression.getValue(this.evaluationContext, message, String.class);
   }
 
+  private void acquireInFlightPermit(Semaphore permits, Message<?> message) {
+    Long timeout =
+        this.publishTimeoutExpression.getValue(this.evaluationContext, message, Long.class);
+    try {
+      if (timeout == null || timeout < 0) {
+        permits.acquire();
+      } else if (!permits.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+        throw new MessageTimeoutException(
+            message, "Timeout waiting for an in-flight Pub/Sub publish to complete");
+      }
+    } catch (InterruptedException ie) {
+      Thread.currentThread().interrupt();
+      throw new MessageHandlingException(message, ie);
+    }
+  }
+
   private void blockOnPublishFuture(
       ListenableFuture<String> pubsubFuture, Message<?> message, Long timeout) {
     try {
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2022-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.reactive;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.cloud.spring.pubsub.core.PubSubDeliveryException;
+import com.google.cloud.spring.pubsub.support.PublisherFactory;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.pubsub.v1.PubsubMessage;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.FluxSink;
+
+/**
+ * Publishes the messages of an upstream {@code Flux} and emits their message IDs in order to a
+ * {@link FluxSink}.
+ *
+ * <p>Messages are requested from upstream one at a time, and only while the messages that were
+ * published but whose ID was not yet emitted stay below the element count and request byte
+ * limits. A message is released from these limits once its ID was emitted, so a slow downstream
+ * slows down publishing as well. The first message that fails to be published terminates the
+ * stream with a {@link PubSubDeliveryException}.
+ *
+ * @since 3.2
+ */
+final class FlowControlledPublishSubscriber extends BaseSubscriber<PubsubMessage> {
+
+  private final String topic;
+
+  private final PublisherFactory publisherFactory;
+
+  private final FluxSink<String> sink;
+
+  private final long maxOutstandingElementCount;
+
+  private final long maxOutstandingRequestBytes;
+
+  /** Published messages whose ID was not emitted yet, in upstream order. */
+  private final Deque<PendingMessage> pendingMessages = new ArrayDeque<>();
+
+  private long outstandingRequestBytes;
+
+  private boolean upstreamRequested;
+
+  private boolean upstreamDone;
+
+  private Throwable upstreamError;
+
+  private boolean terminated;
+
+  private boolean draining;
+
+  private boolean missedDrain;
+
+  FlowControlledPublishSubscriber(
+      String topic,
+      PublisherFactory publisherFactory,
+      FluxSink<String> sink,
+      long maxOutstandingElementCount,
+      long maxOutstandingRequestBytes) {
+    this.topic = topic;
+    this.publisherFactory = publisherFactory;
+    this.sink = sink;
+    this.maxOutstandingElementCount = maxOutstandingElementCount;
+    this.maxOutstandingRequestBytes = maxOutstandingRequestBytes;
+    sink.onRequest(ignored -> drain());
+    sink.onDispose(this);
+  }
+
+  @Override
+  protected void hookOnSubscribe(Subscription subscription) {
+    drain();
+  }
+
+  @Override
+  protected void hookOnNext(PubsubMessage message) {
+    PendingMessage pendingMessage = new PendingMessage(message);
+    synchronized (this) {
+      this.upstreamRequested = false;
+      this.pendingMessages.add(pendingMessage);
+      this.outstandingRequestBytes += pendingMessage.requestBytes;
+    }
+
+    ApiFuture<String> publishFuture;
+    try {
+      // The publisher is looked up for each message, since a caching factory can evict and shut
+      // down the publisher of the topic while the stream is running.
+      publishFuture = this.publisherFactory.createPublisher(this.topic).publish(message);
+    } catch (RuntimeException ex) {
+      pendingMessage.complete(null, ex);
+      drain();
+      return;
+    }
+    ApiFutures.addCallback(
+        publishFuture,
+        new ApiFutureCallback<String>() {
+          @Override
+          public void onFailure(Throwable throwable) {
+            pendingMessage.complete(null, throwable);
+            drain();
+          }
+
+          @Override
+          public void onSuccess(String messageId) {
+            pendingMessage.complete(messageId, null);
+            drain();
+          }
+        },
+        MoreExecutors.directExecutor());
+    drain();
+  }
+
+  @Override
+  protected void hookOnComplete() {
+    synchronized (this) {
+      this.upstreamDone = true;
+    }
+    drain();
+  }
+
+  @Override
+  protected void hookOnError(Throwable throwable) {
+    synchronized (this) {
+      this.upstreamDone = true;
+      this.upstreamError = throwable;
+    }
+    drain();
+  }
+
+  /**
+   * Emits the IDs of the published messages at the head of the queue as far as downstream demand
+   * allows, terminates the sink if needed and requests another message if the limits allow.
+   * Reentrant calls, from the sink or from upstream, are folded into the running one.
+   */
+  private void drain() {
+    synchronized (this) {
+      if (this.draining) {
+        this.missedDrain = true;
+        return;
+      }
+      this.draining = true;
+    }
+
+    while (true) {
+      PendingMessage head;
+      boolean requestUpstream = false;
+      synchronized (this) {
+        if (this.terminated) {
+          this.draining = false;
+          return;
+        }
+        head = this.pendingMessages.peek();
+        if (head != null
+            && head.done
+            && (head.error != null || this.sink.requestedFromDownstream() > 0)) {
+          this.pendingMessages.poll();
+          this.outstandingRequestBytes -= head.requestBytes;
+          this.terminated = head.error != null;
+        } else {
+          head = null;
+          if (this.pendingMessages.isEmpty() && this.upstreamDone) {
+            this.terminated = true;
+          } else if (!this.upstreamRequested
+              && !this.upstreamDone
+              && upstream() != null
+              && this.pendingMessages.size() < this.maxOutstandingElementCount
+              && this.outstandingRequestBytes < this.maxOutstandingRequestBytes) {
+            this.upstreamRequested = true;
+            requestUpstream = true;
+          } else if (!this.missedDrain) {
+            this.draining = false;
+            return;
+          }
+          this.missedDrain = false;
+        }
+      }
+
+      if (head != null) {
+        if (head.error != null) {
+          fail(head);
+        } else {
+          this.sink.next(head.messageId);
+        }
+      } else if (requestUpstream) {
+        request(1);
+      } else if (isTerminated()) {
+        if (this.upstreamError != null) {
+          this.sink.error(this.upstreamError);
+        } else {
+          this.sink.complete();
+        }
+      }
+    }
+  }
+
+  private synchronized boolean isTerminated() {
+    return this.terminated;
+  }
+
+  private void fail(PendingMessage failed) {
+    cancel();
+    String orderingKey = failed.message.getOrderingKey();
+    if (!orderingKey.isEmpty()) {
+      // Messages with the same ordering key are rejected until publishing is resumed.
+      this.publisherFactory.createPublisher(this.topic).resumePublish(orderingKey);
+    }
+    this.sink.error(
+        new PubSubDeliveryException(
+            failed.message, "Publishing to " + this.topic + " topic failed.", failed.error));
+  }
+
+  private static final class PendingMessage {
+
+    private final PubsubMessage message;
+
+    private final long requestBytes;
+
+    private volatile boolean done;
+
+    private String messageId;
+
+    private Throwable error;
+
+    PendingMessage(PubsubMessage message) {
+      this.message = message;
+      this.requestBytes = message.getSerializedSize();
+    }
+
+    /** The volatile write publishes the result to the draining thread. */
+    void complete(String messageId, Throwable error) {
+      this.messageId = messageId;
+      this.error = error;
+      this.done = true;
+    }
+  }
+}
@@ -16,18 +16,34 @@
 
 package com.google.cloud.spring.pubsub.reactive;
 
+import com.google.api.core.ApiService;
+import com.google.api.gax.batching.FlowControlSettings;
 import com.google.api.gax.rpc.DeadlineExceededException;
+import com.google.cloud.pubsub.v1.Publisher;
+import com.google.cloud.pubsub.v1.Subscriber;
+import com.google.cloud.spring.pubsub.core.PubSubDeliveryException;
+import com.google.cloud.spring.pubsub.core.publisher.PubSubPublisherTemplate;
+import com.google.cloud.spring.pubsub.core.publisher.PublishAllResult;
 import com.google.cloud.spring.pubsub.core.subscriber.PubSubSubscriberOperations;
 import com.google.cloud.spring.pubsub.support.AcknowledgeablePubsubMessage;
+import com.google.cloud.spring.pubsub.support.BasicAcknowledgeablePubsubMessage;
+import com.google.cloud.spring.pubsub.support.PublisherFactory;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.pubsub.v1.PubsubMessage;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.util.Assert;
+import org.springframework.util.concurrent.ListenableFuture;
 import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.FluxSink.OverflowStrategy;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Scheduler;
 
@@ -38,18 +54,28 @@ import reactor.core.scheduler.Scheduler;
  * subscription, when the demand is unlimited. The scheduler is not used when there is a specific
  * demand (a.k.a backpressure).
  *
+ * <p>Publishing through the factory requires a {@link PubSubPublisherTemplate} to be set.
+ *
  * @since 1.2
  */
 public final class PubSubReactiveFactory {
 
   private static final Log LOGGER = LogFactory.getLog(PubSubReactiveFactory.class);
 
+  /**
+   * The maximum number of messages {@link #publish} keeps outstanding when the publisher of the
+   * topic has no element count flow control limit.
+   */
+  static final long DEFAULT_MAX_OUTSTANDING_PUBLISHED_MESSAGES = 1000L;
+
   private final PubSubSubscriberOperations subscriberOperations;
 
   private final Scheduler scheduler;
 
   private final int maxMessages;
 
+  private PubSubPublisherTemplate publisherTemplate;
+
   /**
    * Instantiate `PubSubReactiveFactory` capable of generating subscription-based streams.
    *
@@ -83,6 +109,17 @@ public final class PubSubReactiveFactory {
     this.maxMessages = maxMessages;
   }
 
+  /**
+   * Set the template used to convert and publish messages.
+   *
+   * @param publisherTemplate template for interacting with GCP Pub/Sub publisher operations.
+   * @since 3.2
+   */
+  public void setPublisherTemplate(PubSubPublisherTemplate publisherTemplate) {
+    Assert.notNull(publisherTemplate, "publisherTemplate cannot be null.");
+    this.publisherTemplate = publisherTemplate;
+  }
+
   /**
    * Create an infinite stream {@link Flux} of {@link AcknowledgeablePubsubMessage} objects.
    *
@@ -107,41 +144,127 @@ public final class PubSubReactiveFactory {
    * @return infinite stream of {@link AcknowledgeablePubsubMessage} objects.
    */
   public Flux<AcknowledgeablePubsubMessage> poll(String subscriptionName, long pollingPeriodMs) {
+    return poll(
+        subscriptionName,
+        (max, returnImmediately) ->
+            this.subscriberOperations.pullAsync(subscriptionName, max, returnImmediately),
+        pollingPeriodMs);
+  }
+
+  /**
+   * Create an infinite stream {@link Flux} of {@link AcknowledgeablePubsubMessage} objects merged
+   * from several subscriptions.
+   *
+   * <p>Behaves like {@link #poll(String, long)}, except that each pull is spread round-robin over
+   * the subscriptions with {@link PubSubSubscriberOperations#pullFromSubscriptionsAsync}, so the
+   * demand and the {@code maxMessages} are shared by all the subscriptions.
+   *
+   * @param subscriptionNames subscriptions from which to retrieve messages.
+   * @param pollingPeriodMs how frequently to poll the source subscriptions in case of unlimited
+   *     demand, in milliseconds.
+   * @return infinite stream of {@link AcknowledgeablePubsubMessage} objects.
+   * @since 3.2
+   */
+  public Flux<AcknowledgeablePubsubMessage> poll(
+      Collection<String> subscriptionNames, long pollingPeriodMs) {
+    Assert.notEmpty(subscriptionNames, "subscriptionNames cannot be null or empty.");
+    List<String> subscriptions = new ArrayList<>(subscriptionNames);
+    return poll(
+        subscriptions.toString(),
+        (max, returnImmediately) ->
+            this.subscriberOperations.pullFromSubscriptionsAsync(
+                subscriptions, max, returnImmediately),
+        pollingPeriodMs);
+  }
+
+  private Flux<AcknowledgeablePubsubMessage> poll(
+      String subscriptionName, PullFunction pullFunction, long pollingPeriodMs) {
 
     return Flux.create(
         sink ->
             sink.onRequest(
                 numRequested -> {
                   if (numRequested == Long.MAX_VALUE) {
-                    pollingPull(subscriptionName, pollingPeriodMs, sink);
+                    pollingPull(pullFunction, pollingPeriodMs, sink);
                   } else {
-                    backpressurePull(subscriptionName, numRequested, sink);
+                    backpressurePull(subscriptionName, pullFunction, numRequested, sink);
                   }
                 }));
   }
 
+  /**
+   * Create an infinite stream {@link Flux} of {@link BasicAcknowledgeablePubsubMessage} objects
+   * backed by a streaming pull {@link Subscriber}.
+   *
+   * <p>Unlike {@link #poll}, messages are pushed over long-lived streaming connections, without a
+   * request per batch of messages, and acknowledgements go through the same connections. The
+   * {@link Subscriber} is started when the {@link Flux} is subscribed to, and stopped when it is
+   * cancelled.
+   *
+   * <p>Messages are buffered until they are requested downstream. Buffered messages count
+   * towards the flow control limits of the subscription, configured through the {@code
+   * spring.cloud.gcp.pubsub.subscriber.flow-control.*} or {@code
+   * spring.cloud.gcp.pubsub.subscription.[subscription-name].flow-control.*} properties, so the
+   * {@link Subscriber} stops receiving messages while downstream demand lags behind. Buffered
+   * messages are nacked when the {@link Flux} is cancelled.
+   *
+   * <p>A failure of the {@link Subscriber} is passed as an error to the stream.
+   *
+   * @param subscriptionName subscription from which to receive messages.
+   * @return infinite stream of {@link BasicAcknowledgeablePubsubMessage} objects.
+   * @since 3.2
+   */
+  public Flux<BasicAcknowledgeablePubsubMessage> subscribe(String subscriptionName) {
+    Assert.hasText(subscriptionName, "subscriptionName cannot be null or empty.");
+
+    Flux<BasicAcknowledgeablePubsubMessage> flux =
+        Flux.create(
+            sink -> {
+              Subscriber subscriber =
+                  this.subscriberOperations.subscribe(subscriptionName, sink::next);
+              subscriber.addListener(
+                  new ApiService.Listener() {
+                    @Override
+                    public void failed(ApiService.State from, Throwable failure) {
+                      sink.error(failure);
+                    }
+                  },
+                  MoreExecutors.directExecutor());
+              if (subscriber.state() == ApiService.State.FAILED) {
+                sink.error(subscriber.failureCause());
+              }
+              sink.onDispose(subscriber::stopAsync);
+            },
+            OverflowStrategy.BUFFER);
+    return flux.doOnDiscard(
+        BasicAcknowledgeablePubsubMessage.class, BasicAcknowledgeablePubsubMessage::nack);
+  }
+
   private void pollingPull(
-      String subscriptionName, long pollingPeriodMs, FluxSink<AcknowledgeablePubsubMessage> sink) {
+      PullFunction pullFunction, long pollingPeriodMs, FluxSink<AcknowledgeablePubsubMessage> sink) {
     Disposable disposable =
         Flux.interval(Duration.ZERO, Duration.ofMillis(pollingPeriodMs), scheduler)
-            .flatMap(ignore -> pullAll(subscriptionName))
+            .flatMap(ignore -> pullAll(pullFunction))
             .subscribe(sink::next, sink::error);
 
     sink.onDispose(disposable);
   }
 
-  private Flux<AcknowledgeablePubsubMessage> pullAll(String subscriptionName) {
+  private Flux<AcknowledgeablePubsubMessage> pullAll(PullFunction pullFunction) {
     CompletableFuture<List<AcknowledgeablePubsubMessage>> pullResponseFuture =
-        this.subscriberOperations.pullAsync(subscriptionName, maxMessages, true).completable();
+        pullFunction.apply(maxMessages, true).completable();
 
     return Mono.fromFuture(pullResponseFuture).flatMapMany(Flux::fromIterable);
   }
 
   private void backpressurePull(
-      String subscriptionName, long numRequested, FluxSink<AcknowledgeablePubsubMessage> sink) {
+      String subscriptionName,
+      PullFunction pullFunction,
+      long numRequested,
+      FluxSink<AcknowledgeablePubsubMessage> sink) {
     int intDemand = numRequested > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) numRequested;
-    this.subscriberOperations
-        .pullAsync(subscriptionName, intDemand, false)
+    pullFunction
+        .apply(intDemand, false)
         .addCallback(
             messages -> {
               if (!sink.isCancelled()) {
@@ -150,7 +273,7 @@ public final class PubSubReactiveFactory {
               if (!sink.isCancelled()) {
                 long numToPull = numRequested - messages.size();
                 if (numToPull > 0) {
-                  backpressurePull(subscriptionName, numToPull, sink);
+                  backpressurePull(subscriptionName, pullFunction, numToPull, sink);
                 }
               }
             },
@@ -162,10 +285,107 @@ public final class PubSubReactiveFactory {
                           + subscriptionName
                           + "; retrying.");
                 }
-                backpressurePull(subscriptionName, numRequested, sink);
+                backpressurePull(subscriptionName, pullFunction, numRequested, sink);
               } else {
                 sink.error(exception);
               }
             });
   }
+
+  /**
+   * Publish a collection of payloads to a topic, and create a {@link Flux} of the published
+   * message IDs in the order of the collection.
+   *
+   * <p>The payloads are published with {@link PubSubPublisherTemplate#publishAll} when the {@link
+   * Flux} is subscribed to, and the message IDs are emitted once all the messages were published
+   * or failed. The {@link Flux} terminates with a {@link PubSubDeliveryException} at the first
+   * message, in collection order, that failed to be published; {@link
+   * PubSubPublisherTemplate#publishAll} reports every failure instead.
+   *
+   * @param topic canonical topic name, e.g., "topicName", or the fully-qualified topic name in the
+   *     {@code projects/<project_name>/topics/<topic_name>} format
+   * @param payloads the objects that will be serialized and sent
+   * @param <T> the type of the payloads to publish
+   * @return stream of message IDs in the order of the payloads.
+   * @since 3.2
+   */
+  public <T> Flux<String> publishAll(String topic, Collection<T> payloads) {
+    Assert.hasText(topic, "topic cannot be null or empty.");
+    Assert.notNull(payloads, "payloads cannot be null.");
+    Assert.state(this.publisherTemplate != null, "A publisherTemplate is required to publish.");
+
+    return Mono.defer(
+            () -> Mono.fromFuture(this.publisherTemplate.publishAll(topic, payloads).completable()))
+        .flatMapMany(PubSubReactiveFactory::toMessageIds);
+  }
+
+  /** Emits the message IDs up to the first failure, if any, which terminates the stream. */
+  private static Flux<String> toMessageIds(PublishAllResult result) {
+    if (!result.hasFailures()) {
+      return Flux.fromIterable(result.getMessageIds());
+    }
+    int firstFailure = result.getFailures().firstKey();
+    return Flux.fromIterable(result.getMessageIds().subList(0, firstFailure))
+        .concatWith(Flux.error(result.getFailures().get(firstFailure)));
+  }
+
+  /**
+   * Publish a stream of messages to a topic, and create a {@link Flux} of the published message
+   * IDs in the order of the messages.
+   *
+   * <p>Messages are requested from the given stream only while the published messages whose ID
+   * was not yet emitted stay within the flow control limits of the topic's publisher, configured
+   * through the {@code spring.cloud.gcp.pubsub.publisher.batching.flow-control.*} properties. At
+   * most {@value #DEFAULT_MAX_OUTSTANDING_PUBLISHED_MESSAGES} messages are kept outstanding if
+   * the publisher has no element count limit. The demand of the returned {@link Flux} therefore
+   * bounds how many messages are buffered, without blocking any thread.
+   *
+   * <p>Messages with an ordering key are published in order, provided message ordering is enabled
+   * on the publisher. The {@link Flux} terminates with a {@link PubSubDeliveryException} at the
+   * first message that failed to be published, after which publishing is resumed for the ordering
+   * key of that message.
+   *
+   * @param topic canonical topic name, e.g., "topicName", or the fully-qualified topic name in the
+   *     {@code projects/<project_name>/topics/<topic_name>} format
+   * @param messages the messages to publish
+   * @return stream of message IDs in the order of the messages.
+   * @since 3.2
+   */
+  public Flux<String> publish(String topic, Flux<PubsubMessage> messages) {
+    Assert.hasText(topic, "topic cannot be null or empty.");
+    Assert.notNull(messages, "messages cannot be null.");
+    Assert.state(this.publisherTemplate != null, "A publisherTemplate is required to publish.");
+
+    return Flux.create(
+        sink -> {
+          PublisherFactory publisherFactory = this.publisherTemplate.getPublisherFactory();
+          Publisher publisher = publisherFactory.createPublisher(topic);
+          FlowControlSettings flowControlSettings =
+              publisher.getBatchingSettings() != null
+                  ? publisher.getBatchingSettings().getFlowControlSettings()
+                  : null;
+          Long maxElementCount =
+              flowControlSettings != null
+                  ? flowControlSettings.getMaxOutstandingElementCount()
+                  : null;
+          Long maxRequestBytes =
+              flowControlSettings != null
+                  ? flowControlSettings.getMaxOutstandingRequestBytes()
+                  : null;
+          messages.subscribe(
+              new FlowControlledPublishSubscriber(
+                  topic,
+                  publisherFactory,
+                  sink,
+                  maxElementCount != null
+                      ? maxElementCount
+                      : DEFAULT_MAX_OUTSTANDING_PUBLISHED_MESSAGES,
+                  maxRequestBytes != null ? maxRequestBytes : Long.MAX_VALUE));
+        },
+        OverflowStrategy.BUFFER);
+  }
+
+  /** Pulls up to a number of messages, optionally returning immediately. */
+  private interface PullFunction
+      extends BiFunction<Integer, Boolean, ListenableFuture<List<AcknowledgeablePubsubMessage>>> {}
 }
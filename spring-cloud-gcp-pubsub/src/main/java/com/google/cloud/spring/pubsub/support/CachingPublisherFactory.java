@@ -17,32 +17,233 @@
 package com.google.cloud.spring.pubsub.support;
 
 import com.google.cloud.pubsub.v1.Publisher;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.threeten.bp.Duration;
 
 /**
  * The caching implementation of the {@link PublisherFactory}.
  *
  * <p>Creates {@link Publisher}s for topics once using delegate, caches and reuses them.
+ *
+ * <p>The cache is unbounded by default. When a maximum size or an idle timeout is configured,
+ * the least recently used publishers are evicted once the cache is full, and publishers that
+ * were not used for the idle timeout are evicted on a later cache access. Evicted publishers are
+ * shut down in the background once {@link #setEvictionGracePeriod(Duration) a grace period} has
+ * passed, which publishes their outstanding messages. Callers that obtained a publisher right
+ * before its eviction can therefore keep publishing with it during the grace period, while new
+ * callers get a new publisher.
+ *
+ * <p>All cached publishers, and the evicted ones still in their grace period, are shut down when
+ * the factory is destroyed.
  */
-public class CachingPublisherFactory implements PublisherFactory {
+public class CachingPublisherFactory implements PublisherFactory, DisposableBean {
+
+  private static final Log LOGGER = LogFactory.getLog(CachingPublisherFactory.class);
+
   /** {@link Publisher} cache, enforces only one {@link Publisher} per Pub/Sub topic exists. */
-  private final ConcurrentHashMap<String, Publisher> publishers =
-      new ConcurrentHashMap<>();
+  private final Cache<String, Publisher> publishers;
+
+  private final ExecutorService shutdownExecutor =
+      Executors.newCachedThreadPool(
+          new ThreadFactoryBuilder()
+              .setNameFormat("gcp-pubsub-publisher-shutdown-%d")
+              .setDaemon(true)
+              .build());
+
+  private final ScheduledExecutorService gracePeriodScheduler =
+      Executors.newSingleThreadScheduledExecutor(
+          new ThreadFactoryBuilder()
+              .setNameFormat("gcp-pubsub-publisher-eviction-%d")
+              .setDaemon(true)
+              .build());
+
+  /** Evicted publishers waiting for the end of their grace period, with their topic. */
+  private final Map<Publisher, String> evictedPublishers = new ConcurrentHashMap<>();
 
   private PublisherFactory delegate;
 
+  private Duration shutdownTimeout = Duration.ofSeconds(30);
+
+  private Duration evictionGracePeriod = Duration.ofSeconds(60);
+
+  private volatile boolean destroyed;
+
   /**
    * Constructs a caching {@link PublisherFactory} using the delegate.
    *
    * @param delegate a {@link PublisherFactory} that needs to be cachecd.
    */
   public CachingPublisherFactory(PublisherFactory delegate) {
+    this(delegate, null, null);
+  }
+
+  /**
+   * Constructs a bounded caching {@link PublisherFactory} using the delegate.
+   *
+   * @param delegate a {@link PublisherFactory} that needs to be cached.
+   * @param maximumSize the maximum number of cached publishers, or {@code null} for no limit
+   * @param idleTimeout the time after its last use a publisher is evicted, or {@code null} to
+   *     never evict idle publishers
+   * @since 3.2
+   */
+  public CachingPublisherFactory(
+      PublisherFactory delegate, @Nullable Long maximumSize, @Nullable Duration idleTimeout) {
+    Assert.isTrue(maximumSize == null || maximumSize > 0, "The maximumSize must be positive.");
+    Assert.isTrue(
+        idleTimeout == null || (!idleTimeout.isNegative() && !idleTimeout.isZero()),
+        "The idleTimeout must be positive.");
     this.delegate = delegate;
+
+    // A single segment makes the size bound and the idle eviction apply across all topics.
+    CacheBuilder<Object, Object> builder =
+        CacheBuilder.newBuilder().concurrencyLevel(1).recordStats();
+    if (maximumSize != null) {
+      builder.maximumSize(maximumSize);
+    }
+    if (idleTimeout != null) {
+      builder.expireAfterAccess(idleTimeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+    RemovalListener<String, Publisher> removalListener =
+        notification -> evictPublisher(notification.getKey(), notification.getValue());
+    this.publishers = builder.removalListener(removalListener).build();
   }
 
   @Override
   public Publisher createPublisher(String topic) {
-    return this.publishers.computeIfAbsent(topic, delegate::createPublisher);
+    try {
+      return this.publishers.get(topic, () -> this.delegate.createPublisher(topic));
+    } catch (UncheckedExecutionException ex) {
+      if (ex.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) ex.getCause();
+      }
+      throw ex;
+    } catch (ExecutionException ex) {
+      throw new IllegalStateException("Failed to create a publisher for topic " + topic, ex);
+    }
+  }
+
+  private void evictPublisher(String topic, Publisher publisher) {
+    if (this.destroyed) {
+      shutdownPublisherAsync(publisher, topic);
+      return;
+    }
+    this.evictedPublishers.put(publisher, topic);
+    try {
+      // The scheduled shutdown is never cancelled; destroying the factory drops it instead.
+      ScheduledFuture<?> unused =
+          this.gracePeriodScheduler.schedule(
+              () -> {
+                if (this.evictedPublishers.remove(publisher) != null) {
+                  shutdownPublisherAsync(publisher, topic);
+                }
+              },
+              this.evictionGracePeriod.toMillis(),
+              TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException ex) {
+      // The factory is being destroyed, which shuts down the evicted publishers.
+    }
+  }
+
+  private void shutdownPublisherAsync(Publisher publisher, String topic) {
+    try {
+      this.shutdownExecutor.execute(() -> shutdownPublisher(topic, publisher));
+    } catch (RejectedExecutionException ex) {
+      shutdownPublisher(topic, publisher);
+    }
+  }
+
+  private void shutdownPublisher(String topic, Publisher publisher) {
+    // Shutting down blocks until the outstanding messages are published. The publisher isn't
+    // awaited further because its background resources can use executors shared with other
+    // publishers, which don't terminate before the application context is closed.
+    try {
+      publisher.shutdown();
+    } catch (RuntimeException ex) {
+      LOGGER.warn("Failed to shut down the publisher of topic " + topic, ex);
+    }
+  }
+
+  /**
+   * Set how long to wait for the cached publishers to publish their outstanding messages when the
+   * factory is destroyed.
+   *
+   * @param shutdownTimeout the shutdown timeout
+   * @since 3.2
+   */
+  public void setShutdownTimeout(Duration shutdownTimeout) {
+    Assert.notNull(shutdownTimeout, "The shutdownTimeout can't be null.");
+    this.shutdownTimeout = shutdownTimeout;
+  }
+
+  /**
+   * Set how long an evicted publisher stays usable before it is shut down, for the callers that
+   * obtained it right before its eviction. 60 seconds by default.
+   *
+   * @param evictionGracePeriod the grace period
+   * @since 3.2
+   */
+  public void setEvictionGracePeriod(Duration evictionGracePeriod) {
+    Assert.notNull(evictionGracePeriod, "The evictionGracePeriod can't be null.");
+    Assert.isTrue(!evictionGracePeriod.isNegative(), "The evictionGracePeriod can't be negative.");
+    this.evictionGracePeriod = evictionGracePeriod;
+  }
+
+  /**
+   * Returns the number of times a cached publisher was returned.
+   *
+   * @return the number of cache hits
+   * @since 3.2
+   */
+  public long getHitCount() {
+    return this.publishers.stats().hitCount();
+  }
+
+  /**
+   * Returns the number of times a publisher had to be created by the delegate.
+   *
+   * @return the number of cache misses
+   * @since 3.2
+   */
+  public long getMissCount() {
+    return this.publishers.stats().missCount();
+  }
+
+  /**
+   * Returns the number of publishers evicted because the cache was full or they were idle.
+   *
+   * @return the number of evictions
+   * @since 3.2
+   */
+  public long getEvictionCount() {
+    return this.publishers.stats().evictionCount();
+  }
+
+  /**
+   * Returns the number of cached publishers.
+   *
+   * @return the number of cached publishers
+   * @since 3.2
+   */
+  public long getCachedPublisherCount() {
+    return this.publishers.size();
   }
 
   /**
@@ -53,4 +254,22 @@ public class CachingPublisherFactory implements PublisherFactory {
   public PublisherFactory getDelegate() {
     return delegate;
   }
+
+  /** Shut down all cached publishers and wait for them to publish their outstanding messages. */
+  @Override
+  public void destroy() throws InterruptedException {
+    this.destroyed = true;
+    this.publishers.invalidateAll();
+    this.gracePeriodScheduler.shutdownNow();
+    for (Map.Entry<Publisher, String> entry : this.evictedPublishers.entrySet()) {
+      if (this.evictedPublishers.remove(entry.getKey(), entry.getValue())) {
+        shutdownPublisherAsync(entry.getKey(), entry.getValue());
+      }
+    }
+    this.shutdownExecutor.shutdown();
+    if (!this.shutdownExecutor.awaitTermination(
+        this.shutdownTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+      LOGGER.warn("Timed out waiting for the cached publishers to shut down.");
+    }
+  }
 }
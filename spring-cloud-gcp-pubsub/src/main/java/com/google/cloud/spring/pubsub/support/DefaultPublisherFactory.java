@@ -26,9 +26,12 @@ import com.google.cloud.pubsub.v1.Publisher;
 import com.google.cloud.spring.core.GcpProjectIdProvider;
 import com.google.cloud.spring.pubsub.core.PubSubException;
 import com.google.cloud.spring.pubsub.core.publisher.PublisherCustomizer;
+import com.google.pubsub.v1.TopicName;
 import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.springframework.util.Assert;
 
 /**
@@ -58,6 +61,12 @@ public class DefaultPublisherFactory implements PublisherFactory {
 
   private List<PublisherCustomizer> customizers;
 
+  private ConcurrentMap<String, ExecutorProvider> executorProviderMap = new ConcurrentHashMap<>();
+
+  private ConcurrentMap<String, RetrySettings> retrySettingsMap = new ConcurrentHashMap<>();
+
+  private ConcurrentMap<String, BatchingSettings> batchingSettingsMap = new ConcurrentHashMap<>();
+
   /**
    * Create {@link DefaultPublisherFactory} instance based on the provided {@link
    * GcpProjectIdProvider}.
@@ -161,12 +170,91 @@ public class DefaultPublisherFactory implements PublisherFactory {
     this.customizers = Collections.unmodifiableList(customizers);
   }
 
+  /**
+   * Set topic-specific executor providers, keyed by fully-qualified topic name. These take
+   * precedence over the executor provider set with {@link #setExecutorProvider(ExecutorProvider)}.
+   *
+   * @param executorProviderMap the topic-specific executor providers
+   * @since 3.2
+   */
+  public void setExecutorProviderMap(ConcurrentMap<String, ExecutorProvider> executorProviderMap) {
+    Assert.notNull(executorProviderMap, "The executorProviderMap can't be null.");
+    this.executorProviderMap = executorProviderMap;
+  }
+
+  /**
+   * Set topic-specific retry settings, keyed by fully-qualified topic name. These take precedence
+   * over the retry settings set with {@link #setRetrySettings(RetrySettings)}.
+   *
+   * @param retrySettingsMap the topic-specific retry settings
+   * @since 3.2
+   */
+  public void setRetrySettingsMap(ConcurrentMap<String, RetrySettings> retrySettingsMap) {
+    Assert.notNull(retrySettingsMap, "The retrySettingsMap can't be null.");
+    this.retrySettingsMap = retrySettingsMap;
+  }
+
+  /**
+   * Set topic-specific batching settings, keyed by fully-qualified topic name. These take
+   * precedence over the batching settings set with {@link #setBatchingSettings(BatchingSettings)}.
+   *
+   * @param batchingSettingsMap the topic-specific batching settings
+   * @since 3.2
+   */
+  public void setBatchingSettingsMap(ConcurrentMap<String, BatchingSettings> batchingSettingsMap) {
+    Assert.notNull(batchingSettingsMap, "The batchingSettingsMap can't be null.");
+    this.batchingSettingsMap = batchingSettingsMap;
+  }
+
+  /**
+   * Returns the executor provider to use for a topic: the topic-specific one if present,
+   * otherwise the global one.
+   *
+   * @param topic short or fully-qualified topic name
+   * @return executor provider, or {@code null} to use the client library default
+   */
+  public ExecutorProvider getExecutorProvider(String topic) {
+    return getTopicSetting(this.executorProviderMap, topic, this.executorProvider);
+  }
+
+  /**
+   * Returns the retry settings to use for a topic: the topic-specific ones if present, otherwise
+   * the global ones.
+   *
+   * @param topic short or fully-qualified topic name
+   * @return retry settings, or {@code null} to use the client library defaults
+   */
+  public RetrySettings getRetrySettings(String topic) {
+    return getTopicSetting(this.retrySettingsMap, topic, this.retrySettings);
+  }
+
+  /**
+   * Returns the batching settings to use for a topic: the topic-specific ones if present,
+   * otherwise the global ones.
+   *
+   * @param topic short or fully-qualified topic name
+   * @return batching settings, or {@code null} to use the client library defaults
+   */
+  public BatchingSettings getBatchingSettings(String topic) {
+    return getTopicSetting(this.batchingSettingsMap, topic, this.batchingSettings);
+  }
+
+  private <T> T getTopicSetting(ConcurrentMap<String, T> settingsMap, String topic, T global) {
+    if (settingsMap.isEmpty()) {
+      return global;
+    }
+    T topicSetting =
+        settingsMap.get(PubSubTopicUtils.toTopicName(topic, this.projectId).toString());
+    return topicSetting != null ? topicSetting : global;
+  }
+
   /**
    * Creates a {@link Publisher} for a given topic.
    *
    * <p></p>Configuration precedence:
    * <ol>
    *   <li>modifications applied by the factory customizers
+   *   <li>{@code spring.cloud.gcp.pubsub.publisher.topic.[topic-name]} configuration options
    *   <li>{@code spring.cloud.gcp.pubsub.publisher} configuration options
    *   <li>client library defaults
    *</ol>
@@ -176,12 +264,29 @@ public class DefaultPublisherFactory implements PublisherFactory {
    */
   @Override
   public Publisher createPublisher(String topic) {
+    return createPublisher(topic, null);
+  }
+
+  /**
+   * Creates a {@link Publisher} for a given topic, with an additional customizer that takes
+   * precedence over the factory configuration and customizers. This allows creating differently
+   * configured publishers that share the credentials, channel and other settings of this factory.
+   *
+   * @param topic destination topic
+   * @param customizer the customizer to apply last, or {@code null} for none
+   * @return fully configured publisher
+   * @since 3.2
+   */
+  public Publisher createPublisher(String topic, PublisherCustomizer customizer) {
     try {
-      Publisher.Builder publisherBuilder =
-          Publisher.newBuilder(PubSubTopicUtils.toTopicName(topic, this.projectId));
+      TopicName topicName = PubSubTopicUtils.toTopicName(topic, this.projectId);
+      Publisher.Builder publisherBuilder = Publisher.newBuilder(topicName);
 
-      applyPublisherSettings(publisherBuilder);
+      applyPublisherSettings(publisherBuilder, topicName.toString());
       applyCustomizers(publisherBuilder, topic);
+      if (customizer != null) {
+        customizer.apply(publisherBuilder, topic);
+      }
 
       return publisherBuilder.build();
     } catch (IOException ioe) {
@@ -190,9 +295,10 @@ public class DefaultPublisherFactory implements PublisherFactory {
     }
   }
 
-  void applyPublisherSettings(Publisher.Builder publisherBuilder) {
-    if (this.executorProvider != null) {
-      publisherBuilder.setExecutorProvider(this.executorProvider);
+  void applyPublisherSettings(Publisher.Builder publisherBuilder, String topic) {
+    ExecutorProvider topicExecutorProvider = getExecutorProvider(topic);
+    if (topicExecutorProvider != null) {
+      publisherBuilder.setExecutorProvider(topicExecutorProvider);
     }
 
     if (this.channelProvider != null) {
@@ -207,12 +313,14 @@ public class DefaultPublisherFactory implements PublisherFactory {
       publisherBuilder.setHeaderProvider(this.headerProvider);
     }
 
-    if (this.retrySettings != null) {
-      publisherBuilder.setRetrySettings(this.retrySettings);
+    RetrySettings topicRetrySettings = getRetrySettings(topic);
+    if (topicRetrySettings != null) {
+      publisherBuilder.setRetrySettings(topicRetrySettings);
     }
 
-    if (this.batchingSettings != null) {
-      publisherBuilder.setBatchingSettings(this.batchingSettings);
+    BatchingSettings topicBatchingSettings = getBatchingSettings(topic);
+    if (topicBatchingSettings != null) {
+      publisherBuilder.setBatchingSettings(topicBatchingSettings);
     }
 
     if (this.enableMessageOrdering != null) {
@@ -33,6 +33,7 @@ import com.google.cloud.spring.core.GcpProjectIdProvider;
 import com.google.cloud.spring.pubsub.core.PubSubConfiguration;
 import com.google.cloud.spring.pubsub.core.PubSubException;
 import com.google.cloud.spring.pubsub.core.health.HealthTrackerRegistry;
+import com.google.cloud.spring.pubsub.core.subscriber.SubscriberCustomizer;
 import com.google.pubsub.v1.ProjectSubscriptionName;
 import com.google.pubsub.v1.PullRequest;
 import java.io.IOException;
@@ -244,6 +245,12 @@ public class DefaultSubscriberFactory implements SubscriberFactory {
 
   @Override
   public Subscriber createSubscriber(String subscriptionName, MessageReceiver receiver) {
+    return createSubscriber(subscriptionName, receiver, null);
+  }
+
+  @Override
+  public Subscriber createSubscriber(
+      String subscriptionName, MessageReceiver receiver, SubscriberCustomizer customizer) {
     ProjectSubscriptionName projectSubscriptionName =
         PubSubSubscriptionUtils.toProjectSubscriptionName(subscriptionName, this.projectId);
 
@@ -291,6 +298,10 @@ public class DefaultSubscriberFactory implements SubscriberFactory {
       subscriberBuilder.setParallelPullCount(pullCount);
     }
 
+    if (customizer != null) {
+      customizer.apply(subscriberBuilder, subscriptionName);
+    }
+
     Subscriber subscriber = subscriberBuilder.build();
 
     if (shouldAddToHealthCheck) {
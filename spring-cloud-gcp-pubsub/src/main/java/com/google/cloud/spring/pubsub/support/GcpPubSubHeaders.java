@@ -35,6 +35,23 @@ public abstract class GcpPubSubHeaders {
   /** The original message header text. */
   public static final String ORIGINAL_MESSAGE = PREFIX + "original_message";
 
+  /**
+   * The original messages header text, set on the messages of an inbound channel adapter in batch
+   * mode.
+   *
+   * @since 3.2
+   */
+  public static final String ORIGINAL_MESSAGES = PREFIX + "original_messages";
+
+  /**
+   * The batch converted headers header text, set on the messages of an inbound channel adapter in
+   * batch mode. It holds a {@link java.util.List} of the mapped headers of each message, in the
+   * order of the payloads.
+   *
+   * @since 3.2
+   */
+  public static final String BATCH_CONVERTED_HEADERS = PREFIX + "batch_converted_headers";
+
   /** The Pub/Sub message ordering key. */
   public static final String ORDERING_KEY = PREFIX + "ordering_key";
 
@@ -0,0 +1,347 @@
+/*
+ * Copyright 2022-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.support;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToDoubleFunction;
+import org.springframework.util.Assert;
+
+/**
+ * Records the Micrometer meters of the Pub/Sub publish and consume paths, tagged with the short
+ * name of their topic or subscription.
+ *
+ * <p>The publisher meters are:
+ *
+ * <ul>
+ *   <li>{@code spring.cloud.gcp.pubsub.publish}: a timer of the messages from the publish call to
+ *       the completion of its future, tagged with the {@code result} of the publish, {@code
+ *       success} or {@code failure}.
+ *   <li>{@code spring.cloud.gcp.pubsub.publish.blocked}: a timer of how long handing a message to
+ *       the publisher blocked the caller, mostly waiting on the publisher flow control.
+ *   <li>{@code spring.cloud.gcp.pubsub.publish.batch.size}: a distribution summary of the number
+ *       of messages published together by a {@code publishAll} call.
+ * </ul>
+ *
+ * <p>The subscriber meters are:
+ *
+ * <ul>
+ *   <li>{@code spring.cloud.gcp.pubsub.receive}: a counter of the received messages, either
+ *       delivered to a subscriber or pulled.
+ *   <li>{@code spring.cloud.gcp.pubsub.process}: a timer of the message consumers of subscribers,
+ *       tagged with the {@code result} of the consumer call.
+ *   <li>{@code spring.cloud.gcp.pubsub.ack}: a timer of the acknowledge requests of pulled
+ *       messages, tagged with the {@code result} of the request.
+ *   <li>{@code spring.cloud.gcp.pubsub.outstanding}: a gauge of the messages delivered to a
+ *       subscriber that weren't acked or nacked yet.
+ *   <li>{@code spring.cloud.gcp.pubsub.pull.leases}: a gauge of the pulled messages whose ack
+ *       deadline is automatically extended, summed over all the registered subscriber templates
+ *       and not tagged with a subscription.
+ *   <li>{@code spring.cloud.gcp.pubsub.dedupe}: a counter of the received messages checked by a
+ *       deduplicator, tagged with the {@code result} of the check, {@code hit} for duplicates or
+ *       {@code miss}.
+ * </ul>
+ *
+ * @since 3.2
+ */
+public final class PubSubMetrics {
+
+  private static final String PREFIX = "spring.cloud.gcp.pubsub.";
+
+  private final MeterRegistry meterRegistry;
+
+  private final Map<String, TopicMeters> topicMeters = new ConcurrentHashMap<>();
+
+  private final Map<String, SubscriptionMeters> subscriptionMeters = new ConcurrentHashMap<>();
+
+  /** The weakly referenced state objects of the pull leases gauge, with their lease counts. */
+  private final Map<Object, ToDoubleFunction<Object>> pullLeaseSources =
+      Collections.synchronizedMap(new WeakHashMap<>());
+
+  /**
+   * Create the Pub/Sub metrics.
+   *
+   * @param meterRegistry the registry to register the meters to
+   */
+  public PubSubMetrics(MeterRegistry meterRegistry) {
+    Assert.notNull(meterRegistry, "The meterRegistry can't be null.");
+    this.meterRegistry = meterRegistry;
+  }
+
+  /**
+   * Return the current time of the registry clock, to measure durations with.
+   *
+   * @return the monotonic time in nanoseconds
+   */
+  public long monotonicTime() {
+    return this.meterRegistry.config().clock().monotonicTime();
+  }
+
+  /**
+   * Record the completion of the publish of a message.
+   *
+   * @param topic the topic name, short or fully-qualified
+   * @param startTime the {@link #monotonicTime()} the publish started at
+   * @param success whether the message was published
+   */
+  public void recordPublish(String topic, long startTime, boolean success) {
+    TopicMeters meters = topicMeters(topic);
+    (success ? meters.publishSuccess : meters.publishFailure)
+        .record(monotonicTime() - startTime, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Record how long handing a message to the publisher blocked the caller.
+   *
+   * @param topic the topic name, short or fully-qualified
+   * @param startTime the {@link #monotonicTime()} the message was handed to the publisher at
+   */
+  public void recordPublishBlocked(String topic, long startTime) {
+    topicMeters(topic).publishBlocked.record(monotonicTime() - startTime, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Record the number of messages published together.
+   *
+   * @param topic the topic name, short or fully-qualified
+   * @param messageCount the number of messages
+   */
+  public void recordPublishBatch(String topic, int messageCount) {
+    topicMeters(topic).publishBatchSize.record(messageCount);
+  }
+
+  /**
+   * Record received messages.
+   *
+   * @param subscription the subscription name, short or fully-qualified
+   * @param messageCount the number of messages
+   */
+  public void recordReceived(String subscription, int messageCount) {
+    subscriptionMeters(subscription).received.increment(messageCount);
+  }
+
+  /**
+   * Record the completion of the consumer of a message delivered to a subscriber.
+   *
+   * @param subscription the subscription name, short or fully-qualified
+   * @param startTime the {@link #monotonicTime()} the consumer was called at
+   * @param success whether the consumer returned normally
+   */
+  public void recordProcessing(String subscription, long startTime, boolean success) {
+    SubscriptionMeters meters = subscriptionMeters(subscription);
+    (success ? meters.processSuccess : meters.processFailure)
+        .record(monotonicTime() - startTime, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Record the completion of an acknowledge request.
+   *
+   * @param subscription the subscription name, short or fully-qualified
+   * @param startTime the {@link #monotonicTime()} the request was sent at
+   * @param success whether the request succeeded
+   */
+  public void recordAck(String subscription, long startTime, boolean success) {
+    SubscriptionMeters meters = subscriptionMeters(subscription);
+    (success ? meters.ackSuccess : meters.ackFailure)
+        .record(monotonicTime() - startTime, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Record the check of a received message against the processed messages of a deduplicator.
+   *
+   * @param subscription the subscription name, short or fully-qualified
+   * @param duplicate whether the message was already processed
+   */
+  public void recordDeduplication(String subscription, boolean duplicate) {
+    subscriptionMeters(subscription).dedupeCounter(duplicate).increment();
+  }
+
+  /**
+   * Return the number of messages delivered to the subscribers of a subscription that weren't
+   * acked or nacked yet, which backs the {@code spring.cloud.gcp.pubsub.outstanding} gauge.
+   *
+   * @param subscription the subscription name, short or fully-qualified
+   * @return the outstanding message count
+   */
+  public AtomicInteger getOutstanding(String subscription) {
+    return subscriptionMeters(subscription).outstanding;
+  }
+
+  /**
+   * Add a source of the {@code spring.cloud.gcp.pubsub.pull.leases} gauge, which reports the sum
+   * of the lease counts of all its sources.
+   *
+   * @param stateObject the object to compute the lease count from, which is only weakly referenced
+   * @param leaseCount the function computing the number of extended leases
+   * @param <T> the type of the state object
+   */
+  @SuppressWarnings("unchecked")
+  public <T> void registerPullLeases(T stateObject, ToDoubleFunction<T> leaseCount) {
+    Assert.notNull(stateObject, "The stateObject can't be null.");
+    Assert.notNull(leaseCount, "The leaseCount can't be null.");
+    this.pullLeaseSources.put(stateObject, (ToDoubleFunction<Object>) leaseCount);
+    // Registering is idempotent, so the gauge is only registered by the first source.
+    Gauge.builder(PREFIX + "pull.leases", this, PubSubMetrics::getPullLeaseCount)
+        .description("Pulled messages whose ack deadline is automatically extended")
+        .strongReference(true)
+        .register(this.meterRegistry);
+  }
+
+  private double getPullLeaseCount() {
+    synchronized (this.pullLeaseSources) {
+      double count = 0;
+      for (Map.Entry<Object, ToDoubleFunction<Object>> source : this.pullLeaseSources.entrySet()) {
+        count += source.getValue().applyAsDouble(source.getKey());
+      }
+      return count;
+    }
+  }
+
+  private TopicMeters topicMeters(String topic) {
+    String shortName = shortName(topic);
+    TopicMeters meters = this.topicMeters.get(shortName);
+    return meters != null
+        ? meters
+        : this.topicMeters.computeIfAbsent(shortName, TopicMeters::new);
+  }
+
+  private SubscriptionMeters subscriptionMeters(String subscription) {
+    String shortName = shortName(subscription);
+    SubscriptionMeters meters = this.subscriptionMeters.get(shortName);
+    return meters != null
+        ? meters
+        : this.subscriptionMeters.computeIfAbsent(shortName, SubscriptionMeters::new);
+  }
+
+  /**
+   * Strips the project from fully-qualified names, which keeps the tag values consistent and makes
+   * the short and fully-qualified names of a topic or subscription share their meters.
+   */
+  private static String shortName(String name) {
+    return name.substring(name.lastIndexOf('/') + 1);
+  }
+
+  private Timer timer(String name, String description, String tag, String value, String result) {
+    Timer.Builder builder = Timer.builder(PREFIX + name).description(description).tag(tag, value);
+    if (result != null) {
+      builder.tag("result", result);
+    }
+    return builder.register(this.meterRegistry);
+  }
+
+  private final class TopicMeters {
+
+    private final Timer publishSuccess;
+
+    private final Timer publishFailure;
+
+    private final Timer publishBlocked;
+
+    private final DistributionSummary publishBatchSize;
+
+    TopicMeters(String topic) {
+      String description = "Time from publishing a message to the completion of its future";
+      this.publishSuccess = timer("publish", description, "topic", topic, "success");
+      this.publishFailure = timer("publish", description, "topic", topic, "failure");
+      this.publishBlocked =
+          timer(
+              "publish.blocked",
+              "Time the publisher blocked the caller publishing a message",
+              "topic",
+              topic,
+              null);
+      this.publishBatchSize =
+          DistributionSummary.builder(PREFIX + "publish.batch.size")
+              .description("Number of messages published together")
+              .tag("topic", topic)
+              .register(PubSubMetrics.this.meterRegistry);
+    }
+  }
+
+  private final class SubscriptionMeters {
+
+    private final Counter received;
+
+    private final Timer processSuccess;
+
+    private final Timer processFailure;
+
+    private final Timer ackSuccess;
+
+    private final Timer ackFailure;
+
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    private final String subscription;
+
+    /** Registered on first use, so that subscriptions without a deduplicator don't report them. */
+    private volatile Counter dedupeHits;
+
+    private volatile Counter dedupeMisses;
+
+    SubscriptionMeters(String subscription) {
+      this.subscription = subscription;
+      MeterRegistry registry = PubSubMetrics.this.meterRegistry;
+      this.received =
+          Counter.builder(PREFIX + "receive")
+              .description("Messages received")
+              .tag("subscription", subscription)
+              .register(registry);
+      String processDescription = "Time the subscriber message consumer took";
+      this.processSuccess =
+          timer("process", processDescription, "subscription", subscription, "success");
+      this.processFailure =
+          timer("process", processDescription, "subscription", subscription, "failure");
+      String ackDescription = "Time the acknowledge requests of pulled messages took";
+      this.ackSuccess = timer("ack", ackDescription, "subscription", subscription, "success");
+      this.ackFailure = timer("ack", ackDescription, "subscription", subscription, "failure");
+      Gauge.builder(PREFIX + "outstanding", this.outstanding, AtomicInteger::get)
+          .description("Messages delivered to subscribers that weren't acked or nacked yet")
+          .tag("subscription", subscription)
+          .strongReference(true)
+          .register(registry);
+    }
+
+    Counter dedupeCounter(boolean duplicate) {
+      Counter counter = duplicate ? this.dedupeHits : this.dedupeMisses;
+      if (counter == null) {
+        // Registering is idempotent, so racing threads get the same counter.
+        counter =
+            Counter.builder(PREFIX + "dedupe")
+                .description("Received messages checked against the processed messages")
+                .tag("subscription", this.subscription)
+                .tag("result", duplicate ? "hit" : "miss")
+                .register(PubSubMetrics.this.meterRegistry);
+        if (duplicate) {
+          this.dedupeHits = counter;
+        } else {
+          this.dedupeMisses = counter;
+        }
+      }
+      return counter;
+    }
+  }
+}
@@ -19,6 +19,7 @@ package com.google.cloud.spring.pubsub.support;
 import com.google.cloud.pubsub.v1.MessageReceiver;
 import com.google.cloud.pubsub.v1.Subscriber;
 import com.google.cloud.pubsub.v1.stub.SubscriberStub;
+import com.google.cloud.spring.pubsub.core.subscriber.SubscriberCustomizer;
 import com.google.pubsub.v1.PullRequest;
 
 /**
@@ -45,6 +46,20 @@ public interface SubscriberFactory {
    */
   Subscriber createSubscriber(String subscriptionName, MessageReceiver receiver);
 
+  /**
+   * Create a {@link Subscriber} for the specified subscription name and wired it up to
+   * asynchronously deliver messages to the provided {@link MessageReceiver}, applying a customizer
+   * that takes precedence over the factory configuration.
+   *
+   * @param subscriptionName the name of the subscription
+   * @param receiver the callback for receiving messages asynchronously
+   * @param customizer the customizer to apply to the subscriber, or {@code null} for none
+   * @return the {@link Subscriber} that was created to bind the receiver to the subscription
+   * @since 3.2
+   */
+  Subscriber createSubscriber(
+      String subscriptionName, MessageReceiver receiver, SubscriberCustomizer customizer);
+
   /**
    * Create a {@link PullRequest} for synchronously pulling a number of messages from a Google Cloud
    * Pub/Sub subscription.
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2022-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.support.converter;
+
+import com.google.common.io.ByteStreams;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.util.Assert;
+
+/**
+ * A converter that compresses the payloads written by another converter, and decompresses them
+ * before they are read by it.
+ *
+ * <p>Payloads of at least {@link #setMinimumSize(int) the minimum size} are compressed with the
+ * codec of the converter, which is recorded in the {@value #CONTENT_ENCODING_ATTRIBUTE} attribute.
+ * Payloads that don't shrink are left uncompressed. Received messages are decompressed with the
+ * codec named by their attribute, so messages without it, from publishers that don't compress,
+ * are still read. Payloads that decompress to more than {@link #setMaxDecompressedSize(int) the
+ * maximum decompressed size} are rejected, which protects subscribers from decompression bombs.
+ *
+ * @since 3.2
+ */
+public class CompressingPubSubMessageConverter implements PubSubMessageConverter {
+
+  /** The attribute naming the codec of compressed payloads. */
+  public static final String CONTENT_ENCODING_ATTRIBUTE = "content-encoding";
+
+  private final PubSubMessageConverter delegate;
+
+  private final PubSubPayloadCodec codec;
+
+  private final Map<String, PubSubPayloadCodec> decoders = new ConcurrentHashMap<>();
+
+  private int minimumSize = 1024;
+
+  private int maxDecompressedSize = 10 * 1024 * 1024;
+
+  /**
+   * Create a converter compressing payloads with gzip.
+   *
+   * @param delegate the converter of the uncompressed payloads
+   */
+  public CompressingPubSubMessageConverter(PubSubMessageConverter delegate) {
+    this(delegate, PubSubPayloadCodec.GZIP);
+  }
+
+  /**
+   * Create a converter compressing payloads with the given codec. Received payloads can be
+   * decompressed with gzip, the given codec and any codec added with {@link
+   * #addDecoder(PubSubPayloadCodec)}.
+   *
+   * @param delegate the converter of the uncompressed payloads
+   * @param codec the codec to compress payloads with
+   */
+  public CompressingPubSubMessageConverter(
+      PubSubMessageConverter delegate, PubSubPayloadCodec codec) {
+    Assert.notNull(delegate, "The delegate converter can't be null.");
+    Assert.notNull(codec, "The codec can't be null.");
+    this.delegate = delegate;
+    this.codec = codec;
+    addDecoder(PubSubPayloadCodec.GZIP);
+    addDecoder(codec);
+  }
+
+  /**
+   * Add a codec to decompress received payloads with, for subscriptions whose publishers use
+   * different codecs.
+   *
+   * @param decoder the codec
+   */
+  public void addDecoder(PubSubPayloadCodec decoder) {
+    Assert.notNull(decoder, "The decoder can't be null.");
+    this.decoders.put(decoder.getName(), decoder);
+  }
+
+  public int getMinimumSize() {
+    return this.minimumSize;
+  }
+
+  /**
+   * Set the size in bytes from which payloads are compressed, 1024 by default. Compressing small
+   * payloads costs more processing than it saves bytes.
+   *
+   * @param minimumSize the minimum payload size
+   */
+  public void setMinimumSize(int minimumSize) {
+    Assert.isTrue(minimumSize >= 0, "The minimum size can't be negative.");
+    this.minimumSize = minimumSize;
+  }
+
+  public int getMaxDecompressedSize() {
+    return this.maxDecompressedSize;
+  }
+
+  /**
+   * Set the maximum size in bytes of decompressed payloads, 10 MB by default, which is the maximum
+   * size of a Pub/Sub message. Reading a payload that decompresses to more fails with a {@link
+   * PubSubMessageConversionException}.
+   *
+   * @param maxDecompressedSize the maximum decompressed payload size
+   */
+  public void setMaxDecompressedSize(int maxDecompressedSize) {
+    Assert.isTrue(maxDecompressedSize > 0, "The maximum decompressed size must be positive.");
+    this.maxDecompressedSize = maxDecompressedSize;
+  }
+
+  @Override
+  public PubsubMessage toPubSubMessage(Object payload, Map<String, String> headers) {
+    PubsubMessage message = this.delegate.toPubSubMessage(payload, headers);
+    ByteString data = message.getData();
+    if (data.size() < this.minimumSize || message.containsAttributes(CONTENT_ENCODING_ATTRIBUTE)) {
+      return message;
+    }
+
+    ByteString.Output compressed = ByteString.newOutput(Math.max(data.size() / 4, 256));
+    try (OutputStream encoder = this.codec.encode(compressed)) {
+      data.writeTo(encoder);
+    } catch (IOException ex) {
+      throw new PubSubMessageConversionException(
+          "Compressing the payload with " + this.codec.getName() + " failed.", ex);
+    }
+    if (compressed.size() >= data.size()) {
+      return message;
+    }
+    return message.toBuilder()
+        .setData(compressed.toByteString())
+        .putAttributes(CONTENT_ENCODING_ATTRIBUTE, this.codec.getName())
+        .build();
+  }
+
+  @Override
+  public <T> T fromPubSubMessage(PubsubMessage message, Class<T> payloadType) {
+    String encoding = message.getAttributesOrDefault(CONTENT_ENCODING_ATTRIBUTE, null);
+    if (encoding == null) {
+      return this.delegate.fromPubSubMessage(message, payloadType);
+    }
+
+    PubSubPayloadCodec decoder = this.decoders.get(encoding);
+    if (decoder == null) {
+      throw new PubSubMessageConversionException(
+          "No codec to decompress the payload encoded with " + encoding + ".");
+    }
+    // Decoding streams from the compressed data into chunks, without a contiguous copy of either.
+    // Reading one byte past the maximum size tells larger payloads apart without decoding them.
+    ByteString data;
+    try (InputStream decoded = decoder.decode(message.getData().newInput())) {
+      data = ByteString.readFrom(ByteStreams.limit(decoded, this.maxDecompressedSize + 1L));
+    } catch (IOException ex) {
+      throw new PubSubMessageConversionException(
+          "Decompressing the payload with " + encoding + " failed.", ex);
+    }
+    if (data.size() > this.maxDecompressedSize) {
+      throw new PubSubMessageConversionException(
+          "The payload decompressed with "
+              + encoding
+              + " exceeds the maximum size of "
+              + this.maxDecompressedSize
+              + " bytes.");
+    }
+    return this.delegate.fromPubSubMessage(
+        message.toBuilder().setData(data).removeAttributes(CONTENT_ENCODING_ATTRIBUTE).build(),
+        payloadType);
+  }
+}
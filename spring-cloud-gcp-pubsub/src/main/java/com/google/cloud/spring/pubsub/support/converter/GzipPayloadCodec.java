@@ -0,0 +1,42 @@
+/*
+ * Copyright 2022-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.support.converter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/** The {@link PubSubPayloadCodec#GZIP} codec. */
+final class GzipPayloadCodec implements PubSubPayloadCodec {
+
+  @Override
+  public String getName() {
+    return "gzip";
+  }
+
+  @Override
+  public OutputStream encode(OutputStream out) throws IOException {
+    return new GZIPOutputStream(out);
+  }
+
+  @Override
+  public InputStream decode(InputStream in) throws IOException {
+    return new GZIPInputStream(in);
+  }
+}
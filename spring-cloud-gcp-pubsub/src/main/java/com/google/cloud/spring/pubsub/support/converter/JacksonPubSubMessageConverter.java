@@ -18,17 +18,39 @@ package com.google.cloud.spring.pubsub.support.converter;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.google.protobuf.ByteString;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.protobuf.UnsafeByteOperations;
 import com.google.pubsub.v1.PubsubMessage;
 import java.io.IOException;
 import java.util.Map;
 import org.springframework.util.Assert;
 
-/** A converter using Jackson JSON. */
+/**
+ * A converter using Jackson JSON.
+ *
+ * <p>Readers are cached per payload type, in a {@link ClassValue} so that the cache does not keep
+ * the payload classes from being unloaded. Payloads are written like {@link
+ * ObjectMapper#writeValueAsBytes(Object)} does, based on their runtime type. Payloads are read
+ * directly from the message data, and the serialized JSON is wrapped into the message without being
+ * copied again. Since the reader and the writer capture the configuration of the {@link
+ * ObjectMapper} when they are created, the mapper should be fully configured before the converter
+ * is created.
+ */
 public class JacksonPubSubMessageConverter implements PubSubMessageConverter {
 
   private final ObjectMapper objectMapper;
 
+  private final ObjectWriter writer;
+
+  private final ClassValue<ObjectReader> readers =
+      new ClassValue<ObjectReader>() {
+        @Override
+        protected ObjectReader computeValue(Class<?> type) {
+          return JacksonPubSubMessageConverter.this.objectMapper.readerFor(type);
+        }
+      };
+
   /**
    * Constructor.
    *
@@ -37,13 +59,15 @@ public class JacksonPubSubMessageConverter implements PubSubMessageConverter {
   public JacksonPubSubMessageConverter(ObjectMapper objectMapper) {
     Assert.notNull(objectMapper, "A valid ObjectMapper is required.");
     this.objectMapper = objectMapper;
+    this.writer = objectMapper.writer();
   }
 
   @Override
   public PubsubMessage toPubSubMessage(Object payload, Map<String, String> headers) {
     try {
+      // The serialized array is never exposed or modified, so it can be wrapped without copying.
       return byteStringToPubSubMessage(
-          ByteString.copyFrom(this.objectMapper.writeValueAsBytes(payload)), headers);
+          UnsafeByteOperations.unsafeWrap(this.writer.writeValueAsBytes(payload)), headers);
     } catch (JsonProcessingException ex) {
       throw new PubSubMessageConversionException(
           "JSON serialization of an object of type " + payload.getClass().getName() + " failed.",
@@ -54,8 +78,7 @@ public class JacksonPubSubMessageConverter implements PubSubMessageConverter {
   @Override
   public <T> T fromPubSubMessage(PubsubMessage message, Class<T> payloadType) {
     try {
-      return (T)
-          this.objectMapper.readerFor(payloadType).readValue(message.getData().toByteArray());
+      return this.readers.get(payloadType).readValue(message.getData().newInput());
     } catch (IOException ex) {
       throw new PubSubMessageConversionException(
           "JSON deserialization of an object of type " + payloadType.getName() + " failed.", ex);
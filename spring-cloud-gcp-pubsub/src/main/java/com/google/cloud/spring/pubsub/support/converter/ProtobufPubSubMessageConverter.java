@@ -0,0 +1,124 @@
+/*
+ * Copyright 2022-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.support.converter;
+
+import com.google.protobuf.Internal;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
+import com.google.pubsub.v1.PubsubMessage;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.util.Assert;
+
+/**
+ * A converter of Protocol Buffers payloads, in their binary encoding.
+ *
+ * <p>The full name of the message type of each payload, or the class name of lite messages, is
+ * recorded in the {@value #PAYLOAD_TYPE_ATTRIBUTE} attribute. Payloads are read as the requested
+ * type if it is a concrete message class. Otherwise, such as when reading {@link Message} or
+ * {@link Object} payloads, the type is resolved from the attribute among the types registered with
+ * {@link #registerType(Class)}.
+ *
+ * <p>Parsers are cached per payload type, and payloads are serialized into an array of their exact
+ * size that is wrapped into the message without being copied again.
+ *
+ * @since 3.2
+ */
+public class ProtobufPubSubMessageConverter implements PubSubMessageConverter {
+
+  /** The attribute naming the message type of the payload. */
+  public static final String PAYLOAD_TYPE_ATTRIBUTE = "protobuf-type";
+
+  private final Map<Class<?>, Parser<?>> parsers = new ConcurrentHashMap<>();
+
+  private final Map<String, Class<? extends MessageLite>> registeredTypes =
+      new ConcurrentHashMap<>();
+
+  /**
+   * Register a message type that payloads can be resolved to from their attribute.
+   *
+   * @param payloadType the generated message class
+   */
+  public void registerType(Class<? extends MessageLite> payloadType) {
+    Assert.notNull(payloadType, "The payload type can't be null.");
+    this.registeredTypes.put(typeName(Internal.getDefaultInstance(payloadType)), payloadType);
+  }
+
+  @Override
+  public PubsubMessage toPubSubMessage(Object payload, Map<String, String> headers) {
+    if (!(payload instanceof MessageLite)) {
+      throw new PubSubMessageConversionException(
+          "Unable to convert payload of type "
+              + (payload != null ? payload.getClass().getName() : "null")
+              + " to a Protocol Buffers message.");
+    }
+    MessageLite protobufMessage = (MessageLite) payload;
+    PubsubMessage message = byteStringToPubSubMessage(protobufMessage.toByteString(), headers);
+    return message.toBuilder()
+        .putAttributes(PAYLOAD_TYPE_ATTRIBUTE, typeName(protobufMessage))
+        .build();
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T fromPubSubMessage(PubsubMessage message, Class<T> payloadType) {
+    Class<?> messageType = resolveType(message, payloadType);
+    Parser<?> parser =
+        this.parsers.computeIfAbsent(
+            messageType,
+            type ->
+                Internal.getDefaultInstance(type.asSubclass(MessageLite.class))
+                    .getParserForType());
+    try {
+      return (T) parser.parseFrom(message.getData());
+    } catch (InvalidProtocolBufferException ex) {
+      throw new PubSubMessageConversionException(
+          "Protocol Buffers deserialization of a message of type "
+              + messageType.getName()
+              + " failed.",
+          ex);
+    }
+  }
+
+  private Class<?> resolveType(PubsubMessage message, Class<?> payloadType) {
+    if (MessageLite.class.isAssignableFrom(payloadType)
+        && !payloadType.isInterface()
+        && !Modifier.isAbstract(payloadType.getModifiers())) {
+      return payloadType;
+    }
+    String typeName = message.getAttributesOrDefault(PAYLOAD_TYPE_ATTRIBUTE, null);
+    Class<?> registeredType = (typeName != null) ? this.registeredTypes.get(typeName) : null;
+    if (registeredType == null || !payloadType.isAssignableFrom(registeredType)) {
+      throw new PubSubMessageConversionException(
+          "Unable to resolve the Protocol Buffers message type "
+              + typeName
+              + " to a registered subtype of "
+              + payloadType.getName()
+              + ".");
+    }
+    return registeredType;
+  }
+
+  private static String typeName(MessageLite message) {
+    return (message instanceof Message)
+        ? ((Message) message).getDescriptorForType().getFullName()
+        : message.getClass().getName();
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2022-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.support.converter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A compression codec for the payloads of a {@link CompressingPubSubMessageConverter}.
+ *
+ * @since 3.2
+ */
+public interface PubSubPayloadCodec {
+
+  /** The gzip codec of the JDK, named {@code gzip}. */
+  PubSubPayloadCodec GZIP = new GzipPayloadCodec();
+
+  /**
+   * Return the name of the codec, which is recorded in the attributes of the encoded messages.
+   *
+   * @return the codec name
+   */
+  String getName();
+
+  /**
+   * Wrap a stream to encode the bytes written to it. Closing the returned stream must finish the
+   * encoding and close the wrapped stream.
+   *
+   * @param out the stream to write the encoded bytes to
+   * @return the stream to write the bytes to encode to
+   * @throws IOException if the encoding can't be started
+   */
+  OutputStream encode(OutputStream out) throws IOException;
+
+  /**
+   * Wrap a stream to decode the bytes read from it.
+   *
+   * @param in the stream to read the encoded bytes from
+   * @return the stream to read the decoded bytes from
+   * @throws IOException if the encoded bytes are invalid
+   */
+  InputStream decode(InputStream in) throws IOException;
+}
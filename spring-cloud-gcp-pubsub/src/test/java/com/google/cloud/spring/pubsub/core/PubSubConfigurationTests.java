@@ -33,6 +33,7 @@ class PubSubConfigurationTests {
     assertThat(health.getBacklogThreshold()).isNull();
     assertThat(health.getLookUpInterval()).isEqualTo(1);
     assertThat(health.getExecutorThreads()).isEqualTo(4);
+    assertThat(health.getBacklogSamplingInterval()).isEqualTo(60);
   }
 
   @Test
@@ -96,11 +97,13 @@ class PubSubConfigurationTests {
     health.setBacklogThreshold(4);
     health.setLookUpInterval(6);
     health.setExecutorThreads(5);
+    health.setBacklogSamplingInterval(30);
 
     assertThat(pubSubConfiguration.getHealth().getLagThreshold()).isEqualTo(3);
     assertThat(pubSubConfiguration.getHealth().getBacklogThreshold()).isEqualTo(4);
     assertThat(pubSubConfiguration.getHealth().getLookUpInterval()).isEqualTo(6);
     assertThat(pubSubConfiguration.getHealth().getExecutorThreads()).isEqualTo(5);
+    assertThat(pubSubConfiguration.getHealth().getBacklogSamplingInterval()).isEqualTo(30);
   }
 
   @Test
@@ -538,4 +541,49 @@ class PubSubConfigurationTests {
     assertThat(retrySettings.getRpcTimeoutMultiplier()).isEqualTo(12.0);
     assertThat(retrySettings.getMaxRpcTimeoutSeconds()).isEqualTo(8L);
   }
+
+  @Test
+  void testComputePublisherSettings_topicSpecificTakesPrecedence() {
+    PubSubConfiguration pubSubConfiguration = new PubSubConfiguration();
+    PubSubConfiguration.Publisher publisher = pubSubConfiguration.getPublisher();
+    publisher.getBatching().setElementCountThreshold(100L);
+    publisher.getBatching().setDelayThresholdSeconds(1L);
+    publisher.getBatching().getFlowControl().setMaxOutstandingElementCount(1000L);
+    publisher.getRetry().setMaxAttempts(5);
+    publisher.getRetry().setJittered(true);
+
+    PubSubConfiguration.TopicPublisher topicPublisher = new PubSubConfiguration.TopicPublisher();
+    topicPublisher.getBatching().setElementCountThreshold(1L);
+    topicPublisher.getRetry().setMaxAttempts(1);
+    publisher.getTopic().put("control", topicPublisher);
+
+    PubSubConfiguration.Batching batching =
+        pubSubConfiguration.computePublisherBatchingSettings("control", "projectId");
+    assertThat(batching.getElementCountThreshold()).isEqualTo(1L);
+    assertThat(batching.getDelayThresholdSeconds()).isEqualTo(1L);
+    assertThat(batching.getFlowControl().getMaxOutstandingElementCount()).isEqualTo(1000L);
+
+    PubSubConfiguration.Retry retry =
+        pubSubConfiguration.computePublisherRetrySettings(
+            "projects/projectId/topics/control", "projectId");
+    assertThat(retry.getMaxAttempts()).isEqualTo(1);
+    assertThat(retry.getJittered()).isTrue();
+  }
+
+  @Test
+  void testComputePublisherSettings_fallsBackToGlobal() {
+    PubSubConfiguration pubSubConfiguration = new PubSubConfiguration();
+    PubSubConfiguration.Publisher publisher = pubSubConfiguration.getPublisher();
+    publisher.getTopic().put("control", new PubSubConfiguration.TopicPublisher());
+
+    assertThat(pubSubConfiguration.getTopicPublisher("telemetry", "projectId")).isNull();
+    assertThat(
+            pubSubConfiguration.getTopicPublisher(
+                "projects/otherProject/topics/control", "projectId"))
+        .isNull();
+    assertThat(pubSubConfiguration.computePublisherBatchingSettings("telemetry", "projectId"))
+        .isSameAs(publisher.getBatching());
+    assertThat(pubSubConfiguration.computePublisherRetrySettings("telemetry", "projectId"))
+        .isSameAs(publisher.getRetry());
+  }
 }
@@ -22,12 +22,17 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.api.core.ApiService;
@@ -35,14 +40,21 @@ import com.google.api.core.SettableApiFuture;
 import com.google.cloud.pubsub.v1.MessageReceiver;
 import com.google.cloud.pubsub.v1.Publisher;
 import com.google.cloud.pubsub.v1.Subscriber;
+import com.google.cloud.spring.pubsub.core.publisher.PubSubPublisherOperations;
 import com.google.cloud.spring.pubsub.core.publisher.PubSubPublisherTemplate;
+import com.google.cloud.spring.pubsub.core.publisher.PublishAllResult;
 import com.google.cloud.spring.pubsub.core.test.allowed.AllowedPayload;
+import com.google.cloud.spring.pubsub.support.PubSubMetrics;
 import com.google.cloud.spring.pubsub.support.PublisherFactory;
 import com.google.cloud.spring.pubsub.support.SubscriberFactory;
 import com.google.cloud.spring.pubsub.support.converter.JacksonPubSubMessageConverter;
+import com.google.cloud.spring.pubsub.support.converter.PubSubMessageConversionException;
 import com.google.protobuf.ByteString;
 import com.google.pubsub.v1.PubsubMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
@@ -54,6 +66,7 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
 
 /** Tests for the Pub/Sub template. */
 @RunWith(MockitoJUnitRunner.class)
@@ -199,8 +212,178 @@ public class PubSubTemplateTests {
         .hasMessageContaining("Publish failed");
   }
 
+  @Test
+  public void testPublish_retriesWithNewPublisherWhenShutDown() throws Exception {
+    Publisher newPublisher = mock(Publisher.class);
+    when(this.mockPublisher.publish(isA(PubsubMessage.class)))
+        .thenThrow(new IllegalStateException("Cannot publish on a shut-down publisher."));
+    when(this.mockPublisherFactory.createPublisher("testTopic"))
+        .thenReturn(this.mockPublisher, newPublisher);
+    when(newPublisher.publish(this.pubsubMessage)).thenReturn(this.settableApiFuture);
+    this.settableApiFuture.set("result");
+
+    assertThat(this.pubSubTemplate.publish("testTopic", this.pubsubMessage).get())
+        .isEqualTo("result");
+  }
+
+  @Test
+  public void testPublish_failsWhenSamePublisherIsShutDown() {
+    IllegalStateException shutDown =
+        new IllegalStateException("Cannot publish on a shut-down publisher.");
+    when(this.mockPublisher.publish(isA(PubsubMessage.class))).thenThrow(shutDown);
+
+    assertThatThrownBy(() -> this.pubSubTemplate.publish("testTopic", this.pubsubMessage))
+        .isSameAs(shutDown);
+  }
+
+  @Test
+  public void testPublishAll() throws ExecutionException, InterruptedException {
+    SettableApiFuture<String> secondFuture = SettableApiFuture.create();
+    SettableApiFuture<String> thirdFuture = SettableApiFuture.create();
+    when(this.mockPublisher.publish(isA(PubsubMessage.class)))
+        .thenReturn(this.settableApiFuture, secondFuture, thirdFuture);
+
+    ListenableFuture<PublishAllResult> future =
+        this.pubSubTemplate.publishAll(
+            "testTopic", Arrays.asList("payload1", "payload2", "payload3"));
+
+    verify(this.mockPublisherFactory, times(1)).createPublisher("testTopic");
+    verify(this.mockPublisher, times(3)).publish(isA(PubsubMessage.class));
+
+    thirdFuture.set("id3");
+    secondFuture.setException(new Exception("Publish failed"));
+    assertThat(future.isDone()).isFalse();
+    this.settableApiFuture.set("id1");
+
+    PublishAllResult result = future.get();
+    assertThat(result.getMessageIds()).containsExactly("id1", null, "id3");
+    assertThat(result.hasFailures()).isTrue();
+    assertThat(result.getFailures()).containsOnlyKeys(1);
+    assertThat(result.getFailures().get(1).getFailedMessage().getData().toStringUtf8())
+        .isEqualTo("payload2");
+    assertThat(result.getFailures().get(1)).hasMessageContaining("Publish failed");
+  }
+
+  @Test
+  public void testPublishAll_recordsMetrics() {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    PubSubPublisherTemplate publisherTemplate = createPublisherTemplate();
+    publisherTemplate.setMetrics(new PubSubMetrics(meterRegistry));
+    SettableApiFuture<String> secondFuture = SettableApiFuture.create();
+    when(this.mockPublisher.publish(isA(PubsubMessage.class)))
+        .thenReturn(this.settableApiFuture, secondFuture);
+
+    publisherTemplate.publishAll("testTopic", Arrays.asList("payload1", "payload2"));
+    this.settableApiFuture.set("id1");
+    secondFuture.setException(new Exception("Publish failed"));
+
+    assertThat(
+            meterRegistry
+                .get("spring.cloud.gcp.pubsub.publish.batch.size")
+                .tag("topic", "testTopic")
+                .summary()
+                .totalAmount())
+        .isEqualTo(2);
+    assertThat(meterRegistry.get("spring.cloud.gcp.pubsub.publish.blocked").timer().count())
+        .isEqualTo(2);
+    assertThat(
+            meterRegistry
+                .get("spring.cloud.gcp.pubsub.publish")
+                .tag("result", "success")
+                .timer()
+                .count())
+        .isEqualTo(1);
+    assertThat(
+            meterRegistry
+                .get("spring.cloud.gcp.pubsub.publish")
+                .tag("result", "failure")
+                .timer()
+                .count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  public void testPublishAll_retriesWithNewPublisherWhenShutDown() throws Exception {
+    Publisher newPublisher = mock(Publisher.class);
+    when(this.mockPublisher.publish(isA(PubsubMessage.class)))
+        .thenThrow(new IllegalStateException("Cannot publish on a shut-down publisher."));
+    when(this.mockPublisherFactory.createPublisher("testTopic"))
+        .thenReturn(this.mockPublisher, newPublisher);
+    SettableApiFuture<String> secondFuture = SettableApiFuture.create();
+    when(newPublisher.publish(isA(PubsubMessage.class)))
+        .thenReturn(this.settableApiFuture, secondFuture);
+    this.settableApiFuture.set("id1");
+    secondFuture.set("id2");
+
+    PublishAllResult result =
+        this.pubSubTemplate.publishAll("testTopic", Arrays.asList("payload1", "payload2")).get();
+
+    assertThat(result.hasFailures()).isFalse();
+    assertThat(result.getMessageIds()).containsExactly("id1", "id2");
+    verify(this.mockPublisher, times(1)).publish(isA(PubsubMessage.class));
+  }
+
+  @Test
+  public void testPublishAll_convertsPubsubMessagePayloads() {
+    assertThatThrownBy(
+            () ->
+                this.pubSubTemplate.publishAll(
+                    "testTopic", Collections.singletonList(this.pubsubMessage)))
+        .isInstanceOf(PubSubMessageConversionException.class);
+
+    verify(this.mockPublisher, never()).publish(any());
+  }
+
+  @Test
+  public void testPublishAll_defaultPublishesEachPayload() throws Exception {
+    PubSubPublisherOperations publisherOperations =
+        mock(PubSubPublisherOperations.class, withSettings().defaultAnswer(CALLS_REAL_METHODS));
+    SettableListenableFuture<String> firstFuture = new SettableListenableFuture<>();
+    SettableListenableFuture<String> secondFuture = new SettableListenableFuture<>();
+    doReturn(firstFuture).when(publisherOperations).publish("testTopic", "payload1");
+    doReturn(secondFuture).when(publisherOperations).publish("testTopic", "payload2");
+    doThrow(new PubSubMessageConversionException("Unsupported payload"))
+        .when(publisherOperations)
+        .publish("testTopic", "payload3");
+
+    ListenableFuture<PublishAllResult> future =
+        publisherOperations.publishAll(
+            "testTopic", Arrays.asList("payload1", "payload2", "payload3"));
+    secondFuture.setException(
+        new PubSubDeliveryException(this.pubsubMessage, "Publish failed", new Exception()));
+    assertThat(future.isDone()).isFalse();
+    firstFuture.set("id1");
+
+    PublishAllResult result = future.get();
+    assertThat(result.getMessageIds()).containsExactly("id1", null, null);
+    assertThat(result.getFailures()).containsOnlyKeys(1, 2);
+    assertThat(result.getFailures().get(1).getFailedMessage()).isSameAs(this.pubsubMessage);
+    assertThat(result.getFailures().get(2))
+        .hasCauseInstanceOf(PubSubMessageConversionException.class);
+  }
+
+  @Test
+  public void testPublishAll_empty() throws ExecutionException, InterruptedException {
+    PublishAllResult result =
+        this.pubSubTemplate.publishAll("testTopic", Collections.emptyList()).get();
+
+    assertThat(result.getMessageIds()).isEmpty();
+    assertThat(result.hasFailures()).isFalse();
+    verify(this.mockPublisher, never()).publish(any());
+  }
+
+  @Test
+  public void testPublishAll_conversionFailurePublishesNothing() {
+    assertThatThrownBy(
+            () -> this.pubSubTemplate.publishAll("testTopic", Arrays.asList("ok", new Object())))
+        .isInstanceOf(PubSubMessageConversionException.class);
+
+    verify(this.mockPublisher, never()).publish(any());
+  }
+
   @Test
   public void testSubscribe() {
+    when(this.mockSubscriberFactory.getProjectId()).thenReturn("testProject");
     Subscriber subscriber = this.pubSubTemplate.subscribe("testSubscription", message -> {});
     assertThat(subscriber).isEqualTo(this.mockSubscriber);
     verify(this.mockSubscriber, times(1)).startAsync();
@@ -18,20 +18,37 @@ package com.google.cloud.spring.pubsub.core.health;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.google.api.MonitoredResource;
 import com.google.api.core.ApiService;
 import com.google.api.core.ApiService.State;
 import com.google.api.gax.core.ExecutorProvider;
 import com.google.cloud.monitoring.v3.MetricServiceClient;
+import com.google.cloud.monitoring.v3.MetricServiceClient.ListTimeSeriesPagedResponse;
 import com.google.cloud.pubsub.v1.MessageReceiver;
 import com.google.cloud.pubsub.v1.Subscriber;
+import com.google.monitoring.v3.Point;
+import com.google.monitoring.v3.ProjectName;
+import com.google.monitoring.v3.TimeSeries;
+import com.google.monitoring.v3.TypedValue;
 import com.google.pubsub.v1.ProjectSubscriptionName;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -222,4 +239,167 @@ public class HealthTrackerRegistryImplTests {
 
     verify(healthTrackers).containsKey(subscriptionName);
   }
+
+  @Test
+  public void testBacklogSamplingServesTrackersFromOneQuery() {
+    ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+    when(executorProvider.getExecutor()).thenReturn(executor);
+    HealthTrackerRegistryImpl registry = laggingRegistry();
+    registry.setBacklogSamplingInterval(30);
+
+    HealthTracker first = registry.registerTracker("first");
+    HealthTracker second = registry.registerTracker("second");
+
+    ArgumentCaptor<Runnable> sampling = ArgumentCaptor.forClass(Runnable.class);
+    verify(executor)
+        .scheduleWithFixedDelay(sampling.capture(), eq(0L), eq(30L), eq(TimeUnit.SECONDS));
+
+    ListTimeSeriesPagedResponse response = mock(ListTimeSeriesPagedResponse.class);
+    when(response.iterateAll())
+        .thenReturn(
+            Arrays.asList(backlogTimeSeries("first", 150), backlogTimeSeries("second", 50)));
+    ArgumentCaptor<String> filter = ArgumentCaptor.forClass(String.class);
+    doReturn(response)
+        .when(metricServiceClient)
+        .listTimeSeries(eq(ProjectName.of(DEFAULT_PROJECT_ID)), filter.capture(), any(), any());
+
+    sampling.getValue().run();
+
+    assertThat(filter.getValue())
+        .endsWith("resource.label.subscription_id=one_of(\"first\",\"second\")");
+    assertThat(first.messagesOverThreshold()).isEqualTo(50);
+    assertThat(second.messagesOverThreshold()).isEqualTo(-50);
+    verify(metricServiceClient, times(1))
+        .listTimeSeries(any(ProjectName.class), anyString(), any(), any());
+  }
+
+  @Test
+  public void testBacklogSamplingSamplesFirstSubscriptionRightAway() {
+    ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+    when(executorProvider.getExecutor()).thenReturn(executor);
+    doAnswer(
+            invocation -> {
+              invocation.<Runnable>getArgument(0).run();
+              return null;
+            })
+        .when(executor)
+        .scheduleWithFixedDelay(any(Runnable.class), eq(0L), eq(30L), eq(TimeUnit.SECONDS));
+    ListTimeSeriesPagedResponse response = mock(ListTimeSeriesPagedResponse.class);
+    when(response.iterateAll())
+        .thenReturn(Collections.singletonList(backlogTimeSeries("subscription-id", 150)));
+    doReturn(response)
+        .when(metricServiceClient)
+        .listTimeSeries(any(ProjectName.class), anyString(), any(), any());
+    HealthTrackerRegistryImpl registry = laggingRegistry();
+    registry.setBacklogSamplingInterval(30);
+
+    HealthTracker healthTracker = registry.registerTracker("subscription-id");
+
+    assertThat(healthTracker.messagesOverThreshold()).isEqualTo(50);
+  }
+
+  @Test
+  public void testBacklogSamplingSamplesLaterSubscriptionsRightAway() {
+    ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+    when(executorProvider.getExecutor()).thenReturn(executor);
+    HealthTrackerRegistryImpl registry = laggingRegistry();
+    registry.setBacklogSamplingInterval(30);
+
+    registry.registerTracker("first");
+    HealthTracker second = registry.registerTracker("second");
+    registry.registerTracker("third");
+
+    ArgumentCaptor<Runnable> sample = ArgumentCaptor.forClass(Runnable.class);
+    verify(executor, times(1)).execute(sample.capture());
+
+    ListTimeSeriesPagedResponse response = mock(ListTimeSeriesPagedResponse.class);
+    when(response.iterateAll())
+        .thenReturn(Collections.singletonList(backlogTimeSeries("second", 120)));
+    doReturn(response)
+        .when(metricServiceClient)
+        .listTimeSeries(any(ProjectName.class), anyString(), any(), any());
+
+    sample.getValue().run();
+
+    assertThat(second.messagesOverThreshold()).isEqualTo(20);
+    registry.registerTracker("fourth");
+    verify(executor, times(2)).execute(any(Runnable.class));
+  }
+
+  @Test
+  public void testBacklogSamplingReportsUnsampledSubscriptionsAsUnknown() {
+    ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+    when(executorProvider.getExecutor()).thenReturn(executor);
+    HealthTrackerRegistryImpl registry = laggingRegistry();
+    registry.setBacklogSamplingInterval(30);
+
+    HealthTracker healthTracker = registry.registerTracker("subscription-id");
+
+    assertThat(healthTracker.messagesOverThreshold()).isZero();
+    verify(metricServiceClient, never())
+        .listTimeSeries(any(ProjectName.class), anyString(), any(), any());
+  }
+
+  @Test
+  public void testBacklogSamplingKeepsLastKnownBacklogWhenSamplingFails() {
+    ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+    when(executorProvider.getExecutor()).thenReturn(executor);
+    HealthTrackerRegistryImpl registry = laggingRegistry();
+    registry.setBacklogSamplingInterval(30);
+
+    HealthTracker healthTracker = registry.registerTracker("subscription-id");
+
+    ArgumentCaptor<Runnable> sampling = ArgumentCaptor.forClass(Runnable.class);
+    verify(executor)
+        .scheduleWithFixedDelay(sampling.capture(), eq(0L), eq(30L), eq(TimeUnit.SECONDS));
+
+    ListTimeSeriesPagedResponse response = mock(ListTimeSeriesPagedResponse.class);
+    when(response.iterateAll())
+        .thenReturn(Collections.singletonList(backlogTimeSeries("subscription-id", 120)));
+    doReturn(response)
+        .doThrow(new RuntimeException("Cloud Monitoring unavailable"))
+        .when(metricServiceClient)
+        .listTimeSeries(any(ProjectName.class), anyString(), any(), any());
+
+    sampling.getValue().run();
+    sampling.getValue().run();
+
+    assertThat(healthTracker.messagesOverThreshold()).isEqualTo(20);
+    verify(metricServiceClient, times(2))
+        .listTimeSeries(any(ProjectName.class), anyString(), any(), any());
+  }
+
+  @Test
+  public void testDestroyStopsBacklogSampling() {
+    ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+    ScheduledFuture<?> future = mock(ScheduledFuture.class);
+    when(executorProvider.getExecutor()).thenReturn(executor);
+    doReturn(future)
+        .when(executor)
+        .scheduleWithFixedDelay(any(Runnable.class), anyLong(), anyLong(), any(TimeUnit.class));
+    HealthTrackerRegistryImpl registry = laggingRegistry();
+    registry.setBacklogSamplingInterval(30);
+    registry.registerTracker("subscription-id");
+
+    registry.destroy();
+
+    verify(future).cancel(false);
+  }
+
+  private HealthTrackerRegistryImpl laggingRegistry() {
+    return new HealthTrackerRegistryImpl(
+        DEFAULT_PROJECT_ID,
+        metricServiceClient,
+        0,
+        DEFAULT_BACKLOG_THRESHOLD,
+        MINUTE_INTERNAL,
+        executorProvider);
+  }
+
+  private static TimeSeries backlogTimeSeries(String subscriptionId, long backlog) {
+    return TimeSeries.newBuilder()
+        .setResource(MonitoredResource.newBuilder().putLabels("subscription_id", subscriptionId))
+        .addPoints(Point.newBuilder().setValue(TypedValue.newBuilder().setInt64Value(backlog)))
+        .build();
+  }
 }
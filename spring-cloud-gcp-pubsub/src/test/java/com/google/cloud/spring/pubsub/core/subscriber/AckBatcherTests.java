@@ -0,0 +1,281 @@
+/*
+ * Copyright 2022-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.core.subscriber;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.core.SettableApiFuture;
+import com.google.api.gax.batching.BatchingSettings;
+import com.google.protobuf.Empty;
+import com.google.pubsub.v1.ProjectSubscriptionName;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.threeten.bp.Duration;
+
+/** Tests for {@link AckBatcher}. */
+class AckBatcherTests {
+
+  private static final ProjectSubscriptionName SUBSCRIPTION_1 =
+      ProjectSubscriptionName.of("proj", "sub1");
+
+  private static final ProjectSubscriptionName SUBSCRIPTION_2 =
+      ProjectSubscriptionName.of("proj", "sub2");
+
+  private final List<Request> requests = new CopyOnWriteArrayList<>();
+
+  private ScheduledExecutorService scheduler;
+
+  private ApiFuture<Empty> operationResult = ApiFutures.immediateFuture(Empty.getDefaultInstance());
+
+  @BeforeEach
+  void setUp() {
+    this.scheduler = Executors.newSingleThreadScheduledExecutor();
+  }
+
+  @AfterEach
+  void tearDown() {
+    this.scheduler.shutdownNow();
+  }
+
+  private AckBatcher createBatcher(BatchingSettings batchingSettings) {
+    return new AckBatcher(
+        batchingSettings,
+        this.scheduler,
+        Runnable::run,
+        (subscription, ackIds) -> {
+          this.requests.add(new Request(subscription, ackIds, null));
+          return this.operationResult;
+        },
+        (subscription, ackIds, ackDeadlineSeconds) -> {
+          this.requests.add(new Request(subscription, ackIds, ackDeadlineSeconds));
+          return this.operationResult;
+        });
+  }
+
+  @Test
+  void ack_flushesWhenElementCountThresholdReached() throws Exception {
+    AckBatcher batcher =
+        createBatcher(
+            BatchingSettings.newBuilder()
+                .setElementCountThreshold(3L)
+                .setRequestByteThreshold(100_000L)
+                .setDelayThreshold(Duration.ofMinutes(1))
+                .build());
+
+    ListenableFuture<Void> future1 = batcher.ack(SUBSCRIPTION_1, "ack1");
+    ListenableFuture<Void> future2 = batcher.ack(SUBSCRIPTION_1, "ack2");
+
+    assertThat(this.requests).isEmpty();
+    assertThat(future1.isDone()).isFalse();
+
+    ListenableFuture<Void> future3 = batcher.ack(SUBSCRIPTION_1, "ack3");
+
+    assertThat(this.requests)
+        .containsExactly(
+            new Request(SUBSCRIPTION_1.toString(), Arrays.asList("ack1", "ack2", "ack3"), null));
+    assertThat(future1.get()).isNull();
+    assertThat(future2.get()).isNull();
+    assertThat(future3.get()).isNull();
+  }
+
+  @Test
+  void ack_flushesWhenRequestByteThresholdReached() {
+    AckBatcher batcher =
+        createBatcher(
+            BatchingSettings.newBuilder()
+                .setElementCountThreshold(100L)
+                .setRequestByteThreshold(20L)
+                .setDelayThreshold(Duration.ofMinutes(1))
+                .build());
+
+    batcher.ack(SUBSCRIPTION_1, "0123456");
+    assertThat(this.requests).isEmpty();
+    batcher.ack(SUBSCRIPTION_1, "0123456");
+
+    assertThat(this.requests).hasSize(1);
+    assertThat(this.requests.get(0).ackIds).hasSize(2);
+  }
+
+  @Test
+  void ack_flushesWhenDelayThresholdReached() throws Exception {
+    AckBatcher batcher =
+        createBatcher(
+            BatchingSettings.newBuilder()
+                .setElementCountThreshold(100L)
+                .setRequestByteThreshold(100_000L)
+                .setDelayThreshold(Duration.ofMillis(50))
+                .build());
+
+    ListenableFuture<Void> future = batcher.ack(SUBSCRIPTION_1, "ack1");
+
+    assertThat(future.get(10, TimeUnit.SECONDS)).isNull();
+    assertThat(this.requests)
+        .containsExactly(new Request(SUBSCRIPTION_1.toString(), Arrays.asList("ack1"), null));
+  }
+
+  @Test
+  void batchesAreKeptPerSubscriptionAndDeadline() {
+    AckBatcher batcher =
+        createBatcher(
+            BatchingSettings.newBuilder()
+                .setElementCountThreshold(100L)
+                .setRequestByteThreshold(100_000L)
+                .setDelayThreshold(Duration.ofMinutes(1))
+                .build());
+
+    batcher.ack(SUBSCRIPTION_1, "ack1");
+    batcher.ack(SUBSCRIPTION_2, "ack2");
+    batcher.modifyAckDeadline(SUBSCRIPTION_1, "ack3", 0);
+    batcher.modifyAckDeadline(SUBSCRIPTION_1, "ack4", 0);
+    batcher.modifyAckDeadline(SUBSCRIPTION_1, "ack5", 30);
+
+    batcher.flush();
+
+    assertThat(this.requests)
+        .containsExactlyInAnyOrder(
+            new Request(SUBSCRIPTION_1.toString(), Arrays.asList("ack1"), null),
+            new Request(SUBSCRIPTION_2.toString(), Arrays.asList("ack2"), null),
+            new Request(SUBSCRIPTION_1.toString(), Arrays.asList("ack3", "ack4"), 0),
+            new Request(SUBSCRIPTION_1.toString(), Arrays.asList("ack5"), 30));
+  }
+
+  @Test
+  void elementCountThresholdIsCappedAtRequestLimit() {
+    AckBatcher batcher =
+        createBatcher(
+            BatchingSettings.newBuilder()
+                .setElementCountThreshold(1_000_000L)
+                .setRequestByteThreshold(100_000L)
+                .setDelayThreshold(Duration.ofMinutes(1))
+                .build());
+
+    for (int i = 0; i < AckBatcher.MAX_ACK_IDS_PER_REQUEST; i++) {
+      batcher.ack(SUBSCRIPTION_1, "ack" + i);
+    }
+
+    assertThat(this.requests).hasSize(1);
+    assertThat(this.requests.get(0).ackIds).hasSize(AckBatcher.MAX_ACK_IDS_PER_REQUEST);
+  }
+
+  @Test
+  void failedRequestFailsAllFuturesOfTheBatch() {
+    SettableApiFuture<Empty> result = SettableApiFuture.create();
+    this.operationResult = result;
+    AckBatcher batcher =
+        createBatcher(
+            BatchingSettings.newBuilder()
+                .setElementCountThreshold(2L)
+                .setRequestByteThreshold(100_000L)
+                .setDelayThreshold(Duration.ofMinutes(1))
+                .build());
+
+    ListenableFuture<Void> future1 = batcher.ack(SUBSCRIPTION_1, "ack1");
+    ListenableFuture<Void> future2 = batcher.ack(SUBSCRIPTION_1, "ack2");
+    assertThat(future1.isDone()).isFalse();
+
+    result.setException(new IllegalStateException("boom"));
+
+    assertThatThrownBy(future1::get)
+        .isInstanceOf(ExecutionException.class)
+        .hasCauseInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(future2::get)
+        .isInstanceOf(ExecutionException.class)
+        .hasCauseInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  void close_flushesPendingAndSendsLaterCallsDirectly() {
+    AckBatcher batcher =
+        createBatcher(
+            BatchingSettings.newBuilder()
+                .setElementCountThreshold(100L)
+                .setRequestByteThreshold(100_000L)
+                .setDelayThreshold(Duration.ofMinutes(1))
+                .build());
+
+    batcher.ack(SUBSCRIPTION_1, "ack1");
+    batcher.close();
+
+    assertThat(this.requests).hasSize(1);
+
+    batcher.ack(SUBSCRIPTION_1, "ack2");
+
+    assertThat(this.requests)
+        .containsExactly(
+            new Request(SUBSCRIPTION_1.toString(), Arrays.asList("ack1"), null),
+            new Request(SUBSCRIPTION_1.toString(), Arrays.asList("ack2"), null));
+  }
+
+  @Test
+  void modifyAckDeadline_negativeDeadlineFails() {
+    AckBatcher batcher = createBatcher(BatchingSettings.newBuilder().build());
+
+    assertThatThrownBy(() -> batcher.modifyAckDeadline(SUBSCRIPTION_1, "ack1", -1))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("The ackDeadlineSeconds must not be negative.");
+  }
+
+  private static final class Request {
+
+    private final String subscription;
+
+    private final List<String> ackIds;
+
+    private final Integer ackDeadlineSeconds;
+
+    Request(String subscription, List<String> ackIds, Integer ackDeadlineSeconds) {
+      this.subscription = subscription;
+      this.ackIds = new ArrayList<>(ackIds);
+      this.ackDeadlineSeconds = ackDeadlineSeconds;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Request)) {
+        return false;
+      }
+      Request that = (Request) o;
+      return this.subscription.equals(that.subscription)
+          && this.ackIds.equals(that.ackIds)
+          && Objects.equals(this.ackDeadlineSeconds, that.ackDeadlineSeconds);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(this.subscription, this.ackIds, this.ackDeadlineSeconds);
+    }
+
+    @Override
+    public String toString() {
+      return this.subscription + this.ackIds + this.ackDeadlineSeconds;
+    }
+  }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2022-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.core.subscriber;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.google.api.core.ApiClock;
+import com.google.api.core.ApiFutures;
+import com.google.protobuf.Empty;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.threeten.bp.Duration;
+
+/** Tests for {@link LeaseManager}. */
+class LeaseManagerTests {
+
+  private static final String SUBSCRIPTION_1 = "projects/proj/subscriptions/sub1";
+
+  private static final String SUBSCRIPTION_2 = "projects/proj/subscriptions/sub2";
+
+  private final FakeClock clock = new FakeClock();
+
+  private final List<String> requests = new ArrayList<>();
+
+  private ScheduledExecutorService scheduler;
+
+  private ScheduledFuture<?> renewalTask;
+
+  @BeforeEach
+  void setUp() {
+    this.scheduler = mock(ScheduledExecutorService.class);
+    this.renewalTask = mock(ScheduledFuture.class);
+    doReturn(this.renewalTask)
+        .when(this.scheduler)
+        .scheduleWithFixedDelay(any(Runnable.class), anyLong(), anyLong(), any(TimeUnit.class));
+  }
+
+  private LeaseManager createLeaseManager(Duration maxAckExtensionPeriod) {
+    return new LeaseManager(
+        maxAckExtensionPeriod,
+        this.scheduler,
+        (subscription, ackIds, ackDeadlineSeconds) -> {
+          this.requests.add(subscription + new TreeSet<>(ackIds) + ackDeadlineSeconds);
+          return ApiFutures.immediateFuture(Empty.getDefaultInstance());
+        },
+        this.clock);
+  }
+
+  @Test
+  void schedulesPeriodicRenewal() {
+    createLeaseManager(Duration.ofMinutes(10));
+
+    verify(this.scheduler)
+        .scheduleWithFixedDelay(
+            any(Runnable.class),
+            eq(LeaseManager.RENEWAL_PERIOD_MILLIS),
+            eq(LeaseManager.RENEWAL_PERIOD_MILLIS),
+            eq(TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  void expiringLeasesAreExtendedInPerSubscriptionBatches() {
+    LeaseManager leaseManager = createLeaseManager(Duration.ofMinutes(10));
+    leaseManager.add(SUBSCRIPTION_1, "ack1");
+    leaseManager.add(SUBSCRIPTION_1, "ack2");
+    leaseManager.add(SUBSCRIPTION_2, "ack3");
+
+    leaseManager.extendExpiringLeases();
+    assertThat(this.requests).isEmpty();
+
+    this.clock.advance(6_000L);
+    leaseManager.extendExpiringLeases();
+
+    assertThat(this.requests)
+        .containsExactlyInAnyOrder(
+            SUBSCRIPTION_1 + "[ack1, ack2]10", SUBSCRIPTION_2 + "[ack3]10");
+
+    // Extended leases are not extended again before they are about to expire.
+    this.requests.clear();
+    this.clock.advance(1_000L);
+    leaseManager.extendExpiringLeases();
+    assertThat(this.requests).isEmpty();
+  }
+
+  @Test
+  void ackedAndReleasedLeasesAreNotExtended() {
+    LeaseManager leaseManager = createLeaseManager(Duration.ofMinutes(10));
+    leaseManager.add(SUBSCRIPTION_1, "ack1");
+    leaseManager.add(SUBSCRIPTION_1, "ack2");
+    leaseManager.add(SUBSCRIPTION_1, "ack3");
+
+    leaseManager.acked("ack1");
+    leaseManager.release("ack2");
+    this.clock.advance(6_000L);
+    leaseManager.extendExpiringLeases();
+
+    assertThat(this.requests).containsExactly(SUBSCRIPTION_1 + "[ack3]10");
+    assertThat(leaseManager.getOutstandingLeaseCount()).isEqualTo(1);
+  }
+
+  @Test
+  void leasesAreDroppedAfterMaxAckExtensionPeriod() {
+    LeaseManager leaseManager = createLeaseManager(Duration.ofSeconds(8));
+    leaseManager.add(SUBSCRIPTION_1, "ack1");
+
+    this.clock.advance(6_000L);
+    leaseManager.extendExpiringLeases();
+
+    // The last extension doesn't go past the max ack extension period.
+    assertThat(this.requests).containsExactly(SUBSCRIPTION_1 + "[ack1]2");
+
+    this.clock.advance(3_000L);
+    leaseManager.extendExpiringLeases();
+
+    assertThat(this.requests).hasSize(1);
+    assertThat(leaseManager.getOutstandingLeaseCount()).isZero();
+  }
+
+  @Test
+  void ackDeadlineAdaptsToAckLatency() {
+    LeaseManager leaseManager = createLeaseManager(Duration.ofHours(1));
+    assertThat(leaseManager.getAckDeadlineSeconds())
+        .isEqualTo(LeaseManager.MIN_ACK_DEADLINE_SECONDS);
+
+    leaseManager.add(SUBSCRIPTION_1, "ack1");
+    this.clock.advance(42_000L);
+    leaseManager.acked("ack1");
+    assertThat(leaseManager.getAckDeadlineSeconds()).isEqualTo(42);
+
+    leaseManager.add(SUBSCRIPTION_1, "ack2");
+    this.clock.advance(3_600_000L);
+    leaseManager.acked("ack2");
+    assertThat(leaseManager.getAckDeadlineSeconds())
+        .isEqualTo(LeaseManager.MAX_ACK_DEADLINE_SECONDS);
+  }
+
+  @Test
+  void ackLatencyDistributionPercentile() {
+    LeaseManager.AckLatencyDistribution distribution =
+        new LeaseManager.AckLatencyDistribution(600);
+    assertThat(distribution.getPercentile(99.9)).isZero();
+
+    for (int i = 1; i <= 1000; i++) {
+      distribution.record(i <= 999 ? 5 : 300);
+    }
+
+    assertThat(distribution.getPercentile(50)).isEqualTo(5);
+    assertThat(distribution.getPercentile(99.9)).isEqualTo(5);
+    assertThat(distribution.getPercentile(100)).isEqualTo(300);
+  }
+
+  @Test
+  void close_cancelsRenewal() {
+    LeaseManager leaseManager = createLeaseManager(Duration.ofMinutes(10));
+    leaseManager.add(SUBSCRIPTION_1, "ack1");
+
+    leaseManager.close();
+
+    verify(this.renewalTask).cancel(false);
+    assertThat(leaseManager.getOutstandingLeaseCount()).isZero();
+  }
+
+  @Test
+  void zeroMaxAckExtensionPeriodFails() {
+    assertThatThrownBy(() -> createLeaseManager(Duration.ZERO))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("The maxAckExtensionPeriod must be positive.");
+  }
+
+  private static final class FakeClock implements ApiClock {
+
+    private final AtomicLong millis = new AtomicLong(1_000_000L);
+
+    void advance(long deltaMillis) {
+      this.millis.addAndGet(deltaMillis);
+    }
+
+    @Override
+    public long nanoTime() {
+      return TimeUnit.MILLISECONDS.toNanos(this.millis.get());
+    }
+
+    @Override
+    public long millisTime() {
+      return this.millis.get();
+    }
+  }
+}
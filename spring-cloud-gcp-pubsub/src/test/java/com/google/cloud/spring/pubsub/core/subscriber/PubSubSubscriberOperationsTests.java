@@ -0,0 +1,141 @@
+/*
+ * Copyright 2022-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.core.subscriber;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.withSettings;
+
+import com.google.cloud.spring.pubsub.support.AcknowledgeablePubsubMessage;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Answers;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.SettableListenableFuture;
+
+/** Tests for the default methods of {@link PubSubSubscriberOperations}. */
+class PubSubSubscriberOperationsTests {
+
+  private final AcknowledgeablePubsubMessage message1 = mock(AcknowledgeablePubsubMessage.class);
+
+  private final AcknowledgeablePubsubMessage message2 = mock(AcknowledgeablePubsubMessage.class);
+
+  private PubSubSubscriberOperations operations;
+
+  @BeforeEach
+  void setUp() {
+    this.operations =
+        mock(
+            PubSubSubscriberOperations.class,
+            withSettings().defaultAnswer(Answers.CALLS_REAL_METHODS));
+  }
+
+  @Test
+  void pullFromSubscriptionsSpreadsMaxMessagesOverSubscriptions() {
+    doReturn(Collections.singletonList(this.message1))
+        .when(this.operations)
+        .pull("sub1", 2, true);
+    doReturn(Collections.singletonList(this.message2))
+        .when(this.operations)
+        .pull("sub2", 1, true);
+
+    List<AcknowledgeablePubsubMessage> messages =
+        this.operations.pullFromSubscriptions(Arrays.asList("sub1", "sub2"), 3, true);
+
+    assertThat(messages).containsExactly(this.message1, this.message2);
+  }
+
+  @Test
+  void pullFromSubscriptionsSkipsSubscriptionsWithoutShare() {
+    doReturn(Collections.singletonList(this.message1))
+        .when(this.operations)
+        .pull("sub1", 1, true);
+
+    List<AcknowledgeablePubsubMessage> messages =
+        this.operations.pullFromSubscriptions(Arrays.asList("sub1", "sub2"), 1, true);
+
+    assertThat(messages).containsExactly(this.message1);
+    verify(this.operations, never()).pull("sub2", 0, true);
+  }
+
+  @Test
+  void pullFromSubscriptionsNacksPulledMessagesOnFailure() {
+    doReturn(Collections.singletonList(this.message1))
+        .when(this.operations)
+        .pull("sub1", null, false);
+    doThrow(new IllegalStateException("pull failed"))
+        .when(this.operations)
+        .pull("sub2", null, false);
+    doReturn(new SettableListenableFuture<Void>()).when(this.operations).nack(anyCollection());
+
+    assertThatThrownBy(
+            () -> this.operations.pullFromSubscriptions(Arrays.asList("sub1", "sub2"), null, false))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessage("pull failed");
+    verify(this.operations).nack(Collections.singletonList(this.message1));
+  }
+
+  @Test
+  void pullFromSubscriptionsAsyncCompletesOnceAllPullsComplete() throws Exception {
+    SettableListenableFuture<List<AcknowledgeablePubsubMessage>> pull1 =
+        new SettableListenableFuture<>();
+    SettableListenableFuture<List<AcknowledgeablePubsubMessage>> pull2 =
+        new SettableListenableFuture<>();
+    doReturn(pull1).when(this.operations).pullAsync("sub1", 1, true);
+    doReturn(pull2).when(this.operations).pullAsync("sub2", 1, true);
+
+    ListenableFuture<List<AcknowledgeablePubsubMessage>> result =
+        this.operations.pullFromSubscriptionsAsync(Arrays.asList("sub1", "sub2"), 2, true);
+
+    pull2.set(Collections.singletonList(this.message2));
+    assertThat(result).isNotDone();
+    pull1.set(Collections.singletonList(this.message1));
+    assertThat(result.get()).containsExactlyInAnyOrder(this.message1, this.message2);
+  }
+
+  @Test
+  void pullFromSubscriptionsAsyncNacksPulledMessagesOnFailure() {
+    SettableListenableFuture<List<AcknowledgeablePubsubMessage>> pull1 =
+        new SettableListenableFuture<>();
+    SettableListenableFuture<List<AcknowledgeablePubsubMessage>> pull2 =
+        new SettableListenableFuture<>();
+    doReturn(pull1).when(this.operations).pullAsync("sub1", null, true);
+    doReturn(pull2).when(this.operations).pullAsync("sub2", null, true);
+    doReturn(new SettableListenableFuture<Void>()).when(this.operations).nack(anyCollection());
+
+    ListenableFuture<List<AcknowledgeablePubsubMessage>> result =
+        this.operations.pullFromSubscriptionsAsync(Arrays.asList("sub1", "sub2"), null, true);
+
+    pull1.set(Collections.singletonList(this.message1));
+    pull2.setException(new IllegalStateException("pull failed"));
+
+    assertThatThrownBy(result::get)
+        .isInstanceOf(ExecutionException.class)
+        .hasCauseInstanceOf(IllegalStateException.class);
+    verify(this.operations).nack(Collections.singletonList(this.message1));
+  }
+}
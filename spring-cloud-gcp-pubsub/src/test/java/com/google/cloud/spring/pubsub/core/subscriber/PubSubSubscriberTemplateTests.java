@@ -17,10 +17,15 @@
 package com.google.cloud.spring.pubsub.core.subscriber;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.spy;
@@ -29,6 +34,8 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutures;
+import com.google.api.gax.batching.BatchingSettings;
 import com.google.api.gax.rpc.UnaryCallable;
 import com.google.cloud.pubsub.v1.AckReplyConsumer;
 import com.google.cloud.pubsub.v1.MessageReceiver;
@@ -36,6 +43,7 @@ import com.google.cloud.pubsub.v1.Subscriber;
 import com.google.cloud.pubsub.v1.stub.SubscriberStub;
 import com.google.cloud.spring.pubsub.support.AcknowledgeablePubsubMessage;
 import com.google.cloud.spring.pubsub.support.BasicAcknowledgeablePubsubMessage;
+import com.google.cloud.spring.pubsub.support.PubSubMetrics;
 import com.google.cloud.spring.pubsub.support.SubscriberFactory;
 import com.google.cloud.spring.pubsub.support.converter.ConvertedAcknowledgeablePubsubMessage;
 import com.google.cloud.spring.pubsub.support.converter.ConvertedBasicAcknowledgeablePubsubMessage;
@@ -43,11 +51,15 @@ import com.google.cloud.spring.pubsub.support.converter.PubSubMessageConverter;
 import com.google.protobuf.Empty;
 import com.google.pubsub.v1.AcknowledgeRequest;
 import com.google.pubsub.v1.ModifyAckDeadlineRequest;
+import com.google.pubsub.v1.ProjectSubscriptionName;
 import com.google.pubsub.v1.PubsubMessage;
 import com.google.pubsub.v1.PullRequest;
 import com.google.pubsub.v1.PullResponse;
 import com.google.pubsub.v1.ReceivedMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -57,6 +69,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.function.Consumer;
+import org.apache.commons.lang3.reflect.FieldUtils;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -67,6 +80,7 @@ import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.util.concurrent.ListenableFuture;
 import org.springframework.util.concurrent.ListenableFutureCallback;
+import org.threeten.bp.Duration;
 
 /** Unit tests for {@link PubSubSubscriberTemplate}. */
 @RunWith(MockitoJUnitRunner.class)
@@ -275,6 +289,27 @@ public class PubSubSubscriberTemplateTests {
     assertThat(testListenableFutureCallback.getThrowable()).isNull();
   }
 
+  @Test
+  public void testSubscribeAndConvert_withSubscriberCustomizer() {
+    SubscriberCustomizer customizer = (builder, subscription) -> builder.setParallelPullCount(2);
+    when(this.subscriberFactory.createSubscriber(
+            any(String.class), any(MessageReceiver.class), eq(customizer)))
+        .then(
+            invocation -> {
+              this.messageReceiver = invocation.getArgument(1);
+              return this.subscriber;
+            });
+
+    this.pubSubSubscriberTemplate.subscribeAndConvert(
+        "sub1", this.convertedConsumer, Boolean.class, customizer);
+
+    verify(this.subscriberFactory)
+        .createSubscriber(eq("sub1"), any(MessageReceiver.class), eq(customizer));
+    verify(this.subscriber).startAsync();
+    verify(this.convertedConsumer).accept(this.convertedMessage.capture());
+    assertThat(this.convertedMessage.getValue().getPubsubMessage()).isSameAs(this.pubsubMessage);
+  }
+
   @Test
   public void testSubscribeAndConvert_AndManualNack()
       throws InterruptedException, ExecutionException, TimeoutException {
@@ -376,6 +411,196 @@ public class PubSubSubscriberTemplateTests {
     assertThat(testListenableFutureCallback.getThrowable()).isNull();
   }
 
+  @Test
+  public void testPull_AndBatchedIndividualAck()
+      throws InterruptedException, ExecutionException, TimeoutException {
+    when(this.pullCallable.call(any(PullRequest.class)))
+        .thenReturn(
+            PullResponse.newBuilder()
+                .addReceivedMessages(
+                    ReceivedMessage.newBuilder().setAckId("ack1").setMessage(this.pubsubMessage))
+                .addReceivedMessages(
+                    ReceivedMessage.newBuilder().setAckId("ack2").setMessage(this.pubsubMessage))
+                .build());
+    this.pubSubSubscriberTemplate.setAckBatchingSettings(
+        BatchingSettings.newBuilder()
+            .setElementCountThreshold(2L)
+            .setRequestByteThreshold(100_000L)
+            .setDelayThreshold(Duration.ofMinutes(1))
+            .build());
+
+    List<AcknowledgeablePubsubMessage> result = this.pubSubSubscriberTemplate.pull("sub2", 2, true);
+    ListenableFuture<Void> firstAck = result.get(0).ack();
+
+    assertThat(firstAck.isDone()).isFalse();
+    verify(this.ackCallable, never()).futureCall(any(AcknowledgeRequest.class));
+
+    ListenableFuture<Void> secondAck = result.get(1).ack();
+    firstAck.get(10L, TimeUnit.SECONDS);
+    secondAck.get(10L, TimeUnit.SECONDS);
+
+    ArgumentCaptor<AcknowledgeRequest> requestCaptor =
+        ArgumentCaptor.forClass(AcknowledgeRequest.class);
+    verify(this.ackCallable, times(1)).futureCall(requestCaptor.capture());
+    assertThat(requestCaptor.getValue().getSubscription())
+        .isEqualTo("projects/testProject/subscriptions/sub2");
+    assertThat(requestCaptor.getValue().getAckIdsList()).containsExactly("ack1", "ack2");
+
+    this.pubSubSubscriberTemplate.destroy();
+  }
+
+  @Test
+  public void testSubscribe_recordsMetrics() {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    this.pubSubSubscriberTemplate.setMetrics(new PubSubMetrics(meterRegistry));
+
+    this.pubSubSubscriberTemplate.subscribe("projects/testProject/subscriptions/sub1", this.consumer);
+
+    verify(this.consumer).accept(this.message.capture());
+    assertThat(meterRegistry.get("spring.cloud.gcp.pubsub.receive").counter().count()).isEqualTo(1);
+    assertThat(
+            meterRegistry
+                .get("spring.cloud.gcp.pubsub.process")
+                .tags("subscription", "sub1", "result", "success")
+                .timer()
+                .count())
+        .isEqualTo(1);
+    assertThat(meterRegistry.get("spring.cloud.gcp.pubsub.outstanding").gauge().value())
+        .isEqualTo(1);
+
+    this.message.getValue().ack();
+    this.message.getValue().nack();
+
+    verify(this.ackReplyConsumer).ack();
+    verify(this.ackReplyConsumer).nack();
+    assertThat(meterRegistry.get("spring.cloud.gcp.pubsub.outstanding").gauge().value())
+        .isZero();
+  }
+
+  @Test
+  public void testSubscribe_failedConsumerIsNotOutstanding() {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    this.pubSubSubscriberTemplate.setMetrics(new PubSubMetrics(meterRegistry));
+    doThrow(new IllegalStateException("consumer failed")).when(this.consumer).accept(any());
+
+    assertThatThrownBy(() -> this.pubSubSubscriberTemplate.subscribe("sub1", this.consumer))
+        .hasMessage("consumer failed");
+
+    assertThat(
+            meterRegistry
+                .get("spring.cloud.gcp.pubsub.process")
+                .tags("subscription", "sub1", "result", "failure")
+                .timer()
+                .count())
+        .isEqualTo(1);
+    assertThat(meterRegistry.get("spring.cloud.gcp.pubsub.outstanding").gauge().value())
+        .isZero();
+  }
+
+  @Test
+  public void testPull_recordsMetrics() throws InterruptedException, ExecutionException {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    this.pubSubSubscriberTemplate.setMetrics(new PubSubMetrics(meterRegistry));
+    when(this.pullCallable.call(any(PullRequest.class)))
+        .thenReturn(
+            PullResponse.newBuilder()
+                .addReceivedMessages(
+                    ReceivedMessage.newBuilder().setAckId("ack1").setMessage(this.pubsubMessage))
+                .addReceivedMessages(
+                    ReceivedMessage.newBuilder().setAckId("ack2").setMessage(this.pubsubMessage))
+                .build());
+
+    List<AcknowledgeablePubsubMessage> result = this.pubSubSubscriberTemplate.pull("sub2", 2, true);
+    this.pubSubSubscriberTemplate.ack(result).get();
+
+    assertThat(
+            meterRegistry
+                .get("spring.cloud.gcp.pubsub.receive")
+                .tag("subscription", "sub2")
+                .counter()
+                .count())
+        .isEqualTo(2);
+    assertThat(
+            meterRegistry
+                .get("spring.cloud.gcp.pubsub.ack")
+                .tags("subscription", "sub2", "result", "success")
+                .timer()
+                .count())
+        .isEqualTo(1);
+  }
+
+  @Test
+  public void testPull_messagesShareProjectSubscriptionName() {
+    when(this.pullCallable.call(any(PullRequest.class)))
+        .thenReturn(
+            PullResponse.newBuilder()
+                .addReceivedMessages(
+                    ReceivedMessage.newBuilder().setAckId("ack1").setMessage(this.pubsubMessage))
+                .addReceivedMessages(
+                    ReceivedMessage.newBuilder().setAckId("ack2").setMessage(this.pubsubMessage))
+                .build());
+
+    List<AcknowledgeablePubsubMessage> result = this.pubSubSubscriberTemplate.pull("sub2", 2, true);
+
+    assertThat(result).hasSize(2);
+    assertThat(result.get(0).getProjectSubscriptionName())
+        .isEqualTo(ProjectSubscriptionName.of("testProject", "sub2"))
+        .isSameAs(result.get(1).getProjectSubscriptionName());
+  }
+
+  @Test
+  public void testPull_AndBatchedIndividualNack_flushedOnDestroy()
+      throws InterruptedException, ExecutionException, TimeoutException {
+    this.pubSubSubscriberTemplate.setAckBatchingSettings(
+        BatchingSettings.newBuilder()
+            .setElementCountThreshold(100L)
+            .setRequestByteThreshold(100_000L)
+            .setDelayThreshold(Duration.ofMinutes(1))
+            .build());
+
+    List<AcknowledgeablePubsubMessage> result = this.pubSubSubscriberTemplate.pull("sub2", 1, true);
+    ListenableFuture<Void> nack = result.get(0).nack();
+
+    verify(this.modifyAckDeadlineCallable, never()).futureCall(any(ModifyAckDeadlineRequest.class));
+
+    this.pubSubSubscriberTemplate.destroy();
+    nack.get(10L, TimeUnit.SECONDS);
+
+    ArgumentCaptor<ModifyAckDeadlineRequest> requestCaptor =
+        ArgumentCaptor.forClass(ModifyAckDeadlineRequest.class);
+    verify(this.modifyAckDeadlineCallable).futureCall(requestCaptor.capture());
+    assertThat(requestCaptor.getValue().getAckDeadlineSeconds()).isZero();
+  }
+
+  @Test
+  public void testPull_leasesTrackedUntilAckOrNack() throws IllegalAccessException {
+    when(this.pullCallable.call(any(PullRequest.class)))
+        .thenReturn(
+            PullResponse.newBuilder()
+                .addReceivedMessages(
+                    ReceivedMessage.newBuilder().setAckId("ack1").setMessage(this.pubsubMessage))
+                .addReceivedMessages(
+                    ReceivedMessage.newBuilder().setAckId("ack2").setMessage(this.pubsubMessage))
+                .build());
+    this.pubSubSubscriberTemplate.setMaxAckExtensionPeriod(Duration.ofMinutes(10));
+    LeaseManager leaseManager =
+        (LeaseManager) FieldUtils.readField(this.pubSubSubscriberTemplate, "leaseManager", true);
+
+    List<AcknowledgeablePubsubMessage> result = this.pubSubSubscriberTemplate.pull("sub2", 2, true);
+    assertThat(leaseManager.getOutstandingLeaseCount()).isEqualTo(2);
+
+    result.get(0).ack();
+    assertThat(leaseManager.getOutstandingLeaseCount()).isEqualTo(1);
+
+    result.get(1).nack();
+    assertThat(leaseManager.getOutstandingLeaseCount()).isZero();
+
+    this.pubSubSubscriberTemplate.setMaxAckExtensionPeriod(Duration.ZERO);
+    assertThat(FieldUtils.readField(this.pubSubSubscriberTemplate, "leaseManager", true)).isNull();
+
+    this.pubSubSubscriberTemplate.destroy();
+  }
+
   @Test
   public void testPull_AndManualMultiSubscriptionAck()
       throws InterruptedException, ExecutionException, TimeoutException {
@@ -439,6 +664,97 @@ public class PubSubSubscriberTemplateTests {
     assertThat(ackTestListenableFutureCallback.getThrowable()).isNull();
   }
 
+  @Test
+  public void testPullFromSubscriptions_spreadsMaxMessagesAndSharesStub()
+      throws InterruptedException, ExecutionException, TimeoutException {
+    SubscriberStub sharedStub = mock(SubscriberStub.class);
+    when(sharedStub.pullCallable()).thenReturn(this.pullCallable);
+    when(this.subscriberFactory.createSubscriberStub()).thenReturn(sharedStub);
+    List<String> subscriptions =
+        Arrays.asList(
+            "projects/testProject/subscriptions/sub1",
+            "projects/testProject/subscriptions/sub2",
+            "projects/testProject/subscriptions/sub3");
+
+    List<AcknowledgeablePubsubMessage> result =
+        this.pubSubSubscriberTemplate.pullFromSubscriptions(subscriptions, 5, true);
+
+    assertThat(result)
+        .extracting(message -> message.getProjectSubscriptionName().getSubscription())
+        .containsExactly("sub1", "sub2", "sub3");
+    verify(this.subscriberFactory).createPullRequest(subscriptions.get(0), 2, true);
+    verify(this.subscriberFactory).createPullRequest(subscriptions.get(1), 2, true);
+    verify(this.subscriberFactory).createPullRequest(subscriptions.get(2), 1, true);
+
+    // The next pull starts from the second subscription, and the third is left without a share.
+    result = this.pubSubSubscriberTemplate.pullFromSubscriptions(subscriptions, 2, true);
+
+    assertThat(result)
+        .extracting(message -> message.getProjectSubscriptionName().getSubscription())
+        .containsExactly("sub2", "sub3");
+    verify(this.subscriberFactory, never()).createPullRequest(subscriptions.get(0), 1, true);
+
+    // The shared stub is only used to pull, so the acks go through the per-subscription stubs.
+    this.pubSubSubscriberTemplate.ack(result).get(10L, TimeUnit.SECONDS);
+
+    verify(this.ackCallable, times(2)).futureCall(any(AcknowledgeRequest.class));
+    verify(this.subscriberFactory, times(1)).createSubscriberStub();
+    verify(this.subscriberFactory).createSubscriberStub(subscriptions.get(1));
+    verify(this.subscriberFactory).createSubscriberStub(subscriptions.get(2));
+    verify(sharedStub, never()).acknowledgeCallable();
+
+    this.pubSubSubscriberTemplate.destroy();
+    verify(sharedStub, times(1)).close();
+    verify(this.subscriberStub, times(2)).close();
+  }
+
+  @Test
+  public void testPullFromSubscriptions_nacksPulledMessagesWhenOnePullFails() {
+    when(this.subscriberFactory.createSubscriberStub()).thenReturn(this.subscriberStub);
+    when(this.pullCallable.futureCall(
+            PullRequest.newBuilder().setSubscription("sub2").build()))
+        .thenReturn(ApiFutures.immediateFailedFuture(new IllegalStateException("pull failed")));
+    List<String> subscriptions = Arrays.asList("sub1", "sub2");
+
+    assertThatThrownBy(
+            () -> this.pubSubSubscriberTemplate.pullFromSubscriptions(subscriptions, 10, true))
+        .hasMessageContaining("pull failed");
+
+    ArgumentCaptor<ModifyAckDeadlineRequest> requestCaptor =
+        ArgumentCaptor.forClass(ModifyAckDeadlineRequest.class);
+    verify(this.modifyAckDeadlineCallable).futureCall(requestCaptor.capture());
+    assertThat(requestCaptor.getValue().getSubscription())
+        .isEqualTo("projects/testProject/subscriptions/sub1");
+    assertThat(requestCaptor.getValue().getAckDeadlineSeconds()).isZero();
+  }
+
+  @Test
+  public void testPullFromSubscriptionsAsync()
+      throws InterruptedException, ExecutionException, TimeoutException {
+    when(this.subscriberFactory.createSubscriberStub()).thenReturn(this.subscriberStub);
+
+    ListenableFuture<List<AcknowledgeablePubsubMessage>> asyncResult =
+        this.pubSubSubscriberTemplate.pullFromSubscriptionsAsync(
+            Arrays.asList("sub1", "sub2"), 10, false);
+
+    assertThat(asyncResult.get(10L, TimeUnit.SECONDS))
+        .hasSize(2)
+        .allSatisfy(message -> assertThat(message.getPubsubMessage()).isSameAs(this.pubsubMessage));
+    verify(this.subscriberFactory).createPullRequest("sub1", 5, false);
+    verify(this.subscriberFactory).createPullRequest("sub2", 5, false);
+    verify(this.pullCallable, times(2)).futureCall(any(PullRequest.class));
+  }
+
+  @Test
+  public void testPullFromSubscriptions_emptySubscriptions() {
+    List<String> subscriptions = Collections.emptyList();
+
+    assertThatThrownBy(
+            () -> this.pubSubSubscriberTemplate.pullFromSubscriptions(subscriptions, 1, true))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("The subscriptions can't be empty.");
+  }
+
   @Test
   public void testPullAndAck() {
     List<PubsubMessage> result = this.pubSubSubscriberTemplate.pullAndAck("sub2", 1, true);
@@ -18,8 +18,10 @@ package com.google.cloud.spring.pubsub.integration;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import org.apache.commons.lang3.reflect.FieldUtils;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -106,6 +108,46 @@ public class PubSubHeaderMapperTests {
         .doesNotContainKey("my header");
   }
 
+  @Test
+  public void testToHeadersIsModifiableWithoutChangingAttributes() {
+    PubSubHeaderMapper mapper = new PubSubHeaderMapper();
+    mapper.setInboundHeaderPatterns("!secret", "*");
+    Map<String, String> attributes = new HashMap<>();
+    attributes.put("my header", "don't touch it");
+    attributes.put("secret", "the moon is down");
+    Map<String, String> immutableAttributes = Collections.unmodifiableMap(attributes);
+
+    Map<String, Object> internalHeaders = mapper.toHeaders(immutableAttributes);
+    assertThat(internalHeaders.get("secret")).isNull();
+    assertThat(internalHeaders).doesNotContainKey("secret");
+
+    internalHeaders.put("added header", 42);
+    internalHeaders.remove("my header");
+
+    assertThat(internalHeaders)
+        .hasSize(1)
+        .containsEntry("added header", 42)
+        .doesNotContainKeys("my header", "secret");
+    assertThat(immutableAttributes).hasSize(2).containsEntry("my header", "don't touch it");
+  }
+
+  @Test
+  public void testHeaderMatchCacheIsBounded() throws IllegalAccessException {
+    PubSubHeaderMapper mapper = new PubSubHeaderMapper();
+    Map<String, Object> originalHeaders = new HashMap<>();
+    for (int i = 0; i < PubSubHeaderMapper.MAX_CACHED_HEADER_NAMES + 10; i++) {
+      originalHeaders.put("header-" + i, i);
+    }
+
+    Map<String, String> filteredHeaders = new HashMap<>();
+    mapper.fromHeaders(new MessageHeaders(originalHeaders), filteredHeaders);
+
+    assertThat(filteredHeaders).hasSize(PubSubHeaderMapper.MAX_CACHED_HEADER_NAMES + 10);
+    Object outboundHeaderPatterns = FieldUtils.readField(mapper, "outboundHeaderPatterns", true);
+    assertThat((Map<?, ?>) FieldUtils.readField(outboundHeaderPatterns, "matchCache", true))
+        .hasSize(PubSubHeaderMapper.MAX_CACHED_HEADER_NAMES);
+  }
+
   @Test
   public void testSetInboundHeaderPatternsNullPatterns() {
     this.expectedException.expect(IllegalArgumentException.class);
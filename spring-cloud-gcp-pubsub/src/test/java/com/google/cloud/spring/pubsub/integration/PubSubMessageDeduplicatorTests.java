@@ -0,0 +1,189 @@
+/*
+ * Copyright 2022-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.integration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.google.cloud.spring.pubsub.support.BasicAcknowledgeablePubsubMessage;
+import com.google.cloud.spring.pubsub.support.PubSubMetrics;
+import com.google.pubsub.v1.ProjectSubscriptionName;
+import com.google.pubsub.v1.PubsubMessage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+/** Tests for {@link PubSubMessageDeduplicator} and {@link InMemoryDeduplicationStore}. */
+class PubSubMessageDeduplicatorTests {
+
+  private static final ProjectSubscriptionName SUBSCRIPTION =
+      ProjectSubscriptionName.of("test-project", "sub");
+
+  @Test
+  void testStoreForgetsKeysAfterWindow() {
+    AtomicLong now = new AtomicLong();
+    InMemoryDeduplicationStore store =
+        new InMemoryDeduplicationStore(10, Duration.ofNanos(100), now::get);
+
+    store.add("a");
+    now.set(50);
+    store.add("b");
+    now.set(99);
+    assertThat(store.contains("a")).isTrue();
+
+    now.set(100);
+    assertThat(store.contains("a")).isFalse();
+    assertThat(store.contains("b")).isTrue();
+    // The expired key is only swept by the next addition.
+    assertThat(store.size()).isEqualTo(2);
+    store.add("c");
+    assertThat(store.size()).isEqualTo(2);
+    assertThat(store.contains("b")).isTrue();
+    assertThat(store.contains("c")).isTrue();
+  }
+
+  @Test
+  void testStoreIsConsistentUnderConcurrentAdditions() throws InterruptedException {
+    InMemoryDeduplicationStore store = new InMemoryDeduplicationStore(100, Duration.ofMinutes(1));
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    for (int thread = 0; thread < 4; thread++) {
+      int offset = thread * 1000;
+      executor.execute(
+          () -> {
+            for (int i = 0; i < 1000; i++) {
+              store.add("key-" + (offset + i));
+            }
+          });
+    }
+    executor.shutdown();
+    assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+    // The additions that raced with a sweep are swept by the next one.
+    store.add("last");
+    assertThat(store.size()).isEqualTo(100);
+    assertThat(store.contains("last")).isTrue();
+  }
+
+  @Test
+  void testStoreForgetsOldestKeysWhenFull() {
+    AtomicLong now = new AtomicLong();
+    InMemoryDeduplicationStore store =
+        new InMemoryDeduplicationStore(2, Duration.ofNanos(100), now::get);
+
+    store.add("a");
+    store.add("b");
+    // Adding a key again refreshes it, so "b" is now the oldest.
+    store.add("a");
+    store.add("c");
+
+    assertThat(store.contains("a")).isTrue();
+    assertThat(store.contains("b")).isFalse();
+    assertThat(store.contains("c")).isTrue();
+    assertThat(store.size()).isEqualTo(2);
+  }
+
+  @Test
+  void testStoreRejectsInvalidBounds() {
+    assertThatThrownBy(() -> new InMemoryDeduplicationStore(0, Duration.ofMinutes(1)))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("The maximum size must be positive.");
+    assertThatThrownBy(() -> new InMemoryDeduplicationStore(1, Duration.ZERO))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("The window must be positive.");
+  }
+
+  @Test
+  void testOnlyProcessedMessagesAreDuplicates() {
+    PubSubMessageDeduplicator deduplicator =
+        new PubSubMessageDeduplicator(10, Duration.ofMinutes(1));
+    BasicAcknowledgeablePubsubMessage message = message("m1", PubsubMessage.newBuilder());
+    BasicAcknowledgeablePubsubMessage redelivery = message("m1", PubsubMessage.newBuilder());
+
+    assertThat(deduplicator.isDuplicate(message)).isFalse();
+    // The redelivery of a message that is still being processed is processed again.
+    assertThat(deduplicator.isDuplicate(redelivery)).isFalse();
+    deduplicator.processed(message);
+    assertThat(deduplicator.isDuplicate(redelivery)).isTrue();
+
+    assertThat(deduplicator.getHitCount()).isEqualTo(1);
+    assertThat(deduplicator.getMissCount()).isEqualTo(2);
+  }
+
+  @Test
+  void testKeyAttributeIdentifiesMessages() {
+    PubSubMessageDeduplicator deduplicator =
+        new PubSubMessageDeduplicator(10, Duration.ofMinutes(1));
+    deduplicator.setKeyAttribute("event-id");
+
+    deduplicator.processed(
+        message("m1", PubsubMessage.newBuilder().putAttributes("event-id", "e1")));
+
+    assertThat(
+            deduplicator.isDuplicate(
+                message("m2", PubsubMessage.newBuilder().putAttributes("event-id", "e1"))))
+        .isTrue();
+    assertThat(
+            deduplicator.isDuplicate(
+                message("m3", PubsubMessage.newBuilder().putAttributes("event-id", "e2"))))
+        .isFalse();
+    // Messages without the attribute fall back to their message ID.
+    assertThat(deduplicator.isDuplicate(message("m1", PubsubMessage.newBuilder()))).isFalse();
+  }
+
+  @Test
+  void testRecordsMetrics() {
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    PubSubMessageDeduplicator deduplicator =
+        new PubSubMessageDeduplicator(10, Duration.ofMinutes(1));
+    deduplicator.setMetrics(new PubSubMetrics(meterRegistry));
+    BasicAcknowledgeablePubsubMessage message = message("m1", PubsubMessage.newBuilder());
+
+    deduplicator.isDuplicate(message);
+    deduplicator.processed(message);
+    deduplicator.isDuplicate(message);
+    deduplicator.isDuplicate(message);
+
+    assertThat(
+            meterRegistry
+                .get("spring.cloud.gcp.pubsub.dedupe")
+                .tags("subscription", "sub", "result", "hit")
+                .counter()
+                .count())
+        .isEqualTo(2.0);
+    assertThat(
+            meterRegistry
+                .get("spring.cloud.gcp.pubsub.dedupe")
+                .tags("subscription", "sub", "result", "miss")
+                .counter()
+                .count())
+        .isEqualTo(1.0);
+  }
+
+  private static BasicAcknowledgeablePubsubMessage message(
+      String messageId, PubsubMessage.Builder pubsubMessage) {
+    BasicAcknowledgeablePubsubMessage message = mock(BasicAcknowledgeablePubsubMessage.class);
+    when(message.getPubsubMessage()).thenReturn(pubsubMessage.setMessageId(messageId).build());
+    when(message.getProjectSubscriptionName()).thenReturn(SUBSCRIPTION);
+    return message;
+  }
+}
@@ -18,19 +18,34 @@ package com.google.cloud.spring.pubsub.integration.inbound;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.cloud.spring.pubsub.core.health.HealthTrackerRegistry;
 import com.google.cloud.spring.pubsub.core.subscriber.PubSubSubscriberOperations;
+import com.google.cloud.spring.pubsub.core.subscriber.SubscriberCustomizer;
 import com.google.cloud.spring.pubsub.integration.AckMode;
+import com.google.cloud.spring.pubsub.integration.PubSubMessageDeduplicator;
 import com.google.cloud.spring.pubsub.support.GcpPubSubHeaders;
 import com.google.cloud.spring.pubsub.support.converter.ConvertedBasicAcknowledgeablePubsubMessage;
 import com.google.pubsub.v1.PubsubMessage;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import org.junit.After;
 import org.junit.Before;
@@ -258,6 +273,269 @@ public class PubSubInboundChannelAdapterTests {
     verifyOriginalMessage();
   }
 
+  @Test
+  @SuppressWarnings("unchecked")
+  public void batchMode_sendsFullBatchAsListPayload() {
+    ConvertedBasicAcknowledgeablePubsubMessage<String> secondMessage =
+        mock(ConvertedBasicAcknowledgeablePubsubMessage.class);
+    when(secondMessage.getPayload()).thenReturn("Second payload.");
+    when(secondMessage.getPubsubMessage())
+        .thenReturn(PubsubMessage.newBuilder().putAttributes("key", "value").build());
+    deliverOnSubscribe(mockAcknowledgeableMessage, secondMessage);
+
+    this.context.refresh();
+    this.adapter.setBatchMode(true);
+    this.adapter.setMaxBatchSize(2);
+    this.adapter.setMaxBatchDelay(Duration.ofHours(1));
+    this.adapter.start();
+
+    ArgumentCaptor<Message<?>> argument = ArgumentCaptor.forClass(Message.class);
+    verify(this.mockMessageChannel).send(argument.capture());
+    assertThat((List<Object>) argument.getValue().getPayload())
+        .containsExactly("Test message payload.", "Second payload.");
+    assertThat(argument.getValue().getHeaders().get(GcpPubSubHeaders.ORIGINAL_MESSAGES))
+        .isEqualTo(Arrays.asList(mockAcknowledgeableMessage, secondMessage));
+    List<Map<String, Object>> batchHeaders =
+        (List<Map<String, Object>>)
+            argument.getValue().getHeaders().get(GcpPubSubHeaders.BATCH_CONVERTED_HEADERS);
+    assertThat(batchHeaders).hasSize(2);
+    assertThat(batchHeaders.get(0)).isEmpty();
+    assertThat(batchHeaders.get(1)).containsOnly(entry("key", "value"));
+    verify(mockAcknowledgeableMessage).ack();
+    verify(secondMessage).ack();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void batchMode_sendsPartialBatchAfterMaxBatchDelay() {
+    this.context.refresh();
+    this.adapter.setBatchMode(true);
+    this.adapter.setMaxBatchSize(10);
+    this.adapter.setMaxBatchDelay(Duration.ofMillis(50));
+    this.adapter.start();
+
+    ArgumentCaptor<Message<?>> argument = ArgumentCaptor.forClass(Message.class);
+    verify(this.mockMessageChannel, timeout(10_000L)).send(argument.capture());
+    assertThat((List<Object>) argument.getValue().getPayload())
+        .containsExactly("Test message payload.");
+    verify(mockAcknowledgeableMessage, timeout(10_000L)).ack();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void batchMode_nacksWholeBatchWhenDownstreamProcessingFails() {
+    ConvertedBasicAcknowledgeablePubsubMessage<String> secondMessage =
+        mock(ConvertedBasicAcknowledgeablePubsubMessage.class);
+    when(secondMessage.getPubsubMessage()).thenReturn(PubsubMessage.getDefaultInstance());
+    deliverOnSubscribe(mockAcknowledgeableMessage, secondMessage);
+    when(this.mockMessageChannel.send(any())).thenThrow(new RuntimeException(EXCEPTION_MESSAGE));
+
+    this.context.refresh();
+    this.adapter.setBatchMode(true);
+    this.adapter.setMaxBatchSize(2);
+    this.adapter.start();
+
+    verify(mockAcknowledgeableMessage).nack();
+    verify(secondMessage).nack();
+    verify(mockAcknowledgeableMessage, never()).ack();
+    assertThat(output.getOut())
+        .contains("batch of 2 messages failed; messages nacked automatically");
+  }
+
+  @Test
+  public void batchMode_stopNacksPendingBatch() {
+    this.context.refresh();
+    this.adapter.setBatchMode(true);
+    this.adapter.setMaxBatchSize(10);
+    this.adapter.setMaxBatchDelay(Duration.ofHours(1));
+    this.adapter.start();
+
+    this.adapter.stop();
+
+    verify(this.mockMessageChannel, never()).send(any());
+    verify(mockAcknowledgeableMessage).nack();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void batchMode_nacksMessagesDeliveredAfterStop() {
+    List<Consumer<ConvertedBasicAcknowledgeablePubsubMessage<?>>> consumers = new ArrayList<>();
+    when(this.mockPubSubSubscriberOperations.subscribeAndConvert(
+            anyString(), any(Consumer.class), any(Class.class)))
+        .then(
+            invocationOnMock -> {
+              consumers.add(invocationOnMock.getArgument(1));
+              return null;
+            });
+
+    this.context.refresh();
+    this.adapter.setBatchMode(true);
+    this.adapter.setMaxBatchSize(10);
+    this.adapter.setMaxBatchDelay(Duration.ofMillis(50));
+    this.adapter.start();
+    this.adapter.stop();
+    consumers.get(0).accept(mockAcknowledgeableMessage);
+
+    verify(mockAcknowledgeableMessage).nack();
+    verify(this.mockMessageChannel, after(200L).never()).send(any());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void subscriberCustomizerIsPassedToSubscriberOperations() {
+    SubscriberCustomizer customizer = (builder, subscription) -> builder.setParallelPullCount(2);
+    this.adapter.setSubscriberCustomizer(customizer);
+
+    this.adapter.start();
+
+    verify(this.mockPubSubSubscriberOperations)
+        .subscribeAndConvert(
+            eq("testSubscription"), any(Consumer.class), eq(byte[].class), eq(customizer));
+  }
+
+  @Test
+  public void batchMode_invalidMaxBatchSizeFails() {
+    assertThatThrownBy(() -> this.adapter.setMaxBatchSize(0))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("The maximum batch size must be positive.");
+  }
+
+  @Test
+  public void orderingKeyLanes_processKeysInParallelAndEachKeyInOrder() {
+    ConvertedBasicAcknowledgeablePubsubMessage<?> firstA = orderedMessage("a", "a1");
+    ConvertedBasicAcknowledgeablePubsubMessage<?> secondA = orderedMessage("a", "a2");
+    ConvertedBasicAcknowledgeablePubsubMessage<?> firstB = orderedMessage("b", "b1");
+    ConvertedBasicAcknowledgeablePubsubMessage<?> thirdA = orderedMessage("a", "a3");
+    deliverOnSubscribe(firstA, secondA, firstB, thirdA);
+
+    // The first message of key "a" is only sent downstream once the message of key "b" was.
+    CountDownLatch otherKeySent = new CountDownLatch(1);
+    List<Object> sentPayloads = Collections.synchronizedList(new ArrayList<>());
+    when(this.mockMessageChannel.send(any()))
+        .then(
+            invocation -> {
+              Object payload = invocation.getArgument(0, Message.class).getPayload();
+              if ("a1".equals(payload) && !otherKeySent.await(10, TimeUnit.SECONDS)) {
+                sentPayloads.add("timeout");
+              }
+              sentPayloads.add(payload);
+              if ("b1".equals(payload)) {
+                otherKeySent.countDown();
+              }
+              return true;
+            });
+
+    this.context.refresh();
+    this.adapter.setOrderingKeyLanes(2);
+    this.adapter.start();
+
+    verify(thirdA, timeout(10_000L)).ack();
+    verify(firstB, timeout(10_000L)).ack();
+    assertThat(sentPayloads).containsExactly("b1", "a1", "a2", "a3");
+    this.adapter.stop();
+  }
+
+  @Test
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public void orderingKeyLanes_nackMessagesDeliveredAfterStop() {
+    ArgumentCaptor<Consumer> consumer = ArgumentCaptor.forClass(Consumer.class);
+    when(this.mockPubSubSubscriberOperations.subscribeAndConvert(
+            anyString(), consumer.capture(), any(Class.class)))
+        .thenReturn(null);
+    ConvertedBasicAcknowledgeablePubsubMessage<?> lateMessage = orderedMessage("a", "a1");
+
+    this.context.refresh();
+    this.adapter.setOrderingKeyLanes(2);
+    this.adapter.start();
+    this.adapter.stop();
+    consumer.getValue().accept(lateMessage);
+
+    verify(lateMessage).nack();
+    verify(lateMessage, never()).ack();
+    verify(this.mockMessageChannel, never()).send(any());
+  }
+
+  @Test
+  public void orderingKeyLanes_negativeFails() {
+    assertThatThrownBy(() -> this.adapter.setOrderingKeyLanes(-1))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("The number of ordering key lanes can't be negative.");
+  }
+
+  @Test
+  public void deduplicator_acksRedeliveriesOfSentMessagesWithoutSendingThem() {
+    ConvertedBasicAcknowledgeablePubsubMessage<?> message = identifiedMessage("m1");
+    ConvertedBasicAcknowledgeablePubsubMessage<?> redelivery = identifiedMessage("m1");
+    ConvertedBasicAcknowledgeablePubsubMessage<?> other = identifiedMessage("m2");
+    deliverOnSubscribe(message, redelivery, other);
+    PubSubMessageDeduplicator deduplicator =
+        new PubSubMessageDeduplicator(10, Duration.ofMinutes(1));
+
+    this.context.refresh();
+    this.adapter.setAckMode(AckMode.MANUAL);
+    this.adapter.setDeduplicator(deduplicator);
+    this.adapter.start();
+
+    verify(this.mockMessageChannel, times(2)).send(any());
+    verify(message, never()).ack();
+    verify(redelivery).ack();
+    verify(other, never()).ack();
+    assertThat(deduplicator.getHitCount()).isEqualTo(1);
+    assertThat(deduplicator.getMissCount()).isEqualTo(2);
+  }
+
+  @Test
+  public void deduplicator_sendsRedeliveriesOfFailedMessagesAgain() {
+    ConvertedBasicAcknowledgeablePubsubMessage<?> message = identifiedMessage("m1");
+    ConvertedBasicAcknowledgeablePubsubMessage<?> redelivery = identifiedMessage("m1");
+    deliverOnSubscribe(message, redelivery);
+    when(this.mockMessageChannel.send(any()))
+        .thenThrow(new RuntimeException(EXCEPTION_MESSAGE))
+        .thenReturn(true);
+
+    this.context.refresh();
+    this.adapter.setDeduplicator(new PubSubMessageDeduplicator(10, Duration.ofMinutes(1)));
+    this.adapter.start();
+
+    verify(this.mockMessageChannel, times(2)).send(any());
+    verify(message).nack();
+    verify(redelivery).ack();
+  }
+
+  @SuppressWarnings("unchecked")
+  private ConvertedBasicAcknowledgeablePubsubMessage<?> identifiedMessage(String messageId) {
+    ConvertedBasicAcknowledgeablePubsubMessage<String> message =
+        mock(ConvertedBasicAcknowledgeablePubsubMessage.class);
+    when(message.getPubsubMessage())
+        .thenReturn(PubsubMessage.newBuilder().setMessageId(messageId).build());
+    when(message.getPayload()).thenReturn("Payload of " + messageId);
+    return message;
+  }
+
+  @SuppressWarnings("unchecked")
+  private ConvertedBasicAcknowledgeablePubsubMessage<?> orderedMessage(
+      String orderingKey, String payload) {
+    ConvertedBasicAcknowledgeablePubsubMessage<String> message =
+        mock(ConvertedBasicAcknowledgeablePubsubMessage.class);
+    when(message.getPubsubMessage())
+        .thenReturn(PubsubMessage.newBuilder().setOrderingKey(orderingKey).build());
+    when(message.getPayload()).thenReturn(payload);
+    return message;
+  }
+
+  @SuppressWarnings("unchecked")
+  private void deliverOnSubscribe(ConvertedBasicAcknowledgeablePubsubMessage<?>... messages) {
+    when(this.mockPubSubSubscriberOperations.subscribeAndConvert(
+            anyString(), any(Consumer.class), any(Class.class)))
+        .then(
+            invocationOnMock -> {
+              Consumer<ConvertedBasicAcknowledgeablePubsubMessage<?>> messageConsumer =
+                  invocationOnMock.getArgument(1);
+              Arrays.stream(messages).forEach(messageConsumer);
+              return null;
+            });
+  }
+
   @SuppressWarnings("unchecked")
   private void verifyOriginalMessage() {
     ArgumentCaptor<Message<?>> argument = ArgumentCaptor.forClass(Message.class);
@@ -18,18 +18,25 @@ package com.google.cloud.spring.pubsub.integration.inbound;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.cloud.spring.pubsub.core.subscriber.PubSubSubscriberOperations;
 import com.google.cloud.spring.pubsub.integration.AckMode;
+import com.google.cloud.spring.pubsub.integration.PubSubMessageDeduplicator;
 import com.google.cloud.spring.pubsub.support.GcpPubSubHeaders;
 import com.google.cloud.spring.pubsub.support.converter.ConvertedAcknowledgeablePubsubMessage;
 import com.google.pubsub.v1.PubsubMessage;
+import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -40,6 +47,7 @@ import org.springframework.integration.acks.AcknowledgmentCallback;
 import org.springframework.integration.endpoint.MessageSourcePollingTemplate;
 import org.springframework.integration.support.MessageBuilder;
 import org.springframework.messaging.MessageHandlingException;
+import org.springframework.util.concurrent.SettableListenableFuture;
 
 /**
  * Tests for {@link PubSubMessageSource}.
@@ -172,6 +180,37 @@ public class PubSubMessageSourceTests {
     assertThat(callback.isAcknowledged()).isTrue();
   }
 
+  @Test
+  @SuppressWarnings("unchecked")
+  public void doReceive_deduplicatorAcksAndSkipsRedeliveriesOfAcceptedMessages() {
+    when(this.msg1.getPubsubMessage())
+        .thenReturn(PubsubMessage.newBuilder().setMessageId("m1").build());
+    when(this.msg2.getPubsubMessage())
+        .thenReturn(PubsubMessage.newBuilder().setMessageId("m1").build());
+    when(this.msg3.getPubsubMessage())
+        .thenReturn(PubsubMessage.newBuilder().setMessageId("m3").build());
+    when(this.mockPubSubSubscriberOperations.pullAndConvert("sub1", 3, true, String.class))
+        .thenReturn(Arrays.asList(this.msg1, this.msg2, this.msg3));
+    PubSubMessageSource pubSubMessageSource =
+        new PubSubMessageSource(this.mockPubSubSubscriberOperations, "sub1");
+    pubSubMessageSource.setMaxFetchSize(3);
+    pubSubMessageSource.setPayloadType(String.class);
+    pubSubMessageSource.setDeduplicator(new PubSubMessageDeduplicator(10, Duration.ofMinutes(1)));
+
+    MessageBuilder<String> message1 = (MessageBuilder<String>) pubSubMessageSource.doReceive(3);
+    ((AcknowledgmentCallback)
+            message1.getHeaders().get(IntegrationMessageHeaderAccessor.ACKNOWLEDGMENT_CALLBACK))
+        .acknowledge(AcknowledgmentCallback.Status.ACCEPT);
+    MessageBuilder<String> message2 = (MessageBuilder<String>) pubSubMessageSource.doReceive(3);
+
+    assertThat(message1.getPayload()).isEqualTo("msg1");
+    assertThat(message2.getPayload()).isEqualTo("msg3");
+    verify(this.msg1).ack();
+    verify(this.msg2).ack();
+    verify(this.msg3, never()).ack();
+    assertThat(pubSubMessageSource.getDeduplicator().getHitCount()).isEqualTo(1);
+  }
+
   @Test
   public void doReceive_autoModeAcksAndAddsOriginalMessageHeader() {
 
@@ -297,4 +336,159 @@ public class PubSubMessageSourceTests {
 
     verify(this.mockPubSubSubscriberOperations).pullAndConvert("sub1", 1, false, String.class);
   }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void doReceive_prefetchKeepsPullsInFlightAndServesFromBuffer() {
+    SettableListenableFuture<List<ConvertedAcknowledgeablePubsubMessage<String>>> pull1 =
+        new SettableListenableFuture<>();
+    SettableListenableFuture<List<ConvertedAcknowledgeablePubsubMessage<String>>> pull2 =
+        new SettableListenableFuture<>();
+    SettableListenableFuture<List<ConvertedAcknowledgeablePubsubMessage<String>>> pull3 =
+        new SettableListenableFuture<>();
+    when(this.mockPubSubSubscriberOperations.pullAndConvertAsync("sub1", 2, true, String.class))
+        .thenReturn(pull1, pull2, pull3);
+
+    PubSubMessageSource pubSubMessageSource =
+        new PubSubMessageSource(this.mockPubSubSubscriberOperations, "sub1");
+    pubSubMessageSource.setMaxFetchSize(2);
+    pubSubMessageSource.setPayloadType(String.class);
+    pubSubMessageSource.setPrefetchConcurrentPulls(2);
+
+    assertThat(pubSubMessageSource.doReceive(2)).isNull();
+    verify(this.mockPubSubSubscriberOperations, times(2))
+        .pullAndConvertAsync("sub1", 2, true, String.class);
+
+    pull1.set(Arrays.asList(this.msg1, this.msg2));
+
+    // The next pull is sent as soon as a response frees up a slot.
+    verify(this.mockPubSubSubscriberOperations, times(3))
+        .pullAndConvertAsync("sub1", 2, true, String.class);
+
+    MessageBuilder<String> message1 = (MessageBuilder<String>) pubSubMessageSource.doReceive(2);
+    MessageBuilder<String> message2 = (MessageBuilder<String>) pubSubMessageSource.doReceive(2);
+    assertThat(message1.getPayload()).isEqualTo("msg1");
+    assertThat(message2.getPayload()).isEqualTo("msg2");
+    verify(this.mockPubSubSubscriberOperations, never()).pullAndConvert(any(), any(), any(), any());
+  }
+
+  @Test
+  public void doReceive_prefetchStopsAtHighWatermark() {
+    SettableListenableFuture<List<ConvertedAcknowledgeablePubsubMessage<String>>> pull =
+        new SettableListenableFuture<>();
+    when(this.mockPubSubSubscriberOperations.pullAndConvertAsync("sub1", 3, true, String.class))
+        .thenReturn(pull, new SettableListenableFuture<>());
+
+    PubSubMessageSource pubSubMessageSource =
+        new PubSubMessageSource(this.mockPubSubSubscriberOperations, "sub1");
+    pubSubMessageSource.setPayloadType(String.class);
+    pubSubMessageSource.setPrefetchConcurrentPulls(5);
+    pubSubMessageSource.setPrefetchWatermarks(1, 3);
+
+    pubSubMessageSource.doReceive(3);
+    verify(this.mockPubSubSubscriberOperations, times(1))
+        .pullAndConvertAsync("sub1", 3, true, String.class);
+
+    pull.set(Arrays.asList(this.msg1, this.msg2, this.msg3));
+    pubSubMessageSource.doReceive(3);
+    verify(this.mockPubSubSubscriberOperations, times(1))
+        .pullAndConvertAsync("sub1", 3, true, String.class);
+
+    // Dropping to the low watermark resumes prefetching.
+    pubSubMessageSource.doReceive(3);
+    verify(this.mockPubSubSubscriberOperations, times(2))
+        .pullAndConvertAsync("sub1", 3, true, String.class);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void doReceive_prefetchWithBlockOnPullWaitsForInFlightPull() {
+    SettableListenableFuture<List<ConvertedAcknowledgeablePubsubMessage<String>>> pull =
+        new SettableListenableFuture<>();
+    when(this.mockPubSubSubscriberOperations.pullAndConvertAsync("sub1", 1, false, String.class))
+        .thenReturn(pull, new SettableListenableFuture<>());
+
+    PubSubMessageSource pubSubMessageSource =
+        new PubSubMessageSource(this.mockPubSubSubscriberOperations, "sub1");
+    pubSubMessageSource.setPayloadType(String.class);
+    pubSubMessageSource.setBlockOnPull(true);
+    pubSubMessageSource.setPrefetchConcurrentPulls(1);
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      executor.execute(
+          () -> {
+            try {
+              Thread.sleep(100);
+            } catch (InterruptedException ex) {
+              Thread.currentThread().interrupt();
+            }
+            pull.set(Collections.singletonList(this.msg1));
+          });
+
+      MessageBuilder<String> message = (MessageBuilder<String>) pubSubMessageSource.doReceive(1);
+      assertThat(message.getPayload()).isEqualTo("msg1");
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void doReceive_prefetchFailureIsRethrown() {
+    SettableListenableFuture<List<ConvertedAcknowledgeablePubsubMessage<String>>> pull =
+        new SettableListenableFuture<>();
+    pull.setException(new IllegalStateException("Pull failed."));
+    when(this.mockPubSubSubscriberOperations.pullAndConvertAsync("sub1", 1, true, String.class))
+        .thenReturn(pull);
+
+    PubSubMessageSource pubSubMessageSource =
+        new PubSubMessageSource(this.mockPubSubSubscriberOperations, "sub1");
+    pubSubMessageSource.setPayloadType(String.class);
+    pubSubMessageSource.setPrefetchConcurrentPulls(1);
+
+    assertThatThrownBy(() -> pubSubMessageSource.doReceive(1))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessage("Pull failed.");
+  }
+
+  @Test
+  public void stop_nacksPrefetchedAndInFlightMessages() {
+    SettableListenableFuture<List<ConvertedAcknowledgeablePubsubMessage<String>>> pull1 =
+        new SettableListenableFuture<>();
+    SettableListenableFuture<List<ConvertedAcknowledgeablePubsubMessage<String>>> pull2 =
+        new SettableListenableFuture<>();
+    when(this.mockPubSubSubscriberOperations.pullAndConvertAsync("sub1", 2, true, String.class))
+        .thenReturn(pull1, pull2);
+
+    PubSubMessageSource pubSubMessageSource =
+        new PubSubMessageSource(this.mockPubSubSubscriberOperations, "sub1");
+    pubSubMessageSource.setPayloadType(String.class);
+    pubSubMessageSource.setPrefetchConcurrentPulls(1);
+    pubSubMessageSource.setPrefetchWatermarks(2, 4);
+
+    pubSubMessageSource.doReceive(2);
+    pull1.set(Arrays.asList(this.msg1, this.msg2));
+
+    pubSubMessageSource.stop();
+
+    assertThat(pubSubMessageSource.isRunning()).isFalse();
+    verify(this.mockPubSubSubscriberOperations).nack(Arrays.asList(this.msg1, this.msg2));
+
+    pull2.set(Collections.singletonList(this.msg3));
+
+    verify(this.mockPubSubSubscriberOperations).nack(Collections.singletonList(this.msg3));
+    assertThat(pubSubMessageSource.doReceive(2)).isNull();
+    verify(this.mockPubSubSubscriberOperations, times(2))
+        .pullAndConvertAsync("sub1", 2, true, String.class);
+  }
+
+  @Test
+  public void setPrefetchWatermarks_lowMustBeBelowHigh() {
+    PubSubMessageSource pubSubMessageSource =
+        new PubSubMessageSource(this.mockPubSubSubscriberOperations, "sub1");
+
+    assertThatThrownBy(() -> pubSubMessageSource.setPrefetchWatermarks(10, 10))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("The highWatermark must be greater than the lowWatermark.");
+  }
 }
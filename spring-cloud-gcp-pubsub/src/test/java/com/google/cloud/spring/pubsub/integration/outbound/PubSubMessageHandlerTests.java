@@ -17,8 +17,10 @@
 package com.google.cloud.spring.pubsub.integration.outbound;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.spy;
@@ -41,6 +43,7 @@ import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.expression.Expression;
 import org.springframework.expression.common.LiteralExpression;
+import org.springframework.integration.MessageTimeoutException;
 import org.springframework.integration.expression.ValueExpression;
 import org.springframework.messaging.Message;
 import org.springframework.messaging.support.GenericMessage;
@@ -79,6 +82,56 @@ public class PubSubMessageHandlerTests {
     verify(this.pubSubTemplate).publish(eq("testTopic"), eq("testPayload".getBytes()), anyMap());
   }
 
+  @Test
+  public void testPublishWithMaxInFlightBlocksWhileWindowIsFull() {
+    SettableListenableFuture<String> future = new SettableListenableFuture<>();
+    when(this.pubSubTemplate.publish(eq("testTopic"), eq("testPayload".getBytes()), anyMap()))
+        .thenReturn(future);
+    AtomicReference<String> confirmedMessageId = new AtomicReference<>();
+    this.adapter.setSuccessCallback((messageId, message) -> confirmedMessageId.set(messageId));
+    this.adapter.setMaxInFlight(1);
+    this.adapter.setPublishTimeout(50);
+
+    this.adapter.handleMessage(this.message);
+    assertThat(this.adapter.getInFlightCount()).isEqualTo(1);
+
+    assertThatThrownBy(() -> this.adapter.handleMessage(this.message))
+        .isInstanceOf(MessageTimeoutException.class)
+        .hasMessageContaining("Timeout waiting for an in-flight Pub/Sub publish to complete");
+    verify(this.pubSubTemplate).publish(eq("testTopic"), eq("testPayload".getBytes()), anyMap());
+
+    future.set("benfica");
+    assertThat(this.adapter.getInFlightCount()).isZero();
+    assertThat(confirmedMessageId.get()).isEqualTo("benfica");
+
+    SettableListenableFuture<String> nextFuture = new SettableListenableFuture<>();
+    when(this.pubSubTemplate.publish(eq("testTopic"), eq("testPayload".getBytes()), anyMap()))
+        .thenReturn(nextFuture);
+    this.adapter.handleMessage(this.message);
+    assertThat(this.adapter.getInFlightCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testPublishWithMaxInFlightReleasesWindowOnFailure() {
+    SettableListenableFuture<String> future = new SettableListenableFuture<>();
+    when(this.pubSubTemplate.publish(eq("testTopic"), eq("testPayload".getBytes()), anyMap()))
+        .thenReturn(future)
+        .thenThrow(new IllegalStateException("publisher shut down"));
+    AtomicReference<Throwable> failureCause = new AtomicReference<>();
+    this.adapter.setFailureCallback((cause, message) -> failureCause.set(cause));
+    this.adapter.setMaxInFlight(1);
+
+    this.adapter.handleMessage(this.message);
+    future.setException(new RuntimeException("boom"));
+
+    assertThat(this.adapter.getInFlightCount()).isZero();
+    assertThat(failureCause.get()).hasMessage("boom");
+
+    assertThatThrownBy(() -> this.adapter.handleMessage(this.message))
+        .hasRootCauseInstanceOf(IllegalStateException.class);
+    assertThat(this.adapter.getInFlightCount()).isZero();
+  }
+
   @Test
   public void testPublishDynamicTopic() {
     Message<?> dynamicMessage =
@@ -110,6 +163,42 @@ public class PubSubMessageHandlerTests {
         .publish(eq("expressionTopic"), eq("testPayload".getBytes()), anyMap());
   }
 
+  @Test
+  public void testOrderingKeyExpression() {
+    this.adapter.setOrderingKeyExpressionString("headers['key1']");
+    this.adapter.onInit();
+
+    this.adapter.handleMessage(this.message);
+
+    verify(this.pubSubTemplate)
+        .publish(
+            eq("testTopic"),
+            eq("testPayload".getBytes()),
+            argThat(headers -> "value1".equals(headers.get(GcpPubSubHeaders.ORDERING_KEY))));
+  }
+
+  @Test
+  public void testOrderingKeyHeaderTakesPrecedenceOverExpression() {
+    this.adapter.setOrderingKeyExpressionString("headers['key1']");
+    this.adapter.onInit();
+    Message<?> orderedMessage =
+        new GenericMessage<byte[]>(
+            "testPayload".getBytes(),
+            new MapBuilder<String, Object>()
+                .put("key1", "value1")
+                .put(GcpPubSubHeaders.ORDERING_KEY, "explicitKey")
+                .build());
+
+    this.adapter.handleMessage(orderedMessage);
+
+    verify(this.pubSubTemplate)
+        .publish(
+            eq("testTopic"),
+            eq("testPayload".getBytes()),
+            argThat(
+                headers -> "explicitKey".equals(headers.get(GcpPubSubHeaders.ORDERING_KEY))));
+  }
+
   @Test
   public void testPublishSync() {
     this.adapter.setSync(true);
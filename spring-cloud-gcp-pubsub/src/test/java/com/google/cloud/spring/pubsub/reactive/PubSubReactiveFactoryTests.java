@@ -16,6 +16,7 @@
 
 package com.google.cloud.spring.pubsub.reactive;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
@@ -24,10 +25,20 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.when;
 
+import com.google.api.core.ApiService;
+import com.google.api.core.SettableApiFuture;
+import com.google.api.gax.batching.BatchingSettings;
+import com.google.api.gax.batching.FlowControlSettings;
 import com.google.api.gax.grpc.GrpcStatusCode;
 import com.google.api.gax.rpc.DeadlineExceededException;
+import com.google.cloud.pubsub.v1.Publisher;
+import com.google.cloud.pubsub.v1.Subscriber;
+import com.google.cloud.spring.pubsub.core.PubSubDeliveryException;
+import com.google.cloud.spring.pubsub.core.publisher.PubSubPublisherTemplate;
 import com.google.cloud.spring.pubsub.core.subscriber.PubSubSubscriberOperations;
 import com.google.cloud.spring.pubsub.support.AcknowledgeablePubsubMessage;
+import com.google.cloud.spring.pubsub.support.BasicAcknowledgeablePubsubMessage;
+import com.google.cloud.spring.pubsub.support.PublisherFactory;
 import com.google.protobuf.ByteString;
 import com.google.pubsub.v1.PubsubMessage;
 import io.grpc.Status;
@@ -36,14 +47,18 @@ import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.scheduling.annotation.AsyncResult;
+import reactor.core.publisher.Flux;
 import reactor.test.StepVerifier;
 import reactor.test.scheduler.VirtualTimeScheduler;
 
@@ -57,6 +72,10 @@ public class PubSubReactiveFactoryTests {
 
   @Mock PubSubSubscriberOperations subscriberOperations;
 
+  @Mock PublisherFactory publisherFactory;
+
+  @Mock Publisher publisher;
+
   PubSubReactiveFactory factory;
 
   @Before
@@ -109,6 +128,36 @@ public class PubSubReactiveFactoryTests {
     methodOrder.verifyNoMoreInteractions();
   }
 
+  @Test
+  public void testMultiSubscriptionRequestsShareDemand() {
+    List<String> subscriptions = Arrays.asList("sub1", "sub2");
+    AcknowledgeablePubsubMessage msg = mock(AcknowledgeablePubsubMessage.class);
+    when(msg.getPubsubMessage())
+        .thenReturn(PubsubMessage.newBuilder().setData(ByteString.copyFromUtf8("msg")).build());
+    when(subscriberOperations.pullFromSubscriptionsAsync(
+            eq(subscriptions), any(Integer.class), any(Boolean.class)))
+        .thenReturn(AsyncResult.forValue(Arrays.asList(msg)));
+
+    StepVerifier.withVirtualTime(
+            () -> factory.poll(subscriptions, 10).map(this::messageToString), 3)
+        .expectSubscription()
+        .expectNext("msg", "msg", "msg")
+        .thenCancel()
+        .verify();
+
+    InOrder methodOrder = Mockito.inOrder(this.subscriberOperations);
+    methodOrder
+        .verify(this.subscriberOperations)
+        .pullFromSubscriptionsAsync(subscriptions, 3, false);
+    methodOrder
+        .verify(this.subscriberOperations)
+        .pullFromSubscriptionsAsync(subscriptions, 2, false);
+    methodOrder
+        .verify(this.subscriberOperations)
+        .pullFromSubscriptionsAsync(subscriptions, 1, false);
+    methodOrder.verifyNoMoreInteractions();
+  }
+
   @Test
   public void testDeadlineExceededCausesRetry() throws InterruptedException {
     setUpMessages("timeout", "msg1", "msg2");
@@ -205,6 +254,178 @@ public class PubSubReactiveFactoryTests {
     methodOrder.verifyNoMoreInteractions();
   }
 
+  @Test
+  public void testPublishAllEmitsMessageIdsInOrder() {
+    factory.setPublisherTemplate(new PubSubPublisherTemplate(publisherFactory));
+    when(publisherFactory.createPublisher("topic1")).thenReturn(publisher);
+    SettableApiFuture<String> future1 = SettableApiFuture.create();
+    SettableApiFuture<String> future2 = SettableApiFuture.create();
+    SettableApiFuture<String> future3 = SettableApiFuture.create();
+    when(publisher.publish(any(PubsubMessage.class))).thenReturn(future1, future2, future3);
+
+    StepVerifier.create(factory.publishAll("topic1", Arrays.asList("msg1", "msg2", "msg3")))
+        .expectSubscription()
+        .then(() -> future2.set("id2"))
+        .then(() -> future1.set("id1"))
+        // The IDs are emitted once all the messages were published or failed.
+        .expectNoEvent(Duration.ofMillis(50))
+        .then(() -> future3.setException(new RuntimeException("publish failed")))
+        .expectNext("id1", "id2")
+        .expectErrorSatisfies(
+            error ->
+                assertThat(error)
+                    .isInstanceOf(PubSubDeliveryException.class)
+                    .hasRootCauseMessage("publish failed"))
+        .verify(Duration.ofSeconds(10));
+
+    Mockito.verify(publisherFactory, times(1)).createPublisher("topic1");
+  }
+
+  @Test
+  public void testPublishAllWithoutPublisherTemplateFails() {
+    assertThatThrownBy(() -> factory.publishAll("topic1", Arrays.asList("msg1")))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessage("A publisherTemplate is required to publish.");
+  }
+
+  @Test
+  public void testPublishBoundsOutstandingMessagesByFlowControl() {
+    List<SettableApiFuture<String>> futures = setUpPublisher(2L);
+    List<Long> upstreamRequests = new ArrayList<>();
+    Flux<PubsubMessage> messages =
+        Flux.range(1, 4)
+            .map(
+                i -> PubsubMessage.newBuilder().setData(ByteString.copyFromUtf8("msg" + i)).build())
+            .doOnRequest(upstreamRequests::add);
+
+    StepVerifier.create(factory.publish("topic1", messages), 1)
+        .expectSubscription()
+        .then(() -> assertThat(futures).hasSize(2))
+        .then(() -> futures.get(1).set("id2"))
+        .expectNoEvent(Duration.ofMillis(50))
+        .then(() -> futures.get(0).set("id1"))
+        .expectNext("id1")
+        .then(() -> assertThat(futures).hasSize(3))
+        // Without downstream demand, published messages stay outstanding.
+        .then(() -> futures.get(2).set("id3"))
+        .expectNoEvent(Duration.ofMillis(50))
+        .then(() -> assertThat(futures).hasSize(3))
+        .thenRequest(2)
+        .expectNext("id2", "id3")
+        .then(() -> futures.get(3).set("id4"))
+        .thenRequest(1)
+        .expectNext("id4")
+        .expectComplete()
+        .verify(Duration.ofSeconds(10));
+
+    assertThat(upstreamRequests).containsOnly(1L);
+  }
+
+  @Test
+  public void testPublishFailureResumesOrderingKey() {
+    List<SettableApiFuture<String>> futures = setUpPublisher(null);
+    Flux<PubsubMessage> messages =
+        Flux.just(
+            PubsubMessage.newBuilder().setOrderingKey("key1").build(),
+            PubsubMessage.newBuilder().setOrderingKey("key1").build());
+
+    StepVerifier.create(factory.publish("topic1", messages))
+        .expectSubscription()
+        .then(() -> futures.get(0).setException(new RuntimeException("publish failed")))
+        .expectErrorSatisfies(
+            error ->
+                assertThat(error)
+                    .isInstanceOf(PubSubDeliveryException.class)
+                    .hasRootCauseMessage("publish failed"))
+        .verify(Duration.ofSeconds(10));
+
+    Mockito.verify(publisher).resumePublish("key1");
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testSubscribeBuffersMessagesUntilRequested() {
+    Subscriber subscriber = mock(Subscriber.class);
+    when(subscriber.state()).thenReturn(ApiService.State.RUNNING);
+    ArgumentCaptor<Consumer<BasicAcknowledgeablePubsubMessage>> consumer =
+        ArgumentCaptor.forClass(Consumer.class);
+    when(subscriberOperations.subscribe(eq("sub1"), consumer.capture())).thenReturn(subscriber);
+    BasicAcknowledgeablePubsubMessage message1 = mockMessage("msg1");
+    BasicAcknowledgeablePubsubMessage message2 = mockMessage("msg2");
+    BasicAcknowledgeablePubsubMessage message3 = mockMessage("msg3");
+
+    StepVerifier.create(
+            factory.subscribe("sub1").map(m -> m.getPubsubMessage().getData().toStringUtf8()), 1)
+        .expectSubscription()
+        .then(
+            () -> {
+              consumer.getValue().accept(message1);
+              consumer.getValue().accept(message2);
+              consumer.getValue().accept(message3);
+            })
+        .expectNext("msg1")
+        .expectNoEvent(Duration.ofMillis(50))
+        .thenRequest(1)
+        .expectNext("msg2")
+        .thenCancel()
+        .verify(Duration.ofSeconds(10));
+
+    Mockito.verify(subscriber).stopAsync();
+    Mockito.verify(message3).nack();
+    Mockito.verify(message1, Mockito.never()).nack();
+  }
+
+  @Test
+  public void testSubscribeSubscriberFailureResultsInErrorStream() {
+    Subscriber subscriber = mock(Subscriber.class);
+    ArgumentCaptor<ApiService.Listener> listener =
+        ArgumentCaptor.forClass(ApiService.Listener.class);
+    when(subscriber.state()).thenReturn(ApiService.State.RUNNING);
+    when(subscriberOperations.subscribe(eq("sub1"), any())).thenReturn(subscriber);
+
+    StepVerifier.create(factory.subscribe("sub1"))
+        .expectSubscription()
+        .then(
+            () -> {
+              Mockito.verify(subscriber).addListener(listener.capture(), any());
+              listener
+                  .getValue()
+                  .failed(ApiService.State.RUNNING, new RuntimeException("subscriber failed"));
+            })
+        .expectErrorMessage("subscriber failed")
+        .verify(Duration.ofSeconds(10));
+  }
+
+  private BasicAcknowledgeablePubsubMessage mockMessage(String data) {
+    BasicAcknowledgeablePubsubMessage message = mock(BasicAcknowledgeablePubsubMessage.class);
+    Mockito.lenient()
+        .when(message.getPubsubMessage())
+        .thenReturn(PubsubMessage.newBuilder().setData(ByteString.copyFromUtf8(data)).build());
+    return message;
+  }
+
+  private List<SettableApiFuture<String>> setUpPublisher(Long maxOutstandingElementCount) {
+    factory.setPublisherTemplate(new PubSubPublisherTemplate(publisherFactory));
+    when(publisherFactory.createPublisher("topic1")).thenReturn(publisher);
+    when(publisher.getBatchingSettings())
+        .thenReturn(
+            BatchingSettings.newBuilder()
+                .setFlowControlSettings(
+                    FlowControlSettings.newBuilder()
+                        .setMaxOutstandingElementCount(maxOutstandingElementCount)
+                        .build())
+                .build());
+    List<SettableApiFuture<String>> futures = new CopyOnWriteArrayList<>();
+    when(publisher.publish(any(PubsubMessage.class)))
+        .then(
+            invocation -> {
+              SettableApiFuture<String> future = SettableApiFuture.create();
+              futures.add(future);
+              return future;
+            });
+    return futures;
+  }
+
   private String messageToString(AcknowledgeablePubsubMessage message) {
     return new String(message.getPubsubMessage().getData().toByteArray(), Charset.defaultCharset());
   }
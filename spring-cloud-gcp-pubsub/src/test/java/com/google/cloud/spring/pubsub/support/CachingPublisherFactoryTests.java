@@ -17,6 +17,9 @@
 package com.google.cloud.spring.pubsub.support;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -26,6 +29,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.threeten.bp.Duration;
 
 /** Tests for the {@link CachingPublisherFactory}. */
 @RunWith(MockitoJUnitRunner.class)
@@ -53,4 +57,130 @@ public class CachingPublisherFactoryTests {
     verify(delegate, times(1)).createPublisher("topic1");
     verify(delegate, times(1)).createPublisher("topic2");
   }
+
+  @Test
+  public void testCacheStatistics() {
+    CachingPublisherFactory cachingPublisherFactory = new CachingPublisherFactory(delegate);
+
+    when(delegate.createPublisher("topic1")).thenReturn(publisher1);
+
+    cachingPublisherFactory.createPublisher("topic1");
+    cachingPublisherFactory.createPublisher("topic1");
+    cachingPublisherFactory.createPublisher("topic1");
+
+    assertThat(cachingPublisherFactory.getMissCount()).isEqualTo(1);
+    assertThat(cachingPublisherFactory.getHitCount()).isEqualTo(2);
+    assertThat(cachingPublisherFactory.getEvictionCount()).isZero();
+    assertThat(cachingPublisherFactory.getCachedPublisherCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void testMaximumSizeEvictsAndShutsDownPublisher() throws Exception {
+    CachingPublisherFactory cachingPublisherFactory =
+        new CachingPublisherFactory(delegate, 1L, null);
+    cachingPublisherFactory.setEvictionGracePeriod(Duration.ZERO);
+
+    when(delegate.createPublisher("topic1")).thenReturn(publisher1);
+    when(delegate.createPublisher("topic2")).thenReturn(publisher2);
+
+    assertThat(cachingPublisherFactory.createPublisher("topic1")).isEqualTo(publisher1);
+    assertThat(cachingPublisherFactory.createPublisher("topic2")).isEqualTo(publisher2);
+
+    verify(publisher1, timeout(10_000)).shutdown();
+    verify(publisher2, never()).shutdown();
+    assertThat(cachingPublisherFactory.getEvictionCount()).isEqualTo(1);
+    assertThat(cachingPublisherFactory.getCachedPublisherCount()).isEqualTo(1);
+
+    // An evicted topic gets a new publisher.
+    cachingPublisherFactory.createPublisher("topic1");
+    verify(delegate, times(2)).createPublisher("topic1");
+  }
+
+  @Test
+  public void testIdleTimeoutEvictsPublisher() throws Exception {
+    CachingPublisherFactory cachingPublisherFactory =
+        new CachingPublisherFactory(delegate, null, Duration.ofMillis(1));
+    cachingPublisherFactory.setEvictionGracePeriod(Duration.ZERO);
+
+    when(delegate.createPublisher("topic1")).thenReturn(publisher1);
+    when(delegate.createPublisher("topic2")).thenReturn(publisher2);
+
+    cachingPublisherFactory.createPublisher("topic1");
+    Thread.sleep(20);
+    cachingPublisherFactory.createPublisher("topic2");
+
+    verify(publisher1, timeout(10_000)).shutdown();
+    assertThat(cachingPublisherFactory.getEvictionCount()).isPositive();
+  }
+
+  @Test
+  public void testEvictedPublisherIsShutDownAfterGracePeriod() throws Exception {
+    CachingPublisherFactory cachingPublisherFactory =
+        new CachingPublisherFactory(delegate, 1L, null);
+    cachingPublisherFactory.setEvictionGracePeriod(Duration.ofMillis(500));
+
+    when(delegate.createPublisher("topic1")).thenReturn(publisher1);
+    when(delegate.createPublisher("topic2")).thenReturn(publisher2);
+
+    cachingPublisherFactory.createPublisher("topic1");
+    long evictedAt = System.nanoTime();
+    cachingPublisherFactory.createPublisher("topic2");
+
+    verify(publisher1, timeout(10_000)).shutdown();
+    assertThat(System.nanoTime() - evictedAt).isGreaterThanOrEqualTo(500_000_000L);
+  }
+
+  @Test
+  public void testDestroyShutsDownPublishersInGracePeriod() throws Exception {
+    CachingPublisherFactory cachingPublisherFactory =
+        new CachingPublisherFactory(delegate, 1L, null);
+    cachingPublisherFactory.setEvictionGracePeriod(Duration.ofHours(1));
+
+    when(delegate.createPublisher("topic1")).thenReturn(publisher1);
+    when(delegate.createPublisher("topic2")).thenReturn(publisher2);
+
+    cachingPublisherFactory.createPublisher("topic1");
+    cachingPublisherFactory.createPublisher("topic2");
+    verify(publisher1, never()).shutdown();
+    cachingPublisherFactory.destroy();
+
+    verify(publisher1).shutdown();
+    verify(publisher2).shutdown();
+  }
+
+  @Test
+  public void testDestroyShutsDownAllPublishers() throws Exception {
+    CachingPublisherFactory cachingPublisherFactory = new CachingPublisherFactory(delegate);
+
+    when(delegate.createPublisher("topic1")).thenReturn(publisher1);
+    when(delegate.createPublisher("topic2")).thenReturn(publisher2);
+
+    cachingPublisherFactory.createPublisher("topic1");
+    cachingPublisherFactory.createPublisher("topic2");
+    cachingPublisherFactory.destroy();
+
+    verify(publisher1).shutdown();
+    verify(publisher2).shutdown();
+    assertThat(cachingPublisherFactory.getCachedPublisherCount()).isZero();
+    assertThat(cachingPublisherFactory.getEvictionCount()).isZero();
+  }
+
+  @Test
+  public void testDelegateExceptionIsPropagated() {
+    CachingPublisherFactory cachingPublisherFactory = new CachingPublisherFactory(delegate);
+
+    when(delegate.createPublisher("topic1")).thenThrow(new PubSubTestException());
+
+    assertThatThrownBy(() -> cachingPublisherFactory.createPublisher("topic1"))
+        .isInstanceOf(PubSubTestException.class);
+  }
+
+  @Test
+  public void testNonPositiveMaximumSizeFails() {
+    assertThatThrownBy(() -> new CachingPublisherFactory(delegate, 0L, null))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("The maximumSize must be positive.");
+  }
+
+  private static class PubSubTestException extends RuntimeException {}
 }
@@ -22,7 +22,9 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import com.google.api.gax.batching.BatchingSettings;
 import com.google.api.gax.core.NoCredentialsProvider;
+import com.google.api.gax.retrying.RetrySettings;
 import com.google.api.gax.rpc.ApiCallContext;
 import com.google.api.gax.rpc.TransportChannel;
 import com.google.api.gax.rpc.TransportChannelProvider;
@@ -31,9 +33,12 @@ import com.google.cloud.spring.pubsub.core.publisher.PublisherCustomizer;
 import com.google.pubsub.v1.ProjectTopicName;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.threeten.bp.Duration;
 
 /** Tests for the publisher factory. */
 class DefaultPublisherFactoryTests {
@@ -108,6 +113,53 @@ class DefaultPublisherFactoryTests {
     assertThat(publisher.getBatchingSettings()).isSameAs(defaultPublisher.getBatchingSettings());
   }
 
+  @Test
+  void createPublisherUsesTopicSpecificSettings() {
+    BatchingSettings globalBatching =
+        BatchingSettings.newBuilder().setElementCountThreshold(100L).build();
+    BatchingSettings topicBatching =
+        BatchingSettings.newBuilder().setElementCountThreshold(1L).build();
+    RetrySettings topicRetry =
+        RetrySettings.newBuilder()
+            .setMaxAttempts(1)
+            .setTotalTimeout(Duration.ofSeconds(10))
+            .setInitialRpcTimeout(Duration.ofSeconds(5))
+            .setMaxRpcTimeout(Duration.ofSeconds(5))
+            .setRpcTimeoutMultiplier(1.0)
+            .build();
+    factory.setBatchingSettings(globalBatching);
+    factory.setBatchingSettingsMap(
+        new ConcurrentHashMap<>(
+            Collections.singletonMap("projects/projectId/topics/control", topicBatching)));
+    factory.setRetrySettingsMap(
+        new ConcurrentHashMap<>(
+            Collections.singletonMap("projects/projectId/topics/control", topicRetry)));
+
+    assertThat(factory.createPublisher("control").getBatchingSettings()).isSameAs(topicBatching);
+    assertThat(factory.getRetrySettings("projects/projectId/topics/control"))
+        .isSameAs(topicRetry);
+    assertThat(factory.createPublisher("telemetry").getBatchingSettings())
+        .isSameAs(globalBatching);
+    assertThat(factory.getRetrySettings("telemetry")).isNull();
+  }
+
+  @Test
+  void createPublisherWithAdditionalCustomizerAppliesItLast() {
+    BatchingSettings factoryBatching =
+        BatchingSettings.newBuilder().setElementCountThreshold(10L).build();
+    BatchingSettings customizedBatching =
+        BatchingSettings.newBuilder().setElementCountThreshold(20L).build();
+    factory.setCustomizers(
+        Collections.singletonList((pb, t) -> pb.setBatchingSettings(factoryBatching)));
+
+    Publisher publisher =
+        factory.createPublisher("testTopic", (pb, t) -> pb.setBatchingSettings(customizedBatching));
+
+    assertThat(publisher.getBatchingSettings()).isSameAs(customizedBatching);
+    assertThat(factory.createPublisher("testTopic").getBatchingSettings())
+        .isSameAs(factoryBatching);
+  }
+
   @Test
   void createPublisherWithExplicitNullCustomizersFails() {
     assertThatThrownBy(() -> factory.setCustomizers(null))
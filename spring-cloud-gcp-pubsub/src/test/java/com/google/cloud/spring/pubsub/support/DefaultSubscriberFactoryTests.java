@@ -97,6 +97,31 @@ public class DefaultSubscriberFactoryTests {
         .isEqualTo("projects/angeldust/subscriptions/midnight cowboy");
   }
 
+  @Test
+  public void testNewSubscriber_customizerTakesPrecedence() {
+    DefaultSubscriberFactory factory = new DefaultSubscriberFactory(() -> "angeldust");
+    factory.setCredentialsProvider(this.credentialsProvider);
+    factory.setParallelPullCount(1);
+    factory.setFlowControlSettings(
+        FlowControlSettings.newBuilder().setMaxOutstandingElementCount(10L).build());
+
+    Subscriber subscriber =
+        factory.createSubscriber(
+            "midnight cowboy",
+            (message, consumer) -> {},
+            (builder, subscription) ->
+                builder
+                    .setParallelPullCount(3)
+                    .setFlowControlSettings(
+                        FlowControlSettings.newBuilder()
+                            .setMaxOutstandingElementCount(50L)
+                            .build()));
+
+    assertThat(subscriber.getFlowControlSettings().getMaxOutstandingElementCount())
+        .isEqualTo(50L);
+    assertThat(subscriber).hasFieldOrPropertyWithValue("numPullers", 3);
+  }
+
   @Test
   public void testNewSubscriber_constructorWithPubSubConfiguration() {
     GcpProjectIdProvider projectIdProvider = () -> "angeldust";
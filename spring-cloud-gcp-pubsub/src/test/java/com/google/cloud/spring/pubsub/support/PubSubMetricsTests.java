@@ -0,0 +1,78 @@
+/*
+ * Copyright 2022-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+/** Tests for {@link PubSubMetrics}. */
+class PubSubMetricsTests {
+
+  private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+  private final PubSubMetrics metrics = new PubSubMetrics(this.meterRegistry);
+
+  @Test
+  void shortAndFullyQualifiedNamesShareTheirMeters() {
+    this.metrics.recordReceived("sub", 1);
+    this.metrics.recordReceived("projects/project/subscriptions/sub", 2);
+    this.metrics.getOutstanding("sub").incrementAndGet();
+    this.metrics.getOutstanding("projects/project/subscriptions/sub").incrementAndGet();
+    this.metrics.recordPublishBatch("topic", 1);
+    this.metrics.recordPublishBatch("projects/project/topics/topic", 1);
+
+    assertThat(this.metrics.getOutstanding("projects/project/subscriptions/sub"))
+        .isSameAs(this.metrics.getOutstanding("sub"));
+    assertThat(
+            this.meterRegistry
+                .get("spring.cloud.gcp.pubsub.receive")
+                .tag("subscription", "sub")
+                .counter()
+                .count())
+        .isEqualTo(3);
+    assertThat(this.meterRegistry.get("spring.cloud.gcp.pubsub.outstanding").gauge().value())
+        .isEqualTo(2);
+    assertThat(
+            this.meterRegistry
+                .get("spring.cloud.gcp.pubsub.publish.batch.size")
+                .tag("topic", "topic")
+                .summary()
+                .count())
+        .isEqualTo(2);
+  }
+
+  @Test
+  void pullLeasesSumsAllSources() {
+    AtomicInteger leases1 = new AtomicInteger(2);
+    AtomicInteger leases2 = new AtomicInteger(3);
+
+    this.metrics.registerPullLeases(leases1, AtomicInteger::get);
+    this.metrics.registerPullLeases(leases2, AtomicInteger::get);
+
+    assertThat(this.meterRegistry.get("spring.cloud.gcp.pubsub.pull.leases").gauges()).hasSize(1);
+    assertThat(this.meterRegistry.get("spring.cloud.gcp.pubsub.pull.leases").gauge().value())
+        .isEqualTo(5);
+
+    leases2.set(0);
+
+    assertThat(this.meterRegistry.get("spring.cloud.gcp.pubsub.pull.leases").gauge().value())
+        .isEqualTo(2);
+  }
+}
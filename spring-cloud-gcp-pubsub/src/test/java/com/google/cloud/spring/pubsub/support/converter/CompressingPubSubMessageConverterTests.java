@@ -0,0 +1,138 @@
+/*
+ * Copyright 2022-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.support.converter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.google.cloud.spring.pubsub.support.GcpPubSubHeaders;
+import com.google.protobuf.ByteString;
+import com.google.pubsub.v1.PubsubMessage;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+import org.junit.jupiter.api.Test;
+
+/** Tests for {@link CompressingPubSubMessageConverter}. */
+class CompressingPubSubMessageConverterTests {
+
+  private static final String LARGE_PAYLOAD =
+      String.join(",", Collections.nCopies(500, "{\"name\":\"value\"}"));
+
+  private final CompressingPubSubMessageConverter converter =
+      new CompressingPubSubMessageConverter(new SimplePubSubMessageConverter());
+
+  @Test
+  void testCompressesLargePayloads() {
+    PubsubMessage message =
+        this.converter.toPubSubMessage(
+            LARGE_PAYLOAD, Collections.singletonMap(GcpPubSubHeaders.ORDERING_KEY, "key"));
+
+    assertThat(message.getData().size()).isLessThan(LARGE_PAYLOAD.length());
+    assertThat(message.getAttributesMap())
+        .containsOnlyKeys(CompressingPubSubMessageConverter.CONTENT_ENCODING_ATTRIBUTE)
+        .containsEntry(CompressingPubSubMessageConverter.CONTENT_ENCODING_ATTRIBUTE, "gzip");
+    assertThat(message.getOrderingKey()).isEqualTo("key");
+    assertThat(this.converter.fromPubSubMessage(message, String.class)).isEqualTo(LARGE_PAYLOAD);
+  }
+
+  @Test
+  void testLeavesSmallPayloadsUncompressed() {
+    PubsubMessage message = this.converter.toPubSubMessage("small", null);
+
+    assertThat(message.getData().toStringUtf8()).isEqualTo("small");
+    assertThat(message.getAttributesMap()).isEmpty();
+    assertThat(this.converter.fromPubSubMessage(message, String.class)).isEqualTo("small");
+  }
+
+  @Test
+  void testLeavesIncompressiblePayloadsUncompressed() {
+    this.converter.setMinimumSize(0);
+
+    PubsubMessage message = this.converter.toPubSubMessage("abc", null);
+
+    assertThat(message.getData().toStringUtf8()).isEqualTo("abc");
+    assertThat(message.getAttributesMap()).isEmpty();
+  }
+
+  @Test
+  void testDecompressesWithAddedDecoders() {
+    CompressingPubSubMessageConverter deflatePublisher =
+        new CompressingPubSubMessageConverter(new SimplePubSubMessageConverter(), new Deflate());
+    PubsubMessage message = deflatePublisher.toPubSubMessage(LARGE_PAYLOAD, null);
+    assertThat(message.getAttributesMap())
+        .containsEntry(CompressingPubSubMessageConverter.CONTENT_ENCODING_ATTRIBUTE, "deflate");
+
+    assertThatThrownBy(() -> this.converter.fromPubSubMessage(message, String.class))
+        .isInstanceOf(PubSubMessageConversionException.class)
+        .hasMessage("No codec to decompress the payload encoded with deflate.");
+
+    this.converter.addDecoder(new Deflate());
+    assertThat(this.converter.fromPubSubMessage(message, String.class)).isEqualTo(LARGE_PAYLOAD);
+  }
+
+  @Test
+  void testInvalidCompressedPayloadFails() {
+    PubsubMessage message =
+        PubsubMessage.newBuilder()
+            .setData(ByteString.copyFromUtf8("not gzip"))
+            .putAttributes(CompressingPubSubMessageConverter.CONTENT_ENCODING_ATTRIBUTE, "gzip")
+            .build();
+
+    assertThatThrownBy(() -> this.converter.fromPubSubMessage(message, String.class))
+        .isInstanceOf(PubSubMessageConversionException.class)
+        .hasMessageStartingWith("Decompressing the payload with gzip failed.");
+  }
+
+  @Test
+  void testPayloadDecompressingPastTheMaximumSizeFails() {
+    PubsubMessage message = this.converter.toPubSubMessage(LARGE_PAYLOAD, null);
+    this.converter.setMaxDecompressedSize(LARGE_PAYLOAD.length() - 1);
+
+    assertThatThrownBy(() -> this.converter.fromPubSubMessage(message, String.class))
+        .isInstanceOf(PubSubMessageConversionException.class)
+        .hasMessage(
+            "The payload decompressed with gzip exceeds the maximum size of "
+                + (LARGE_PAYLOAD.length() - 1)
+                + " bytes.");
+
+    this.converter.setMaxDecompressedSize(LARGE_PAYLOAD.length());
+
+    assertThat(this.converter.fromPubSubMessage(message, String.class)).isEqualTo(LARGE_PAYLOAD);
+  }
+
+  private static class Deflate implements PubSubPayloadCodec {
+
+    @Override
+    public String getName() {
+      return "deflate";
+    }
+
+    @Override
+    public OutputStream encode(OutputStream out) {
+      return new DeflaterOutputStream(out, new Deflater());
+    }
+
+    @Override
+    public InputStream decode(InputStream in) {
+      return new InflaterInputStream(in);
+    }
+  }
+}
@@ -18,6 +18,8 @@ package com.google.cloud.spring.pubsub.support.converter;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.cloud.spring.pubsub.support.GcpPubSubHeaders;
 import com.google.pubsub.v1.PubsubMessage;
@@ -67,6 +69,48 @@ class JacksonPubSubMessageConverterTests {
         .isEqualTo(contact);
   }
 
+  @Test
+  void testSubtypePayloadIsWrittenWithItsRuntimeType() throws Exception {
+    ObjectMapper objectMapper = new ObjectMapper();
+    JacksonPubSubMessageConverter converter = new JacksonPubSubMessageConverter(objectMapper);
+    Contact contact = new BusinessContact("Thomas", "Edison", 8817, "General Electric");
+
+    PubsubMessage pubsubMessage = converter.toPubSubMessage(contact, null);
+
+    JSONAssert.assertEquals(
+        objectMapper.writeValueAsString(contact), pubsubMessage.getData().toStringUtf8(), true);
+    JSONAssert.assertEquals(
+        "{\"firstName\":\"Thomas\",\"lastName\":\"Edison\",\"zip\":8817,"
+            + "\"company\":\"General Electric\"}",
+        pubsubMessage.getData().toStringUtf8(),
+        true);
+  }
+
+  @Test
+  void testPolymorphicPayloadIsReadAsItsSubtype() {
+    Pet pet = new Dog("Rex");
+
+    PubsubMessage pubsubMessage = this.converter.toPubSubMessage(pet, null);
+
+    assertThat(pubsubMessage.getData().toStringUtf8()).contains("\"type\":\"dog\"");
+    assertThat(this.converter.fromPubSubMessage(pubsubMessage, Pet.class))
+        .isInstanceOfSatisfying(Dog.class, dog -> assertThat(dog.name).isEqualTo("Rex"));
+  }
+
+  @Test
+  void testLargePayload() {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 10_000; i++) {
+      builder.append("0123456789");
+    }
+    String payload = builder.toString();
+
+    PubsubMessage pubsubMessage = this.converter.toPubSubMessage(payload, null);
+
+    assertThat(pubsubMessage.getData().size()).isEqualTo(payload.length() + 2);
+    assertThat(this.converter.fromPubSubMessage(pubsubMessage, String.class)).isEqualTo(payload);
+  }
+
   @Test
   void testToPubSubMessageWithNullPayload() throws JSONException {
     PubsubMessage pubsubMessage = this.converter.toPubSubMessage(null, null);
@@ -154,4 +198,34 @@ class JacksonPubSubMessageConverterTests {
       return java.util.Objects.hash(this.firstName, this.lastName, this.zip);
     }
   }
+
+  /** A subtype of {@link Contact} with an additional property. */
+  static class BusinessContact extends Contact {
+    String company;
+
+    BusinessContact(String firstName, String lastName, int zip, String company) {
+      super(firstName, lastName, zip);
+      this.company = company;
+    }
+
+    public String getCompany() {
+      return this.company;
+    }
+  }
+
+  /** A polymorphic type whose JSON carries the name of the subtype. */
+  @JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "type")
+  @JsonSubTypes(@JsonSubTypes.Type(value = Dog.class, name = "dog"))
+  abstract static class Pet {}
+
+  /** A subtype of {@link Pet}. */
+  static class Dog extends Pet {
+    public String name;
+
+    Dog() {}
+
+    Dog(String name) {
+      this.name = name;
+    }
+  }
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2022-2022 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.cloud.spring.pubsub.support.converter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.google.cloud.spring.pubsub.support.GcpPubSubHeaders;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.Duration;
+import com.google.protobuf.Message;
+import com.google.protobuf.Timestamp;
+import com.google.pubsub.v1.PubsubMessage;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+
+/** Tests for {@link ProtobufPubSubMessageConverter}. */
+class ProtobufPubSubMessageConverterTests {
+
+  private static final Timestamp TIMESTAMP =
+      Timestamp.newBuilder().setSeconds(1_650_000_000L).setNanos(42).build();
+
+  private final ProtobufPubSubMessageConverter converter = new ProtobufPubSubMessageConverter();
+
+  @Test
+  void testToPubSubMessage() {
+    PubsubMessage message =
+        this.converter.toPubSubMessage(
+            TIMESTAMP, Collections.singletonMap(GcpPubSubHeaders.ORDERING_KEY, "key"));
+
+    assertThat(message.getData()).isEqualTo(TIMESTAMP.toByteString());
+    assertThat(message.getAttributesMap())
+        .containsOnlyKeys(ProtobufPubSubMessageConverter.PAYLOAD_TYPE_ATTRIBUTE)
+        .containsEntry(
+            ProtobufPubSubMessageConverter.PAYLOAD_TYPE_ATTRIBUTE, "google.protobuf.Timestamp");
+    assertThat(message.getOrderingKey()).isEqualTo("key");
+  }
+
+  @Test
+  void testFromPubSubMessageOfConcreteType() {
+    PubsubMessage message = PubsubMessage.newBuilder().setData(TIMESTAMP.toByteString()).build();
+
+    assertThat(this.converter.fromPubSubMessage(message, Timestamp.class)).isEqualTo(TIMESTAMP);
+  }
+
+  @Test
+  void testFromPubSubMessageResolvesRegisteredTypes() {
+    this.converter.registerType(Timestamp.class);
+    this.converter.registerType(Duration.class);
+    Duration duration = Duration.newBuilder().setSeconds(5).build();
+
+    assertThat(
+            this.converter.fromPubSubMessage(
+                this.converter.toPubSubMessage(TIMESTAMP, null), Message.class))
+        .isEqualTo(TIMESTAMP);
+    assertThat(
+            this.converter.fromPubSubMessage(
+                this.converter.toPubSubMessage(duration, null), Object.class))
+        .isEqualTo(duration);
+  }
+
+  @Test
+  void testFromPubSubMessageOfUnregisteredTypeFails() {
+    PubsubMessage message = this.converter.toPubSubMessage(TIMESTAMP, null);
+
+    assertThatThrownBy(() -> this.converter.fromPubSubMessage(message, Message.class))
+        .isInstanceOf(PubSubMessageConversionException.class)
+        .hasMessage(
+            "Unable to resolve the Protocol Buffers message type google.protobuf.Timestamp"
+                + " to a registered subtype of com.google.protobuf.Message.");
+  }
+
+  @Test
+  void testFromInvalidPayloadFails() {
+    PubsubMessage message =
+        PubsubMessage.newBuilder().setData(ByteString.copyFromUtf8("not protobuf")).build();
+
+    assertThatThrownBy(() -> this.converter.fromPubSubMessage(message, Timestamp.class))
+        .isInstanceOf(PubSubMessageConversionException.class)
+        .hasMessageStartingWith(
+            "Protocol Buffers deserialization of a message of type"
+                + " com.google.protobuf.Timestamp failed.");
+  }
+
+  @Test
+  void testToPubSubMessageOfNonProtobufPayloadFails() {
+    assertThatThrownBy(() -> this.converter.toPubSubMessage("text", null))
+        .isInstanceOf(PubSubMessageConversionException.class)
+        .hasMessage(
+            "Unable to convert payload of type java.lang.String to a Protocol Buffers message.");
+  }
+}